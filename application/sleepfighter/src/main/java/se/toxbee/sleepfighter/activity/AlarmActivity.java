@@ -37,8 +37,11 @@ import android.view.animation.LinearInterpolator;
 import android.widget.Button;
 import android.widget.TextView;
 
+import com.google.common.collect.Lists;
+
 import org.joda.time.DateTime;
 
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -128,8 +131,17 @@ public class AlarmActivity extends Activity {
 
 	private void fetchAlarm() {
 		// Fetch it.
+		SFApplication app = SFApplication.get();
 		int alarmId = new AlarmIntentHelper( this.getIntent() ).getAlarmId();
-		this.alarm = SFApplication.get().getPersister().fetchAlarmById( alarmId );
+		this.alarm = app.getPersister().fetchAlarmById( alarmId );
+
+		// Load challenges behind, both here and for ChallengeActivity which uses the listed alarm.
+		List<Alarm> alarms = Lists.newArrayList( this.alarm );
+		Alarm listed = app.getAlarms().getById( alarmId );
+		if ( listed != null ) {
+			alarms.add( listed );
+		}
+		app.getPersister().prefetchChallengesBehind( alarms );
 
 		// Init the planner.
 		AlarmPlannerService.register();
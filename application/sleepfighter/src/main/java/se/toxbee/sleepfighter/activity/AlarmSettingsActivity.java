@@ -65,6 +65,7 @@ import se.toxbee.sleepfighter.helper.AlarmTimeRefresher;
 import se.toxbee.sleepfighter.helper.AlarmTimeRefresher.RefreshedEvent;
 import se.toxbee.sleepfighter.model.Alarm;
 import se.toxbee.sleepfighter.model.Alarm.AudioChangeEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
 import se.toxbee.sleepfighter.model.Alarm.Field;
 import se.toxbee.sleepfighter.model.Alarm.MetaChangeEvent;
 import se.toxbee.sleepfighter.model.AlarmList;
@@ -158,6 +159,9 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 		AlarmActivity.startIfRinging( this );
 
 		this.initRefresher();
+
+		// Batch all edits until paused: one change set, persisted and rescheduled once.
+		this.alarm.beginEdit();
 	}
 
 	@Override
@@ -165,6 +169,13 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 		super.onPause();
 
 		this.clearRefresher();
+		this.commitEdit();
+	}
+
+	private void commitEdit() {
+		if ( this.alarm.isEditing() ) {
+			this.alarm.commitEdit();
+		}
 	}
 
 	@Override
@@ -173,6 +184,7 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 
 		this.clearRefresher();
 		SFApplication.get().getTts().stop();
+		app().getBus().unsubscribe( this );
 	}
 
 	private AlarmTimeRefresher refresher;
@@ -211,35 +223,27 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 	 */
 	@Handler
 	public void handleRefreshed( RefreshedEvent evt ) {
-		this.runOnUiThread( new Runnable() {
-			@Override
-			public void run() {
-				updateTimeSummary();
-			}
-		} );
+		this.runOnUiThread( this.updateTimeSummaryTask );
 	}
 
+	/** Reused since {@link #handleRefreshed(RefreshedEvent)} runs every second. */
+	private final Runnable updateTimeSummaryTask = new Runnable() {
+		@Override
+		public void run() {
+			updateTimeSummary();
+		}
+	};
+
 	private void updateTimeSummary() {
 		AlarmTime t = alarm.getTime();
 		boolean countdown = t instanceof CountdownTime;
 		findPreference( TIME ).setSummary( (countdown ? "in " : "") + t.getTimeString( !countdown ) );
 	}
 
-	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
 	@Handler
 	public void handleNameChange(MetaChangeEvent e) {
 		if (e.getModifiedField() == Field.NAME) {
-			String name = alarm.printName();
-			Preference namePref = findPreference(NAME);
-
-			// null if preference removed due to API level
-			if (namePref != null) {
-				namePref.setSummary(name);
-			}
-
-			if (Build.VERSION.SDK_INT >= 11) {
-				((EditText)this.getActionBar().getCustomView().findViewById(R.id.alarm_edit_title_field)).setText(name);
-			}
+			updateNameSummary();
 		}
 	}
 
@@ -250,6 +254,36 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 		}
 	}
 
+	@Handler
+	public void handleChangeSet(ChangeSetEvent e) {
+		if (e.getAlarm() != alarm) {
+			return;
+		}
+
+		if (e.isDirty(Field.NAME)) {
+			updateNameSummary();
+		}
+
+		if (e.isDirty(Field.AUDIO_SOURCE)) {
+			updateRingerSummary();
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+	private void updateNameSummary() {
+		String name = alarm.printName();
+		Preference namePref = findPreference(NAME);
+
+		// null if preference removed due to API level
+		if (namePref != null) {
+			namePref.setSummary(name);
+		}
+
+		if (Build.VERSION.SDK_INT >= 11) {
+			((EditText)this.getActionBar().getCustomView().findViewById(R.id.alarm_edit_title_field)).setText(name);
+		}
+	}
+
 	private void removeFlashLightPref() {
 		Preference pref = (Preference) findPreference(FLASH);
 		PreferenceCategory category = (PreferenceCategory) findPreference("pref_category_misc");
@@ -465,6 +499,7 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 		DialogInterface.OnClickListener dialogClickListener = new DialogInterface.OnClickListener() {
 			@Override
 			public void onClick(DialogInterface dialog, int which) {
+				commitEdit();
 				alarmList.remove(alarm);
 				finish();
 			}
@@ -515,6 +550,7 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 	private Preference.OnPreferenceChangeListener sBindPreferenceSummaryToValueListener = new Preference.OnPreferenceChangeListener() {
 		@Override
 		public boolean onPreferenceChange(Preference preference, Object value) {
+			// Changes of the alarm join the edit session of the screen, see onResume.
 			String stringValue = value.toString();
 			
 			if (TIME.equals(preference.getKey())) {
@@ -568,9 +604,8 @@ public class AlarmSettingsActivity extends PreferenceActivity {
 			}
 			else if (FLASH.equals(preference.getKey())) {
 				alarm.setFlash(("true".equals(stringValue)) ? true : false);
-			}	
-			
-			
+			}
+
 			return true;
 		}
 	};
@@ -211,5 +211,6 @@ public class ChallengeActivity extends Activity {
 	protected void onDestroy() {
 		super.onDestroy();
 		this.challenge.onDestroy();
+		this.app().getBus().unsubscribe( this );
 	};
 }
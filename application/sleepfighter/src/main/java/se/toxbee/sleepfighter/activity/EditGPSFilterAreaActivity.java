@@ -113,6 +113,15 @@ public class EditGPSFilterAreaActivity extends FragmentActivity implements OnMap
 		this.area.getMessageBus().subscribe( this );
 	}
 
+	@Override
+	protected void onDestroy() {
+		super.onDestroy();
+
+		if ( this.area != null && this.area.getMessageBus() != null ) {
+			this.area.getMessageBus().unsubscribe( this );
+		}
+	}
+
 	@TargetApi(Build.VERSION_CODES.HONEYCOMB)
 	private void setupActionBar() {
 		String name = this.area.printName();
@@ -40,6 +40,7 @@ import com.mobeta.android.dslv.DragSortListView.DropListener;
 import net.engio.mbassy.listener.Handler;
 
 import java.util.Arrays;
+import java.util.Collections;
 
 import se.toxbee.sleepfighter.R;
 import se.toxbee.sleepfighter.adapter.AlarmAdapter;
@@ -53,6 +54,7 @@ import se.toxbee.sleepfighter.helper.AlarmTimeRefresher;
 import se.toxbee.sleepfighter.helper.AlarmTimeRefresher.RefreshedEvent;
 import se.toxbee.sleepfighter.model.Alarm;
 import se.toxbee.sleepfighter.model.Alarm.AlarmEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
 import se.toxbee.sleepfighter.model.Alarm.Field;
 import se.toxbee.sleepfighter.model.Alarm.ScheduleChangeEvent;
 import se.toxbee.sleepfighter.model.AlarmList;
@@ -145,6 +147,7 @@ public class MainActivity extends Activity {
 		super.onDestroy();
 
 		this.clearRefresher();
+		this.app().getBus().unsubscribe( this );
 	}
 
 	private AlarmTimeRefresher refresher;
@@ -244,6 +247,9 @@ public class MainActivity extends Activity {
 	}
 
 	private void startAlarmEdit( Alarm alarm, boolean isNew ) {
+		// Settings read the challenge set, load it behind meanwhile.
+		this.app().getPersister().prefetchChallengesBehind( Collections.singletonList( alarm ) );
+
 		Intent i = new Intent( this, AlarmSettingsActivity.class );
 		i.putExtra( AlarmSettingsActivity.EXTRA_ALARM_IS_NEW, isNew );
 		this.startActivity( new AlarmIntentHelper( i ).setAlarmId( alarm ).intent() );
@@ -298,6 +304,22 @@ public class MainActivity extends Activity {
 		}
 	}
 
+	/**
+	 * Handles a committed edit session of an alarm.
+	 *
+	 * @param evt
+	 */
+	@Handler
+	public void handleAlarmChangeSet( ChangeSetEvent evt ) {
+		this.alarmList.orderIfNeeded( evt );
+
+		if ( evt.isScheduleChange() ) {
+			this.updateEarliestText();
+		}
+
+		this.alarmAdapter.notifyDataSetChanged();
+	}
+
 	/**
 	 * Handles a change in the list of alarms<br/>
 	 * (the list itself, deletion, insertion, etc, not edits in an alarm).
@@ -323,14 +345,17 @@ public class MainActivity extends Activity {
 	 * Performs {@link #updateEarliest()} on UI thread.
 	 */
 	private void updateEarliestUI() {
-		this.runOnUiThread( new Runnable() {
-			@Override
-			public void run() {
-				updateEarliest();
-			}
-		} );
+		this.runOnUiThread( this.updateEarliestTask );
 	}
 
+	/** Reused since {@link #handleRefreshed(RefreshedEvent)} runs every second. */
+	private final Runnable updateEarliestTask = new Runnable() {
+		@Override
+		public void run() {
+			updateEarliest();
+		}
+	};
+
 	/**
 	 * Called when earliest alarm has changed.
 	 */
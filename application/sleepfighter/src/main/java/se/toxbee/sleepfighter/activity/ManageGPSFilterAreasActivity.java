@@ -221,6 +221,8 @@ public class ManageGPSFilterAreasActivity extends Activity {
 	protected void onDestroy() {
 		super.onDestroy();
 
+		this.set.getMessageBus().unsubscribe( this );
+
 		// Release the applications reference to set.
 		this.set = null;
 		SFApplication.get().releaseGPSSet();
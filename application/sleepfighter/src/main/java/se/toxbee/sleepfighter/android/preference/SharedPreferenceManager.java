@@ -18,25 +18,26 @@ package se.toxbee.sleepfighter.android.preference;
 
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.util.Base64;
-import android.util.Base64InputStream;
-import android.util.Base64OutputStream;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.ObjectStreamException;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Maps;
+
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+import se.toxbee.sleepfighter.persist.type.PreferenceValueType;
 import se.toxbee.sleepfighter.utils.prefs.BasePreferenceManager;
 import se.toxbee.sleepfighter.utils.prefs.PreferenceManager;
 import se.toxbee.sleepfighter.utils.prefs.PreferenceNode;
 
 /**
- * {@link SharedPreferenceNode} is an adapter for {@link SharedPreferences}.
+ * {@link SharedPreferenceNode} is an adapter for {@link SharedPreferences}.<br/>
+ * The entries are mirrored in a sorted index so that {@link #_getAll(String)}, the view of a child node, is a range.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
@@ -46,6 +47,22 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 	private final SharedPreferences prefs;
 	private Editor edit;
 
+	// Sorted mirror of prefs. Edits of this manager are indexed when applied, others by changeListener.
+	private final ConcurrentNavigableMap<String, Object> index = new ConcurrentSkipListMap<String, Object>();
+
+	// Changes of the open edit, indexed when applied. A null value is a removal.
+	private final Map<String, Object> staged = Maps.newHashMap();
+	private boolean stagedClear;
+
+	// SharedPreferences holds its listeners weakly, this is the strong reference.
+	private final OnSharedPreferenceChangeListener changeListener = new OnSharedPreferenceChangeListener() {
+		@Override
+		public void onSharedPreferenceChanged( SharedPreferences prefs, String key ) {
+			reindex( key );
+			changed( key );
+		}
+	};
+
 	/**
 	 * Constructs a SharedPreferenceNode.
 	 *
@@ -54,6 +71,10 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 	public SharedPreferenceManager( SharedPreferences prefs ) {
 		this.prefs = prefs;
 		this.edit = null;
+		this.index.putAll( prefs.getAll() );
+
+		// Also tells of edits made directly, e.g. from a PreferenceActivity.
+		this.prefs.registerOnSharedPreferenceChangeListener( this.changeListener );
 	}
 
 	@Override
@@ -63,7 +84,73 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public Map<String, ?> getAll() {
-		return this.prefs.getAll();
+		return Collections.unmodifiableMap( this.index );
+	}
+
+	@Override
+	public Map<String, ?> _getAll( String prefix ) {
+		if ( prefix.isEmpty() ) {
+			return this.getAll();
+		}
+
+		String end = prefixEnd( prefix );
+		if ( end == null ) {
+			return super._getAll( prefix );
+		}
+
+		return Collections.unmodifiableMap( this.index.subMap( prefix, true, end, false ) );
+	}
+
+	/**
+	 * Updates the index entry of key from prefs, all of them if key is null.
+	 *
+	 * @param key the changed key, null when prefs were cleared.
+	 */
+	private void reindex( String key ) {
+		if ( key == null ) {
+			this.index.clear();
+			this.index.putAll( this.prefs.getAll() );
+			return;
+		}
+
+		Object value = this.read( key, this.index.get( key ) );
+		if ( value == null ) {
+			this.index.remove( key );
+		} else {
+			this.index.put( key, value );
+		}
+	}
+
+	/**
+	 * Reads the value of key with the getter for the type of hint,<br/>
+	 * or from a copy of all entries when the type is not known.
+	 *
+	 * @param key the key.
+	 * @param hint the last known value of key, or null.
+	 * @return the value, or null if there is none.
+	 */
+	private Object read( String key, Object hint ) {
+		if ( !this.prefs.contains( key ) ) {
+			return null;
+		}
+
+		try {
+			if ( hint instanceof String ) {
+				return this.prefs.getString( key, null );
+			} else if ( hint instanceof Integer ) {
+				return this.prefs.getInt( key, 0 );
+			} else if ( hint instanceof Long ) {
+				return this.prefs.getLong( key, 0 );
+			} else if ( hint instanceof Boolean ) {
+				return this.prefs.getBoolean( key, false );
+			} else if ( hint instanceof Float ) {
+				return this.prefs.getFloat( key, 0 );
+			}
+		} catch ( ClassCastException e ) {
+			// The type changed.
+		}
+
+		return this.prefs.getAll().get( key );
 	}
 
 	@Override
@@ -109,7 +196,7 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public PreferenceNode setBoolean( String key, boolean val ) {
-		return tryac( edit(), edit.putBoolean( key, val ) );
+		return this.unchanged( key, val ) ? this : tryac( edit(), stage( key, val ).putBoolean( key, val ) );
 	}
 
 	@Override
@@ -124,17 +211,17 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public PreferenceNode setInt( String key, int val ) {
-		return tryac( edit(), edit.putInt( key, val ) );
+		return this.unchanged( key, val ) ? this : tryac( edit(), stage( key, val ).putInt( key, val ) );
 	}
 
 	@Override
 	public PreferenceNode setLong( String key, long val ) {
-		return tryac( edit(), edit.putLong( key, val ) );
+		return this.unchanged( key, val ) ? this : tryac( edit(), stage( key, val ).putLong( key, val ) );
 	}
 
 	@Override
 	public PreferenceNode setFloat( String key, float val ) {
-		return tryac( edit(), edit.putFloat( key, val ) );
+		return this.unchanged( key, val ) ? this : tryac( edit(), stage( key, val ).putFloat( key, val ) );
 	}
 
 	@Override
@@ -144,16 +231,17 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public PreferenceNode setString( String key, String val ) {
-		return tryac( edit(), edit.putString( key, val ) );
+		return this.unchanged( key, val ) ? this : tryac( edit(), stage( key, val ).putString( key, val ) );
 	}
 
 	@Override
 	public PreferenceNode remove( String key ) {
-		return tryac( edit(), edit.remove( key ) );
+		return this.unchanged( key, null ) ? this : tryac( edit(), stage( key, null ).remove( key ) );
 	}
 
 	@Override
 	public PreferenceNode clear() {
+		this.stagedClear = true;
 		return tryac( edit(), edit.clear() );
 	}
 
@@ -172,6 +260,75 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 		return isNotApplying;
 	}
 
+	/**
+	 * Returns the value of key as stored, including the changes of the open edit.
+	 *
+	 * @param key the key.
+	 * @return the value, or null if there is none.
+	 */
+	private Object current( String key ) {
+		if ( this.staged.containsKey( key ) ) {
+			return this.staged.get( key );
+		}
+
+		return this.stagedClear ? null : this.index.get( key );
+	}
+
+	/**
+	 * Returns whether or not key already has value as stored, so that writing it would change nothing.<br/>
+	 * Unchanged values are not written, and so do not tell the listeners.
+	 *
+	 * @param key the key.
+	 * @param value the value as stored, null if removed.
+	 * @return true if unchanged.
+	 */
+	private boolean unchanged( String key, Object value ) {
+		return Objects.equal( value, this.current( key ) );
+	}
+
+	/**
+	 * Returns whether or not value is stored with a typed getter and setter, not serialized.
+	 *
+	 * @param value the value.
+	 * @return true if typed.
+	 */
+	private static boolean isTyped( Object value ) {
+		return value instanceof Boolean || value instanceof Character || value instanceof Short
+			|| value instanceof Integer || value instanceof Long || value instanceof Float || value instanceof Double;
+	}
+
+	/**
+	 * Stages the change of key for the index, and returns the open editor.
+	 *
+	 * @param key the key.
+	 * @param value the value as stored, null to remove.
+	 * @return the editor.
+	 */
+	private Editor stage( String key, Object value ) {
+		this.staged.put( key, value );
+		return this.edit;
+	}
+
+	/**
+	 * Indexes the staged changes of an applied edit, like {@link Editor} a clear goes first.
+	 */
+	private void indexStaged() {
+		if ( this.stagedClear ) {
+			this.index.clear();
+			this.stagedClear = false;
+		}
+
+		for ( Map.Entry<String, Object> entry : this.staged.entrySet() ) {
+			if ( entry.getValue() == null ) {
+				this.index.remove( entry.getKey() );
+			} else {
+				this.index.put( entry.getKey(), entry.getValue() );
+			}
+		}
+
+		this.staged.clear();
+	}
+
 	private PreferenceNode tryac( boolean autoCommit, Editor editor ) {
 		if ( autoCommit && this.isApplying() ) {
 			this._apply();
@@ -183,6 +340,7 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 	private void _apply() {
 		this.edit.apply();
 		this.edit = null;
+		this.indexStaged();
 	}
 
 	@Override
@@ -203,6 +361,7 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 
 		boolean r = this.edit.commit();
 		this.edit = null;
+		this.indexStaged();
 		return r;
 	}
 
@@ -211,74 +370,50 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 	public <U extends Serializable> U set( String key, U value ) {
 		// Remove if null.
 		if ( value == null ) {
-			this.edit.remove( key );
-			return this.get( key, null );
+			U old = this.get( key, null );
+			this.remove( key );
+			return old;
 		}
 
 		// If we've got a "primitive", redirect to correct setter.
-		if ( value.getClass().isPrimitive() ) {
-			Object old = null;
-			
+		if ( isTyped( value ) ) {
+			U old = this.contains( key ) ? this.get( key, value ) : null;
+
 			if ( value instanceof Boolean ) {
-				old = this.contains( key ) ? this.getBoolean( key, false ) : null;
 				this.setBoolean( key, (Boolean) value );
 			} else if ( value instanceof Character ) {
-				old = this.contains( key ) ? this.getChar( key, (char) 0 ) : null;
 				this.setChar( key, (Character) value );
 			} else if ( value instanceof Short ) {
-				old = this.contains( key ) ? this.getShort( key, (short) 0 ) : null;
 				this.setShort( key, (Short) value );
 			} else if ( value instanceof Integer ) {
-				old = this.contains( key ) ? this.getInt( key, 0 ) : null;
 				this.setInt( key, (Integer) value );
 			} else if ( value instanceof Long ) {
-				old = this.contains( key ) ? this.getLong( key, 0 ) : null;
 				this.setLong( key, (Long) value );
 			} else if ( value instanceof Float ) {
-				old = this.contains( key ) ? this.getFloat( key, 0 ) : null;
 				this.setFloat( key, (Float) value );
 			} else if ( value instanceof Double ) {
-				old = this.contains( key ) ? this.getDouble( key, 0 ) : null;
 				this.setDouble( key, (Double) value );
 			}
 
-			return (U) old;
+			return old;
 		} else if ( value instanceof String ) {
 			Object old = this.contains( key ) ? this.getString( key, null ) : null;
 			this.setString( key, (String) value );
 			return (U) old;
 		}
 
-		// Convert the value to an object.
-	    ByteArrayOutputStream arrayOutputStream = new ByteArrayOutputStream();
-		ObjectOutputStream objectOutput;
-		try {
-			objectOutput = new ObjectOutputStream( arrayOutputStream );
-			objectOutput.writeObject( value );
-			byte[] data = arrayOutputStream.toByteArray();
-			objectOutput.close();
-			arrayOutputStream.close();
-
-			ByteArrayOutputStream out = new ByteArrayOutputStream();
-			Base64OutputStream b64 = new Base64OutputStream( out, Base64.DEFAULT );
-			b64.write( data );
-			b64.close();
-			out.close();
-
-			U old = this.get( key, null );
-			this.setString( key, new String( out.toByteArray() ) );
-			return old;
-		} catch ( IOException e ) {
-			throw new RuntimeException( e );
-		}
+		// Encode the value with the tagged format, the old format was a bare java serialization stream.
+		U old = this.get( key, null );
+		this.setString( key, Base64.encodeToString( PreferenceValueType.encode( value ), Base64.NO_WRAP ) );
+		return old;
 	}
 
 	@SuppressWarnings( "unchecked" )
 	@Override
 	public <U extends Serializable> U get( String key, U def ) {
 		// If we've got a "primitive", redirect to correct getter.
-		if ( def != null ) {
-			if ( def.getClass().isPrimitive() ) {
+		if ( isTyped( def ) ) {
+			try {
 				Object retr = null;
 				if ( def instanceof Boolean ) {
 					retr = this.getBoolean( key, (Boolean) def );
@@ -296,44 +431,30 @@ public class SharedPreferenceManager extends BasePreferenceManager {
 					retr = this.getDouble( key, (Double) def );
 				}
 				return (U) retr;
-			} else if ( def instanceof String ) {
-				return (U) this.getString( key, (String) def );
+			} catch ( ClassCastException e ) {
+				// Serialized by an older version, which stored boxed values as objects.
 			}
+		} else if ( def instanceof String ) {
+			return (U) this.getString( key, (String) def );
 		}
 
-		String str = this.prefs.getString( key, null );
-		if ( str == null ) {
-			return def;
+		// Without a type to go by, a typed value is returned as stored.
+		Object raw = this.index.get( key );
+		if ( raw != null && !(raw instanceof String) ) {
+			return (U) raw;
 		}
 
-		byte[] bytes = str.getBytes();
-		if ( bytes.length == 0 ) {
+		String str = (String) raw;
+		if ( str == null || str.isEmpty() ) {
 			return def;
 		}
 
-		U r = def;
-
-		// Read the value.
-		ObjectInputStream in = null;
+		// Read the value, both the tagged format and the old java serialization stream.
 		try {
-			ByteArrayInputStream byteArray = new ByteArrayInputStream( bytes );
-			Base64InputStream base64InputStream = new Base64InputStream( byteArray, Base64.DEFAULT );
-			in = new ObjectInputStream( base64InputStream );
-			r = (U) in.readObject();
-		} catch ( ObjectStreamException e ) {
-			e.printStackTrace();
-		} catch ( ClassNotFoundException e ) {
-			e.printStackTrace();
-		} catch ( IOException e ) {
+			return (U) PreferenceValueType.decode( Base64.decode( str, Base64.DEFAULT ) );
+		} catch ( IllegalArgumentException e ) {
 			e.printStackTrace();
-		} finally {
-			try {
-				in.close();
-			} catch ( IOException e ) {
-				e.printStackTrace();
-			}
+			return def;
 		}
-
-		return r;
 	}
 }
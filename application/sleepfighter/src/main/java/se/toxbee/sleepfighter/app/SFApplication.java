@@ -99,6 +99,31 @@ public class SFApplication extends Application implements LocalizationProvider,
 		ActivityUtils.forceActionBarOverflow( this );
 	}
 
+	@Override
+	public void onTrimMemory( int level ) {
+		super.onTrimMemory( level );
+
+		// The process is a candidate for being killed, store pending writes.
+		if ( level >= TRIM_MEMORY_UI_HIDDEN ) {
+			this.getPersister().flush();
+		}
+	}
+
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+
+		// onTrimMemory is API 14+, before that this and onPause of activities are all we get.
+		this.getPersister().flush();
+	}
+
+	@Override
+	public void onTerminate() {
+		this.getPersister().release();
+
+		super.onTerminate();
+	}
+
 
 	/**
 	 * Returns the one and only SFApplication in town.
@@ -245,6 +270,7 @@ public class SFApplication extends Application implements LocalizationProvider,
 	private void initPreferences() {
 		SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences( this );
 		SharedPreferenceManager backend = new SharedPreferenceManager( sharedPrefs );
+		backend.setMessageBus( this.getBus() );
 		this.prefs = new AppPreferenceManager( backend, this.localizationProvider );
 	}
 
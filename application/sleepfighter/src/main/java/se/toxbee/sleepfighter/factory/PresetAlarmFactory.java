@@ -16,12 +16,9 @@
 
 package se.toxbee.sleepfighter.factory;
 
-import android.provider.Settings;
-
 import se.toxbee.sleepfighter.model.SnoozeConfig;
 import se.toxbee.sleepfighter.model.audio.AudioConfig;
 import se.toxbee.sleepfighter.model.audio.AudioSource;
-import se.toxbee.sleepfighter.model.audio.AudioSourceType;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
 import se.toxbee.sleepfighter.model.challenge.ChallengeType;
@@ -64,9 +61,7 @@ public class PresetAlarmFactory extends AbstractAlarmFactory {
 
 	@Override
 	protected AudioSource createAudioSource() {
-		return new AudioSource(
-				AudioSourceType.RINGTONE,
-				Settings.System.DEFAULT_ALARM_ALERT_URI.toString() );
+		return AudioSource.defaultAlarmAlert();
 	}
 
 	protected AudioConfig createAudioConfig() {
@@ -16,8 +16,6 @@
 
 package se.toxbee.sleepfighter.helper;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -39,6 +37,13 @@ public class AlarmTimeRefresher {
 	private Timer timer;
 	private final AlarmList list;
 
+	/** The event is immutable, so one instance is published each time. */
+	private final RefreshedEvent event = new RefreshedEvent();
+
+	/**
+	 * RefreshedEvent is published after each refresh.<br/>
+	 * The same instance is published every time for a given refresher, do not keep state in it.
+	 */
 	public class RefreshedEvent implements Message {
 		public AlarmList getList() {
 			return list;
@@ -92,14 +97,15 @@ public class AlarmTimeRefresher {
 	}
 
 	private void refresh() {
-		List<Alarm> l = Collections.synchronizedList( this.list );
-		synchronized( l ) {
+		// Runs every second, so avoid allocating: no wrappers, iterators or events.
+		synchronized( this.list ) {
 			if ( this.list.isEmpty() ) {
 				return;
 			}
 
 			// Do refreshing.
-			for ( Alarm a : l ) {
+			for ( int i = 0; i < this.list.size(); ++i ) {
+				Alarm a = this.list.get( i );
 				synchronized( a ) {
 					if ( this.timer == null ) {
 						return;
@@ -116,7 +122,7 @@ public class AlarmTimeRefresher {
 			// Notify bus of refresh.
 			MessageBus<Message> bus = this.list.getMessageBus();
 			if ( bus != null ) {
-				bus.publish( new RefreshedEvent() );
+				bus.publish( this.event );
 			}
 		}
 	}
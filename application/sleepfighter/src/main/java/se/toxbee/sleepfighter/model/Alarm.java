@@ -17,10 +17,10 @@
 package se.toxbee.sleepfighter.model;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 
 import se.toxbee.sleepfighter.model.audio.AudioConfig;
 import se.toxbee.sleepfighter.model.audio.AudioSource;
-import se.toxbee.sleepfighter.model.audio.AudioSourceType;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
 import se.toxbee.sleepfighter.model.time.AlarmTime;
 import se.toxbee.sleepfighter.model.time.CountdownTime;
@@ -31,7 +31,6 @@ import se.toxbee.sleepfighter.utils.message.MessageBus;
 import se.toxbee.sleepfighter.utils.message.MessageBusHolder;
 import se.toxbee.sleepfighter.utils.model.IdProvider;
 import se.toxbee.sleepfighter.utils.model.LocalizationProvider;
-import android.provider.Settings;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
@@ -185,6 +184,147 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		}
 	}
 
+	/**
+	 * <p>ChangeSetEvent occurs when an edit session started by {@link Alarm#beginEdit()}<br/>
+	 * is committed by {@link Alarm#commitEdit()} and at least one field was modified.</p>
+	 *
+	 * <p>It replaces all the {@link AlarmEvent}s that would have been published during the session.<br/>
+	 * Each modified field is marked dirty and its value from before the session is kept,<br/>
+	 * so that listeners can do all their work (persisting, rescheduling) in one go.</p>
+	 *
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	public static class ChangeSetEvent implements Message {
+		private static final int SCHEDULE_MASK = mask( Field.TIME, Field.REPEATING, Field.ACTIVATED, Field.ENABLED_DAYS );
+		private static final int META_MASK = mask( Field.ID, Field.NAME, Field.ORDER );
+		private static final int AUDIO_MASK = mask( Field.AUDIO_SOURCE, Field.AUDIO_CONFIG );
+
+		private final Alarm alarm;
+		private final Object[] oldValues = new Object[Field.values().length];
+		private int dirty;
+
+		private ChangeSetEvent( Alarm alarm ) {
+			this.alarm = alarm;
+		}
+
+		private static int mask( Field... fields ) {
+			int mask = 0;
+			for ( Field field : fields ) {
+				mask |= 1 << field.ordinal();
+			}
+			return mask;
+		}
+
+		/**
+		 * Records a change, only the first old value of a field is kept.
+		 *
+		 * @param evt the event that would have been published.
+		 */
+		private void record( AlarmEvent evt ) {
+			int ordinal = evt.getModifiedField().ordinal();
+			int bit = 1 << ordinal;
+			if ( (this.dirty & bit) == 0 ) {
+				this.dirty |= bit;
+				this.oldValues[ordinal] = evt.getOldValue();
+			}
+		}
+
+		/**
+		 * Returns the alarm that was edited.
+		 *
+		 * @return the alarm.
+		 */
+		public Alarm getAlarm() {
+			return this.alarm;
+		}
+
+		/**
+		 * Returns true if no field was modified.
+		 *
+		 * @return true if empty.
+		 */
+		public boolean isEmpty() {
+			return this.dirty == 0;
+		}
+
+		/**
+		 * Returns true if the given field was modified.
+		 *
+		 * @param field the field.
+		 * @return true if dirty.
+		 */
+		public boolean isDirty( Field field ) {
+			return (this.dirty & (1 << field.ordinal())) != 0;
+		}
+
+		/**
+		 * Returns true if the given field is the only one modified.
+		 *
+		 * @param field the field.
+		 * @return true if only field is dirty.
+		 */
+		public boolean isOnlyDirty( Field field ) {
+			return this.dirty == 1 << field.ordinal();
+		}
+
+		/**
+		 * Returns all the modified fields.
+		 *
+		 * @return the dirty fields.
+		 */
+		public EnumSet<Field> getDirtyFields() {
+			EnumSet<Field> fields = EnumSet.noneOf( Field.class );
+			for ( Field field : Field.values() ) {
+				if ( this.isDirty( field ) ) {
+					fields.add( field );
+				}
+			}
+			return fields;
+		}
+
+		/**
+		 * Returns the value a field had before the edit session.
+		 *
+		 * @param field the field.
+		 * @return the old value, or null if not dirty.
+		 */
+		public Object getOldValue( Field field ) {
+			return this.oldValues[field.ordinal()];
+		}
+
+		/**
+		 * Returns true if any field that a {@link ScheduleChangeEvent} is published for was modified.
+		 *
+		 * @return true if the schedule changed.
+		 */
+		public boolean isScheduleChange() {
+			return (this.dirty & SCHEDULE_MASK) != 0;
+		}
+
+		/**
+		 * Returns true if any field that a {@link MetaChangeEvent} is published for was modified.
+		 *
+		 * @return true if meta data changed.
+		 */
+		public boolean isMetaChange() {
+			return (this.dirty & META_MASK) != 0;
+		}
+
+		/**
+		 * Returns true if any field that an {@link AudioChangeEvent} is published for was modified.
+		 *
+		 * @return true if audio changed.
+		 */
+		public boolean isAudioChange() {
+			return (this.dirty & AUDIO_MASK) != 0;
+		}
+
+		public String toString() {
+			return "Alarm.ChangeSetEvent[alarm: " + this.alarm.getId() + ", fields: " + this.getDirtyFields() + "]";
+		}
+	}
+
 	/* --------------------------------
 	 * Fields: Bus.
 	 * --------------------------------
@@ -192,12 +332,22 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 
 	private MessageBus<Message> bus;
 
+	/* --------------------------------
+	 * Fields: Edit session.
+	 * --------------------------------
+	 */
+
+	private ChangeSetEvent changeSet;
+	private int editDepth;
+
 	/* --------------------------------
 	 * Fields: Meta.
 	 * --------------------------------
 	 */
 
-	@DatabaseField(generatedId = true)
+	public static final String ID_COLUMN = "id";
+
+	@DatabaseField(generatedId = true, columnName = ID_COLUMN)
 	private int id = NOT_COMMITTED_ID;
 
 	/** IDs for non-committed Alarms. */
@@ -243,6 +393,13 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	@DatabaseField
 	private CountdownTime countdownTime;
 
+	/** The column of {@link #getNextFireMillis()}. */
+	public static final String NEXT_FIRE_COLUMN = "next_fire_millis";
+
+	// Denormalised getNextMillis(), indexed so alarms can be found by when they fire.
+	@DatabaseField(columnName = NEXT_FIRE_COLUMN, index = true)
+	private Long nextFireMillis;
+
 	@DatabaseField(foreign = true, canBeNull = false)
 	private SnoozeConfig snoozeConfig = new SnoozeConfig( true, 9 );
 
@@ -252,8 +409,7 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 */
 
 	@DatabaseField(foreign = true, canBeNull = true)
-	private AudioSource audioSource = new AudioSource( AudioSourceType.RINGTONE,
-			Settings.System.DEFAULT_ALARM_ALERT_URI.toString() );
+	private AudioSource audioSource = AudioSource.defaultAlarmAlert();
 
 	@DatabaseField(foreign = true, canBeNull = false)
 	private AudioConfig audioConfig = new AudioConfig( 100, true );
@@ -290,9 +446,6 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 * @param rhs the alarm to copy from.
 	 */
 	public Alarm( Alarm rhs ) {
-		// Set dependencies.
-		this.bus = rhs.bus;
-
 		// Reset id.
 		this.setId( NOT_COMMITTED_ID );
 
@@ -308,6 +461,7 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		this.isRepeating = rhs.isRepeating;
 		this.time = new ExactTime( rhs.time );
 		this.countdownTime = CountdownTime.copy( rhs.countdownTime );
+		this.nextFireMillis = rhs.nextFireMillis;
 
 		// Copy owned objects.
 		this.audioSource = new AudioSource( rhs.audioSource );
@@ -318,6 +472,9 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		
 		this.isSpeech = rhs.isSpeech;
 		this.isFlash = rhs.isFlash;
+
+		// Set dependencies, owned objects are copies and need the bus too.
+		this.setMessageBus( rhs.bus );
 	}
 
 	/* --------------------------------
@@ -325,7 +482,17 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 * --------------------------------
 	 */
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Owned objects always share the bus of the alarm,<br/>
+	 * so setting the same bus again is a no-op.</p>
+	 */
 	public void setMessageBus( MessageBus<Message> bus ) {
+		if ( this.bus == bus ) {
+			return;
+		}
+
 		this.bus = bus;
 
 		// Pass it on!
@@ -338,6 +505,61 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		return this.bus;
 	}
 
+	/* --------------------------------
+	 * Public methods: Edit session.
+	 * --------------------------------
+	 */
+
+	/**
+	 * <p>Begins an edit session, sessions may be nested.</p>
+	 *
+	 * <p>Until the outermost session is committed via {@link #commitEdit()},<br/>
+	 * changes are only recorded and no {@link AlarmEvent}s are published.<br/>
+	 * {@link #swapOrder(Alarm)} is exempt since it modifies another alarm.</p>
+	 */
+	public synchronized void beginEdit() {
+		if ( this.editDepth++ == 0 ) {
+			this.changeSet = new ChangeSetEvent( this );
+		}
+	}
+
+	/**
+	 * Commits the current edit session.<br/>
+	 * When the outermost session is committed, a single {@link ChangeSetEvent}<br/>
+	 * is published if any field was modified during the session.
+	 *
+	 * @throws IllegalStateException if no session has begun.
+	 */
+	public void commitEdit() {
+		ChangeSetEvent event;
+
+		synchronized ( this ) {
+			if ( this.editDepth == 0 ) {
+				throw new IllegalStateException( "No edit session to commit." );
+			}
+
+			if ( --this.editDepth > 0 ) {
+				return;
+			}
+
+			event = this.changeSet;
+			this.changeSet = null;
+		}
+
+		if ( !event.isEmpty() && this.bus != null ) {
+			this.bus.publish( event );
+		}
+	}
+
+	/**
+	 * Returns true if an edit session is in progress.
+	 *
+	 * @return true if editing.
+	 */
+	public synchronized boolean isEditing() {
+		return this.editDepth > 0;
+	}
+
 	/* --------------------------------
 	 * Public methods: Meta.
 	 * --------------------------------
@@ -558,7 +780,8 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		this.order = rhs.order;
 		rhs.order = temp;
 
-		this.publish( new MetaChangeEvent( this, Field.ORDER, rhs ) );
+		// Not recorded in edit sessions, rhs must be persisted as well.
+		this.publishNow( new MetaChangeEvent( this, Field.ORDER, rhs ) );
 	}
 
 	/* --------------------------------
@@ -607,6 +830,28 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 		return this.canHappen() ? Long.valueOf( this.getTime().scheduledTimestamp( now, (Object) this.enabledDays ) ) : NEXT_NON_REAL;
 	}
 
+	/**
+	 * Returns the persisted result of {@link #getNextMillis(long)} as of the last {@link #refreshNextFire(long)}.<br/>
+	 * It is stale once in the past, or when the timezone changes.
+	 *
+	 * @return the time in unix epoch timestamp when alarm will next ring, or {@link #NEXT_NON_REAL}.
+	 */
+	public synchronized Long getNextFireMillis() {
+		return this.nextFireMillis;
+	}
+
+	/**
+	 * Recomputes {@link #getNextFireMillis()}, does not send any event to bus.
+	 *
+	 * @param now the current time in unix epoch timestamp.
+	 * @return true if the value changed.
+	 */
+	public synchronized boolean refreshNextFire( long now ) {
+		Long old = this.nextFireMillis;
+		this.nextFireMillis = this.getNextMillis( now );
+		return !Objects.equal( old, this.nextFireMillis );
+	}
+
 	/**
 	 * Returns true if the alarm can ring in the future,<br/>
 	 * that is: if {@link #isActivated()} and some weekday is enabled.
@@ -877,12 +1122,14 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 * This method is motivated and needed due to OrmLite not supporting results from joins.<br/>
 	 * This is also a better method than reflection which is particularly expensive on android.</p>
 	 *
-	 * <p>Sets the {@link AudioConfig}, bypassing any and all checks, and does not send any event to bus.</p>
+	 * <p>Sets the {@link AudioConfig}, bypassing any and all checks, and does not send any event to bus.<br/>
+	 * The config is bound to the bus of this alarm.</p>
 	 *
 	 * @param config the {@link AudioConfig} to set.
 	 */
 	public void setFetched( AudioConfig config ) {
 		this.audioConfig = config;
+		this.audioConfig.setMessageBus( this.bus );
 	}
 
 	/**
@@ -903,12 +1150,14 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 * This method is motivated and needed due to OrmLite not supporting results from joins.<br/>
 	 * This is also a better method than reflection which is particularly expensive on android.</p>
 	 *
-	 * <p>Sets the {@link SnoozeConfig}, bypassing any and all checks, and does not send any event to bus.</p>
+	 * <p>Sets the {@link SnoozeConfig}, bypassing any and all checks, and does not send any event to bus.<br/>
+	 * The config is bound to the bus of this alarm.</p>
 	 *
 	 * @param config the {@link SnoozeConfig} to set.
 	 */
 	public void setFetched(SnoozeConfig config) {
 		this.snoozeConfig = config;
+		this.snoozeConfig.setMessageBus( this.bus );
 	}
 
 	/**
@@ -931,11 +1180,27 @@ public class Alarm implements IdProvider, MessageBusHolder, Comparable<Alarm> {
 	 */
 
 	/**
-	 * Publishes an event to event bus.
+	 * Publishes an event to event bus, or records it if {@link #isEditing()}.
 	 *
 	 * @param event the event to publish.
 	 */
 	private void publish( AlarmEvent event ) {
+		synchronized ( this ) {
+			if ( this.changeSet != null ) {
+				this.changeSet.record( event );
+				return;
+			}
+		}
+
+		this.publishNow( event );
+	}
+
+	/**
+	 * Publishes an event to event bus, bypassing any edit session.
+	 *
+	 * @param event the event to publish.
+	 */
+	private void publishNow( AlarmEvent event ) {
 		if ( this.bus != null ) {
 			this.bus.publish( event );
 		}
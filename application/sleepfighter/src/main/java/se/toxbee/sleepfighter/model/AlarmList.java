@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 
 import se.toxbee.sleepfighter.model.Alarm.AlarmEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
 import se.toxbee.sleepfighter.utils.collect.IdObservableList;
 
 /**
@@ -75,10 +76,6 @@ public class AlarmList extends IdObservableList<Alarm> {
 	@Override
 	protected void fireEvent( Event e ) {
 		switch( e.operation() ) {
-		case UPDATE:
-			// order() will cause an infinite loop if we dont bail here.
-			return;
-
 		case ADD:
 			int maxId = this.maxId();
 
@@ -91,6 +88,13 @@ public class AlarmList extends IdObservableList<Alarm> {
 
 			// Reorder the list.
 			this.order();
+			super.fireEvent( e );
+			break;
+
+		case UPDATE:
+			// The replacing alarm takes the manual order of the replaced one.
+			Alarm old = (Alarm) e.elements().iterator().next();
+			this.get( e.index() ).setOrder( old.getOrder() );
 
 			// FALLTROUGH
 		default:
@@ -215,10 +219,12 @@ public class AlarmList extends IdObservableList<Alarm> {
 	}
 
 	/**
-	 * Orders the list using the result of {@link #getSortMode()}.
+	 * Orders the list using the result of {@link #getSortMode()}.<br/>
+	 * Reordering publishes no events, the alarms themselves are unchanged.
 	 */
 	public void order() {
-		Collections.sort( this, this.ordering );
+		Collections.sort( this.delegate(), this.ordering );
+		this.modCount++;
 	}
 
 	/**
@@ -235,6 +241,20 @@ public class AlarmList extends IdObservableList<Alarm> {
 		return false;
 	}
 
+	/**
+	 * Orders if needed according to current result of {@link #getSortMode()}.
+	 *
+	 * @param evt the event.
+	 */
+	public boolean orderIfNeeded( ChangeSetEvent evt ) {
+		if ( this.sortMode.requiresReordering( evt ) ) {
+			this.order();
+			return true;
+		}
+
+		return false;
+	}
+
 	/**
 	 * Sets the result of {@link #getSortMode()} and calls {@link #order()}.
 	 *
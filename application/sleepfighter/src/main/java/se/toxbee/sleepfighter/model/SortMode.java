@@ -17,6 +17,7 @@
 package se.toxbee.sleepfighter.model;
 
 import se.toxbee.sleepfighter.model.Alarm.AlarmEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
 import se.toxbee.sleepfighter.model.time.AlarmTime;
 
 import com.google.common.base.Function;
@@ -95,6 +96,23 @@ public class SortMode {
 			}
 		}
 
+		protected boolean requiresReordering( ChangeSetEvent evt ) {
+			switch ( this ) {
+			case MANUAL:
+				return evt.isDirty( Alarm.Field.ORDER );
+
+			case NAME:
+				return evt.isDirty( Alarm.Field.NAME );
+
+			case ALARM_TIME:
+			case TIMESTAMP:
+				return evt.isScheduleChange();
+
+			default:
+				return false;
+			}
+		}
+
 		/**
 		 * Returns a {@link Field} given the ordinality of the field.
 		 *
@@ -166,6 +184,17 @@ public class SortMode {
 		return this.field.requiresReordering( evt );
 	}
 
+	/**
+	 * Returns true if reordering is required as a result of evt being fired.
+	 *
+	 * @param evt the {@link ChangeSetEvent} that was fired.
+	 * @return true = reorder.
+	 */
+	public boolean requiresReordering( ChangeSetEvent evt ) {
+		// Facade.
+		return this.field.requiresReordering( evt );
+	}
+
 	/**
 	 * Returns true if the given {@link SortMode} is reverse to this.
 	 *
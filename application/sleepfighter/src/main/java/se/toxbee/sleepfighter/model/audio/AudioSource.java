@@ -16,6 +16,9 @@
 
 package se.toxbee.sleepfighter.model.audio;
 
+import android.net.Uri;
+import android.provider.Settings;
+
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.table.DatabaseTable;
 
@@ -38,6 +41,17 @@ public class AudioSource implements IdProvider {
 	/** Signifies a silent/non-existent AudioSource which is = null. */
 	public static final AudioSource SILENT = null;
 
+	/**
+	 * Returns a new source for the default alarm alert of the system.<br/>
+	 * Its URI is null where there is no such setting, e.g. in tests on the JVM.
+	 *
+	 * @return the source.
+	 */
+	public static AudioSource defaultAlarmAlert() {
+		Uri uri = Settings.System.DEFAULT_ALARM_ALERT_URI;
+		return new AudioSource( AudioSourceType.RINGTONE, uri == null ? null : uri.toString() );
+	}
+
 	public static final String ID_COLUMN = "id";
 
 	@DatabaseField(generatedId = true, columnName = ID_COLUMN)
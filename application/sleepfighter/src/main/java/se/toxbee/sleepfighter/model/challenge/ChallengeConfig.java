@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import se.toxbee.sleepfighter.persist.type.ChallengeParamsType;
 import se.toxbee.sleepfighter.utils.model.IdProvider;
 
 /**
@@ -37,6 +38,7 @@ import se.toxbee.sleepfighter.utils.model.IdProvider;
 @DatabaseTable(tableName = "challenge_config")
 public class ChallengeConfig implements IdProvider {
 	public static final String SET_FOREIGN_COLUMN = "challenge_set_id";
+	public static final String PARAMS_COLUMN = "params";
 
 	/* --------------------------------
 	 * Fields.
@@ -55,7 +57,9 @@ public class ChallengeConfig implements IdProvider {
 	@DatabaseField
 	private ChallengeType type;
 
-	private Map<String, String> params;
+	// Replaced, never mutated, once constructed: the writer thread may be encoding it.
+	@DatabaseField(columnName = PARAMS_COLUMN, canBeNull = false, persisterClass = ChallengeParamsType.class)
+	private volatile Map<String, String> params;
 
 	/* --------------------------------
 	 * Constructors.
@@ -195,7 +199,10 @@ public class ChallengeConfig implements IdProvider {
 	 * @return the old value, or null if not set before.
 	 */
 	protected String setParam( String key, String value ) {
-		return this.params.put( key, value );
+		Map<String, String> params = new HashMap<String, String>( this.params );
+		String old = params.put( key, value );
+		this.params = params;
+		return old;
 	}
 
 	/* --------------------------------
@@ -203,19 +210,6 @@ public class ChallengeConfig implements IdProvider {
 	 * --------------------------------
 	 */
 
-	/**
-	 * <p><strong>NOTE:</strong> this method is only intended for persistence purposes.<br/>
-	 * This method is motivated and needed due to OrmLite not supporting results from joins.<br/>
-	 * This is also a better method than reflection which is particularly expensive on android.</p>
-	 *
-	 * <p>Sets a {@link ChallengeParam}, bypassing any and all checks, and does not send any event to bus.</p>
-	 *
-	 * @param param the {@link ChallengeParam} to set.
-	 */
-	public void setFetched( ChallengeParam param ) {
-		this.params.put( param.getKey(), param.getValue() );
-	}
-
 	/**
 	 * <p><strong>NOTE:</strong> this method is only intended for persistence purposes.<br/>
 	 * This method is motivated and needed due to OrmLite not supporting results from joins.<br/>
@@ -34,7 +34,8 @@ import se.toxbee.sleepfighter.utils.message.MessageBusHolder;
 import se.toxbee.sleepfighter.utils.model.IdProvider;
 
 /**
- * ChallengeConfigSet models the set of challenges that are enabled for an Alarm.
+ * ChallengeConfigSet models the set of challenges that are enabled for an Alarm.<br/>
+ * A set may be fetched lazily, it is then resolved by its {@link Loader} on first access.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
@@ -236,6 +237,23 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 		}
 	}
 
+	/**
+	 * Loader resolves the contents of a lazily fetched set.
+	 *
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	public static interface Loader {
+		/**
+		 * Loads the enabled state and challenges of the set,<br/>
+		 * and hands them to {@link ChallengeConfigSet#resolve(boolean, Collection)}.<br/>
+		 * It is not called with the lock of the set held, so it may wait for other threads.
+		 *
+		 * @param set the set to load.
+		 */
+		public void load( ChallengeConfigSet set );
+	}
+
 	/* --------------------------------
 	 * Fields.
 	 * --------------------------------
@@ -251,6 +269,8 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 
 	private MessageBus<Message> messageBus;
 
+	private volatile Loader loader;
+
 	/* --------------------------------
 	 * Constructors.
 	 * --------------------------------
@@ -283,7 +303,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @param rhs the set to copy from.
 	 */
 	public ChallengeConfigSet( ChallengeConfigSet rhs ) {
-		this( rhs.enabled );
+		this( rhs.load().enabled );
 		this.setMessageBus( rhs.messageBus );
 
 		for ( ChallengeConfig config : rhs.challenges.values() ) {
@@ -325,7 +345,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @return true if enabled.
 	 */
 	public boolean isEnabled() {
-		return this.enabled;
+		return this.load().enabled;
 	}
 
 	/**
@@ -335,7 +355,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @param enabled whether or not to enable or disable challenges.
 	 */
 	public void setEnabled( boolean enabled ) {
-		if ( this.enabled == enabled ) {
+		if ( this.load().enabled == enabled ) {
 			return;
 		}
 
@@ -374,7 +394,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	public Set<ChallengeType> getEnabledTypes() {
 		Set<ChallengeType> types = Sets.newHashSet();
 
-		for ( Entry<ChallengeType, ChallengeConfig> entry : this.challenges.entrySet() ) {
+		for ( Entry<ChallengeType, ChallengeConfig> entry : this.load().challenges.entrySet() ) {
 			if ( entry.getValue().isEnabled() ) {
 				types.add( entry.getKey() );
 			}
@@ -389,7 +409,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @return the set of defined types.
 	 */
 	public Set<ChallengeType> getDefinedTypes() {
-		return this.challenges.keySet();
+		return this.load().challenges.keySet();
 	}
 
 	/**
@@ -399,7 +419,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @return the configuration.
 	 */
 	public ChallengeConfig getConfig( ChallengeType type ) {
-		return this.challenges.get( type );
+		return this.load().challenges.get( type );
 	}
 
 	/**
@@ -408,7 +428,7 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 	 * @return the collection.
 	 */
 	public Collection<ChallengeConfig> getConfigs() {
-		return Collections.unmodifiableCollection( this.challenges.values() );
+		return Collections.unmodifiableCollection( this.load().challenges.values() );
 	}
 
 	/**
@@ -431,6 +451,76 @@ public class ChallengeConfigSet implements IdProvider, MessageBusHolder {
 		this.publish( new ChallengeParamEvent( this, old, config, key ) );
 	}
 
+	/**
+	 * Resolves the set if it was fetched lazily, does nothing otherwise.<br/>
+	 * If the loader fails, the set stays lazy and is loaded again on next access.
+	 *
+	 * @return this.
+	 */
+	public ChallengeConfigSet load() {
+		Loader loader = this.loader;
+		if ( loader != null ) {
+			loader.load( this );
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns whether or not the set has been resolved, see {@link #load()}.
+	 *
+	 * @return true if loaded.
+	 */
+	public boolean isLoaded() {
+		return this.loader == null;
+	}
+
+	/**
+	 * <p>Resolves a lazily fetched set with its loaded contents, bypassing any and all checks,<br/>
+	 * and does not send any event to bus. Does nothing if the set is already resolved,<br/>
+	 * e.g. by another thread loading it at the same time.</p>
+	 *
+	 * <p>Only recommended for advance use such as persistence.</p>
+	 *
+	 * @param enabled true if enabled.
+	 * @param challenges all the challenges of the set.
+	 */
+	public synchronized void resolve( boolean enabled, Collection<ChallengeConfig> challenges ) {
+		if ( this.loader == null ) {
+			return;
+		}
+
+		this.enabled = enabled;
+		this.challenges.clear();
+		for ( ChallengeConfig challenge : challenges ) {
+			this.putChallenge( challenge );
+		}
+
+		this.loader = null;
+	}
+
+	/**
+	 * <p>Makes the set lazy, it is resolved by loader on first access.</p>
+	 *
+	 * <p>Only recommended for advance use such as persistence.</p>
+	 *
+	 * @param loader the loader, or null if the set is loaded.
+	 */
+	public synchronized void setLoader( Loader loader ) {
+		this.loader = loader;
+	}
+
+	/**
+	 * <p>Sets whether or not challenges are enabled, bypassing any and all checks, and does not send any event to bus.</p>
+	 *
+	 * <p>Only recommended for advance use such as persistence.</p>
+	 *
+	 * @param enabled true if enabled.
+	 */
+	public void setFetchedEnabled( boolean enabled ) {
+		this.enabled = enabled;
+	}
+
 	/**
 	 * <p>Puts a {@link ChallengeConfig} in collection of challenges,<br/>
 	 * bypassing any and all checks, and does not send any event to bus.</p>
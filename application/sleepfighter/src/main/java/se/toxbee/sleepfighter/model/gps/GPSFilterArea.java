@@ -19,7 +19,6 @@ package se.toxbee.sleepfighter.model.gps;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
-import com.j256.ormlite.field.DataType;
 import com.j256.ormlite.field.DatabaseField;
 import com.j256.ormlite.table.DatabaseTable;
 
@@ -27,6 +26,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import se.toxbee.sleepfighter.persist.type.GPSFilterPolygonType;
 import se.toxbee.sleepfighter.utils.message.Message;
 import se.toxbee.sleepfighter.utils.message.MessageBus;
 import se.toxbee.sleepfighter.utils.message.MessageBusHolder;
@@ -126,7 +126,7 @@ public class GPSFilterArea implements IdProvider, MessageBusHolder {
 	@DatabaseField
 	private GPSFilterMode mode;
 
-	@DatabaseField(dataType = DataType.SERIALIZABLE)
+	@DatabaseField(persisterClass = GPSFilterPolygonType.class)
 	private GPSFilterPolygon poly;
 
 	private MessageBus<Message> bus;
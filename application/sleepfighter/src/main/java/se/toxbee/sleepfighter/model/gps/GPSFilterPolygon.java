@@ -16,6 +16,7 @@
 
 package se.toxbee.sleepfighter.model.gps;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
 import java.io.Serializable;
@@ -49,6 +50,17 @@ public class GPSFilterPolygon implements Serializable {
 		this.setPoints( points );
 	}
 
+	/**
+	 * Constructs a GPSFilterPolygon from the latitudes and longitudes of its points.
+	 *
+	 * @param latitudes the latitudes.
+	 * @param longitudes the longitudes, as many as latitudes.
+	 */
+	public GPSFilterPolygon( double[] latitudes, double[] longitudes ) {
+		Preconditions.checkArgument( latitudes.length == longitudes.length );
+		this.poly = new double[][] { latitudes, longitudes };
+	}
+
 	/**
 	 * Sets the list of GPSLatLng points.
 	 *
@@ -90,10 +102,30 @@ public class GPSFilterPolygon implements Serializable {
 	/**
 	 * Returns the number of edges in polygon.
 	 *
-	 * @return the edge count.
+	 * @return the edge count, 0 if no points are set.
 	 */
 	public int getEdgeCount() {
-		return this.poly[0].length;
+		return this.poly == null ? 0 : this.poly[0].length;
+	}
+
+	/**
+	 * Returns the latitude of point i.
+	 *
+	 * @param i the index of the point.
+	 * @return the latitude.
+	 */
+	public double getLat( int i ) {
+		return this.poly[0][i];
+	}
+
+	/**
+	 * Returns the longitude of point i.
+	 *
+	 * @param i the index of the point.
+	 * @return the longitude.
+	 */
+	public double getLng( int i ) {
+		return this.poly[1][i];
 	}
 
 	/**
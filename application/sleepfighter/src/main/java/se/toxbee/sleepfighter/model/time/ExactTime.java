@@ -142,6 +142,7 @@ public class ExactTime extends AlarmTime implements Codifiable {
 		t.setHourOfDay( this.hour );
 		t.setMinuteOfHour( this.minute );
 		t.setSecondOfMinute( this.second );
+		t.setMillisOfSecond( 0 );
 
 		// Move to next day if it happened before now.
 		if ( t.isBefore( now ) ) {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * CachePolicy decides what kind of object cache, if any, a DAO has.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public final class CachePolicy {
+	/**
+	 * The kinds of caches.
+	 */
+	public enum Kind {
+		/** No cache, every fetch hits the database. */
+		NONE,
+
+		/** Objects are cached as long as they are reachable elsewhere. */
+		WEAK,
+
+		/** The N most recently used objects are strongly cached. */
+		LRU
+	}
+
+	/** No object cache. */
+	public static final CachePolicy NONE = new CachePolicy( Kind.NONE, 0 );
+
+	/** A weak object cache. */
+	public static final CachePolicy WEAK = new CachePolicy( Kind.WEAK, 0 );
+
+	private final Kind kind;
+	private final int capacity;
+
+	private CachePolicy( Kind kind, int capacity ) {
+		this.kind = kind;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns a LRU policy.
+	 *
+	 * @param capacity the max number of objects cached.
+	 * @return the policy.
+	 */
+	public static CachePolicy lru( int capacity ) {
+		Preconditions.checkArgument( capacity > 0, "capacity must be positive" );
+		return new CachePolicy( Kind.LRU, capacity );
+	}
+
+	/**
+	 * Returns the kind of cache.
+	 *
+	 * @return the kind.
+	 */
+	public Kind kind() {
+		return this.kind;
+	}
+
+	/**
+	 * Returns the capacity of a {@link Kind#LRU} cache.
+	 *
+	 * @return the capacity, 0 for other kinds.
+	 */
+	public int capacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Makes a cache following this policy.
+	 *
+	 * @return the cache, or null for {@link #NONE}.
+	 */
+	public MeteredObjectCache makeCache() {
+		return this.kind == Kind.NONE ? null : new MeteredObjectCache( this );
+	}
+
+	@Override
+	public String toString() {
+		return this.kind == Kind.LRU ? "LRU(" + this.capacity + ")" : this.kind.name();
+	}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.google.common.collect.Maps;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.TableUtils;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+import se.toxbee.sleepfighter.model.Alarm;
+import se.toxbee.sleepfighter.model.SnoozeConfig;
+import se.toxbee.sleepfighter.model.audio.AudioConfig;
+import se.toxbee.sleepfighter.model.audio.AudioSource;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
+import se.toxbee.sleepfighter.model.gps.GPSFilterArea;
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>DaoRegistry holds the DAOs of one {@link ConnectionSource}, with their object caches and {@link InQuery}:s.</p>
+ *
+ * <p>It has no dependency on android, so every {@link OrmSource} can share it:<br/>
+ * {@link OrmHelper} on a device, or a JDBC connection source on the JVM.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class DaoRegistry {
+	// List of all classes that is managed by registry.
+	static final Class<?>[] CLASSES = new Class<?>[] {
+		Alarm.class,
+
+		AudioSource.class,
+		AudioConfig.class,
+
+		SnoozeConfig.class,
+
+		ChallengeConfigSet.class,
+		ChallengeConfig.class,
+
+		GPSFilterArea.class
+	};
+
+	private final ConnectionSource cs;
+
+	private final Map<Class<?>, PersistenceExceptionDao<Class<?>, ?>> daoMap = Maps.newHashMap();
+	private final Map<Class<?>, DaoInitRunner<?>> daoInitRunners = Maps.newHashMap();
+	private final Map<Class<?>, MeteredObjectCache> objectCaches = Maps.newHashMap();
+	private final Map<String, InQuery<?>> inQueries = Maps.newHashMap();
+
+	/**
+	 * DaoInitRunner is a method run when a Dao is first initialized.
+	 *
+	 * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
+	 * @version 1.0
+	 * @since Nov 12, 2013
+	 */
+	public static interface DaoInitRunner<T> {
+		/**
+		 * Called when Dao is initialized.
+		 *
+		 * @param registry the DaoRegistry.
+		 * @param daoClazz the Class of the Dao.
+		 * @param dao the Dao itself.
+		 */
+		public <D extends PersistenceExceptionDao<T, ?>> void daoInit( DaoRegistry registry, Class<T> daoClazz, D dao );
+	}
+
+	/**
+	 * CacheEnabler is a DaoInitRunner that enables object cache following a {@link CachePolicy}.
+	 *
+	 * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
+	 * @version 1.0
+	 * @since Nov 12, 2013
+	 */
+	public static class CacheEnabler<T> implements DaoInitRunner<T> {
+		private final CachePolicy policy;
+
+		/**
+		 * Constructs the enabler.
+		 *
+		 * @param policy the policy of the cache.
+		 */
+		public CacheEnabler( CachePolicy policy ) {
+			this.policy = policy;
+		}
+
+		@Override
+		public <D extends PersistenceExceptionDao<T, ?>> void daoInit( DaoRegistry registry, Class<T> daoClazz, D dao ) {
+			MeteredObjectCache cache = this.policy.makeCache();
+			dao.setObjectCache( cache );
+
+			if ( cache != null ) {
+				registry.objectCaches.put( daoClazz, cache );
+			}
+		}
+	}
+
+	// Initialize DaoInitRunner:s here.
+	{
+		/*
+		 * Object cache policies, entities not listed have none.
+		 * The children of an alarm are weakly cached like the alarm itself,
+		 * so a cached alarm and its children are kept alive together.
+		 */
+		Map<Class<?>, DaoInitRunner<?>> r = this.daoInitRunners;
+		r.put( Alarm.class, new CacheEnabler<Alarm>( CachePolicy.WEAK ) );
+		r.put( AudioSource.class, new CacheEnabler<AudioSource>( CachePolicy.WEAK ) );
+		r.put( AudioConfig.class, new CacheEnabler<AudioConfig>( CachePolicy.WEAK ) );
+		r.put( SnoozeConfig.class, new CacheEnabler<SnoozeConfig>( CachePolicy.WEAK ) );
+		r.put( ChallengeConfigSet.class, new CacheEnabler<ChallengeConfigSet>( CachePolicy.WEAK ) );
+		r.put( ChallengeConfig.class, new CacheEnabler<ChallengeConfig>( CachePolicy.WEAK ) );
+		r.put( GPSFilterArea.class, new CacheEnabler<GPSFilterArea>( CachePolicy.lru( 32 ) ) );
+	}
+
+	/**
+	 * Constructs the registry.
+	 *
+	 * @param cs the connection source DAOs are created for.
+	 */
+	public DaoRegistry( ConnectionSource cs ) {
+		this.cs = cs;
+	}
+
+	/**
+	 * Returns a snapshot of the object caches of all initialized DAOs that have one, for their metrics.
+	 *
+	 * @return map of entity class -> cache.
+	 */
+	public synchronized Map<Class<?>, MeteredObjectCache> objectCaches() {
+		return Collections.unmodifiableMap( Maps.newHashMap( this.objectCaches ) );
+	}
+
+	public synchronized <T, I> PersistenceExceptionDao<T, I> dao( Class<T> clazz ) {
+		@SuppressWarnings( "unchecked" )
+		PersistenceExceptionDao<T, I> dao = (PersistenceExceptionDao<T, I>) this.daoMap.get( clazz );
+
+		if ( dao == null ) {
+			dao = this.getExceptionDao( clazz );
+
+			this.runDaoInit( clazz, dao );
+
+			@SuppressWarnings( "unchecked" )
+			PersistenceExceptionDao<Class<?>, ?> castDao = (PersistenceExceptionDao<Class<?>, ?>) dao;
+
+			this.daoMap.put( clazz, castDao );
+		}
+
+		return dao;
+	}
+
+	/**
+	 * Returns the cached {@link InQuery} for a column of the table of clazz.
+	 *
+	 * @param clazz the class of the table.
+	 * @param column the column to match and order on.
+	 * @return the query.
+	 */
+	public synchronized <T> InQuery<T> inQuery( Class<T> clazz, String column ) {
+		String key = clazz.getName() + '.' + column;
+
+		@SuppressWarnings( "unchecked" )
+		InQuery<T> query = (InQuery<T>) this.inQueries.get( key );
+		if ( query == null ) {
+			query = new InQuery<T>( this.<T, Object>dao( clazz ), column );
+			this.inQueries.put( key, query );
+		}
+
+		return query;
+	}
+
+	/**
+	 * Creates the tables of all managed classes.
+	 *
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public void createTables() throws SQLException {
+		for ( Class<?> clazz : CLASSES ) {
+			TableUtils.createTable( this.cs, clazz );
+		}
+	}
+
+	/**
+	 * Drops the DB tables for clazzes, if they exist.
+	 *
+	 * @param clazzes the classes to drop tables for.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public void drop( Class<?>... clazzes ) throws SQLException {
+		for ( Class<?> clazz : clazzes ) {
+			TableUtils.dropTable( this.cs, clazz, true );
+			this.clearObjectCache( clazz );
+		}
+	}
+
+	/**
+	 * Clears the DB tables for clazzes.
+	 *
+	 * @param clazzes the classes to clear tables for.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public void clear( Class<?>... clazzes ) throws SQLException {
+		for ( Class<?> clazz : clazzes ) {
+			TableUtils.clearTable( this.cs, clazz );
+			this.clearObjectCache( clazz );
+		}
+	}
+
+	/**
+	 * Drops and creates the tables of all managed classes. Any data is lost.
+	 *
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public void rebuild() throws SQLException {
+		this.drop( CLASSES );
+		this.createTables();
+	}
+
+	/**
+	 * Forgets all DAOs, their object caches and queries (Dao + Object).
+	 */
+	public synchronized void nukeCache() {
+		// Get rid of reference.
+		this.daoMap.clear();
+		this.objectCaches.clear();
+		this.inQueries.clear();
+
+		// Clear all caches (Dao + Object).
+		DaoManager.clearCache();
+	}
+
+	/**
+	 * Clears the object cache of the DAO for clazz, if initialized.
+	 *
+	 * @param clazz the class.
+	 */
+	private synchronized void clearObjectCache( Class<?> clazz ) {
+		PersistenceExceptionDao<?, ?> dao = this.daoMap.get( clazz );
+		if ( dao != null ) {
+			dao.clearObjectCache();
+		}
+	}
+
+	/**
+	 * Runs the DaoInitRunner for clazz if any.
+	 *
+	 * @param clazz the to run for.
+	 * @param dao the dao for the clazz.
+	 */
+	private <D extends PersistenceExceptionDao<T, ?>, T> void runDaoInit( Class<T> clazz, D dao ) {
+		@SuppressWarnings( "unchecked" )
+		DaoInitRunner<T> onInit = (DaoInitRunner<T>) this.daoInitRunners.get( clazz );
+		if ( onInit != null ) {
+			onInit.daoInit( this, clazz, dao );
+		}
+	}
+
+	/**
+	 * Get a PersistenceExceptionDao for given class. This uses the {@link DaoManager} to cache the DAO for future gets.
+	 *
+	 * @param clazz the class object to get Dao for.
+	 */
+	private <D extends PersistenceExceptionDao<T, ?>, T> D getExceptionDao( Class<T> clazz ) {
+		try {
+			Dao<T, ?> dao = DaoManager.createDao( this.cs, clazz );
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			D castDao = (D) new PersistenceExceptionDao( dao );
+			return castDao;
+		} catch ( SQLException e ) {
+			throw new PersistenceException( "Could not create RuntimeExcepitionDao for class " + clazz, e );
+		}
+	}
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>InQuery streams the rows whose column is IN (...) a set of ids, ordered on the column.</p>
+ *
+ * <p>SQLite allows at most 999 variables per statement on older Android builds,<br/>
+ * so ids are bound in chunks of at most {@link #CHUNK_SIZE}, or a smaller chunk size. Each chunk is padded<br/>
+ * (repeating its last id) to one of a few fixed sizes, so only that many distinct<br/>
+ * statements are ever prepared per column, and SQLite can reuse their plans.</p>
+ *
+ * <p>An InQuery is bound to a DAO, get them from {@link OrmHelper#inQuery(Class, String)}.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class InQuery<T> {
+	/** The max number of ids bound per statement, and the default chunk size. */
+	public static final int CHUNK_SIZE = 512;
+
+	// The sizes chunks are padded to below the chunk size.
+	private static final int[] PADDED_SIZES = { 1, 8, 64 };
+
+	private final PersistenceExceptionDao<T, ?> dao;
+	private final String column;
+	private final int chunkSize;
+
+	// The sizes chunks are padded to, ascending, the last is chunkSize.
+	private final int[] sizes;
+
+	// Per size: the prepared query and its arguments, built on first use.
+	private final List<PreparedQuery<T>> queries;
+	private final SelectArg[][] args;
+
+	/**
+	 * Constructs the query.
+	 *
+	 * @param dao the DAO of the table.
+	 * @param column the column to match and order on.
+	 */
+	public InQuery( PersistenceExceptionDao<T, ?> dao, String column ) {
+		this( dao, column, CHUNK_SIZE );
+	}
+
+	/**
+	 * Constructs the query with a chunk size.
+	 *
+	 * @param dao the DAO of the table.
+	 * @param column the column to match and order on.
+	 * @param chunkSize the max number of ids bound per statement, at most {@link #CHUNK_SIZE}.
+	 */
+	public InQuery( PersistenceExceptionDao<T, ?> dao, String column, int chunkSize ) {
+		Preconditions.checkArgument( chunkSize > 0 && chunkSize <= CHUNK_SIZE, "chunkSize must be in [1, " + CHUNK_SIZE + "]" );
+
+		this.dao = dao;
+		this.column = column;
+		this.chunkSize = chunkSize;
+
+		int n = 0;
+		while ( n < PADDED_SIZES.length && PADDED_SIZES[n] < chunkSize ) {
+			++n;
+		}
+		this.sizes = Arrays.copyOf( PADDED_SIZES, n + 1 );
+		this.sizes[n] = chunkSize;
+
+		this.queries = Lists.newArrayList( Collections.<PreparedQuery<T>>nCopies( this.sizes.length, null ) );
+		this.args = new SelectArg[this.sizes.length][];
+	}
+
+	/**
+	 * Returns an iterator over the rows whose column is in ids, ordered on the column.<br/>
+	 * Chunks are queried one at a time as the iterator advances.
+	 *
+	 * @param ids the ids, distinct and sorted ascending.
+	 * @return the iterator, must be closed.
+	 */
+	public CloseableIterator<T> iterator( Object[] ids ) {
+		return new ChunkIterator( ids );
+	}
+
+	/**
+	 * Returns the index in sizes of the smallest size fitting count ids.
+	 *
+	 * @param count the number of ids, at least 1.
+	 * @return the index.
+	 */
+	private int sizeIndex( int count ) {
+		int i = 0;
+		while ( this.sizes[i] < count ) {
+			++i;
+		}
+		return i;
+	}
+
+	/**
+	 * Binds ids[from, to) and starts the query of that chunk.
+	 *
+	 * @param ids the ids.
+	 * @param from the first id, inclusive.
+	 * @param to the last id, exclusive.
+	 * @return the iterator of the chunk.
+	 */
+	private synchronized CloseableIterator<T> queryChunk( Object[] ids, int from, int to ) {
+		int s = this.sizeIndex( to - from );
+
+		try {
+			PreparedQuery<T> query = this.queries.get( s );
+			if ( query == null ) {
+				SelectArg[] args = new SelectArg[this.sizes[s]];
+				for ( int i = 0; i < args.length; ++i ) {
+					args[i] = new SelectArg();
+				}
+
+				query = this.dao.queryBuilder()
+					.orderBy( this.column, true )
+					.where().in( this.column, (Object[]) args )
+					.prepare();
+				this.queries.set( s, query );
+				this.args[s] = args;
+			}
+
+			// Pad with the last id, duplicates in IN (...) are harmless.
+			SelectArg[] args = this.args[s];
+			for ( int i = 0; i < args.length; ++i ) {
+				args[i].setValue( ids[Math.min( from + i, to - 1 )] );
+			}
+
+			// The arguments are bound when the statement is compiled, here.
+			return this.dao.iterator( query );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	/**
+	 * Iterates the chunks in order, and the rows of each.<br/>
+	 * It only moves forward: chunks are queried one at a time and closed when done.
+	 */
+	private class ChunkIterator implements CloseableIterator<T> {
+		private final Object[] ids;
+		private int offset;
+		private CloseableIterator<T> chunk;
+
+		private ChunkIterator( Object[] ids ) {
+			this.ids = ids;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while ( this.chunk == null || !this.chunk.hasNext() ) {
+				this.closeQuietly();
+
+				if ( this.offset >= this.ids.length ) {
+					return false;
+				}
+
+				int to = Math.min( this.offset + chunkSize, this.ids.length );
+				this.chunk = queryChunk( this.ids, this.offset, to );
+				this.offset = to;
+			}
+
+			return true;
+		}
+
+		@Override
+		public T next() {
+			if ( !this.hasNext() ) {
+				throw new NoSuchElementException();
+			}
+
+			return this.chunk.next();
+		}
+
+		@Override
+		public T nextThrow() throws SQLException {
+			return this.next();
+		}
+
+		@Override
+		public void moveToNext() {
+			this.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException( "Can't remove, InQuery rows are read only, delete them through the DAO." );
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if ( this.chunk != null ) {
+				CloseableIterator<T> chunk = this.chunk;
+				this.chunk = null;
+				chunk.close();
+			}
+		}
+
+		@Override
+		public void closeQuietly() {
+			if ( this.chunk != null ) {
+				this.chunk.closeQuietly();
+				this.chunk = null;
+			}
+		}
+
+		/**
+		 * Returns the raw results of the current chunk only.
+		 *
+		 * @throws IllegalStateException if no chunk is open.
+		 */
+		@Override
+		public DatabaseResults getRawResults() {
+			if ( this.chunk == null ) {
+				throw new IllegalStateException( "No chunk is open, call hasNext() or next() first." );
+			}
+
+			return this.chunk.getRawResults();
+		}
+
+		/**
+		 * Starts over, querying the first chunk again.
+		 *
+		 * @return the first row, or null if there is none.
+		 */
+		@Override
+		public T first() {
+			this.closeQuietly();
+			this.offset = 0;
+
+			return this.hasNext() ? this.chunk.next() : null;
+		}
+
+		@Override
+		public T previous() {
+			throw new UnsupportedOperationException( "Can't move back, InQuery iterators are forward only: the previous chunk is closed." );
+		}
+
+		@Override
+		public T current() throws SQLException {
+			if ( this.chunk == null ) {
+				throw new IllegalStateException( "No chunk is open, call hasNext() or next() first." );
+			}
+
+			return this.chunk.current();
+		}
+
+		/**
+		 * Moves offset rows forward, across chunks.
+		 *
+		 * @param offset the number of rows to move, 0 for the current row.
+		 * @return the row moved to, or null if past the last row.
+		 * @throws UnsupportedOperationException if offset is negative.
+		 */
+		@Override
+		public T moveRelative( int offset ) throws SQLException {
+			if ( offset < 0 ) {
+				throw new UnsupportedOperationException( "Can't move back " + -offset + " rows, InQuery iterators are forward only." );
+			}
+
+			if ( offset == 0 ) {
+				return this.current();
+			}
+
+			T row = null;
+			for ( int i = 0; i < offset; ++i ) {
+				if ( !this.hasNext() ) {
+					return null;
+				}
+
+				row = this.chunk.next();
+			}
+
+			return row;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import java.util.Arrays;
+
+/**
+ * <p>JoinIndex maps ids to indices of the objects owning them, e.g. AudioConfig.id -> index(Alarm).<br/>
+ * It is used to "join" rows into their owners by merge-join, without any boxing.</p>
+ *
+ * <p>Usage: {@link #put(int, int)} all pairs, {@link #sort()} once, then stream<br/>
+ * the rows ordered by id (ascending) and call {@link #seek(int)} for each row,<br/>
+ * then {@link #next(int)} for the other owners of the same id.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class JoinIndex {
+	/** Not found value returned by {@link #seek(int)}. */
+	public static final int NOT_FOUND = -1;
+
+	// Each key is: id << 32 | index, so sorting sorts on id.
+	private long[] keys;
+	private int size;
+	private int cursor;
+
+	/**
+	 * Constructs the index.
+	 *
+	 * @param capacity the expected number of pairs.
+	 */
+	public JoinIndex( int capacity ) {
+		this.keys = new long[Math.max( capacity, 1 )];
+	}
+
+	/**
+	 * Adds an id -> index pair.
+	 *
+	 * @param id the id.
+	 * @param index the index of the owner.
+	 */
+	public void put( int id, int index ) {
+		if ( this.size == this.keys.length ) {
+			this.keys = Arrays.copyOf( this.keys, this.size * 2 );
+		}
+
+		this.keys[this.size++] = ((long) id << 32) | (index & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Sorts the index on id and rewinds {@link #seek(int)}.
+	 *
+	 * @return this.
+	 */
+	public JoinIndex sort() {
+		Arrays.sort( this.keys, 0, this.size );
+		this.cursor = 0;
+		return this;
+	}
+
+	/**
+	 * Returns the number of pairs.
+	 *
+	 * @return the size.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the id at position i (in sorted order after {@link #sort()}).
+	 *
+	 * @param i the position.
+	 * @return the id.
+	 */
+	public int id( int i ) {
+		return (int) (this.keys[i] >> 32);
+	}
+
+	/**
+	 * Returns the index at position i (in sorted order after {@link #sort()}).
+	 *
+	 * @param i the position.
+	 * @return the index.
+	 */
+	public int index( int i ) {
+		return (int) this.keys[i];
+	}
+
+	/**
+	 * Returns all the distinct ids, for use in IN (...) queries.<br/>
+	 * Requires {@link #sort()} to have been called.
+	 *
+	 * @return the ids.
+	 */
+	public Integer[] ids() {
+		Integer[] ids = new Integer[this.size];
+		int n = 0;
+		for ( int i = 0; i < this.size; ++i ) {
+			int id = this.id( i );
+			if ( n == 0 || ids[n - 1] != id ) {
+				ids[n++] = id;
+			}
+		}
+
+		return n == this.size ? ids : Arrays.copyOf( ids, n );
+	}
+
+	/**
+	 * Returns the position of the first pair of id, ids must be passed in ascending order.<br/>
+	 * An id may have several owners, iterate them with {@link #next(int)} and read each by {@link #index(int)}:<br/>
+	 * <code>for ( int p = join.seek( id ); p != NOT_FOUND; p = join.next( p ) )</code><br/>
+	 * The same id may be passed several times in a row (one to many).
+	 *
+	 * @param id the id to look for.
+	 * @return the position, or {@link #NOT_FOUND}.
+	 */
+	public int seek( int id ) {
+		while ( this.cursor < this.size && this.id( this.cursor ) < id ) {
+			this.cursor++;
+		}
+
+		return this.cursor < this.size && this.id( this.cursor ) == id ? this.cursor : NOT_FOUND;
+	}
+
+	/**
+	 * Returns the position of the next pair with the same id as the pair at position.
+	 *
+	 * @param position a position from {@link #seek(int)} or {@link #next(int)}.
+	 * @return the position, or {@link #NOT_FOUND}.
+	 */
+	public int next( int position ) {
+		int next = position + 1;
+		return next < this.size && this.id( next ) == this.id( position ) ? next : NOT_FOUND;
+	}
+}
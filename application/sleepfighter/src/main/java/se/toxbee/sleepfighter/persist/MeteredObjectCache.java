@@ -0,0 +1,228 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.google.common.collect.Maps;
+import com.j256.ormlite.dao.ObjectCache;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>MeteredObjectCache is an ORMLite {@link ObjectCache} following a {@link CachePolicy},<br/>
+ * which counts hits, misses and evictions.</p>
+ *
+ * <p>For a weak cache, an eviction is counted when an entry is found to be garbage collected.<br/>
+ * Note that ORMLite looks up the cache for every row a query maps, not only for queryForId.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class MeteredObjectCache implements ObjectCache {
+	private final CachePolicy policy;
+	private final Map<Class<?>, Map<Object, Object>> classMaps = Maps.newHashMap();
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructs the cache, use {@link CachePolicy#makeCache()}.
+	 *
+	 * @param policy the policy.
+	 */
+	MeteredObjectCache( CachePolicy policy ) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Returns the policy of this cache.
+	 *
+	 * @return the policy.
+	 */
+	public CachePolicy policy() {
+		return this.policy;
+	}
+
+	/**
+	 * Returns the number of lookups that found an object.
+	 *
+	 * @return the hit count.
+	 */
+	public synchronized long hits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of lookups that found no object.
+	 *
+	 * @return the miss count.
+	 */
+	public synchronized long misses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the number of objects evicted by the policy, removals are not counted.
+	 *
+	 * @return the eviction count.
+	 */
+	public synchronized long evictions() {
+		return this.evictions;
+	}
+
+	/**
+	 * Returns the hit rate.
+	 *
+	 * @return hits / lookups, 0 if there has been no lookup.
+	 */
+	public synchronized double hitRate() {
+		long lookups = this.hits + this.misses;
+		return lookups == 0 ? 0 : (double) this.hits / lookups;
+	}
+
+	@Override
+	public synchronized <T> void registerClass( Class<T> clazz ) {
+		if ( !this.classMaps.containsKey( clazz ) ) {
+			this.classMaps.put( clazz, this.makeMap() );
+		}
+	}
+
+	@Override
+	public synchronized <T, ID> T get( Class<T> clazz, ID id ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		Object value = map == null ? null : map.get( id );
+
+		if ( value instanceof WeakReference ) {
+			value = ((WeakReference<?>) value).get();
+			if ( value == null ) {
+				map.remove( id );
+				this.evictions++;
+			}
+		}
+
+		if ( value == null ) {
+			this.misses++;
+			return null;
+		}
+
+		this.hits++;
+
+		@SuppressWarnings( "unchecked" )
+		T castValue = (T) value;
+		return castValue;
+	}
+
+	@Override
+	public synchronized <T, ID> void put( Class<T> clazz, ID id, T data ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		if ( map != null ) {
+			map.put( id, this.wrap( data ) );
+		}
+	}
+
+	@Override
+	public synchronized <T, ID> void remove( Class<T> clazz, ID id ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		if ( map != null ) {
+			map.remove( id );
+		}
+	}
+
+	@Override
+	public synchronized <T, ID> T updateId( Class<T> clazz, ID oldId, ID newId ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		if ( map == null ) {
+			return null;
+		}
+
+		Object value = map.remove( oldId );
+		if ( value == null ) {
+			return null;
+		}
+
+		map.put( newId, value );
+
+		Object data = value instanceof WeakReference ? ((WeakReference<?>) value).get() : value;
+
+		@SuppressWarnings( "unchecked" )
+		T castData = (T) data;
+		return castData;
+	}
+
+	@Override
+	public synchronized <T> void clear( Class<T> clazz ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		if ( map != null ) {
+			map.clear();
+		}
+	}
+
+	@Override
+	public synchronized void clearAll() {
+		for ( Map<Object, Object> map : this.classMaps.values() ) {
+			map.clear();
+		}
+	}
+
+	@Override
+	public synchronized <T> int size( Class<T> clazz ) {
+		Map<Object, Object> map = this.classMaps.get( clazz );
+		return map == null ? 0 : map.size();
+	}
+
+	@Override
+	public synchronized int sizeAll() {
+		int size = 0;
+		for ( Map<Object, Object> map : this.classMaps.values() ) {
+			size += map.size();
+		}
+		return size;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return this.getClass().getSimpleName() + "[policy: " + this.policy + ", size: " + this.sizeAll()
+				+ ", hits: " + this.hits + ", misses: " + this.misses + ", evictions: " + this.evictions + "]";
+	}
+
+	private Object wrap( Object data ) {
+		return this.policy.kind() == CachePolicy.Kind.WEAK ? new WeakReference<Object>( data ) : data;
+	}
+
+	private Map<Object, Object> makeMap() {
+		if ( this.policy.kind() != CachePolicy.Kind.LRU ) {
+			return Maps.newHashMap();
+		}
+
+		final int capacity = this.policy.capacity();
+		return new LinkedHashMap<Object, Object>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<Object, Object> eldest ) {
+				if ( this.size() > capacity ) {
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+}
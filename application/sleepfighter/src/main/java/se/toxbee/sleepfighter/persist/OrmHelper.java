@@ -20,162 +20,67 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
-import com.google.common.collect.Maps;
 import com.j256.ormlite.android.apptools.OrmLiteSqliteOpenHelper;
-import com.j256.ormlite.dao.Dao;
-import com.j256.ormlite.dao.DaoManager;
 import com.j256.ormlite.support.ConnectionSource;
-import com.j256.ormlite.table.TableUtils;
 
 import java.sql.SQLException;
 import java.util.Map;
 
 import se.toxbee.sleepfighter.model.Alarm;
-import se.toxbee.sleepfighter.model.SnoozeConfig;
-import se.toxbee.sleepfighter.model.audio.AudioConfig;
-import se.toxbee.sleepfighter.model.audio.AudioSource;
-import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
-import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
-import se.toxbee.sleepfighter.model.challenge.ChallengeParam;
-import se.toxbee.sleepfighter.model.gps.GPSFilterArea;
 import se.toxbee.sleepfighter.persist.dao.PersistenceException;
 import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
 import se.toxbee.sleepfighter.persist.migration.MigrationExecutor;
 
 /**
- * Provides an OrmLiteSqliteOpenHelper for persistence layer.
+ * Provides an OrmLiteSqliteOpenHelper for persistence layer.<br/>
+ * The DAOs are held by a {@link DaoRegistry}, this adds the android database life cycle.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
  * @since Sep 21, 2013
  */
-public class OrmHelper extends OrmLiteSqliteOpenHelper {
+public class OrmHelper extends OrmLiteSqliteOpenHelper implements OrmSource {
 	// Name of the database file in application.
 	private static final String DATABASE_NAME = "sleep_fighter.db";
 
 	// Current database version, change when database structure changes.
-	private static final int DATABASE_VERSION = 27;
+	public static final int DATABASE_VERSION = 31;
 
-	// List of all classes that is managed by helper.
-	private static final Class<?>[] CLASSES = new Class<?>[] {
-		Alarm.class,
-
-		AudioSource.class,
-		AudioConfig.class,
-
-		SnoozeConfig.class,
-
-		ChallengeConfigSet.class,
-		ChallengeConfig.class,
-		ChallengeParam.class,
-
-		GPSFilterArea.class
-	};
-
-	private final Map<Class<?>, PersistenceExceptionDao<Class<?>, ?>> daoMap = Maps.newHashMap();
-	private final Map<Class<?>, DaoInitRunner<?>> daoInitRunners = Maps.newHashMap();
-
-	/**
-	 * DaoInitRunner is a method run when a Dao is first initialized.
-	 *
-	 * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
-	 * @version 1.0
-	 * @since Nov 12, 2013
-	 */
-	public static interface DaoInitRunner<T> {
-		/**
-		 * Called when Dao is initialized.
-		 *
-		 * @param helper the OrmHelper.
-		 * @param daoClazz the Class of the Dao.
-		 * @param dao the Dao itself.
-		 */
-		public <D extends PersistenceExceptionDao<T, ?>> void daoInit( OrmHelper helper, Class<T> daoClazz, D dao );
-	}
+	private final DaoRegistry registry;
 
 	/**
-	 * CacheEnabler is a DaoInitRunner that simply enables object cache.
+	 * Constructs the helper from a given context.
 	 *
-	 * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
-	 * @version 1.0
-	 * @since Nov 12, 2013
+	 * @param context the context to use.
 	 */
-	public class CacheEnabler<T> implements DaoInitRunner<T> {
-		@Override
-		public <D extends PersistenceExceptionDao<T, ?>> void daoInit( OrmHelper helper, Class<T> daoClazz, D dao ) {
-			dao.setObjectCache( true );
-		}
+	public OrmHelper( Context context ) {
+		super( context, DATABASE_NAME, null, DATABASE_VERSION );
+		this.registry = new DaoRegistry( this.getConnectionSource() );
 	}
 
-	// Initialize DaoInitRunner:s here.
-	{
-		Map<Class<?>, DaoInitRunner<?>> r = this.daoInitRunners;
-		r.put( Alarm.class, new CacheEnabler<Alarm>() );
+	@Override
+	public Map<Class<?>, MeteredObjectCache> objectCaches() {
+		return this.registry.objectCaches();
 	}
 
+	@Override
 	public <T, I> PersistenceExceptionDao<T, I> dao( Class<T> clazz ) {
-		@SuppressWarnings( "unchecked" )
-		PersistenceExceptionDao<T, I> dao = (PersistenceExceptionDao<T, I>) this.daoMap.get( clazz );
-
-		if ( dao == null ) {
-			dao = this.getExceptionDao( clazz );
-
-			this.runDaoInit( clazz, dao );
-
-			@SuppressWarnings( "unchecked" )
-			PersistenceExceptionDao<Class<?>, ?> castDao = (PersistenceExceptionDao<Class<?>, ?>) dao;
-
-			this.daoMap.put( clazz, castDao );
-		}
-
-		return dao;
+		return this.registry.dao( clazz );
 	}
 
+	@Override
 	public <T> PersistenceExceptionDao<T, String> dao_s( Class<T> clazz ) {
 		return this.dao( clazz );
 	}
 
+	@Override
 	public <T> PersistenceExceptionDao<T, Integer> dao_i( Class<T> clazz ) {
 		return this.dao( clazz );
 	}
 
-	/**
-	 * Runs the DaoInitRunner for clazz if any.
-	 *
-	 * @param clazz the to run for.
-	 * @param dao the dao for the clazz.
-	 */
-	private <D extends PersistenceExceptionDao<T, ?>, T> void runDaoInit( Class<T> clazz, D dao ) {
-		@SuppressWarnings( "unchecked" )
-		DaoInitRunner<T> onInit = (DaoInitRunner<T>) this.daoInitRunners.get( clazz );
-		if ( onInit != null ) {
-			onInit.daoInit( this, clazz, dao );
-		}
-	}
-
-	/**
-	 * Get a PersistenceExceptionDao for given class. This uses the {@link DaoManager} to cache the DAO for future gets.
-	 *
-	 * @param clazz the class object to get Dao for.
-	 */
-	private <D extends PersistenceExceptionDao<T, ?>, T> D getExceptionDao(Class<T> clazz) {
-		try {
-			Dao<T, ?> dao = getDao(clazz);
-			@SuppressWarnings({ "unchecked", "rawtypes" })
-			D castDao = (D) new PersistenceExceptionDao(dao);
-			return castDao;
-		} catch (SQLException e) {
-			throw new PersistenceException("Could not create RuntimeExcepitionDao for class " + clazz, e);
-		}
-	}
-
-	/**
-	 * Constructs the helper from a given context.
-	 *
-	 * @param context the context to use.
-	 */
-	public OrmHelper( Context context ) {
-		super( context, DATABASE_NAME, null, DATABASE_VERSION );
+	@Override
+	public <T> InQuery<T> inQuery( Class<T> clazz, String column ) {
+		return this.registry.inQuery( clazz, column );
 	}
 
 	/**
@@ -185,9 +90,7 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 	@Override
 	public void onCreate(SQLiteDatabase db, ConnectionSource connectionSource) {
 		try {
-			for ( Class<?> clazz : CLASSES ) {
-				TableUtils.createTable( connectionSource, clazz );
-			}
+			this.registry.createTables();
 		} catch ( SQLException e ) {
 			Log.e( OrmHelper.class.getName(), "Fatal error: Couldn't create database." );
 			throw new PersistenceException( e );
@@ -206,7 +109,7 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 
 		// Execute the migration.
 		MigrationExecutor mig = new MigrationExecutor();
-		boolean success = mig.execute( cs, db, oldVersion, newVersion );
+		boolean success = mig.execute( cs, oldVersion, newVersion );
 
 		// Rebuild on failure.
 		if ( !success ) {
@@ -215,7 +118,7 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 		}
 
 		// Nuke caches.
-		this.nukeCache();
+		this.registry.nukeCache();
 	}
 
 	/**
@@ -235,9 +138,7 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 	 */
 	public OrmHelper drop( Class<?>[] clazzes ) {
 		try {
-			for ( Class<?> clazz : clazzes ) {
-				TableUtils.dropTable( this.getConnectionSource(), clazz, true );
-			}
+			this.registry.drop( clazzes );
 		} catch ( SQLException e ) {
 			Log.e( OrmHelper.class.getName(), "Can't drop databases", e );
 			throw new PersistenceException( e );
@@ -245,17 +146,10 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 		return this;
 	}
 
-	/**
-	 * Clears all DB tables for clazzes.
-	 *
-	 * @param clazzes the classes to clear tables for.
-	 * @return this.
-	 */
+	@Override
 	public OrmHelper clear( Class<?>[] clazzes ) {
 		try {
-			for ( Class<?> clazz : clazzes ) {
-				TableUtils.clearTable( this.getConnectionSource(), clazz );
-			}
+			this.registry.clear( clazzes );
 		} catch ( SQLException e ) {
 			Log.e( OrmHelper.class.getName(), "Can't drop databases", e );
 			throw new PersistenceException( e );
@@ -271,7 +165,7 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 	 */
 	public OrmHelper drop( Class<?> clazz ) {
 		try {
-			TableUtils.dropTable( this.getConnectionSource(), clazz, true );
+			this.registry.drop( clazz );
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
@@ -279,15 +173,10 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 		return this;
 	}
 
-	/**
-	 * Clears a DB table for given clazz.
-	 *
-	 * @param clazz the class to clear table for.
-	 * @return this.
-	 */
+	@Override
 	public OrmHelper clear( Class<?> clazz ) {
 		try {
-			TableUtils.clearTable( this.getConnectionSource(), clazz );
+			this.registry.clear( clazz );
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
@@ -295,12 +184,10 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 		return this;
 	}
 
-	/**
-	 * Rebuilds database. Any data is lost.
-	 */
+	@Override
 	public void rebuild() {
 		SQLiteDatabase db = this.getWritableDatabase();
-		this.drop( CLASSES );
+		this.drop( DaoRegistry.CLASSES );
 		this.onCreate( db, this.getConnectionSource() );
 	}
 
@@ -310,17 +197,6 @@ public class OrmHelper extends OrmLiteSqliteOpenHelper {
 	@Override
 	public void close() {
 		super.close();
-		this.nukeCache();
-	}
-
-	/**
-	 * Nukes the cache if any (Dao + Object.
-	 */
-	private void nukeCache() {
-		// Get rid of reference.
-		this.daoMap.clear();
-
-		// Clear all caches (Dao + Object).
-		DaoManager.clearCache();
+		this.registry.nukeCache();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.util.Map;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>OrmSource is the database as {@link PersistenceManager} sees it:<br/>
+ * a {@link ConnectionSource}, the DAOs for it and table maintenance.</p>
+ *
+ * <p>{@link OrmHelper} is the source on a device. Any other ConnectionSource,<br/>
+ * e.g. JDBC against a SQLite file on the JVM, can back one with a {@link DaoRegistry}.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public interface OrmSource {
+	/**
+	 * Returns the connection source.
+	 *
+	 * @return the connection source.
+	 */
+	public ConnectionSource getConnectionSource();
+
+	/**
+	 * Returns the DAO for clazz, created on first use.
+	 *
+	 * @param clazz the class of the table.
+	 * @return the DAO.
+	 */
+	public <T, I> PersistenceExceptionDao<T, I> dao( Class<T> clazz );
+
+	/**
+	 * Returns the DAO for clazz, which has a String id.
+	 *
+	 * @param clazz the class of the table.
+	 * @return the DAO.
+	 */
+	public <T> PersistenceExceptionDao<T, String> dao_s( Class<T> clazz );
+
+	/**
+	 * Returns the DAO for clazz, which has an Integer id.
+	 *
+	 * @param clazz the class of the table.
+	 * @return the DAO.
+	 */
+	public <T> PersistenceExceptionDao<T, Integer> dao_i( Class<T> clazz );
+
+	/**
+	 * Returns the cached {@link InQuery} for a column of the table of clazz.
+	 *
+	 * @param clazz the class of the table.
+	 * @param column the column to match and order on.
+	 * @return the query.
+	 */
+	public <T> InQuery<T> inQuery( Class<T> clazz, String column );
+
+	/**
+	 * Returns a snapshot of the object caches of all initialized DAOs that have one, for their metrics.
+	 *
+	 * @return map of entity class -> cache.
+	 */
+	public Map<Class<?>, MeteredObjectCache> objectCaches();
+
+	/**
+	 * Clears all DB tables for clazzes.
+	 *
+	 * @param clazzes the classes to clear tables for.
+	 * @return this.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public OrmSource clear( Class<?>[] clazzes );
+
+	/**
+	 * Clears a DB table for given clazz.
+	 *
+	 * @param clazz the class to clear table for.
+	 * @return this.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public OrmSource clear( Class<?> clazz );
+
+	/**
+	 * Rebuilds database. Any data is lost.
+	 *
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public void rebuild();
+}
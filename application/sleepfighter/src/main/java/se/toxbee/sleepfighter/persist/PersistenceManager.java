@@ -23,28 +23,42 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.j256.ormlite.android.apptools.OpenHelperManager;
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import com.j256.ormlite.stmt.PreparedUpdate;
 import com.j256.ormlite.stmt.QueryBuilder;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.UpdateBuilder;
 
 import net.engio.mbassy.listener.Handler;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import se.toxbee.sleepfighter.model.Alarm;
 import se.toxbee.sleepfighter.model.Alarm.AlarmEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
+import se.toxbee.sleepfighter.model.Alarm.Field;
 import se.toxbee.sleepfighter.model.AlarmList;
+import se.toxbee.sleepfighter.model.AlarmTimestamp;
 import se.toxbee.sleepfighter.model.SnoozeConfig;
 import se.toxbee.sleepfighter.model.audio.AudioConfig;
 import se.toxbee.sleepfighter.model.audio.AudioSource;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
-import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet.ChallengeParamEvent;
 import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet.Event;
-import se.toxbee.sleepfighter.model.challenge.ChallengeParam;
 import se.toxbee.sleepfighter.model.challenge.ChallengeType;
 import se.toxbee.sleepfighter.model.gps.GPSFilterArea;
 import se.toxbee.sleepfighter.model.gps.GPSFilterAreaSet;
@@ -52,11 +66,14 @@ import se.toxbee.sleepfighter.persist.dao.PersistenceException;
 import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
 import se.toxbee.sleepfighter.persist.type.TypeBootstrapper;
 import se.toxbee.sleepfighter.utils.debug.Debug;
-import se.toxbee.sleepfighter.utils.model.IdProvider;
 
 /**
  * Handles all reads and writes to persistence.<br/>
- * There should be no reason to keep more than 1 instance of this object.
+ * There should be no reason to keep more than 1 instance of this object.<br/>
+ * Writes from events are performed behind by a {@link WriteBehindQueue},<br/>
+ * reads wait for any pending writes first.<br/>
+ * The tables of the alarm list are also kept in a {@link TableSnapshot}, so that startup can read it in one go.<br/>
+ * A write to those tables invalidates it, it is rewritten once the queue has been idle for a while.
  * 
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
@@ -69,13 +86,61 @@ public class PersistenceManager {
 		Alarm.class,
 		SnoozeConfig.class,
 		AudioSource.class, AudioConfig.class,
-		ChallengeConfigSet.class, ChallengeConfig.class, ChallengeParam.class
+		ChallengeConfigSet.class, ChallengeConfig.class
 	};
 
-	private volatile OrmHelper ormHelper = null;
+	// The tables joinFetched reads, challenges are loaded lazily.
+	private static final Class<?>[] ALARM_LIST_TABLES = new Class<?>[] {
+		Alarm.class,
+		SnoozeConfig.class,
+		AudioSource.class, AudioConfig.class
+	};
+
+	// Per class in ALARM_LIST_TABLES: the column joinFetched streams it ordered on.
+	private static final String[] ALARM_LIST_JOIN = new String[] {
+		"id",
+		SnoozeConfig.ID_COLUMN,
+		AudioSource.ID_COLUMN, AudioConfig.ID_COLUMN
+	};
+
+	private static final String SNAPSHOT_FILE = "alarms.snapshot";
+
+	// Key of the empty write used to have the snapshot written when missing.
+	private static final Object SNAPSHOT_KEY = new Object();
+
+	// How long the queue must be idle before a stale snapshot is rewritten.
+	private static final long SNAPSHOT_DELAY_MS = 2000;
+
+	private volatile OrmSource ormHelper = null;
+
+	private volatile WriteBehindQueue writeQueue = null;
+
+	private TableSnapshot snapshot = null;
+
+	// True when the snapshot is invalid or missing and should be rewritten, set on the writer thread.
+	private volatile boolean snapshotStale = false;
+
+	// Resolves lazily fetched challenge sets one by one on first access, see prefetchChallenges for many.
+	// Called without the lock of the set held: the writer thread may need the set to finish.
+	private final ChallengeConfigSet.Loader challengeLoader = new ChallengeConfigSet.Loader() {
+		@Override
+		public void load( ChallengeConfigSet set ) {
+			// A prefetch behind may have loaded it meanwhile.
+			awaitWrites();
+			if ( !set.isLoaded() ) {
+				loadChallenges( Collections.singletonList( set ) );
+			}
+		}
+	};
 
 	private Context context;
 
+	// Where the snapshot is kept, the files dir of context unless given.
+	private File filesDir;
+
+	// True if ormHelper was given, and is not to be released by this.
+	private final boolean ownsHelper;
+
 	/**
 	 * Handles changes in alarm-list (the list itself, additions, deletions, etc).
 	 *
@@ -93,26 +158,32 @@ public class PersistenceManager {
 			break;
 
 		case ADD:
-			for ( Object elem : evt.elements() ) {
-				Debug.d("added alarm to database");
-				this.addAlarm( (Alarm) elem );
-			}
+			Debug.d("added alarms to database");
+			this.addAlarms( this.<Alarm>elements( evt.elements() ) );
 			break;
 
 		case REMOVE:
-			for ( Object elem : evt.elements() ) {
-				this.removeAlarm( (Alarm) elem );
-			}
+			this.removeAlarms( this.<Alarm>elements( evt.elements() ) );
 			break;
 
 		case UPDATE:
 			Alarm old = (Alarm) evt.elements().iterator().next();
-			this.removeAlarm( old );
-			this.addAlarm( evt.source().get( evt.index() ) );
+			this.replaceAlarm( old, evt.source().get( evt.index() ) );
 			break;
 		}
 	}
 
+	/**
+	 * Casts the elements of a list event.
+	 *
+	 * @param elements the elements.
+	 * @return the elements.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private <T> Collection<T> elements( Collection<?> elements ) {
+		return (Collection<T>) elements;
+	}
+
 	/**
 	 * Handles a change in an alarm.
 	 *
@@ -123,6 +194,16 @@ public class PersistenceManager {
 		this.updateAlarm( evt.getAlarm(), evt );
 	}
 
+	/**
+	 * Handles a committed edit session of an alarm.
+	 *
+	 * @param evt the event.
+	 */
+	@Handler
+	public void handleAlarmChangeSet( ChangeSetEvent evt ) {
+		this.updateAlarm( evt );
+	}
+
 	/**
 	 * Handles a change in {@link ChallengeConfigSet}
 	 *
@@ -208,22 +289,43 @@ public class PersistenceManager {
 	 */
 	public PersistenceManager( Context context ) {
 		this.context = context;
+		this.ownsHelper = true;
+	}
+
+	/**
+	 * Constructs the PersistenceManager on a given database, e.g. JDBC on the JVM.<br/>
+	 * The source is not released by {@link #release()}, it is owned by the caller.
+	 *
+	 * @param source the database.
+	 * @param filesDir the directory to keep the alarm list snapshot in.
+	 */
+	public PersistenceManager( OrmSource source, File filesDir ) {
+		this.ormHelper = source;
+		this.filesDir = filesDir;
+		this.ownsHelper = false;
+		this.init();
 	}
 
 	/**
 	 * Rebuilds all data-structures. Any data is lost.
 	 */
 	public void cleanStart() {
+		this.snapshotStale = true;
+		this.snapshot().invalidate();
 		this.getHelper().rebuild();
 	}
 
 	/**
-	 * Clears the list of all alarms.
-	 *
-	 * @throws PersistenceException if some SQL error happens.
+	 * Clears the list of all alarms, performed behind.
 	 */
 	public void clearAlarms() {
-		this.getHelper().clear( ALARM_AND_DEPENDERS );
+		this.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				touchSnapshot();
+				getHelper().clear( ALARM_AND_DEPENDERS );
+			}
+		} );
 	}
 
 	/**
@@ -233,9 +335,19 @@ public class PersistenceManager {
 	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public List<Alarm> fetchAlarms() {
+		this.awaitWrites();
+
 		try {
 			Debug.d("fetching alarms");
-			return this.joinFetched( this.makeAlarmQB().query() );
+
+			TableSnapshot.Contents snapshot = this.readSnapshot();
+			if ( snapshot != null ) {
+				return this.joinFetched( Lists.newArrayList( snapshot.rows( Alarm.class ) ), snapshot, true );
+			}
+
+			List<Alarm> alarms = this.joinFetched( this.makeAlarmQB().query(), null, true );
+			this.requestSnapshot();
+			return alarms;
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
@@ -248,29 +360,152 @@ public class PersistenceManager {
 	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public List<Alarm> fetchAlarmsSortedNames() {
+		this.awaitWrites();
+
 		try {
-			return this.joinFetched( this.makeAlarmQB().orderBy( "name", true ).query() );
+			return this.joinFetched( this.makeAlarmQB().orderBy( "name", true ).query(), null, true );
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
 	}
 
 	/**
-	 * Fetches a single alarm from database by its id.
+	 * Fetches a single alarm from database by its id.<br/>
+	 * Queries by primary key, the snapshot is only worth reading for the whole list.
 	 *
 	 * @param id the ID of the alarm to fetch.
 	 * @return the fetched Alarm.
 	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public Alarm fetchAlarmById( int id ) {
+		this.awaitWrites();
+
 		try {
-			List<Alarm> alarms = this.joinFetched( this.makeAlarmQB().where().idEq( id ).query() );
+			List<Alarm> alarms = this.joinFetched( this.makeAlarmQB().where().idEq( id ).query(), null, false );
 			return alarms == null || alarms.size() == 0 ? null : alarms.get( 0 );
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
 	}
 
+	/**
+	 * Fetches the alarms that fire in [from, to), sorted on when they fire.<br/>
+	 * Reads the next fire column and its index, only the matching alarms are loaded.<br/>
+	 * Stale next fire times are refreshed first, see {@link #refreshNextFire(boolean)}.
+	 *
+	 * @param from the start of the window in unix epoch timestamp, inclusive.
+	 * @param to the end of the window in unix epoch timestamp, exclusive.
+	 * @return the fetched alarms.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public List<Alarm> fetchAlarmsFiringBetween( long from, long to ) {
+		this.refreshNextFire( false );
+
+		try {
+			QueryBuilder<Alarm, Integer> qb = this.makeFiringQB();
+			qb.where().ge( Alarm.NEXT_FIRE_COLUMN, from ).and().lt( Alarm.NEXT_FIRE_COLUMN, to );
+			return this.joinFetched( qb.query(), null, false );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	/**
+	 * Fetches the alarm that fires first, like {@link AlarmList#getEarliestAlarm(long)} does for now,<br/>
+	 * without loading any other alarm.<br/>
+	 * Stale next fire times are refreshed first, see {@link #refreshNextFire(boolean)}.
+	 *
+	 * @return info about the earliest alarm, or {@link AlarmTimestamp#INVALID}.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public AlarmTimestamp fetchEarliestAlarm() {
+		this.refreshNextFire( false );
+
+		try {
+			QueryBuilder<Alarm, Integer> qb = this.makeFiringQB().limit( 1L );
+			qb.where().isNotNull( Alarm.NEXT_FIRE_COLUMN );
+
+			List<Alarm> alarms = this.joinFetched( qb.query(), null, false );
+			if ( alarms.isEmpty() ) {
+				return AlarmTimestamp.INVALID;
+			}
+
+			Alarm alarm = alarms.get( 0 );
+			return new AlarmTimestamp( alarm.getNextFireMillis(), alarm );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	/**
+	 * Recomputes the persisted next fire time of alarms, and waits for it to be written.<br/>
+	 * Past times are stale: a repeating alarm that fired has a next time.<br/>
+	 * A timezone or clock change makes every time stale.
+	 *
+	 * @param all true to refresh all alarms, false to only refresh those that are in the past.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public void refreshNextFire( final boolean all ) {
+		this.writeQueue().executeAndWait( new Runnable() {
+			@Override
+			public void run() {
+				transact( new Callable<Void>() {
+					@Override
+					public Void call() throws SQLException {
+						writeNextFire( all, System.currentTimeMillis() );
+						return null;
+					}
+				} );
+			}
+		} );
+	}
+
+	/**
+	 * Recomputes and writes the next fire time of alarms, on the writer thread, in the transaction of the caller.<br/>
+	 * Rows are read from the alarm table alone, cached alarms are refreshed in place and stay cached.
+	 *
+	 * @param all true to refresh all alarms, false to only refresh those that are in the past.
+	 * @param now the current time in unix epoch timestamp.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	private void writeNextFire( boolean all, long now ) throws SQLException {
+		PersistenceExceptionDao<Alarm, Integer> dao = this.dao_i( Alarm.class );
+
+		QueryBuilder<Alarm, Integer> qb = dao.queryBuilder();
+		if ( !all ) {
+			qb.where().lt( Alarm.NEXT_FIRE_COLUMN, now );
+		}
+
+		List<Alarm> alarms = qb.query();
+		if ( alarms.isEmpty() ) {
+			return;
+		}
+
+		SelectArg value = new SelectArg();
+		SelectArg id = new SelectArg();
+		UpdateBuilder<Alarm, Integer> ub = dao.updateBuilder();
+		ub.updateColumnValue( Alarm.NEXT_FIRE_COLUMN, value ).where().eq( Alarm.ID_COLUMN, id );
+		PreparedUpdate<Alarm> update = ub.prepare();
+
+		for ( Alarm alarm : alarms ) {
+			if ( alarm.refreshNextFire( now ) ) {
+				this.touchSnapshot();
+				value.setValue( alarm.getNextFireMillis() );
+				id.setValue( alarm.getId() );
+				dao.update( alarm, update );
+			}
+		}
+	}
+
+	/**
+	 * Constructs a QueryBuilder (QB) for alarms sorted on when they fire.
+	 *
+	 * @return the query builder.
+	 */
+	private QueryBuilder<Alarm, Integer> makeFiringQB() {
+		return this.makeAlarmQB().orderBy( Alarm.NEXT_FIRE_COLUMN, true ).orderBy( Alarm.ID_COLUMN, true );
+	}
+
 	/**
 	 * Constructs a QueryBuilder (QB) for querying 0-many Alarm(s).
 	 *
@@ -281,13 +516,18 @@ public class PersistenceManager {
 	}
 
 	/**
-	 * Performs "Joins" and fetches all to Alarm associated objects and sets to respective Alarm.
+	 * Performs "Joins" and fetches all to Alarm associated objects and sets to respective Alarm.<br/>
+	 * Each associated table is streamed once, ordered by the joined id, and merge-joined into the alarms.<br/>
+	 * Challenge sets are not read, they are loaded on first access or by {@link #prefetchChallenges(Collection)}.
 	 *
 	 * @param alarms the list of alarms to fill in blanks for.
+	 * @param snapshot the snapshot to read associated rows from, or null to query the database.
+	 * @param all true if alarms is every alarm in the database, then no IN (...) restriction is needed.
 	 * @return the passed argument, for fluid interface.
 	 */
-	private List<Alarm> joinFetched( final List<Alarm> alarms ) {
-		if ( alarms.size() == 0 ) {
+	private List<Alarm> joinFetched( final List<Alarm> alarms, TableSnapshot.Contents snapshot, boolean all ) {
+		int count = alarms.size();
+		if ( count == 0 ) {
 			return alarms;
 		}
 
@@ -295,14 +535,13 @@ public class PersistenceManager {
 		 * Make lookup tables.
 		 * -------------------
 		 * Find all AudioSource:s present and make AudioSource.id -> index(Alarm) lookup table.
-		 * Make a AudioConfig.id -> index(Alarm) lookup table.
+		 * Make a AudioConfig.id -> index(Alarm) lookup table, and so on.
 		 */
-		Map<Integer, Integer> audioSourceLookup = Maps.newHashMap();
-		Map<Integer, Integer> audioConfigLookup = Maps.newHashMap();
-		Map<Integer, Integer> snoozeConfigLookup = Maps.newHashMap();
-		Map<Integer, Integer> challengeSetLookup =  Maps.newHashMap();
+		JoinIndex audioSourceLookup = new JoinIndex( count );
+		JoinIndex audioConfigLookup = new JoinIndex( count );
+		JoinIndex snoozeConfigLookup = new JoinIndex( count );
 
-		for ( int i = 0; i < alarms.size(); ++i ) {
+		for ( int i = 0; i < count; ++i ) {
 			Alarm alarm = alarms.get( i );
 
 			// Audio Source.
@@ -316,130 +555,377 @@ public class PersistenceManager {
 
 			// Snooze config
 			snoozeConfigLookup.put( alarm.getSnoozeConfig().getId(), i );
-
-			// Challenge related.
-			challengeSetLookup.put( alarm.getChallengeSet().getId(), i );
 		}
 
 		/*
-		 * Query for all tables.
-		 */
-		List<AudioSource> audioSourceList = this.queryInIds( AudioSource.class, AudioSource.ID_COLUMN, audioSourceLookup );
-		List<AudioConfig> audioConfigSetList = this.queryInIds( AudioConfig.class, AudioConfig.ID_COLUMN, audioConfigLookup );
-		List<SnoozeConfig> snoozeConfigSetList = this.queryInIds( SnoozeConfig.class, SnoozeConfig.ID_COLUMN, snoozeConfigLookup );
-
-		/*
-		 * Set all to respective Alarm object.
+		 * Stream each table and set to respective Alarm object.
 		 */
 
 		// Set AudioSource to each alarm.
-		for ( AudioSource source : audioSourceList ) {
-			int alarmIndex = audioSourceLookup.get( source.getId() );
-			alarms.get( alarmIndex ).setFetched( source );
+		Iterator<AudioSource> audioSources = this.iterateJoined( AudioSource.class, AudioSource.ID_COLUMN, audioSourceLookup, snapshot, all );
+		try {
+			while ( audioSources.hasNext() ) {
+				AudioSource source = audioSources.next();
+				for ( int p = audioSourceLookup.seek( source.getId() ); p != JoinIndex.NOT_FOUND; p = audioSourceLookup.next( p ) ) {
+					alarms.get( audioSourceLookup.index( p ) ).setFetched( source );
+				}
+			}
+		} finally {
+			closeQuietly( audioSources );
 		}
 
 		// Set AudioConfig to each alarm.
-		for ( AudioConfig config : audioConfigSetList ) {
-			int alarmIndex = audioConfigLookup.get( config.getId() );
-			Alarm alarm = alarms.get( alarmIndex );
-			config.setMessageBus( alarm.getMessageBus() );
-			alarms.get( alarmIndex ).setFetched( config );
+		Iterator<AudioConfig> audioConfigs = this.iterateJoined( AudioConfig.class, AudioConfig.ID_COLUMN, audioConfigLookup, snapshot, all );
+		try {
+			while ( audioConfigs.hasNext() ) {
+				AudioConfig config = audioConfigs.next();
+				for ( int p = audioConfigLookup.seek( config.getId() ); p != JoinIndex.NOT_FOUND; p = audioConfigLookup.next( p ) ) {
+					alarms.get( audioConfigLookup.index( p ) ).setFetched( config );
+				}
+			}
+		} finally {
+			closeQuietly( audioConfigs );
 		}
 
-		for ( SnoozeConfig config : snoozeConfigSetList ) {
-			int alarmIndex = snoozeConfigLookup.get( config.getId() );
-			Alarm alarm = alarms.get( alarmIndex );
-			config.setMessageBus( alarm.getMessageBus() );
-			alarm.setFetched( config );
+		// Set SnoozeConfig to each alarm.
+		Iterator<SnoozeConfig> snoozeConfigs = this.iterateJoined( SnoozeConfig.class, SnoozeConfig.ID_COLUMN, snoozeConfigLookup, snapshot, all );
+		try {
+			while ( snoozeConfigs.hasNext() ) {
+				SnoozeConfig config = snoozeConfigs.next();
+				for ( int p = snoozeConfigLookup.seek( config.getId() ); p != JoinIndex.NOT_FOUND; p = snoozeConfigLookup.next( p ) ) {
+					alarms.get( snoozeConfigLookup.index( p ) ).setFetched( config );
+				}
+			}
+		} finally {
+			closeQuietly( snoozeConfigs );
 		}
 
 		/*
-		 * Challenges...
+		 * Challenges: reuse a loaded set if cached, else make the fetched one lazy.
 		 */
-		this.fetchJoinChallenge( alarms, challengeSetLookup );
+		ObjectCache setCache = this.dao( ChallengeConfigSet.class ).getObjectCache();
+		for ( Alarm alarm : alarms ) {
+			ChallengeConfigSet set = alarm.getChallengeSet();
+			ChallengeConfigSet cached = setCache == null ? null : setCache.get( ChallengeConfigSet.class, set.getId() );
+
+			if ( cached != null ) {
+				alarm.setChallenges( cached );
+			} else {
+				set.setLoader( this.challengeLoader );
+				alarm.setChallenges( set );
+			}
+		}
 
 		return alarms;
 	}
 
 	/**
-	 * "Joins" in challenge set into list of alarms.
+	 * Resolves the lazily fetched challenge sets of alarms in one go,<br/>
+	 * instead of one by one on first access. Sets already loaded are skipped.<br/>
+	 * This blocks, see {@link #prefetchChallengesBehind(Collection)} for the UI thread.
 	 *
-	 * @param alarms list of alarms.
-	 * @param challengeSetLookup the lookup challenge set id -> index in list of alarms.
+	 * @param alarms the alarms to resolve challenge sets of.
+	 * @throws PersistenceException if some SQL error happens.
 	 */
-	private void fetchJoinChallenge( List<Alarm> alarms, Map<Integer, Integer> challengeSetLookup ) {
-		OrmHelper helper = this.getHelper();
+	public void prefetchChallenges( Collection<Alarm> alarms ) {
+		List<ChallengeConfigSet> sets = unloadedChallenges( alarms );
+		if ( sets.isEmpty() ) {
+			return;
+		}
+
+		this.awaitWrites();
+		this.loadChallenges( sets );
+	}
 
-		// 1) Read all sets and set them.
-		List<ChallengeConfigSet> challengeSetList = this.queryInIds( ChallengeConfigSet.class, ChallengeConfigSet.ID_COLUMN, challengeSetLookup );
-		for ( ChallengeConfigSet challengeSet : challengeSetList ) {
-			// Bind challenge config set to alarm.
-			int alarmIndex = challengeSetLookup.get( challengeSet.getId() );
-			Alarm alarm = alarms.get( alarmIndex );
-			challengeSet.setMessageBus( alarm.getMessageBus() );
-			alarm.setChallenges( challengeSet );
+	/**
+	 * Resolves the lazily fetched challenge sets of alarms in one go on the writer thread,<br/>
+	 * after any pending writes. Use this before the sets are needed on the UI thread,<br/>
+	 * e.g. when an alarm fires or its settings open. An access before the load is done<br/>
+	 * waits for it instead of loading again. A failed load is logged, the sets stay lazy.
+	 *
+	 * @param alarms the alarms to resolve challenge sets of.
+	 */
+	public void prefetchChallengesBehind( Collection<Alarm> alarms ) {
+		final List<ChallengeConfigSet> sets = unloadedChallenges( alarms );
+		if ( sets.isEmpty() ) {
+			return;
 		}
 
-		// 2) Read all challenge config:s and set to each set.
-		Map<Integer, ChallengeConfig> challengeConfigLookup = Maps.newHashMap();
-		List<ChallengeConfig> challengeConfigList = this.queryInIds( ChallengeConfig.class, ChallengeConfig.SET_FOREIGN_COLUMN, challengeSetLookup );
-		for ( ChallengeConfig challengeConfig : challengeConfigList ) {
-			// Bind challenge config to set.
-			int alarmIndex = challengeSetLookup.get( challengeConfig.getSetId() );
-			alarms.get( alarmIndex ).getChallengeSet().putChallenge( challengeConfig );
+		this.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					List<ChallengeConfigSet> unloaded = Lists.newArrayListWithCapacity( sets.size() );
+					for ( ChallengeConfigSet set : sets ) {
+						if ( !set.isLoaded() ) {
+							unloaded.add( set );
+						}
+					}
+
+					if ( !unloaded.isEmpty() ) {
+						loadChallenges( unloaded );
+					}
+				} catch ( PersistenceException e ) {
+					Log.w( TAG, "Could not prefetch challenges", e );
+				}
+			}
+		} );
+	}
+
+	/**
+	 * Returns the challenge sets of alarms that are not yet loaded, each instance once.
+	 *
+	 * @param alarms the alarms.
+	 * @return the sets.
+	 */
+	private static List<ChallengeConfigSet> unloadedChallenges( Collection<Alarm> alarms ) {
+		Set<ChallengeConfigSet> seen = Sets.newIdentityHashSet();
+		List<ChallengeConfigSet> sets = Lists.newArrayListWithCapacity( alarms.size() );
+		for ( Alarm alarm : alarms ) {
+			ChallengeConfigSet set = alarm.getChallengeSet();
+			if ( set != null && !set.isLoaded() && seen.add( set ) ) {
+				sets.add( set );
+			}
+		}
+
+		return sets;
+	}
+
+	/**
+	 * Loads the rows, challenges and parameters of lazily fetched challenge sets.<br/>
+	 * Each table is streamed once, restricted to the sets, and merge-joined into them.<br/>
+	 * The sets are only resolved at the end, no lock of a set is held while reading.
+	 *
+	 * @param challengeSetList the sets to load.
+	 */
+	private void loadChallenges( List<ChallengeConfigSet> challengeSetList ) {
+		int count = challengeSetList.size();
+		JoinIndex challengeSetLookup = new JoinIndex( count );
+		for ( int i = 0; i < count; ++i ) {
+			challengeSetLookup.put( challengeSetList.get( i ).getId(), i );
+		}
+
+		// Per set: whether its row exists, the enabled state and the challenges read.
+		boolean[] found = new boolean[count];
+		boolean[] enabled = new boolean[count];
+		List<Map<ChallengeType, ChallengeConfig>> challenges = Lists.newArrayListWithCapacity( count );
+		for ( int i = 0; i < count; ++i ) {
+			enabled[i] = true;
+			challenges.add( Maps.<ChallengeType, ChallengeConfig>newEnumMap( ChallengeType.class ) );
+		}
+
+		// 1) Read the rows of the sets.
+		Iterator<ChallengeConfigSet> sets = this.iterateJoined( ChallengeConfigSet.class, ChallengeConfigSet.ID_COLUMN, challengeSetLookup, null, false );
+		try {
+			while ( sets.hasNext() ) {
+				ChallengeConfigSet row = sets.next();
+
+				for ( int p = challengeSetLookup.seek( row.getId() ); p != JoinIndex.NOT_FOUND; p = challengeSetLookup.next( p ) ) {
+					int setIndex = challengeSetLookup.index( p );
+					found[setIndex] = true;
+					enabled[setIndex] = row.isEnabled();
+				}
+			}
+		} finally {
+			closeQuietly( sets );
+		}
+
+		// 2) Read all challenge config:s and bind to each set.
+		Iterator<ChallengeConfig> configs = this.iterateJoined( ChallengeConfig.class, ChallengeConfig.SET_FOREIGN_COLUMN, challengeSetLookup, null, false );
+		try {
+			while ( configs.hasNext() ) {
+				ChallengeConfig challengeConfig = configs.next();
 
-			// Add to challenge config lookup.
-			challengeConfigLookup.put( challengeConfig.getId(), challengeConfig );
+				for ( int p = challengeSetLookup.seek( challengeConfig.getSetId() ); p != JoinIndex.NOT_FOUND; p = challengeSetLookup.next( p ) ) {
+					challenges.get( challengeSetLookup.index( p ) ).put( challengeConfig.getType(), challengeConfig );
+				}
+			}
+		} finally {
+			closeQuietly( configs );
 		}
 
-		// 3) Sanity fix. Find any missing ChallengeType:s and add them.
-		PersistenceExceptionDao<ChallengeConfig, Integer> configDao = helper.dao( ChallengeConfig.class );
-		for ( ChallengeConfigSet challengeSet : challengeSetList ) {
-			Set<ChallengeType> missingTypes = Sets.complementOf( challengeSet.getDefinedTypes(), ChallengeType.class );
+		// 3) Sanity fix. Find any missing ChallengeType:s and add them, unless the set was deleted.
+		final List<ChallengeConfig> missingConfigs = Lists.newArrayList();
+		for ( int i = 0; i < count; ++i ) {
+			if ( !found[i] ) {
+				continue;
+			}
+
+			Map<ChallengeType, ChallengeConfig> challengeMap = challenges.get( i );
+			Set<ChallengeType> missingTypes = Sets.complementOf( challengeMap.keySet(), ChallengeType.class );
 
 			for ( ChallengeType type : missingTypes ) {
 				ChallengeConfig config =  new ChallengeConfig( type, false );
-				config.setFetchedSetId( challengeSet.getId() );
-
-				configDao.create( config );
+				config.setFetchedSetId( challengeSetList.get( i ).getId() );
+				missingConfigs.add( config );
 
-				challengeSet.putChallenge( config );
+				challengeMap.put( type, config );
 			}
 		}
 
-		// 3) Finally read all parameters and set to each config.
-		List<ChallengeParam> challengeParamList = this.queryInIds( ChallengeParam.class, ChallengeParam.CHALLENGE_ID_COLUMN, challengeConfigLookup );
-		for ( ChallengeParam param : challengeParamList ) {
-			challengeConfigLookup.get( param.getId() ).setFetched( param );
+		if ( !missingConfigs.isEmpty() ) {
+			this.writeQueue().executeAndWait( new Runnable() {
+				@Override
+				public void run() {
+					PersistenceExceptionDao<ChallengeConfig, Integer> configDao = dao( ChallengeConfig.class );
+					for ( ChallengeConfig config : missingConfigs ) {
+						configDao.create( config );
+					}
+				}
+			} );
+		}
+
+		for ( int i = 0; i < count; ++i ) {
+			challengeSetList.get( i ).resolve( enabled[i], challenges.get( i ).values() );
+		}
+
+		// Loaded, later fetches of the alarms reuse the sets.
+		ObjectCache setCache = this.dao( ChallengeConfigSet.class ).getObjectCache();
+		if ( setCache != null ) {
+			for ( ChallengeConfigSet challengeSet : challengeSetList ) {
+				setCache.put( ChallengeConfigSet.class, challengeSet.getId(), challengeSet );
+			}
 		}
 	}
 
 	/**
-	 * Helper for {@link #joinFetched(List)}, returns a list of items given a lookup table.
+	 * Helper for {@link #joinFetched(List, TableSnapshot.Contents, boolean)}, streams items ordered by idColumn given a lookup table.<br/>
+	 * The lookup is sorted and rewound for {@link JoinIndex#seek(int)}.
 	 *
 	 * @param clazz the Class object to use to get the Domain Access Object for item type.
+	 * @param idColumn the column to join on.
 	 * @param lookup the lookup table to get IDs from.
-	 * @return the list of items.
+	 * @param snapshot the snapshot to stream from, its rows are ordered on idColumn. Null to query the database.
+	 * @param all true if all rows should be streamed, and not only those in lookup.
+	 * @return the iterator of items, must be closed with {@link #closeQuietly(Iterator)}.
 	 */
-	private <T extends IdProvider> List<T> queryInIds( Class<T> clazz, String idColumn, Map<Integer, ?> lookup ) {
+	private <T> Iterator<T> iterateJoined( Class<T> clazz, String idColumn, JoinIndex lookup, TableSnapshot.Contents snapshot, boolean all ) {
+		lookup.sort();
+
+		if ( snapshot != null ) {
+			return snapshot.rows( clazz ).iterator();
+		}
+
+		if ( !all ) {
+			return this.getHelper().inQuery( clazz, idColumn ).iterator( lookup.ids() );
+		}
+
 		try {
-			QueryBuilder<T, Integer> qb = this.dao_i( clazz ).queryBuilder();
-			return qb.where().in( idColumn, lookup.keySet().toArray() ).query();
+			return this.dao_i( clazz ).queryBuilder().orderBy( idColumn, true ).iterator();
 		} catch ( SQLException e ) {
 			throw new PersistenceException( e );
 		}
 	}
 
 	/**
-	 * Updates an alarm to database.
+	 * Closes an iterator from {@link #iterateJoined(Class, String, JoinIndex, TableSnapshot.Contents, boolean)}.
+	 *
+	 * @param iter the iterator.
+	 */
+	private static void closeQuietly( Iterator<?> iter ) {
+		if ( iter instanceof CloseableIterator ) {
+			((CloseableIterator<?>) iter).closeQuietly();
+		}
+	}
+
+	/**
+	 * Returns the snapshot of the alarm list.
+	 *
+	 * @return the snapshot.
+	 */
+	private synchronized TableSnapshot snapshot() {
+		if ( this.snapshot == null ) {
+			if ( this.filesDir == null ) {
+				this.filesDir = this.context.getFilesDir();
+			}
+
+			File file = new File( this.filesDir, SNAPSHOT_FILE );
+			this.snapshot = new TableSnapshot( file, OrmHelper.DATABASE_VERSION, ALARM_LIST_JOIN );
+		}
+
+		return this.snapshot;
+	}
+
+	/**
+	 * Returns the DAOs of {@link #ALARM_LIST_TABLES}, for the snapshot.
+	 *
+	 * @return the DAOs.
+	 */
+	private PersistenceExceptionDao<?, ?>[] snapshotDaos() {
+		PersistenceExceptionDao<?, ?>[] daos = new PersistenceExceptionDao<?, ?>[ALARM_LIST_TABLES.length];
+		for ( int i = 0; i < daos.length; ++i ) {
+			daos[i] = this.dao( ALARM_LIST_TABLES[i] );
+		}
+		return daos;
+	}
+
+	/**
+	 * Reads the snapshot of the alarm list, pending writes must have been awaited.
+	 *
+	 * @return the contents, or null if there is no usable snapshot.
+	 */
+	private TableSnapshot.Contents readSnapshot() {
+		try {
+			return this.snapshot().read( this.snapshotDaos() );
+		} catch ( SQLException e ) {
+			Log.w( TAG, "Discarding unreadable snapshot", e );
+			this.snapshot().invalidate();
+			return null;
+		}
+	}
+
+	/**
+	 * Has the snapshot written behind, if there is none.
+	 */
+	private void requestSnapshot() {
+		if ( !this.snapshot().exists() ) {
+			this.writeQueue().update( SNAPSHOT_KEY, new Runnable() {
+				@Override
+				public void run() {
+					snapshotStale = true;
+				}
+			} );
+		}
+	}
+
+	/**
+	 * Invalidates the snapshot before a write to {@link #ALARM_LIST_TABLES}, on the writer thread.<br/>
+	 * Writes to other tables leave it be.
+	 */
+	private void touchSnapshot() {
+		if ( !this.snapshotStale ) {
+			this.snapshotStale = true;
+			this.snapshot().invalidate();
+		}
+	}
+
+	/**
+	 * Writes the snapshot if stale, called on the writer thread when it's idle.
+	 */
+	private void writeSnapshot() {
+		if ( !this.snapshotStale ) {
+			return;
+		}
+
+		try {
+			this.snapshot().write( this.getHelper().getConnectionSource(), this.snapshotDaos() );
+			this.snapshotStale = false;
+		} catch ( SQLException e ) {
+			Log.w( TAG, "Could not write snapshot", e );
+			this.snapshot().invalidate();
+		} catch ( IOException e ) {
+			Log.w( TAG, "Could not write snapshot", e );
+			this.snapshot().invalidate();
+		}
+	}
+
+	/**
+	 * Updates an alarm to database, performed behind.
 	 *
 	 * @param alarm the alarm to update.
 	 * @param evt AlarmEvent that occurred, required to update foreign fields.
-	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public void updateAlarm( Alarm alarm, AlarmEvent evt ) {
-		OrmHelper helper = this.getHelper();
-
 		boolean updateAlarmTable = true;
 
 		// First handle any updates to foreign fields that are set directly in Alarm.
@@ -451,7 +937,7 @@ public class PersistenceManager {
 
 		case ORDER:
 			// We must update the other alarm (in old value).
-			helper.dao( Alarm.class ).update( (Alarm) evt.getOldValue() );
+			this.updateRow( Alarm.class, (Alarm) evt.getOldValue(), ((Alarm) evt.getOldValue()).getId() );
 			break;
 
 		default:
@@ -459,85 +945,135 @@ public class PersistenceManager {
 		}
 
 		if ( updateAlarmTable ) {
-			helper.dao( Alarm.class ).update( alarm );
+			alarm.refreshNextFire( System.currentTimeMillis() );
+			this.updateRow( Alarm.class, alarm, alarm.getId() );
 		}
 	}
 
 	/**
-	 * Updates an Audio Config to database.
+	 * Updates an alarm to database given all changes done in an edit session, performed behind.<br/>
+	 * The alarm table is written to at most once.
+	 *
+	 * @param evt the ChangeSetEvent that occurred, required to update foreign fields.
+	 */
+	public void updateAlarm( ChangeSetEvent evt ) {
+		Alarm alarm = evt.getAlarm();
+
+		boolean updateAlarmTable = !evt.isOnlyDirty( Field.AUDIO_SOURCE );
+		if ( evt.isDirty( Field.AUDIO_SOURCE ) ) {
+			AudioSource old = (AudioSource) evt.getOldValue( Field.AUDIO_SOURCE );
+			updateAlarmTable |= this.updateAudioSource( alarm.getAudioSource(), old );
+		}
+
+		if ( updateAlarmTable ) {
+			alarm.refreshNextFire( System.currentTimeMillis() );
+			this.updateRow( Alarm.class, alarm, alarm.getId() );
+		}
+	}
+
+	/**
+	 * Updates an Audio Config to database, performed behind.
 	 *
-	 * @param ac the AudioConfig to update
 	 * @param evt ChangeEvent that occurred, required to update foreign fields.
-	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public void updateAudioConfig( AudioConfig.ChangeEvent evt ) {
-		this.dao_i( AudioConfig.class ).update( evt.getAudioConfig() );
+		AudioConfig config = evt.getAudioConfig();
+		this.updateRow( AudioConfig.class, config, config.getId() );
 	}
 
 	/**
-	 * Updates a SnoozeConfig to database.
+	 * Updates a SnoozeConfig to database, performed behind.
 	 *
-	 * @param ac the SnoozeConfig to update
 	 * @param evt SnoozeConfig that occurred, required to update foreign fields.
-	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public void updateSnoozeConfig( SnoozeConfig.ChangeEvent evt ) {
-		this.dao_i( SnoozeConfig.class ).update( evt.getSnoozeConfig() );
+		SnoozeConfig config = evt.getSnoozeConfig();
+		this.updateRow( SnoozeConfig.class, config, config.getId() );
 	}
 
 	/**
-	 * Updates the audio source.
+	 * Enqueues an update of a row, merged with any pending update of the same row.<br/>
+	 * The values of row are copied now, the writer thread never reads row itself.
+	 *
+	 * @param clazz the class of the table.
+	 * @param row the object to update.
+	 * @param id the id of the row.
+	 */
+	private <T> void updateRow( Class<T> clazz, T row, int id ) {
+		final PersistenceExceptionDao<T, Integer> dao = this.dao_i( clazz );
+		final RowImage image = RowImage.of( dao, row );
+		final boolean inSnapshot = Arrays.asList( ALARM_LIST_TABLES ).contains( clazz );
+		this.writeQueue().update( WriteBehindQueue.rowKey( clazz, id ), new Runnable() {
+			@Override
+			public void run() {
+				if ( inSnapshot ) {
+					touchSnapshot();
+				}
+				image.update( dao.getConnectionSource() );
+			}
+		} );
+	}
+
+	/**
+	 * Updates the audio source, performed behind.<br/>
+	 * A new source waits for the write, the alarm row that is written next references its generated id.
 	 *
 	 * @param source the audio source.
 	 * @param old the old source if any.
 	 * @return true if the alarm table must be updated as a result.
 	 */
-	private boolean updateAudioSource( AudioSource source, AudioSource old ) {
-		PersistenceExceptionDao<AudioSource, Integer> asDao = this.dao_i( AudioSource.class );
-
-		if ( old != null ) {
-			if ( source == null ) {
-				asDao.delete( source );
-			} else {
-				source.setId( old.getId() );
-				asDao.update( source );
-				return false;
-			}
+	private boolean updateAudioSource( final AudioSource source, final AudioSource old ) {
+		final boolean updateAlarmTable = old == null || source == null;
+		final PersistenceExceptionDao<AudioSource, Integer> asDao = this.dao_i( AudioSource.class );
+
+		if ( old == null ) {
+			this.writeQueue().executeAndWait( new Runnable() {
+				@Override
+				public void run() {
+					touchSnapshot();
+					asDao.create( source );
+				}
+			} );
+		} else if ( source == null ) {
+			this.writeQueue().execute( new Runnable() {
+				@Override
+				public void run() {
+					touchSnapshot();
+					asDao.delete( old );
+				}
+			} );
 		} else {
-			asDao.create( source );
+			source.setId( old.getId() );
+			this.updateRow( AudioSource.class, source, source.getId() );
 		}
-		return true;
+
+		return updateAlarmTable;
 	}
 
 	/**
-	 * Updates the challenges.
+	 * Updates the challenges, performed behind.
 	 *
 	 * @param evt the event.
 	 */
 	private void updateChallenges( Event evt ) {
 		Log.d( TAG, evt.toString() );
 
-		OrmHelper helper = this.getHelper();
 		ChallengeConfigSet set = evt.getSet();
 
 		if ( evt instanceof ChallengeConfigSet.EnabledEvent ) {
 			// Handle change for isEnabled().
-			helper.dao( ChallengeConfigSet.class ).update( set );
+			this.updateRow( ChallengeConfigSet.class, set, set.getId() );
 			return;
 		} else if ( evt instanceof ChallengeConfigSet.ChallengeEvent ) {
-			ChallengeConfig config = ((ChallengeConfigSet.ChallengeEvent) evt).getChallengeConfig();
+			final ChallengeConfig config = ((ChallengeConfigSet.ChallengeEvent) evt).getChallengeConfig();
 
 			if ( evt instanceof ChallengeConfigSet.ChallengeEnabledEvent ) {
 				// Handle change for isEnabled() for specific ChallengeConfig.
-				helper.dao( ChallengeConfig.class ).update( config );
+				this.updateRow( ChallengeConfig.class, config, config.getId() );
 				return;
 			} else if ( evt instanceof ChallengeConfigSet.ChallengeParamEvent ) {
-				// Handle change for a specific challenge config parameter.
-				ChallengeParamEvent event = (ChallengeParamEvent) evt;
-				String key = event.getKey();
-
-				ChallengeParam param = new ChallengeParam( config.getId(), key, config.getParam( key ) );
-				helper.dao( ChallengeParam.class ).createOrUpdate( param );
+				// Handle change for a specific challenge config parameter, all are in one column.
+				this.updateRow( ChallengeConfig.class, config, config.getId() );
 				return;
 			}
 		}
@@ -546,114 +1082,255 @@ public class PersistenceManager {
 	}
 
 	/**
-	 * Stores/adds an alarm to database.
+	 * Stores/adds an alarm to database.<br/>
+	 * This waits for the write since ids are generated.
 	 *
 	 * @param alarm the alarm to store.
 	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public void addAlarm( Alarm alarm ) {
-		OrmHelper helper = this.getHelper();
+		this.addAlarms( Collections.singletonList( alarm ) );
+	}
 
-		// Handle audio source foreign object if present.
-		AudioSource audioSource = alarm.getAudioSource();
-		helper.dao( AudioSource.class ).create( audioSource );
+	/**
+	 * Stores/adds alarms to database in one transaction.<br/>
+	 * This waits for the write since ids are generated.
+	 *
+	 * @param alarms the alarms to store.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public void addAlarms( final Collection<Alarm> alarms ) {
+		this.writeQueue().executeAndWait( new Runnable() {
+			@Override
+			public void run() {
+				transact( new Callable<Void>() {
+					@Override
+					public Void call() {
+						touchSnapshot();
+						insertAlarms( alarms );
+						return null;
+					}
+				} );
+			}
+		} );
+	}
 
-		// Handle audio config foreign object.
-		AudioConfig audioConfig = alarm.getAudioConfig();
-		helper.dao( AudioConfig.class ).create( audioConfig );
+	/**
+	 * Replaces an alarm with another in database in one transaction.<br/>
+	 * Only changed rows are written, and alarm takes the ids of old.<br/>
+	 * This waits for the write since ids are assigned.
+	 *
+	 * @param old the alarm to replace.
+	 * @param alarm the alarm to store.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public void replaceAlarm( final Alarm old, final Alarm alarm ) {
+		this.writeQueue().executeAndWait( new Runnable() {
+			@Override
+			public void run() {
+				transact( new Callable<Void>() {
+					@Override
+					public Void call() {
+						touchSnapshot();
+						diffAlarm( old, alarm );
+						return null;
+					}
+				} );
+			}
+		} );
+	}
 
-		// Handle snooze config foreign object.
-		SnoozeConfig snoozeConfig = alarm.getSnoozeConfig();
-		helper.dao( SnoozeConfig.class ).create( snoozeConfig );
+	/**
+	 * Writes the difference between two alarm graphs, on the writer thread.
+	 *
+	 * @param old the alarm currently stored.
+	 * @param alarm the alarm replacing it.
+	 */
+	private void diffAlarm( Alarm old, Alarm alarm ) {
+		OrmSource helper = this.getHelper();
 
-		this.addChallengeSet( alarm );
+		RowDiff.write( helper.dao_i( AudioSource.class ), old.getAudioSource(), alarm.getAudioSource() );
+		RowDiff.write( helper.dao_i( AudioConfig.class ), old.getAudioConfig(), alarm.getAudioConfig() );
+		RowDiff.write( helper.dao_i( SnoozeConfig.class ), old.getSnoozeConfig(), alarm.getSnoozeConfig() );
 
-		// Finally persist alarm itself to DB.
-		helper.dao( Alarm.class ).create( alarm );
+		// Challenge set, challenges are matched on type.
+		ChallengeConfigSet oldSet = old.getChallengeSet().load();
+		ChallengeConfigSet set = alarm.getChallengeSet().load();
+		RowDiff.write( helper.dao_i( ChallengeConfigSet.class ), oldSet, set );
+
+		PersistenceExceptionDao<ChallengeConfig, Integer> challengeDao = helper.dao_i( ChallengeConfig.class );
+		for ( ChallengeType type : ChallengeType.values() ) {
+			ChallengeConfig oldChallenge = oldSet.getConfig( type );
+			ChallengeConfig challenge = set.getConfig( type );
+
+			if ( challenge != null ) {
+				challenge.setFetchedSetId( set.getId() );
+			}
+
+			if ( oldChallenge != challenge ) {
+				RowDiff.write( challengeDao, oldChallenge, challenge );
+			}
+		}
+
+		// Finally the alarm itself, after its foreign ids are settled.
+		alarm.refreshNextFire( System.currentTimeMillis() );
+		RowDiff.write( helper.dao_i( Alarm.class ), old, alarm );
 	}
 
 	/**
-	 * Stores/adds the challenge set of alarm when adding alarm to database.
+	 * Inserts alarms and all their foreign objects, on the writer thread.
 	 *
-	 * @param alarm the alarm to save challenge set for.
+	 * @param alarms the alarms to insert.
 	 */
-	private void addChallengeSet( Alarm alarm ) {
-		OrmHelper helper = this.getHelper();
+	private void insertAlarms( Collection<Alarm> alarms ) {
+		OrmSource helper = this.getHelper();
+
+		// Look up DAOs once, their mapped statements are reused for every row.
+		PersistenceExceptionDao<AudioSource, Integer> audioSourceDao = helper.dao( AudioSource.class );
+		PersistenceExceptionDao<AudioConfig, Integer> audioConfigDao = helper.dao( AudioConfig.class );
+		PersistenceExceptionDao<SnoozeConfig, Integer> snoozeConfigDao = helper.dao( SnoozeConfig.class );
+		PersistenceExceptionDao<ChallengeConfigSet, Integer> setDao = helper.dao( ChallengeConfigSet.class );
+		PersistenceExceptionDao<ChallengeConfig, Integer> challengeDao = helper.dao( ChallengeConfig.class );
+		PersistenceExceptionDao<Alarm, Integer> alarmDao = helper.dao( Alarm.class );
 
-		// Insert set.
-		ChallengeConfigSet set = alarm.getChallengeSet();
-		helper.dao( ChallengeConfigSet.class ).create( set );
+		long now = System.currentTimeMillis();
+		for ( Alarm alarm : alarms ) {
+			// Handle audio source foreign object if present.
+			AudioSource audioSource = alarm.getAudioSource();
+			audioSourceDao.create( audioSource );
 
-		PersistenceExceptionDao<ChallengeConfig, Integer> challengeDao = helper.dao( ChallengeConfig.class );
-		PersistenceExceptionDao<ChallengeParam, Integer> paramDao = helper.dao( ChallengeParam.class );
+			// Handle audio config foreign object.
+			audioConfigDao.create( alarm.getAudioConfig() );
+
+			// Handle snooze config foreign object.
+			snoozeConfigDao.create( alarm.getSnoozeConfig() );
 
-		for ( ChallengeConfig challenge : set.getConfigs() ) {
-			// Insert challenge.
-			challenge.setFetchedSetId( set.getId() );
-			challengeDao.create( challenge );
+			// Insert challenge set & each challenge.
+			ChallengeConfigSet set = alarm.getChallengeSet();
+			setDao.create( set );
 
-			// Insert each param.
-			for ( Entry<String, String> entry : challenge.getParams().entrySet() ) {
-				ChallengeParam param = new ChallengeParam( challenge.getId(), entry.getKey(), entry.getValue() );
-				paramDao.create( param );
+			for ( ChallengeConfig challenge : set.getConfigs() ) {
+				challenge.setFetchedSetId( set.getId() );
+				challengeDao.create( challenge );
 			}
+
+			// Finally persist alarm itself to DB.
+			alarm.refreshNextFire( now );
+			alarmDao.create( alarm );
 		}
 	}
 
 	/**
-	 * Removes an alarm from database.
+	 * Removes an alarm from database, performed behind.
 	 *
 	 * @param alarm the alarm to remove.
-	 * @throws PersistenceException if some SQL error happens.
 	 */
 	public void removeAlarm( Alarm alarm ) {
-		OrmHelper helper = this.getHelper();
+		this.removeAlarms( Collections.singletonList( alarm ) );
+	}
 
-		// Handle audio source foreign object if present.
-		AudioSource audioSource = alarm.getAudioSource();
-		if ( audioSource != null ) {
-			helper.dao( AudioSource.class ).delete( audioSource );
+	/**
+	 * Removes alarms from database in one transaction, performed behind.
+	 *
+	 * @param alarms the alarms to remove.
+	 */
+	public void removeAlarms( final Collection<Alarm> alarms ) {
+		this.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				transact( new Callable<Void>() {
+					@Override
+					public Void call() {
+						touchSnapshot();
+						deleteAlarms( alarms );
+						return null;
+					}
+				} );
+			}
+		} );
+	}
+
+	/**
+	 * Deletes alarms and all their foreign objects, on the writer thread.<br/>
+	 * Each table is deleted from with one statement for all alarms.
+	 *
+	 * @param alarms the alarms to delete.
+	 */
+	private void deleteAlarms( Collection<Alarm> alarms ) {
+		OrmSource helper = this.getHelper();
+
+		int count = alarms.size();
+		List<AudioSource> audioSources = Lists.newArrayListWithCapacity( count );
+		List<AudioConfig> audioConfigs = Lists.newArrayListWithCapacity( count );
+		List<SnoozeConfig> snoozeConfigs = Lists.newArrayListWithCapacity( count );
+		List<ChallengeConfigSet> sets = Lists.newArrayListWithCapacity( count );
+		List<Integer> setIds = Lists.newArrayListWithCapacity( count );
+
+		for ( Alarm alarm : alarms ) {
+			// Handle audio source foreign object if present.
+			AudioSource audioSource = alarm.getAudioSource();
+			if ( audioSource != null ) {
+				audioSources.add( audioSource );
+			}
+
+			audioConfigs.add( alarm.getAudioConfig() );
+			snoozeConfigs.add( alarm.getSnoozeConfig() );
+
+			// The set is not loaded, its challenges are deleted by its id.
+			ChallengeConfigSet set = alarm.getChallengeSet();
+			sets.add( set );
+			setIds.add( set.getId() );
 		}
 
-		// Handle audio config foreign object.
-		AudioConfig audioConfig = alarm.getAudioConfig();
-		helper.dao( AudioConfig.class ).delete( audioConfig );
+		if ( !audioSources.isEmpty() ) {
+			helper.dao_i( AudioSource.class ).delete( audioSources );
+		}
+
+		helper.dao_i( AudioConfig.class ).delete( audioConfigs );
+		helper.dao_i( SnoozeConfig.class ).delete( snoozeConfigs );
 
-		// Handle snooze config foreign object.
-		SnoozeConfig snoozeConfig = alarm.getSnoozeConfig();
-		helper.dao( SnoozeConfig.class ).delete(snoozeConfig);
+		// Remove all challenge configs, then the sets.
+		this.deleteChallenges( setIds );
 
-		// Handle challenge config set foreign object.
-		this.removeChallengeSet( alarm );
+		helper.dao_i( ChallengeConfigSet.class ).delete( sets );
 
-		// Finally delete alarm itself from DB.
-		helper.dao( Alarm.class ).delete( alarm );
+		// Finally delete alarms themselves from DB.
+		helper.dao_i( Alarm.class ).delete( alarms );
 	}
 
 	/**
-	 * Removes the challenge set of alarm when removing alarm from database.
+	 * Deletes the challenge configs of sets, on the writer thread.
 	 *
-	 * @param alarm the alarm to remove challenge set for.
+	 * @param setIds the ids of the sets.
 	 */
-	private void removeChallengeSet( Alarm alarm ) {
-		OrmHelper helper = this.getHelper();
-
-		ChallengeConfigSet set = alarm.getChallengeSet();
+	private void deleteChallenges( List<Integer> setIds ) {
+		PersistenceExceptionDao<ChallengeConfig, Integer> dao = this.dao_i( ChallengeConfig.class );
 
-		// Compute list of ids to remove.
-		Collection<ChallengeConfig> challengeList = set.getConfigs();
-		List<Integer> removeIds = Lists.newArrayListWithCapacity( challengeList.size() );
-
-		for ( ChallengeConfig challenge : challengeList ) {
-			removeIds.add( challenge.getId() );
+		try {
+			// In chunks, SQLite has a limit on variables per statement.
+			for ( List<Integer> chunk : Lists.partition( setIds, InQuery.CHUNK_SIZE ) ) {
+				DeleteBuilder<ChallengeConfig, Integer> db = dao.deleteBuilder();
+				db.where().in( ChallengeConfig.SET_FOREIGN_COLUMN, chunk );
+				dao.delete( db.prepare() );
+			}
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
 		}
+	}
 
-		// Remove all challenge configs & params.
-		helper.dao_i( ChallengeConfig.class ).deleteIds( removeIds );
-		helper.dao_i( ChallengeParam.class ).deleteIds( removeIds );
-
-		// Finally remove set.
-		helper.dao_i( ChallengeConfigSet.class ).delete( set );
+	/**
+	 * Performs callable in a transaction, nested transactions use save-points.
+	 *
+	 * @param callable the callable.
+	 * @return the result of callable.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	private <T> T transact( Callable<T> callable ) {
+		try {
+			return TransactionManager.callInTransaction( this.getHelper().getConnectionSource(), callable );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
 	}
 
 	/**
@@ -662,52 +1339,144 @@ public class PersistenceManager {
 	 * @return the list of GPSFilterArea:s.
 	 */
 	public GPSFilterAreaSet fetchGPSFilterAreas() {
+		this.awaitWrites();
+
 		return new GPSFilterAreaSet( this.getHelper().dao( GPSFilterArea.class ).queryForAll() );
 	}
 
 	/**
-	 * Stores/updates a GPSFilterArea in database.
+	 * Stores/updates a GPSFilterArea in database.<br/>
+	 * Stores wait for the write since the id is generated, updates are performed behind.
 	 *
 	 * @param area the GPSFilterArea to store/update.
 	 */
-	public void setGPSFilterArea( GPSFilterArea area ) {
-		Log.d( TAG, area.toString() );
-
-		this.getHelper().dao( GPSFilterArea.class ).createOrUpdate( area );
+	public void setGPSFilterArea( final GPSFilterArea area ) {
+		Debug.d( area.toString() );
+
+		if ( area.getId() == 0 ) {
+			this.writeQueue().executeAndWait( new Runnable() {
+				@Override
+				public void run() {
+					dao( GPSFilterArea.class ).create( area );
+				}
+			} );
+		} else {
+			this.updateRow( GPSFilterArea.class, area, area.getId() );
+		}
 	}
 
 	/**
-	 * Deletes an GPSFilterArea from database. 
+	 * Deletes an GPSFilterArea from database, performed behind.
 	 *
 	 * @param area the area.
 	 */
-	public void deleteGPSFilterArea( GPSFilterArea area ) {
-		this.getHelper().dao( GPSFilterArea.class ).delete( area );
+	public void deleteGPSFilterArea( final GPSFilterArea area ) {
+		this.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				dao( GPSFilterArea.class ).delete( area );
+			}
+		} );
 	}
 
 	/**
-	 * Removes all GPSFilterArea:s.
+	 * Removes all GPSFilterArea:s, performed behind.
 	 */
 	public void clearGPSFilterAreas() {
-		this.getHelper().clear( GPSFilterArea.class );
+		this.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				getHelper().clear( GPSFilterArea.class );
+			}
+		} );
+	}
+
+	/**
+	 * Blocks until all pending writes have been performed.<br/>
+	 * Call this before the process may die, e.g. when it is trimmed. Writes start at once,<br/>
+	 * so there is no need to block on every pause of an activity.
+	 *
+	 * @throws PersistenceException if a write failed.
+	 */
+	public void flush() {
+		this.awaitWrites();
+	}
+
+	/**
+	 * Returns the object caches of the DAOs, for their metrics:<br/>
+	 * {@link MeteredObjectCache#hits()}, {@link MeteredObjectCache#misses()}, etc.
+	 *
+	 * @return map of entity class -> cache.
+	 */
+	public Map<Class<?>, MeteredObjectCache> objectCaches() {
+		return this.getHelper().objectCaches();
+	}
+
+	/**
+	 * Returns the write-behind queue, for its metrics:<br/>
+	 * {@link WriteBehindQueue#depth()}, {@link WriteBehindQueue#mergedCount()},<br/>
+	 * {@link WriteBehindQueue#lastFlushNanos()}, etc.
+	 *
+	 * @return the queue.
+	 */
+	public synchronized WriteBehindQueue writeQueue() {
+		if ( this.writeQueue == null ) {
+			this.writeQueue = new WriteBehindQueue( this.getHelper().getConnectionSource() );
+			this.writeQueue.setIdleDelay( SNAPSHOT_DELAY_MS, TimeUnit.MILLISECONDS );
+			this.writeQueue.setBatchListener( new WriteBehindQueue.BatchListener() {
+				@Override
+				public void beforeBatch() {
+					// Writes to the alarm list invalidate the snapshot themselves, see touchSnapshot().
+				}
+
+				@Override
+				public void onIdle() {
+					writeSnapshot();
+				}
+			} );
+		}
+
+		return this.writeQueue;
+	}
+
+	/**
+	 * Waits for pending writes, if any, so that reads see them.
+	 */
+	private void awaitWrites() {
+		WriteBehindQueue queue = this.writeQueue;
+		if ( queue != null ) {
+			queue.flush();
+		}
 	}
 
 	/**
-	 * Releases any resources held such as the OrmHelper.
+	 * Releases any resources held such as the OrmHelper.<br/>
+	 * Any pending writes are performed first.
 	 */
 	public void release() {
-		if ( this.ormHelper != null ) {
+		// Closed outside the lock: the writer takes it to write the snapshot when idle.
+		WriteBehindQueue queue;
+		synchronized ( this ) {
+			queue = this.writeQueue;
+			this.writeQueue = null;
+		}
+
+		if ( queue != null ) {
+			queue.close();
+		}
+
+		if ( this.ormHelper != null && this.ownsHelper ) {
 			OpenHelperManager.releaseHelper();
 			this.ormHelper = null;
 		}
 	}
 
 	/**
-	 * Returns the OrmHelper.
+	 * Returns the OrmHelper, or the given {@link OrmSource}.
 	 *
 	 * @return the helper.
 	 */
-	private OrmHelper getHelper() {
+	private OrmSource getHelper() {
 		if ( this.ormHelper == null ) {
 			this.ormHelper = OpenHelperManager.getHelper( this.context, OrmHelper.class );
 			this.init();
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.table.TableInfo;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>RowDiff compares two objects of the same table column by column,<br/>
+ * using the values they would be persisted as (foreign objects as their ids).</p>
+ *
+ * <p>It is used to write only what has changed when an object is replaced by another,<br/>
+ * keeping the id of the row being replaced.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class RowDiff {
+	/**
+	 * The outcome of {@link RowDiff#write(PersistenceExceptionDao, Object, Object)}.
+	 */
+	public enum Outcome {
+		NONE, CREATED, UPDATED, DELETED
+	}
+
+	private RowDiff() {
+	}
+
+	/**
+	 * Writes the difference between old and row, row takes the id of old.<br/>
+	 * Either may be null, then row is created or old is deleted.
+	 *
+	 * @param dao the DAO of the table.
+	 * @param old the object currently stored, or null.
+	 * @param row the object replacing it, or null.
+	 * @return what was written.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public static <T, ID> Outcome write( PersistenceExceptionDao<T, ID> dao, T old, T row ) {
+		if ( old == row ) {
+			return Outcome.NONE;
+		}
+
+		if ( old == null ) {
+			dao.create( row );
+			return Outcome.CREATED;
+		}
+
+		if ( row == null ) {
+			dao.delete( old );
+			return Outcome.DELETED;
+		}
+
+		TableInfo<T, ID> info = dao.getTableInfo();
+		Object id = id( info, old );
+		assignId( info, row, id );
+
+		// row now owns the id, so it replaces old in the object cache.
+		ObjectCache cache = dao.getObjectCache();
+		if ( cache != null ) {
+			cache.put( dao.getDataClass(), id, row );
+		}
+
+		if ( equalColumns( info, old, row ) ) {
+			return Outcome.NONE;
+		}
+
+		dao.update( row );
+		return Outcome.UPDATED;
+	}
+
+	/**
+	 * Returns whether or not a and b have equal values in all columns but the id.
+	 *
+	 * @param info the table info.
+	 * @param a the first object.
+	 * @param b the second object.
+	 * @return true if equal.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	public static <T> boolean equalColumns( TableInfo<T, ?> info, T a, T b ) {
+		try {
+			for ( FieldType field : info.getFieldTypes() ) {
+				if ( field.isId() || field.isForeignCollection() ) {
+					continue;
+				}
+
+				Object va = field.extractJavaFieldToSqlArgValue( a );
+				Object vb = field.extractJavaFieldToSqlArgValue( b );
+				if ( !Arrays.deepEquals( new Object[] { va }, new Object[] { vb } ) ) {
+					return false;
+				}
+			}
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the id of an object.
+	 *
+	 * @param info the table info.
+	 * @param row the object.
+	 * @return the id.
+	 */
+	public static <T> Object id( TableInfo<T, ?> info, T row ) {
+		try {
+			return info.getIdField().extractJavaFieldValue( row );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	/**
+	 * Assigns an id to an object.
+	 *
+	 * @param info the table info.
+	 * @param row the object.
+	 * @param id the id.
+	 */
+	public static <T> void assignId( TableInfo<T, ?> info, T row, Object id ) {
+		try {
+			info.getIdField().assignField( row, id, false, null );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableInfo;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>RowImage is an immutable copy of the column values of a row, taken when its update is enqueued.<br/>
+ * The writer thread writes the copy, so it never reads a model object while the UI thread changes it.</p>
+ *
+ * <p>The columns are those ORMLite updates in {@link PersistenceExceptionDao#update(Object)},<br/>
+ * foreign objects are copied as their ids.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+class RowImage {
+	private final TableInfo<?, ?> table;
+	private final FieldType[] fields;
+	private final Object[] values;
+
+	private RowImage( TableInfo<?, ?> table, FieldType[] fields, Object[] values ) {
+		this.table = table;
+		this.fields = fields;
+		this.values = values;
+	}
+
+	/**
+	 * Copies the column values of row, on the thread that changes it.
+	 *
+	 * @param dao the DAO of the table of row.
+	 * @param row the row.
+	 * @return the image.
+	 * @throws PersistenceException if a value can't be converted.
+	 */
+	static <T> RowImage of( PersistenceExceptionDao<T, ?> dao, T row ) {
+		TableInfo<T, ?> table = dao.getTableInfo();
+
+		// The id goes last, for the WHERE clause.
+		List<FieldType> fields = new ArrayList<FieldType>();
+		for ( FieldType field : table.getFieldTypes() ) {
+			if ( !field.isId() && !field.isForeignCollection() && !field.isReadOnly() ) {
+				fields.add( field );
+			}
+		}
+		fields.add( table.getIdField() );
+
+		FieldType[] fieldArray = fields.toArray( new FieldType[fields.size()] );
+		Object[] values = new Object[fieldArray.length];
+
+		try {
+			// Model objects change under their own lock.
+			synchronized ( row ) {
+				for ( int i = 0; i < fieldArray.length; ++i ) {
+					values[i] = fieldArray[i].extractJavaFieldToSqlArgValue( row );
+				}
+			}
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+
+		return new RowImage( table, fieldArray, values );
+	}
+
+	/**
+	 * Writes the image to its row, on the writer thread.
+	 *
+	 * @param cs the connection source.
+	 * @return the number of rows updated.
+	 * @throws PersistenceException if some SQL error happens.
+	 */
+	int update( ConnectionSource cs ) {
+		StringBuilder sb = new StringBuilder( 64 );
+		sb.append( "UPDATE " );
+		cs.getDatabaseType().appendEscapedEntityName( sb, this.table.getTableName() );
+		sb.append( " SET " );
+
+		int last = this.fields.length - 1;
+		for ( int i = 0; i < last; ++i ) {
+			if ( i > 0 ) {
+				sb.append( ", " );
+			}
+			cs.getDatabaseType().appendEscapedEntityName( sb, this.fields[i].getColumnName() );
+			sb.append( " = ?" );
+		}
+
+		sb.append( " WHERE " );
+		cs.getDatabaseType().appendEscapedEntityName( sb, this.fields[last].getColumnName() );
+		sb.append( " = ?" );
+
+		try {
+			DatabaseConnection conn = cs.getReadWriteConnection();
+			try {
+				return conn.update( sb.toString(), this.values, this.fields );
+			} finally {
+				cs.releaseConnection( conn );
+			}
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[table: " + this.table.getTableName()
+				+ ", id: " + this.values[this.values.length - 1] + "]";
+	}
+}
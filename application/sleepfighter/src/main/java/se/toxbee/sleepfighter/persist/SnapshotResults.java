@@ -0,0 +1,260 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * <p>SnapshotResults is a one row {@link DatabaseResults} used by {@link TableSnapshot}.</p>
+ *
+ * <p>When recording, it reads through to the real results and remembers each value<br/>
+ * as returned by the getter ORMLite chose for the column.<br/>
+ * When replaying, it returns the remembered values, so that ORMLite converts them<br/>
+ * into the same java values as if they were read from the database.</p>
+ *
+ * <p>Its cursor starts before the row: {@link #first()} and {@link #next()} move onto it,<br/>
+ * any other move returns false unless it lands on the row.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+class SnapshotResults implements DatabaseResults {
+	/*
+	 * Value tags, as written to the snapshot.
+	 */
+	static final byte NULL = 0;
+	static final byte STRING = 1;
+	static final byte BOOLEAN = 2;
+	static final byte CHAR = 3;
+	static final byte BYTE = 4;
+	static final byte BYTES = 5;
+	static final byte SHORT = 6;
+	static final byte INT = 7;
+	static final byte LONG = 8;
+	static final byte FLOAT = 9;
+	static final byte DOUBLE = 10;
+
+	private final DatabaseResults delegate;
+	private final String[] columns;
+
+	final byte[] tags;
+	final Object[] values;
+
+	// -1 before the row, 0 on it, 1 after it.
+	private int position = -1;
+
+	/**
+	 * Constructs the results.
+	 *
+	 * @param delegate the results to record from, or null to replay.
+	 * @param columns the column names, in position order.
+	 */
+	SnapshotResults( DatabaseResults delegate, String[] columns ) {
+		this.delegate = delegate;
+		this.columns = columns;
+		this.tags = new byte[columns.length];
+		this.values = new Object[columns.length];
+	}
+
+	private Object get( int col, byte tag ) throws SQLException {
+		if ( this.delegate == null ) {
+			if ( this.tags[col] != tag && this.tags[col] != NULL ) {
+				throw new SQLException( "Snapshot column " + this.columns[col] + " was not recorded as " + tag );
+			}
+			return this.values[col];
+		}
+
+		Object value;
+		switch ( tag ) {
+		case STRING:	value = this.delegate.getString( col ); break;
+		case BOOLEAN:	value = this.delegate.getBoolean( col ); break;
+		case CHAR:		value = this.delegate.getChar( col ); break;
+		case BYTE:		value = this.delegate.getByte( col ); break;
+		case BYTES:		value = this.delegate.getBytes( col ); break;
+		case SHORT:		value = this.delegate.getShort( col ); break;
+		case INT:		value = this.delegate.getInt( col ); break;
+		case LONG:		value = this.delegate.getLong( col ); break;
+		case FLOAT:		value = this.delegate.getFloat( col ); break;
+		case DOUBLE:	value = this.delegate.getDouble( col ); break;
+		default:		throw new IllegalArgumentException();
+		}
+
+		boolean isNull = value == null || this.delegate.wasNull( col );
+		this.tags[col] = isNull ? NULL : tag;
+		this.values[col] = isNull ? null : value;
+		return value;
+	}
+
+	private Number number( int col, byte tag ) throws SQLException {
+		Object value = this.get( col, tag );
+		return value == null ? 0 : (Number) value;
+	}
+
+	@Override
+	public String getString( int col ) throws SQLException {
+		return (String) this.get( col, STRING );
+	}
+
+	@Override
+	public boolean getBoolean( int col ) throws SQLException {
+		Object value = this.get( col, BOOLEAN );
+		return value != null && (Boolean) value;
+	}
+
+	@Override
+	public char getChar( int col ) throws SQLException {
+		Object value = this.get( col, CHAR );
+		return value == null ? 0 : (Character) value;
+	}
+
+	@Override
+	public byte getByte( int col ) throws SQLException {
+		return this.number( col, BYTE ).byteValue();
+	}
+
+	@Override
+	public byte[] getBytes( int col ) throws SQLException {
+		return (byte[]) this.get( col, BYTES );
+	}
+
+	@Override
+	public short getShort( int col ) throws SQLException {
+		return this.number( col, SHORT ).shortValue();
+	}
+
+	@Override
+	public int getInt( int col ) throws SQLException {
+		return this.number( col, INT ).intValue();
+	}
+
+	@Override
+	public long getLong( int col ) throws SQLException {
+		return this.number( col, LONG ).longValue();
+	}
+
+	@Override
+	public float getFloat( int col ) throws SQLException {
+		return this.number( col, FLOAT ).floatValue();
+	}
+
+	@Override
+	public double getDouble( int col ) throws SQLException {
+		return this.number( col, DOUBLE ).doubleValue();
+	}
+
+	@Override
+	public boolean wasNull( int col ) throws SQLException {
+		return this.tags[col] == NULL;
+	}
+
+	@Override
+	public Timestamp getTimestamp( int col ) throws SQLException {
+		throw new SQLException( "Timestamps are not supported by snapshots." );
+	}
+
+	@Override
+	public InputStream getBlobStream( int col ) throws SQLException {
+		throw new SQLException( "Blob streams are not supported by snapshots." );
+	}
+
+	@Override
+	public BigDecimal getBigDecimal( int col ) throws SQLException {
+		throw new SQLException( "BigDecimals are not supported by snapshots." );
+	}
+
+	@Override
+	public int findColumn( String columnName ) throws SQLException {
+		for ( int i = 0; i < this.columns.length; ++i ) {
+			if ( this.columns[i].equalsIgnoreCase( columnName ) ) {
+				return i;
+			}
+		}
+
+		throw new SQLException( "Unknown column: " + columnName );
+	}
+
+	@Override
+	public int getColumnCount() {
+		return this.columns.length;
+	}
+
+	@Override
+	public String[] getColumnNames() {
+		return this.columns.clone();
+	}
+
+	/**
+	 * Moves the cursor to position, relative to the row.<br/>
+	 * The recorded results are not moved, nor are the values changed.
+	 *
+	 * @param position the position, 0 is the row.
+	 * @return true if the cursor is on the row.
+	 */
+	private boolean moveTo( long position ) {
+		this.position = (int) Math.max( -1, Math.min( 1, position ) );
+		return this.position == 0;
+	}
+
+	@Override
+	public boolean first() {
+		return this.moveTo( 0 );
+	}
+
+	@Override
+	public boolean previous() {
+		return this.moveTo( this.position - 1L );
+	}
+
+	@Override
+	public boolean next() {
+		return this.moveTo( this.position + 1L );
+	}
+
+	@Override
+	public boolean last() {
+		return this.moveTo( 0 );
+	}
+
+	@Override
+	public boolean moveRelative( int offset ) {
+		return this.moveTo( this.position + (long) offset );
+	}
+
+	@Override
+	public boolean moveAbsolute( int position ) {
+		return this.moveTo( position );
+	}
+
+	@Override
+	public ObjectCache getObjectCache() {
+		return null;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public void closeQuietly() {
+	}
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.j256.ormlite.dao.ObjectCache;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+import com.j256.ormlite.table.TableInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+
+/**
+ * <p>TableSnapshot is a compact, versioned binary copy of a set of tables stored in a file.</p>
+ *
+ * <p>The database remains the source of truth, the snapshot only lets startup read<br/>
+ * all rows with a single sequential read instead of one query per table.<br/>
+ * A snapshot written under another database version or schema is discarded.</p>
+ *
+ * <p>Format: header (magic, format version, database version, schema hash),<br/>
+ * then per table: name, column names, row count and rows of tagged values.<br/>
+ * Rows of each table are ordered on a given column, ascending.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class TableSnapshot {
+	private static final int MAGIC = 0x53465353;
+	private static final int FORMAT_VERSION = 1;
+
+	private final File file;
+	private final int databaseVersion;
+	private final String[] orderColumns;
+
+	/**
+	 * The rows read from a snapshot.
+	 */
+	public static class Contents {
+		private final Map<Class<?>, List<?>> rows = Maps.newHashMap();
+
+		/**
+		 * Returns the rows of a table, ordered on its order column.
+		 *
+		 * @param clazz the class of the table.
+		 * @return the rows.
+		 */
+		@SuppressWarnings( "unchecked" )
+		public <T> List<T> rows( Class<T> clazz ) {
+			List<T> list = (List<T>) this.rows.get( clazz );
+			if ( list == null ) {
+				throw new IllegalArgumentException( "Not in snapshot: " + clazz );
+			}
+			return list;
+		}
+	}
+
+	/**
+	 * Constructs the snapshot.
+	 *
+	 * @param file the file to store the snapshot in.
+	 * @param databaseVersion the current database version.
+	 * @param orderColumns per table, the column to order rows on.
+	 */
+	public TableSnapshot( File file, int databaseVersion, String[] orderColumns ) {
+		this.file = file;
+		this.databaseVersion = databaseVersion;
+		this.orderColumns = orderColumns.clone();
+	}
+
+	/**
+	 * Returns whether or not there is a snapshot stored.
+	 *
+	 * @return true if there is.
+	 */
+	public boolean exists() {
+		return this.file.exists();
+	}
+
+	/**
+	 * Discards the stored snapshot, if any.
+	 */
+	public void invalidate() {
+		this.file.delete();
+	}
+
+	/**
+	 * Dumps all tables from the database and stores the snapshot atomically.
+	 *
+	 * @param cs the connection source to read from.
+	 * @param daos per table, its DAO.
+	 * @throws SQLException if reading the database fails or a column type is not supported.
+	 * @throws IOException if writing the file fails.
+	 */
+	public void write( ConnectionSource cs, PersistenceExceptionDao<?, ?>[] daos ) throws SQLException, IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( 8192 );
+		DataOutputStream out = new DataOutputStream( bytes );
+
+		TableInfo<?, ?>[] infos = this.tableInfos( daos );
+		this.writeHeader( out, infos );
+
+		DatabaseConnection conn = cs.getReadOnlyConnection();
+		try {
+			for ( int i = 0; i < infos.length; ++i ) {
+				this.dumpTable( out, cs.getDatabaseType(), conn, infos[i], this.orderColumns[i] );
+			}
+		} finally {
+			cs.releaseConnection( conn );
+		}
+
+		out.flush();
+
+		// Write to a temporary file and rename, so a reader never sees a partial snapshot.
+		File temp = new File( this.file.getPath() + ".tmp" );
+		FileOutputStream fos = new FileOutputStream( temp );
+		try {
+			bytes.writeTo( fos );
+			fos.getFD().sync();
+		} finally {
+			fos.close();
+		}
+
+		if ( !temp.renameTo( this.file ) ) {
+			temp.delete();
+			throw new IOException( "Could not rename snapshot to " + this.file );
+		}
+	}
+
+	/**
+	 * Reads the stored snapshot into objects.<br/>
+	 * Objects already in the object cache of a DAO are reused, others are put there.<br/>
+	 * A snapshot that does not match the current database version or schema is discarded.
+	 *
+	 * @param daos per table, its DAO.
+	 * @return the contents, or null if there is no usable snapshot.
+	 * @throws SQLException if converting a value fails.
+	 */
+	public Contents read( PersistenceExceptionDao<?, ?>[] daos ) throws SQLException {
+		byte[] data;
+		try {
+			data = this.readFile();
+		} catch ( IOException e ) {
+			return null;
+		}
+
+		if ( data == null ) {
+			return null;
+		}
+
+		TableInfo<?, ?>[] infos = this.tableInfos( daos );
+
+		try {
+			DataInputStream in = new DataInputStream( new ByteArrayInputStream( data ) );
+			if ( !this.readHeader( in, infos ) ) {
+				this.invalidate();
+				return null;
+			}
+
+			Contents contents = new Contents();
+			for ( int i = 0; i < infos.length; ++i ) {
+				List<?> rows = this.loadTable( in, infos[i], daos[i].getObjectCache() );
+				if ( rows == null ) {
+					this.invalidate();
+					return null;
+				}
+
+				contents.rows.put( infos[i].getDataClass(), rows );
+			}
+
+			return contents;
+		} catch ( IOException e ) {
+			// Truncated or corrupt.
+			this.invalidate();
+			return null;
+		}
+	}
+
+	private TableInfo<?, ?>[] tableInfos( PersistenceExceptionDao<?, ?>[] daos ) {
+		if ( daos.length != this.orderColumns.length ) {
+			throw new IllegalArgumentException( "Every table needs an order column." );
+		}
+
+		TableInfo<?, ?>[] infos = new TableInfo<?, ?>[daos.length];
+		for ( int i = 0; i < infos.length; ++i ) {
+			infos[i] = daos[i].getTableInfo();
+		}
+		return infos;
+	}
+
+	/**
+	 * Reads the whole file with a single sequential read.
+	 *
+	 * @return the data, or null if there is no file.
+	 */
+	private byte[] readFile() throws IOException {
+		FileInputStream fis;
+		try {
+			fis = new FileInputStream( this.file );
+		} catch ( IOException e ) {
+			return null;
+		}
+
+		try {
+			long length = fis.getChannel().size();
+			if ( length > Integer.MAX_VALUE ) {
+				throw new IOException( "Snapshot too large." );
+			}
+
+			byte[] data = new byte[(int) length];
+			int offset = 0;
+			while ( offset < data.length ) {
+				int read = fis.read( data, offset, data.length - offset );
+				if ( read < 0 ) {
+					throw new EOFException();
+				}
+				offset += read;
+			}
+
+			return data;
+		} finally {
+			fis.close();
+		}
+	}
+
+	/*
+	 * Header & schema.
+	 */
+
+	private static List<FieldType> columns( TableInfo<?, ?> info ) {
+		List<FieldType> columns = new ArrayList<FieldType>();
+		for ( FieldType fieldType : info.getFieldTypes() ) {
+			if ( !fieldType.isForeignCollection() ) {
+				columns.add( fieldType );
+			}
+		}
+		return columns;
+	}
+
+	private static int schemaHash( TableInfo<?, ?>[] infos ) {
+		int hash = 1;
+		for ( TableInfo<?, ?> info : infos ) {
+			hash = 31 * hash + info.getTableName().hashCode();
+			for ( FieldType fieldType : columns( info ) ) {
+				hash = 31 * hash + fieldType.getColumnName().hashCode();
+				hash = 31 * hash + fieldType.getDataPersister().getClass().getName().hashCode();
+			}
+		}
+		return hash;
+	}
+
+	private void writeHeader( DataOutputStream out, TableInfo<?, ?>[] infos ) throws IOException {
+		out.writeInt( MAGIC );
+		out.writeShort( FORMAT_VERSION );
+		out.writeInt( this.databaseVersion );
+		out.writeInt( schemaHash( infos ) );
+		out.writeShort( infos.length );
+	}
+
+	private boolean readHeader( DataInputStream in, TableInfo<?, ?>[] infos ) throws IOException {
+		return in.readInt() == MAGIC
+			&& in.readShort() == FORMAT_VERSION
+			&& in.readInt() == this.databaseVersion
+			&& in.readInt() == schemaHash( infos )
+			&& in.readShort() == infos.length;
+	}
+
+	/*
+	 * Tables.
+	 */
+
+	private void dumpTable( DataOutputStream out, DatabaseType dbType, DatabaseConnection conn, TableInfo<?, ?> info, String orderColumn ) throws SQLException, IOException {
+		List<FieldType> fieldTypes = columns( info );
+		String[] columns = new String[fieldTypes.size()];
+		Map<String, Integer> positions = Maps.newHashMap();
+
+		StringBuilder sql = new StringBuilder( "SELECT " );
+		for ( int i = 0; i < columns.length; ++i ) {
+			columns[i] = fieldTypes.get( i ).getColumnName();
+			positions.put( columns[i], i );
+
+			if ( i > 0 ) {
+				sql.append( ',' );
+			}
+			dbType.appendEscapedEntityName( sql, columns[i] );
+		}
+		sql.append( " FROM " );
+		dbType.appendEscapedEntityName( sql, info.getTableName() );
+		sql.append( " ORDER BY " );
+		dbType.appendEscapedEntityName( sql, orderColumn );
+
+		// Buffer the rows, the count is written first.
+		ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+		DataOutputStream rowOut = new DataOutputStream( rowBytes );
+		int rowCount = 0;
+
+		CompiledStatement stmt = conn.compileStatement( sql.toString(), StatementType.SELECT, new FieldType[0], DatabaseConnection.DEFAULT_RESULT_FLAGS );
+		try {
+			DatabaseResults results = stmt.runQuery( null );
+			try {
+				for ( boolean more = results.first(); more; more = results.next() ) {
+					SnapshotResults recorder = new SnapshotResults( results, columns );
+					for ( FieldType fieldType : fieldTypes ) {
+						fieldType.resultToJava( recorder, positions );
+					}
+
+					for ( int i = 0; i < columns.length; ++i ) {
+						writeValue( rowOut, recorder.tags[i], recorder.values[i] );
+					}
+					rowCount++;
+				}
+			} finally {
+				results.closeQuietly();
+			}
+		} finally {
+			stmt.close();
+		}
+
+		rowOut.flush();
+
+		out.writeUTF( info.getTableName() );
+		out.writeShort( columns.length );
+		for ( String column : columns ) {
+			out.writeUTF( column );
+		}
+		out.writeInt( rowCount );
+		rowBytes.writeTo( out );
+	}
+
+	private <T> List<T> loadTable( DataInputStream in, TableInfo<T, ?> info, ObjectCache cache ) throws IOException, SQLException {
+		List<FieldType> fieldTypes = columns( info );
+
+		if ( !in.readUTF().equals( info.getTableName() ) || in.readShort() != fieldTypes.size() ) {
+			return null;
+		}
+
+		String[] columns = new String[fieldTypes.size()];
+		Map<String, Integer> positions = Maps.newHashMap();
+		for ( int i = 0; i < columns.length; ++i ) {
+			columns[i] = in.readUTF();
+			if ( !columns[i].equals( fieldTypes.get( i ).getColumnName() ) ) {
+				return null;
+			}
+			positions.put( columns[i], i );
+		}
+
+		Class<T> clazz = info.getDataClass();
+		FieldType idField = info.getIdField();
+
+		int rowCount = in.readInt();
+		List<T> rows = new ArrayList<T>( rowCount );
+		SnapshotResults replay = new SnapshotResults( null, columns );
+		for ( int r = 0; r < rowCount; ++r ) {
+			for ( int i = 0; i < columns.length; ++i ) {
+				readValue( in, replay, i );
+			}
+
+			// Same as a query: reuse any cached instance.
+			Object id = null;
+			if ( idField != null ) {
+				id = idField.resultToJava( replay, positions );
+				if ( cache != null && id != null ) {
+					T cached = cache.get( clazz, id );
+					if ( cached != null ) {
+						rows.add( cached );
+						continue;
+					}
+				}
+			}
+
+			T row = info.createObject();
+			for ( FieldType fieldType : fieldTypes ) {
+				fieldType.assignField( row, fieldType.resultToJava( replay, positions ), false, cache );
+			}
+
+			if ( cache != null && id != null ) {
+				cache.put( clazz, id, row );
+			}
+
+			rows.add( row );
+		}
+
+		return rows;
+	}
+
+	/*
+	 * Values.
+	 */
+
+	private static void writeValue( DataOutputStream out, byte tag, Object value ) throws IOException {
+		out.writeByte( tag );
+
+		switch ( tag ) {
+		case SnapshotResults.NULL:		break;
+		case SnapshotResults.STRING:	writeBytes( out, ((String) value).getBytes( Charsets.UTF_8 ) ); break;
+		case SnapshotResults.BOOLEAN:	out.writeBoolean( (Boolean) value ); break;
+		case SnapshotResults.CHAR:		out.writeChar( (Character) value ); break;
+		case SnapshotResults.BYTE:		out.writeByte( (Byte) value ); break;
+		case SnapshotResults.BYTES:		writeBytes( out, (byte[]) value ); break;
+		case SnapshotResults.SHORT:		out.writeShort( (Short) value ); break;
+		case SnapshotResults.INT:		writeVarLong( out, (Integer) value ); break;
+		case SnapshotResults.LONG:		writeVarLong( out, (Long) value ); break;
+		case SnapshotResults.FLOAT:		out.writeFloat( (Float) value ); break;
+		case SnapshotResults.DOUBLE:	out.writeDouble( (Double) value ); break;
+		default:						throw new IllegalArgumentException( "Unknown tag: " + tag );
+		}
+	}
+
+	private static void readValue( DataInputStream in, SnapshotResults replay, int col ) throws IOException {
+		byte tag = in.readByte();
+
+		Object value;
+		switch ( tag ) {
+		case SnapshotResults.NULL:		value = null; break;
+		case SnapshotResults.STRING:	value = new String( readBytes( in ), Charsets.UTF_8 ); break;
+		case SnapshotResults.BOOLEAN:	value = in.readBoolean(); break;
+		case SnapshotResults.CHAR:		value = in.readChar(); break;
+		case SnapshotResults.BYTE:		value = in.readByte(); break;
+		case SnapshotResults.BYTES:		value = readBytes( in ); break;
+		case SnapshotResults.SHORT:		value = in.readShort(); break;
+		case SnapshotResults.INT:		value = (int) readVarLong( in ); break;
+		case SnapshotResults.LONG:		value = readVarLong( in ); break;
+		case SnapshotResults.FLOAT:		value = in.readFloat(); break;
+		case SnapshotResults.DOUBLE:	value = in.readDouble(); break;
+		default:						throw new IOException( "Unknown tag: " + tag );
+		}
+
+		replay.tags[col] = tag;
+		replay.values[col] = value;
+	}
+
+	private static void writeBytes( DataOutputStream out, byte[] bytes ) throws IOException {
+		writeVarLong( out, bytes.length );
+		out.write( bytes );
+	}
+
+	private static byte[] readBytes( DataInputStream in ) throws IOException {
+		long length = readVarLong( in );
+		if ( length < 0 || length > in.available() ) {
+			throw new EOFException();
+		}
+
+		byte[] bytes = new byte[(int) length];
+		in.readFully( bytes );
+		return bytes;
+	}
+
+	/**
+	 * Writes a zig-zag encoded varint, small ids and flags take a single byte.
+	 */
+	private static void writeVarLong( DataOutputStream out, long value ) throws IOException {
+		long v = (value << 1) ^ (value >> 63);
+		while ( (v & ~0x7FL) != 0 ) {
+			out.writeByte( (int) ((v & 0x7F) | 0x80) );
+			v >>>= 7;
+		}
+		out.writeByte( (int) v );
+	}
+
+	private static long readVarLong( DataInputStream in ) throws IOException {
+		long v = 0;
+		for ( int shift = 0; shift < 64; shift += 7 ) {
+			int b = in.readUnsignedByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ( (b & 0x80) == 0 ) {
+				return (v >>> 1) ^ -(v & 1);
+			}
+		}
+
+		throw new IOException( "Malformed varint." );
+	}
+
+	@Override
+	public String toString() {
+		return "TableSnapshot[" + this.file + ", " + Arrays.toString( this.orderColumns ) + "]";
+	}
+}
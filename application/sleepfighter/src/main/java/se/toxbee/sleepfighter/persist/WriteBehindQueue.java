@@ -0,0 +1,627 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import android.util.Log;
+
+import com.google.common.base.Objects;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+
+/**
+ * <p>WriteBehindQueue is a write-behind queue drained by a single writer thread.</p>
+ *
+ * <p>Writes are {@link Runnable}s performed in order. A write enqueued with a key replaces<br/>
+ * any pending write with an equal key, which is then moved to the back of the queue.<br/>
+ * Keyed writes must therefore write the whole state of their key, e.g. a copy of the row.</p>
+ *
+ * <p>All writes drained at once are performed in a single transaction.<br/>
+ * {@link #flush()} blocks until all writes enqueued before it has been performed,<br/>
+ * and reports any write that failed since the last flush.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class WriteBehindQueue {
+	private static final String TAG = WriteBehindQueue.class.getSimpleName();
+
+	private final ConnectionSource cs;
+
+	private final Object lock = new Object();
+	private final Map<Object, Runnable> pending = new LinkedHashMap<Object, Runnable>();
+	private Thread writer;
+	private boolean busy;
+	private boolean stopped;
+	private RuntimeException unreported;
+	private volatile BatchListener listener;
+	private long idleDelayNanos;
+
+	// Only touched by writer thread.
+	private final List<Runnable> batch = new ArrayList<Runnable>();
+	private final List<Barrier> barriers = new ArrayList<Barrier>();
+	private boolean dirty;
+	private long lastBatchNanos;
+
+	// Metrics.
+	private long mergedCount;
+	private volatile long writeCount;
+	private volatile long flushCount;
+	private volatile long failureCount;
+	private volatile long lastFlushNanos;
+	private volatile long maxFlushNanos;
+	private volatile long totalFlushNanos;
+
+	/**
+	 * Listener for batches performed by the writer thread.
+	 */
+	public interface BatchListener {
+		/**
+		 * Called on the writer thread before a batch of writes is performed.
+		 */
+		public void beforeBatch();
+
+		/**
+		 * Called on the writer thread when no writes are pending after one or more batches,<br/>
+		 * once the {@link WriteBehindQueue#setIdleDelay(long, TimeUnit) idle delay} has passed.<br/>
+		 * Flushes during the call return at once.
+		 */
+		public void onIdle();
+	}
+
+	/**
+	 * Key for a row, used to merge updates to the same row.
+	 */
+	private static final class RowKey {
+		private final Class<?> clazz;
+		private final Object id;
+
+		private RowKey( Class<?> clazz, Object id ) {
+			this.clazz = clazz;
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals( Object obj ) {
+			if ( this == obj ) {
+				return true;
+			}
+			if ( !(obj instanceof RowKey) ) {
+				return false;
+			}
+
+			RowKey rhs = (RowKey) obj;
+			return this.clazz == rhs.clazz && Objects.equal( this.id, rhs.id );
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.clazz.hashCode() + (this.id == null ? 0 : this.id.hashCode());
+		}
+	}
+
+	/**
+	 * Barrier released when all writes before it have been performed.
+	 */
+	private static final class Barrier implements Runnable {
+		private final CountDownLatch latch = new CountDownLatch( 1 );
+		private volatile RuntimeException failure;
+
+		@Override
+		public void run() {
+		}
+
+		private void release( RuntimeException failure ) {
+			this.failure = failure;
+			this.latch.countDown();
+		}
+	}
+
+	/**
+	 * Constructs the queue, the writer thread is started on first write.
+	 *
+	 * @param cs the connection source to perform transactions in.
+	 */
+	public WriteBehindQueue( ConnectionSource cs ) {
+		this.cs = cs;
+	}
+
+	/**
+	 * Sets the listener for batches.
+	 *
+	 * @param listener the listener, or null.
+	 */
+	public void setBatchListener( BatchListener listener ) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the delay from the last batch until the listener is told that the queue is idle.<br/>
+	 * Any batch during the delay restarts it, so a burst of batches is followed by one call.<br/>
+	 * Closing the queue tells the listener at once.
+	 *
+	 * @param delay the delay, 0 to tell at once.
+	 * @param unit the unit of delay.
+	 */
+	public void setIdleDelay( long delay, TimeUnit unit ) {
+		synchronized ( this.lock ) {
+			this.idleDelayNanos = unit.toNanos( delay );
+			this.lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Returns a key identifying a row.
+	 *
+	 * @param clazz the class of the table.
+	 * @param id the id of the row.
+	 * @return the key.
+	 */
+	public static Object rowKey( Class<?> clazz, Object id ) {
+		return new RowKey( clazz, id );
+	}
+
+	/**
+	 * Enqueues a write that is never merged.
+	 *
+	 * @param write the write.
+	 */
+	public void execute( Runnable write ) {
+		this.enqueue( new Object(), write );
+	}
+
+	/**
+	 * Enqueues a write, replacing any pending write with an equal key.
+	 *
+	 * @param key the key, see {@link #rowKey(Class, Object)}.
+	 * @param write the write.
+	 */
+	public void update( Object key, Runnable write ) {
+		this.enqueue( key, write );
+	}
+
+	/**
+	 * Performs a write on the writer thread and waits for it.<br/>
+	 * Use this for writes whose result is needed right away, e.g. generated ids.
+	 *
+	 * @param write the write.
+	 * @throws PersistenceException if the write, or another since the last flush, failed.
+	 */
+	public void executeAndWait( Runnable write ) {
+		if ( this.isWriterThread() ) {
+			write.run();
+			return;
+		}
+
+		this.execute( write );
+		this.flush();
+	}
+
+	/**
+	 * Blocks until all writes enqueued before this call have been performed.<br/>
+	 * Returns at once if there's nothing to wait for.
+	 *
+	 * @throws PersistenceException if a write failed since the last flush.
+	 */
+	public void flush() {
+		if ( this.isWriterThread() ) {
+			return;
+		}
+
+		Barrier barrier = new Barrier();
+		synchronized ( this.lock ) {
+			if ( this.pending.isEmpty() && !this.busy ) {
+				RuntimeException failure = this.unreported;
+				this.unreported = null;
+
+				if ( failure != null ) {
+					throw failure;
+				}
+				return;
+			}
+
+			this.enqueueLocked( barrier, barrier );
+		}
+
+		boolean interrupted = false;
+		while ( true ) {
+			try {
+				barrier.latch.await();
+				break;
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			}
+		}
+
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+
+		if ( barrier.failure != null ) {
+			throw barrier.failure;
+		}
+	}
+
+	/**
+	 * Flushes and stops the writer thread.<br/>
+	 * Any later write starts it again.
+	 */
+	public void close() {
+		Thread thread;
+		synchronized ( this.lock ) {
+			this.stopped = true;
+			this.lock.notifyAll();
+			thread = this.writer;
+		}
+
+		if ( thread == null || thread == Thread.currentThread() ) {
+			return;
+		}
+
+		boolean interrupted = false;
+		while ( thread.isAlive() ) {
+			try {
+				thread.join();
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			}
+		}
+
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns the number of pending writes.
+	 *
+	 * @return the queue depth.
+	 */
+	public int depth() {
+		synchronized ( this.lock ) {
+			return this.pending.size();
+		}
+	}
+
+	/**
+	 * Returns the number of writes that were merged into a later write.
+	 *
+	 * @return the merged count.
+	 */
+	public long mergedCount() {
+		synchronized ( this.lock ) {
+			return this.mergedCount;
+		}
+	}
+
+	/**
+	 * Returns the number of performed writes.
+	 *
+	 * @return the write count.
+	 */
+	public long writeCount() {
+		return this.writeCount;
+	}
+
+	/**
+	 * Returns the number of flushes (transactions) performed.
+	 *
+	 * @return the flush count.
+	 */
+	public long flushCount() {
+		return this.flushCount;
+	}
+
+	/**
+	 * Returns the number of failed writes.
+	 *
+	 * @return the failure count.
+	 */
+	public long failureCount() {
+		return this.failureCount;
+	}
+
+	/**
+	 * Returns the latency of the last flush in nanoseconds.
+	 *
+	 * @return the latency.
+	 */
+	public long lastFlushNanos() {
+		return this.lastFlushNanos;
+	}
+
+	/**
+	 * Returns the highest latency of any flush in nanoseconds.
+	 *
+	 * @return the latency.
+	 */
+	public long maxFlushNanos() {
+		return this.maxFlushNanos;
+	}
+
+	/**
+	 * Returns the average latency of flushes in nanoseconds.
+	 *
+	 * @return the latency, 0 if there has been no flush.
+	 */
+	public long averageFlushNanos() {
+		long count = this.flushCount;
+		return count == 0 ? 0 : this.totalFlushNanos / count;
+	}
+
+	private boolean isWriterThread() {
+		synchronized ( this.lock ) {
+			return this.writer == Thread.currentThread();
+		}
+	}
+
+	private void enqueue( Object key, Runnable write ) {
+		synchronized ( this.lock ) {
+			this.enqueueLocked( key, write );
+		}
+	}
+
+	private void enqueueLocked( Object key, Runnable write ) {
+		// Remove first so that a merged write is moved to the back.
+		if ( this.pending.remove( key ) != null ) {
+			this.mergedCount++;
+		}
+
+		this.pending.put( key, write );
+
+		if ( this.writer == null || this.stopped ) {
+			this.stopped = false;
+			this.startWriter( this.writer );
+		}
+
+		this.lock.notifyAll();
+	}
+
+	private void startWriter( final Thread previous ) {
+		this.writer = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				// A closed writer might still be draining, keep the order.
+				if ( previous != null ) {
+					try {
+						previous.join();
+					} catch ( InterruptedException e ) {
+						return;
+					}
+				}
+
+				drain();
+			}
+		}, TAG );
+		this.writer.start();
+	}
+
+	private void drain() {
+		while ( true ) {
+			boolean idle = false;
+			synchronized ( this.lock ) {
+				this.busy = false;
+				while ( true ) {
+					// Replaced by a restarted writer, which takes over.
+					if ( this.writer != Thread.currentThread() ) {
+						return;
+					}
+
+					long wait = 0;
+					if ( !this.pending.isEmpty() ) {
+						break;
+					} else if ( this.dirty ) {
+						wait = this.idleRemaining();
+						if ( wait <= 0 ) {
+							idle = true;
+							break;
+						}
+					} else if ( this.stopped ) {
+						this.writer = null;
+						return;
+					}
+
+					try {
+						if ( wait > 0 ) {
+							TimeUnit.NANOSECONDS.timedWait( this.lock, wait );
+						} else {
+							this.lock.wait();
+						}
+					} catch ( InterruptedException e ) {
+						this.writer = null;
+						return;
+					}
+				}
+
+				if ( idle ) {
+					this.dirty = false;
+				} else {
+					this.takeBatch();
+				}
+			}
+
+			if ( idle ) {
+				this.notifyListener( false );
+				continue;
+			}
+
+			RuntimeException failure = null;
+			if ( !this.batch.isEmpty() ) {
+				this.dirty = true;
+				this.notifyListener( true );
+				failure = this.perform();
+				this.lastBatchNanos = System.nanoTime();
+			}
+
+			synchronized ( this.lock ) {
+				if ( this.unreported == null ) {
+					this.unreported = failure;
+				}
+
+				failure = null;
+				if ( !this.barriers.isEmpty() ) {
+					failure = this.unreported;
+					this.unreported = null;
+				}
+			}
+
+			for ( Barrier barrier : this.barriers ) {
+				barrier.release( failure );
+			}
+
+			this.batch.clear();
+			this.barriers.clear();
+		}
+	}
+
+	/**
+	 * Moves the pending writes into the batch, under the lock.
+	 */
+	private void takeBatch() {
+		for ( Iterator<Runnable> iter = this.pending.values().iterator(); iter.hasNext(); ) {
+			Runnable write = iter.next();
+			if ( write instanceof Barrier ) {
+				this.barriers.add( (Barrier) write );
+			} else {
+				this.batch.add( write );
+			}
+		}
+		this.pending.clear();
+		this.busy = true;
+	}
+
+	/**
+	 * Returns the time left of the idle delay before the listener is told, under the lock.
+	 *
+	 * @return the time left in nanoseconds, 0 or less to tell now.
+	 */
+	private long idleRemaining() {
+		if ( this.stopped ) {
+			return 0;
+		}
+
+		return this.lastBatchNanos + this.idleDelayNanos - System.nanoTime();
+	}
+
+	private void notifyListener( boolean before ) {
+		BatchListener listener = this.listener;
+		if ( listener == null ) {
+			return;
+		}
+
+		try {
+			if ( before ) {
+				listener.beforeBatch();
+			} else {
+				listener.onIdle();
+			}
+		} catch ( RuntimeException e ) {
+			this.onFailure( e );
+		}
+	}
+
+	/**
+	 * Performs the current batch in a transaction, measuring latency.
+	 *
+	 * @return the first failure, or null.
+	 */
+	private RuntimeException perform() {
+		long start = System.nanoTime();
+
+		RuntimeException failure;
+		try {
+			this.transact( new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for ( Runnable write : batch ) {
+						write.run();
+					}
+					return null;
+				}
+			} );
+			failure = null;
+		} catch ( SQLException e ) {
+			failure = this.performEach();
+		} catch ( RuntimeException e ) {
+			failure = this.performEach();
+		}
+
+		long nanos = System.nanoTime() - start;
+		this.lastFlushNanos = nanos;
+		this.maxFlushNanos = Math.max( this.maxFlushNanos, nanos );
+		this.totalFlushNanos += nanos;
+		this.writeCount += this.batch.size();
+		this.flushCount++;
+
+		return failure;
+	}
+
+	/**
+	 * The transaction was rolled back, perform each write on its own<br/>
+	 * so that a bad write does not take the others with it.
+	 *
+	 * @return the first failure, or null.
+	 */
+	private RuntimeException performEach() {
+		RuntimeException failure = null;
+
+		for ( Runnable write : this.batch ) {
+			try {
+				write.run();
+			} catch ( RuntimeException e ) {
+				this.failureCount++;
+				this.onFailure( e );
+
+				if ( failure == null ) {
+					failure = e instanceof PersistenceException ? e : new PersistenceException( e );
+				}
+			}
+		}
+
+		return failure;
+	}
+
+	/**
+	 * Performs the callable in a transaction.
+	 *
+	 * @param callable the callable.
+	 * @throws SQLException if the transaction failed.
+	 */
+	protected void transact( Callable<Void> callable ) throws SQLException {
+		TransactionManager.callInTransaction( this.cs, callable );
+	}
+
+	/**
+	 * Called on the writer thread when a write has failed.
+	 *
+	 * @param e the failure.
+	 */
+	protected void onFailure( RuntimeException e ) {
+		Log.e( TAG, "Write failed", e );
+	}
+}
@@ -16,6 +16,8 @@
 
 package se.toxbee.sleepfighter.persist.dao;
 
+import com.google.common.collect.Iterables;
+import com.j256.ormlite.dao.BaseDaoImpl;
 import com.j256.ormlite.dao.CloseableIterable;
 import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.CloseableWrappedIterable;
@@ -43,6 +45,7 @@ import com.j256.ormlite.support.DatabaseConnection;
 import com.j256.ormlite.support.DatabaseResults;
 import com.j256.ormlite.table.DatabaseTableConfig;
 import com.j256.ormlite.table.ObjectFactory;
+import com.j256.ormlite.table.TableInfo;
 
 import java.sql.SQLException;
 import java.util.Collection;
@@ -50,6 +53,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import se.toxbee.sleepfighter.persist.InQuery;
+
 /**
  * <p>PersistenceExceptionDao is essentially a copy of PersistenceExceptionDao from OrmLite.<br/>
  * But instead of throwing PersistenceException, a PersistenceException is thrown giving<br/>
@@ -320,13 +325,37 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int update( PreparedUpdate<T> preparedUpdate ) {
 		try {
-			return dao.update( preparedUpdate );
+			return this.invalidateObjectCache( dao.update( preparedUpdate ) );
 		} catch ( SQLException e ) {
 			logMessage( e, "update threw exception on: " + preparedUpdate );
 			throw new PersistenceException( e );
 		}
 	}
 
+	/**
+	 * Runs a prepared update of the row of data alone, whose fields already hold the new values.<br/>
+	 * Unlike {@link #update(PreparedUpdate)} the object cache is kept: data replaces the cached instance of its row.
+	 *
+	 * @param data the updated object.
+	 * @param preparedUpdate the update, restricted to the row of data.
+	 * @return the number of rows updated.
+	 */
+	public int update( T data, PreparedUpdate<T> preparedUpdate ) {
+		try {
+			int rows = dao.update( preparedUpdate );
+
+			ObjectCache cache = dao.getObjectCache();
+			if ( cache != null ) {
+				cache.put( dao.getDataClass(), dao.extractId( data ), data );
+			}
+
+			return rows;
+		} catch ( SQLException e ) {
+			logMessage( e, "update threw exception on: " + data );
+			throw new PersistenceException( e );
+		}
+	}
+
 	/**
 	 * @see Dao#refresh(Object)
 	 */
@@ -368,7 +397,12 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int delete( Collection<T> datas ) {
 		try {
-			return dao.delete( datas );
+			// In chunks, SQLite has a limit on variables per statement.
+			int rows = 0;
+			for ( List<T> chunk : Iterables.partition( datas, InQuery.CHUNK_SIZE ) ) {
+				rows += dao.delete( chunk );
+			}
+			return rows;
 		} catch ( SQLException e ) {
 			logMessage( e, "delete threw exception on: " + datas );
 			throw new PersistenceException( e );
@@ -380,7 +414,12 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int deleteIds( Collection<ID> ids ) {
 		try {
-			return dao.deleteIds( ids );
+			// In chunks, SQLite has a limit on variables per statement.
+			int rows = 0;
+			for ( List<ID> chunk : Iterables.partition( ids, InQuery.CHUNK_SIZE ) ) {
+				rows += dao.deleteIds( chunk );
+			}
+			return rows;
 		} catch ( SQLException e ) {
 			logMessage( e, "deleteIds threw exception on: " + ids );
 			throw new PersistenceException( e );
@@ -392,7 +431,7 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int delete( PreparedDelete<T> preparedDelete ) {
 		try {
-			return dao.delete( preparedDelete );
+			return this.invalidateObjectCache( dao.delete( preparedDelete ) );
 		} catch ( SQLException e ) {
 			logMessage( e, "delete threw exception on: " + preparedDelete );
 			throw new PersistenceException( e );
@@ -539,7 +578,7 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int executeRaw( String statement, String... arguments ) {
 		try {
-			return dao.executeRaw( statement, arguments );
+			return this.invalidateObjectCache( dao.executeRaw( statement, arguments ) );
 		} catch ( SQLException e ) {
 			logMessage( e, "executeRaw threw exception on: " + statement );
 			throw new PersistenceException( e );
@@ -551,7 +590,7 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int executeRawNoArgs( String statement ) {
 		try {
-			return dao.executeRawNoArgs( statement );
+			return this.invalidateObjectCache( dao.executeRawNoArgs( statement ) );
 		} catch ( SQLException e ) {
 			logMessage( e, "executeRawNoArgs threw exception on: " + statement );
 			throw new PersistenceException( e );
@@ -563,7 +602,7 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 	 */
 	public int updateRaw( String statement, String... arguments ) {
 		try {
-			return dao.updateRaw( statement, arguments );
+			return this.invalidateObjectCache( dao.updateRaw( statement, arguments ) );
 		} catch ( SQLException e ) {
 			logMessage( e, "updateRaw threw exception on: " + statement );
 			throw new PersistenceException( e );
@@ -893,6 +932,33 @@ public class PersistenceExceptionDao<T, ID> implements CloseableIterable<T>,
 		return dao.getConnectionSource();
 	}
 
+	/**
+	 * @see BaseDaoImpl#getTableInfo()
+	 * @throws UnsupportedOperationException if the wrapped DAO is not a {@link BaseDaoImpl}.
+	 */
+	public TableInfo<T, ID> getTableInfo() {
+		if ( !(dao instanceof BaseDaoImpl) ) {
+			throw new UnsupportedOperationException( "Wrapped DAO has no TableInfo: " + dao );
+		}
+
+		return ((BaseDaoImpl<T, ID>) dao).getTableInfo();
+	}
+
+	/**
+	 * Prepared and raw statements bypass the object cache, and the rows they change are not known,<br/>
+	 * so it is cleared when they have changed any row. See {@link #update(Object, PreparedUpdate)} to keep it.
+	 *
+	 * @param rows the number of changed rows.
+	 * @return rows.
+	 */
+	private int invalidateObjectCache( int rows ) {
+		if ( rows != 0 ) {
+			dao.clearObjectCache();
+		}
+
+		return rows;
+	}
+
 	private void logMessage( Exception e, String message ) {
 		logger.log( LOG_LEVEL, e, message );
 	}
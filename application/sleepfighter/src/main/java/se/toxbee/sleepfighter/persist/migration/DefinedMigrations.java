@@ -35,7 +35,8 @@ public class DefinedMigrations {
 	public static final Class<?>[] get() {
 		// reflections was thought of, but is error prone.
 		return new Class<?>[] {
-			Version25.class, Version27.class
+			Version25.class, Version27.class, Version28.class, Version29.class,
+			Version30.class, Version31.class
 		};
 	}
 }
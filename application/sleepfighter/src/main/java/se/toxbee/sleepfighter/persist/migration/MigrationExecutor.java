@@ -16,15 +16,23 @@
 
 package se.toxbee.sleepfighter.persist.migration;
 
-import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
+import com.j256.ormlite.field.FieldType;
 import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.Callable;
 
+import se.toxbee.sleepfighter.persist.migration.MigrationUtil.TableReport;
+import se.toxbee.sleepfighter.utils.debug.Debug;
 import se.toxbee.sleepfighter.utils.migration.IMigrationException;
 import se.toxbee.sleepfighter.utils.migration.IMigrationExecutor;
 
@@ -38,6 +46,27 @@ import se.toxbee.sleepfighter.utils.migration.IMigrationExecutor;
 public final class MigrationExecutor extends IMigrationExecutor<MigrationUtil, Migrater> {
 	private static final String TAG = MigrationExecutor.class.getSimpleName();
 
+	/*
+	 * Pragmas for the migration, restored after it.
+	 * All of it is one transaction that the app redoes on failure, so the
+	 * journal is kept in memory and commits aren't synced to disk.
+	 * The cache holds the pages of a rebuilt table while its indexes are built.
+	 */
+	private static final String MIGRATION_JOURNAL_MODE = "MEMORY";
+	private static final int MIGRATION_SYNCHRONOUS = 0;
+	private static final int MIGRATION_CACHE_SIZE = 8000;
+
+	private Collection<TableReport> reports = Collections.emptyList();
+
+	/**
+	 * Returns the reports of the tables migrated by the last {@link #execute(ConnectionSource, int, int)}.
+	 *
+	 * @return the reports.
+	 */
+	public Collection<TableReport> reports() {
+		return this.reports;
+	}
+
 	@Override
 	protected Class<Migrater> clazz() {
 		return Migrater.class;
@@ -57,41 +86,111 @@ public final class MigrationExecutor extends IMigrationExecutor<MigrationUtil, M
 	 * Performs migration from oldVersion to newVersion returning true on success and false on failure.
 	 *
 	 * @param cs the ConnectionSource.
-	 * @param db the SQLiteDatabase.
 	 * @param originVersion the origin version we're starting from.
 	 * @param targetVersion the target version we're heading to.
 	 * @return true if the migration was successful.
 	 */
-	public boolean execute( final ConnectionSource cs, final SQLiteDatabase db, final int originVersion, final int targetVersion ) {
-		// Get in a transaction.
+	public boolean execute( final ConnectionSource cs, final int originVersion, final int targetVersion ) {
+		// Nothing to do: no connection, transaction nor reflection.
+		if ( !isNeeded( originVersion, targetVersion ) ) {
+			this.reports = Collections.emptyList();
+			return true;
+		}
+
 		try {
-			return TransactionManager.callInTransaction( cs, new Callable<Boolean>() {
-				@Override
-				public Boolean call() throws Exception {
-					return perform( cs, db, originVersion, targetVersion );
+			DatabaseConnection conn = cs.getReadWriteConnection();
+			try {
+				/*
+				 * journal_mode & synchronous can't be changed within a transaction,
+				 * on android onUpgrade() already is in one so they are left as is.
+				 */
+				boolean outside = conn.isAutoCommit();
+				String journalMode = null;
+				long synchronous = 0;
+				if ( outside ) {
+					journalMode = queryString( conn, "PRAGMA journal_mode" );
+					synchronous = conn.queryForLong( "PRAGMA synchronous" );
+					queryString( conn, "PRAGMA journal_mode = " + MIGRATION_JOURNAL_MODE );
+					conn.executeStatement( "PRAGMA synchronous = " + MIGRATION_SYNCHRONOUS, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+				}
+
+				long cacheSize = conn.queryForLong( "PRAGMA cache_size" );
+				conn.executeStatement( "PRAGMA cache_size = " + MIGRATION_CACHE_SIZE, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+
+				// Get in a transaction.
+				try {
+					return TransactionManager.callInTransaction( cs, new Callable<Boolean>() {
+						@Override
+						public Boolean call() throws Exception {
+							return perform( cs, originVersion, targetVersion );
+						}
+					} );
+				} finally {
+					conn.executeStatement( "PRAGMA cache_size = " + cacheSize, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+
+					if ( outside ) {
+						conn.executeStatement( "PRAGMA synchronous = " + synchronous, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+						queryString( conn, "PRAGMA journal_mode = " + journalMode );
+					}
 				}
-			} );
+			} finally {
+				cs.releaseConnection( conn );
+			}
 		} catch ( SQLException e ) {
 			return fail( e );
 		}
 	}
 
 	/**
-	 * Actually performs the migration.
+	 * Runs a statement that returns one string, e.g. PRAGMA journal_mode.
+	 *
+	 * @param conn the connection.
+	 * @param sql the statement.
+	 * @return the string.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	private static String queryString( DatabaseConnection conn, String sql ) throws SQLException {
+		CompiledStatement stmt = conn.compileStatement( sql, StatementType.SELECT, new FieldType[0], DatabaseConnection.DEFAULT_RESULT_FLAGS );
+		try {
+			DatabaseResults results = stmt.runQuery( null );
+			String value = results.next() ? results.getString( 0 ) : null;
+			results.close();
+			return value;
+		} finally {
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Actually performs the migration.<br/>
+	 * Column drops of all migrations are coalesced into one rebuild per table at the end,<br/>
+	 * after which the migrated tables are analyzed.
 	 *
 	 * @param cs the ConnectionSource.
-	 * @param db the SQLiteDatabase.
 	 * @param originVersion the origin version we're starting from.
 	 * @param targetVersion the target version we're heading to.
 	 * @return true if the migration was successful.
+	 * @throws SQLException if some SQL error happens.
 	 */
-	private boolean perform( ConnectionSource cs, SQLiteDatabase db, int originVersion, int targetVersion ) {
+	private boolean perform( ConnectionSource cs, int originVersion, int targetVersion ) throws SQLException {
+		// Within the transaction, this is the connection of the transaction.
+		DatabaseConnection conn = cs.getReadWriteConnection();
 		try {
 			IMigrationException.tooOld( originVersion, DefinedMigrations.REBUILD_BELOW_VERSION );
-			this.apply( new MigrationUtil( db, cs ), originVersion, targetVersion );
+			MigrationUtil util = new MigrationUtil( conn, cs );
+			this.apply( util, originVersion, targetVersion );
+			util.finish();
+
+			this.reports = util.reports();
+			for ( TableReport report : this.reports ) {
+				Debug.i( "Migrated " + report );
+			}
+
 			return true;
 		} catch ( IMigrationException e ) {
 			return fail( e );
+		} finally {
+			cs.releaseConnection( conn );
 		}
 	}
 }
@@ -16,14 +16,24 @@
 
 package se.toxbee.sleepfighter.persist.migration;
 
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
 import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
 
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import se.toxbee.sleepfighter.utils.string.StringUtils;
 
@@ -32,34 +42,140 @@ import se.toxbee.sleepfighter.utils.string.StringUtils;
  * These operations are all SQLite specific.<br/>
  * Provides a fluid interface.
  *
+ * <p>It works on a {@link DatabaseConnection}, so it runs on android<br/>
+ * as well as on any other connection source, e.g. JDBC on the JVM.</p>
+ *
+ * <p>Dropping columns requires a rebuild of the table, so drops are deferred<br/>
+ * until {@link #rebuild()}: all drops of a table during one migration run<br/>
+ * coalesce into a single rebuild, in the transaction of the run.</p>
+ *
+ * <p>{@link #finish()} also runs ANALYZE on every migrated table,<br/>
+ * and {@link #reports()} tells the rows and time of each of them.</p>
+ *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
  * @since Nov 13, 2013
  */
 public class MigrationUtil {
-	private final SQLiteDatabase db;
+	private static final FieldType[] NO_FIELD_TYPES = new FieldType[0];
+
+	private static final String NEW_SUFFIX = "_new";
+
+	// Keywords that start a table constraint rather than a column definition.
+	private static final Set<String> CONSTRAINT_KEYWORDS = Sets.newHashSet( "constraint", "primary", "unique", "check", "foreign" );
+
+	private final DatabaseConnection conn;
 	private final ConnectionSource cs;
 
 	private String tableName;
 
+	// Columns to drop on rebuild(), per table.
+	private final Map<String, Set<String>> pendingDrops = Maps.newLinkedHashMap();
+
+	// The migrated tables, in order of first change.
+	private final Map<String, TableReport> reports = Maps.newLinkedHashMap();
+
+	/**
+	 * TableReport tells how a table was migrated.
+	 *
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	public static final class TableReport {
+		private final String table;
+		private long rows;
+		private long nanos;
+		private boolean rebuilt;
+
+		private TableReport( String table ) {
+			this.table = table;
+		}
+
+		/**
+		 * Returns the name of the table.
+		 *
+		 * @return the name.
+		 */
+		public String getTable() {
+			return this.table;
+		}
+
+		/**
+		 * Returns the number of rows in the table after migration.
+		 *
+		 * @return the number of rows.
+		 */
+		public long getRows() {
+			return this.rows;
+		}
+
+		/**
+		 * Returns the time spent migrating the table, in nanoseconds.
+		 *
+		 * @return the time.
+		 */
+		public long getNanos() {
+			return this.nanos;
+		}
+
+		/**
+		 * Returns whether or not the table was rebuilt.
+		 *
+		 * @return true if it was.
+		 */
+		public boolean isRebuilt() {
+			return this.rebuilt;
+		}
+
+		@Override
+		public String toString() {
+			return String.format( Locale.ENGLISH, "%s: %d rows, %.1f ms%s", this.table, this.rows, this.nanos / 1e6, this.rebuilt ? ", rebuilt" : "" );
+		}
+	}
+
 	/**
-	 * Constructs the utility object given the DB and connection source.
+	 * BlobRecoder re-encodes blobs stored in an old format, see {@link MigrationUtil#recodeBlobs(String, BlobRecoder)}.
 	 *
-	 * @param db the DB.
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	public interface BlobRecoder {
+		/**
+		 * Returns whether or not blob is in the old format.
+		 *
+		 * @param blob the blob, not null.
+		 * @return true if it must be re-encoded.
+		 */
+		public boolean isOld( byte[] blob );
+
+		/**
+		 * Re-encodes an old blob in the current format.
+		 *
+		 * @param blob the old blob.
+		 * @return the new blob.
+		 * @throws IllegalArgumentException if blob is malformed.
+		 */
+		public byte[] recode( byte[] blob );
+	}
+
+	/**
+	 * Constructs the utility object given the connection and connection source.
+	 *
+	 * @param conn the connection to the DB.
 	 * @param cs the connection source.
 	 */
-	public MigrationUtil( SQLiteDatabase db, ConnectionSource cs ) {
-		this.db = db;
+	public MigrationUtil( DatabaseConnection conn, ConnectionSource cs ) {
+		this.conn = conn;
 		this.cs = cs;
 	}
 
 	/**
-	 * Returns the SQLiteDatabase the utility is operating on.
+	 * Returns the DatabaseConnection the utility is operating on.
 	 *
-	 * @return the db.
+	 * @return the connection.
 	 */
-	public SQLiteDatabase getDB() {
-		return this.db;
+	public DatabaseConnection getConnection() {
+		return this.conn;
 	}
 
 	/**
@@ -72,113 +188,565 @@ public class MigrationUtil {
 	}
 
 	/**
-	 * Returns the names of the columns in a table.
+	 * Executes a raw SQL statement, e.g. CREATE INDEX.
+	 *
+	 * @param sql the statement.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public MigrationUtil execSQL( String sql ) throws SQLException {
+		this.conn.executeStatement( sql, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+		return this;
+	}
+
+	/**
+	 * Compiles a statement with ? arguments, set them with<br/>
+	 * {@link CompiledStatement#setObject(int, Object, SqlType)}, from index 0.
+	 *
+	 * @param sql the statement.
+	 * @param type the type of statement.
+	 * @return the compiled statement, the caller closes it.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public CompiledStatement compile( String sql, StatementType type ) throws SQLException {
+		return this.conn.compileStatement( sql, type, NO_FIELD_TYPES, DatabaseConnection.DEFAULT_RESULT_FLAGS );
+	}
+
+	/**
+	 * Returns the names of the columns in current table.
 	 *
-	 * @param tableName the table name.
 	 * @return the list of columns.
+	 * @throws SQLException if some SQL error happens.
 	 */
-	public List<String> getTableColumns() {
+	public List<String> getTableColumns() throws SQLException {
 		ArrayList<String> columns = new ArrayList<String>();
-		String cmd = "pragma table_info(" + tableName + ");";
-		Cursor cur = db.rawQuery( cmd, null );
 
-		while ( cur.moveToNext() ) {
-			columns.add( cur.getString( cur.getColumnIndex( "name" ) ) );
+		CompiledStatement stmt = this.compile( "pragma table_info(`" + this.tableName + "`)", StatementType.SELECT );
+		try {
+			DatabaseResults results = stmt.runQuery( null );
+			int name = results.findColumn( "name" );
+			while ( results.next() ) {
+				columns.add( results.getString( name ) );
+			}
+			results.close();
+		} finally {
+			stmt.close();
 		}
-		cur.close();
 
 		return columns;
 	}
 
 	/**
-	 * Returns the CREATE TABLE statement that can be used to the table with tableName.
+	 * Returns the CREATE TABLE statement that can be used to the current table.
 	 *
-	 * @param tableName the name of the table.
 	 * @return the SQL statement string.
+	 * @throws SQLException if some SQL error happens.
 	 */
-	public String fetchCreateStmt() {
-		StringBuilder s = new StringBuilder();
-
-		Cursor cur = db.rawQuery( "SELECT sql FROM sqlite_master WHERE name = ?", new String[] { tableName } );
-		while( cur.moveToNext() ) {
-			String stmt = cur.getString( 0 );
-			s.append( stmt );
-		}
-		cur.close();
-
-		return s.toString();
+	public String fetchCreateStmt() throws SQLException {
+		List<String> stmts = this.fetchSchema( "table" );
+		return stmts.isEmpty() ? "" : stmts.get( 0 );
 	}
 
 	/**
 	 * Drops the columns given by colsToRemove in current table.<br/>
-	 * This is an expensive operation as it requires a temporary table.
+	 * This is an expensive operation as it requires a rebuild of the table,<br/>
+	 * the drop is therefore deferred until {@link #rebuild()}.<br/>
+	 * Until then the columns can still be read, e.g. by {@link #update(String, String)}.
 	 *
 	 * @param colsToRemove the column names to remove.
-	 * @throws java.sql.SQLException
 	 */
-	public MigrationUtil dropColumns( String[] colsToRemove ) throws java.sql.SQLException {
-		// Fetch create statement.
-		String createStmt = fetchCreateStmt();
-
-		// Assemble columns.
-		String columnsSeperated;
-		{
-			List<String> updatedTableColumns = getTableColumns();
-
-			// Remove the columns we don't want anymore from the table's list of columns
-			updatedTableColumns.removeAll( Arrays.asList( colsToRemove ) );
-
-			columnsSeperated = StringUtils.COMMA_JOINER.join( updatedTableColumns );
+	public MigrationUtil dropColumns( String[] colsToRemove ) {
+		Set<String> drops = this.pendingDrops.get( this.tableName );
+		if ( drops == null ) {
+			drops = Sets.newLinkedHashSet();
+			this.pendingDrops.put( this.tableName, drops );
 		}
 
-		// Rename the table.
-		db.execSQL( "ALTER TABLE " + tableName + " RENAME TO " + tableName + "_old;" );
-
-		// Creating the table on its new format (no redundant columns)
-		db.execSQL( createStmt );
-
-		// Populating the table with the data
-		db.execSQL( "INSERT INTO " + tableName + "(" + columnsSeperated
-				+ ") SELECT " + columnsSeperated + " FROM " + tableName + "_old;" );
-
-		// Drop the old table.
-		db.execSQL( "DROP TABLE " + tableName + "_old;" );
+		for ( String col : colsToRemove ) {
+			drops.add( col.toLowerCase( Locale.ENGLISH ) );
+		}
 
+		this.report( this.tableName );
 		return this;
 	}
 
 	/**
-	 * Adds a column to current table.
+	 * Adds a column to current table.<br/>
+	 * If the column is pending a drop, the table is rebuilt first.
 	 *
 	 * @param col the column name.
 	 * @param definition the definition of the column (e.g: INTEGER DEFAULT 0).
-	 * @throws java.sql.SQLException
+	 * @throws SQLException if some SQL error happens.
 	 */
-	public MigrationUtil addColumn( String col, String definition ) throws java.sql.SQLException {
-		db.execSQL( String.format( "ALTER TABLE '%s' ADD COLUMN '%s' %s", tableName, col, definition ) );
+	public MigrationUtil addColumn( String col, String definition ) throws SQLException {
+		Set<String> drops = this.pendingDrops.get( this.tableName );
+		if ( drops != null && drops.contains( col.toLowerCase( Locale.ENGLISH ) ) ) {
+			this.rebuildTable( this.tableName, this.pendingDrops.remove( this.tableName ) );
+		}
+
+		long start = System.nanoTime();
+		this.execSQL( String.format( "ALTER TABLE '%s' ADD COLUMN '%s' %s", this.tableName, col, definition ) );
+		this.report( this.tableName ).nanos += System.nanoTime() - start;
 		return this;
 	}
 
 	/**
-	 * Updates the table with tableName.
+	 * Updates the current table.
 	 *
-	 * @param tableName the table name.
 	 * @param set the SET part of the statement without SET string in it.
 	 * @param where the WHERE part of the statement without WHERE string in it.
-	 * @throws java.sql.SQLException
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public MigrationUtil update( String set, String where ) throws SQLException {
+		long start = System.nanoTime();
+		this.execSQL( String.format( "UPDATE '%s' SET %s", this.tableName, set + (where == null ? "" : " WHERE " + where ) ) );
+		this.report( this.tableName ).nanos += System.nanoTime() - start;
+		return this;
+	}
+
+	/**
+	 * Rewrites the blobs of column in current table that are in an old format, row by row.<br/>
+	 * All rows are read before any is written, so the cursor does not see its own updates.<br/>
+	 * Nothing is done if the table does not exist.
+	 *
+	 * @param column the blob column.
+	 * @param recoder tells which blobs are old and re-encodes them.
+	 * @throws SQLException if some SQL error happens, or an old blob is malformed.
+	 */
+	public MigrationUtil recodeBlobs( String column, BlobRecoder recoder ) throws SQLException {
+		if ( !this.conn.isTableExists( this.tableName ) ) {
+			return this;
+		}
+
+		long start = System.nanoTime();
+
+		// Rows are found by rowid, whatever the primary key of the table.
+		Map<Long, byte[]> old = Maps.newLinkedHashMap();
+		CompiledStatement select = this.compile( "SELECT rowid, `" + column + "` FROM `" + this.tableName + "` WHERE `" + column + "` IS NOT NULL", StatementType.SELECT );
+		try {
+			DatabaseResults results = select.runQuery( null );
+			while ( results.next() ) {
+				byte[] blob = results.getBytes( 1 );
+				if ( recoder.isOld( blob ) ) {
+					old.put( results.getLong( 0 ), blob );
+				}
+			}
+			results.close();
+		} finally {
+			select.close();
+		}
+
+		CompiledStatement update = this.compile( "UPDATE `" + this.tableName + "` SET `" + column + "` = ? WHERE rowid = ?", StatementType.UPDATE );
+		try {
+			for ( Map.Entry<Long, byte[]> entry : old.entrySet() ) {
+				byte[] blob;
+				try {
+					blob = recoder.recode( entry.getValue() );
+				} catch ( IllegalArgumentException e ) {
+					throw new SQLException( "Malformed " + this.tableName + "." + column + " of rowid: " + entry.getKey(), e );
+				}
+
+				update.setObject( 0, blob, SqlType.BYTE_ARRAY );
+				update.setObject( 1, entry.getKey(), SqlType.LONG );
+				update.runUpdate();
+			}
+		} finally {
+			update.close();
+		}
+
+		return this.elapsed( start );
+	}
+
+	/**
+	 * Adds the time since start to the report of the current table,<br/>
+	 * for work on it done directly, e.g. with {@link #compile(String, StatementType)}.
+	 *
+	 * @param start the {@link System#nanoTime()} the work started at.
 	 */
-	public MigrationUtil update( String set, String where ) throws java.sql.SQLException {
-		db.execSQL( String.format( "UPDATE '%s' SET %s", tableName, set + (where == null ? "" : " WHERE " + where ) ) );
+	public MigrationUtil elapsed( long start ) {
+		this.report( this.tableName ).nanos += System.nanoTime() - start;
 		return this;
 	}
 
 	/**
 	 * Instructs the utility to work on the the given table for the time being.
 	 *
-	 * @param tableName the name of the table.
+	 * @param name the name of the table.
 	 */
 	public MigrationUtil table( String name ) {
 		this.tableName = name;
 		return this;
 	}
+
+	/**
+	 * Performs all pending column drops, one rebuild per table.
+	 *
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public MigrationUtil rebuild() throws SQLException {
+		for ( Map.Entry<String, Set<String>> entry : this.pendingDrops.entrySet() ) {
+			this.rebuildTable( entry.getKey(), entry.getValue() );
+		}
+
+		this.pendingDrops.clear();
+		return this;
+	}
+
+	/**
+	 * Finishes the migration: performs pending drops, then analyzes<br/>
+	 * and counts the rows of every migrated table that still exists.
+	 *
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public MigrationUtil finish() throws SQLException {
+		this.rebuild();
+
+		for ( TableReport report : this.reports.values() ) {
+			if ( !this.conn.isTableExists( report.table ) ) {
+				continue;
+			}
+
+			// The rebuilt table and its fresh indexes have no statistics yet.
+			long start = System.nanoTime();
+			this.execSQL( "ANALYZE `" + report.table + '`' );
+			report.rows = this.conn.queryForLong( "SELECT COUNT(*) FROM `" + report.table + '`' );
+			report.nanos += System.nanoTime() - start;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns the reports of the migrated tables, in order of first change.
+	 *
+	 * @return the reports.
+	 */
+	public Collection<TableReport> reports() {
+		return Collections.unmodifiableCollection( this.reports.values() );
+	}
+
+	/**
+	 * Returns the report of table, created on first use.
+	 *
+	 * @param table the table.
+	 * @return the report.
+	 */
+	private TableReport report( String table ) {
+		TableReport report = this.reports.get( table );
+		if ( report == null ) {
+			report = new TableReport( table );
+			this.reports.put( table, report );
+		}
+
+		return report;
+	}
+
+	/**
+	 * Rebuilds table without the columns in drops, keeping its indexes.
+	 *
+	 * @param table the table.
+	 * @param drops the lower case column names to drop.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	private void rebuildTable( String table, Set<String> drops ) throws SQLException {
+		long start = System.nanoTime();
+
+		String prev = this.tableName;
+		this.tableName = table;
+
+		String createStmt = this.fetchCreateStmt();
+		List<String> indexes = this.fetchSchema( "index" );
+
+		// The definitions of the new table: all but the dropped columns and the table constraints naming them.
+		int open = indexOfUnquoted( createStmt, '(', 0 );
+		int close = open < 0 ? -1 : closingParen( createStmt, open );
+		if ( open < 0 || close < 0 ) {
+			throw new SQLException( "Can't parse the schema of table " + table + ": " + createStmt );
+		}
+
+		List<String> defs = new ArrayList<String>();
+		for ( String def : splitDefinitions( createStmt.substring( open + 1, close ) ) ) {
+			String name = leadingIdentifier( def );
+			boolean keep = CONSTRAINT_KEYWORDS.contains( name ) ? !constraintReferencesAny( def, drops ) : !drops.contains( name );
+			if ( keep ) {
+				defs.add( def );
+			}
+		}
+
+		// The columns to copy.
+		List<String> columns = new ArrayList<String>();
+		for ( String col : this.getTableColumns() ) {
+			if ( !drops.contains( col.toLowerCase( Locale.ENGLISH ) ) ) {
+				columns.add( '`' + col + '`' );
+			}
+		}
+		String columnsSeparated = StringUtils.COMMA_JOINER.join( columns );
+
+		// Copy into a table without indexes, one pass in rowid order, the old indexes go with the old table.
+		String newTable = table + NEW_SUFFIX;
+		this.execSQL( "CREATE TABLE `" + newTable + "` (" + StringUtils.COMMA_JOINER.join( defs ) + ")" );
+		this.execSQL( "INSERT INTO `" + newTable + "` (" + columnsSeparated + ") SELECT " + columnsSeparated + " FROM `" + table + '`' );
+		this.execSQL( "DROP TABLE `" + table + '`' );
+		this.execSQL( "ALTER TABLE `" + newTable + "` RENAME TO `" + table + '`' );
+
+		// Build each index once over the copied rows, for the remaining columns.
+		for ( String index : indexes ) {
+			if ( !referencesAny( index, drops ) ) {
+				this.execSQL( index );
+			}
+		}
+
+		this.tableName = prev;
+
+		TableReport report = this.report( table );
+		report.rebuilt = true;
+		report.nanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Returns the SQL of all schema objects of type on the current table.
+	 *
+	 * @param type the type, e.g. table or index.
+	 * @return the statements.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	private List<String> fetchSchema( String type ) throws SQLException {
+		List<String> stmts = new ArrayList<String>();
+
+		CompiledStatement stmt = this.compile( "SELECT sql FROM sqlite_master WHERE type = ? AND tbl_name = ? AND sql IS NOT NULL", StatementType.SELECT );
+		try {
+			stmt.setObject( 0, type, SqlType.STRING );
+			stmt.setObject( 1, this.tableName, SqlType.STRING );
+
+			DatabaseResults results = stmt.runQuery( null );
+			while ( results.next() ) {
+				stmts.add( results.getString( 0 ) );
+			}
+			results.close();
+		} finally {
+			stmt.close();
+		}
+
+		return stmts;
+	}
+
+	/**
+	 * Splits the body of a CREATE TABLE statement on top level commas,<br/>
+	 * commas inside parentheses, quoted identifiers and literals are kept.
+	 *
+	 * @param body the part between the outer parentheses.
+	 * @return the column definitions and table constraints.
+	 */
+	static List<String> splitDefinitions( String body ) {
+		List<String> defs = new ArrayList<String>();
+
+		int depth = 0;
+		int start = 0;
+		for ( int i = 0; i < body.length(); ++i ) {
+			char c = body.charAt( i );
+			if ( isQuote( c ) ) {
+				i = skipQuoted( body, i );
+			} else if ( c == '(' ) {
+				++depth;
+			} else if ( c == ')' ) {
+				--depth;
+			} else if ( c == ',' && depth == 0 ) {
+				defs.add( body.substring( start, i ).trim() );
+				start = i + 1;
+			}
+		}
+
+		String last = body.substring( start ).trim();
+		if ( !last.isEmpty() ) {
+			defs.add( last );
+		}
+
+		return defs;
+	}
+
+	/**
+	 * Returns the first identifier of a definition, unquoted and in lower case.
+	 *
+	 * @param def the definition.
+	 * @return the identifier.
+	 */
+	private static String leadingIdentifier( String def ) {
+		if ( isQuote( def.charAt( 0 ) ) ) {
+			return unquote( def.substring( 0, skipQuoted( def, 0 ) + 1 ) );
+		}
+
+		int i = 0;
+		while ( i < def.length() && !Character.isWhitespace( def.charAt( i ) ) && def.charAt( i ) != '(' ) {
+			++i;
+		}
+		return def.substring( 0, i ).toLowerCase( Locale.ENGLISH );
+	}
+
+	/**
+	 * Returns whether or not a table constraint names any of columns.<br/>
+	 * The named columns are those in its first parenthesized part: the column list of<br/>
+	 * PRIMARY KEY, UNIQUE and FOREIGN KEY (not the REFERENCES clause), or the expression of CHECK.
+	 *
+	 * @param def the constraint, optionally starting with CONSTRAINT name.
+	 * @param columns the lower case column names.
+	 * @return true if it does.
+	 */
+	static boolean constraintReferencesAny( String def, Set<String> columns ) {
+		int open = indexOfUnquoted( def, '(', 0 );
+		int close = open < 0 ? -1 : closingParen( def, open );
+		if ( close < 0 ) {
+			return false;
+		}
+
+		return containsAny( identifiers( def.substring( open + 1, close ) ), columns );
+	}
+
+	/**
+	 * Returns whether or not the columns or the WHERE clause of a CREATE INDEX statement reference any of columns.
+	 *
+	 * @param index the statement.
+	 * @param columns the lower case column names.
+	 * @return true if it does.
+	 */
+	private static boolean referencesAny( String index, Set<String> columns ) {
+		int open = indexOfUnquoted( index, '(', 0 );
+		if ( open < 0 ) {
+			return false;
+		}
+
+		return containsAny( identifiers( index.substring( open + 1 ) ), columns );
+	}
+
+	private static boolean containsAny( List<String> identifiers, Set<String> columns ) {
+		for ( String identifier : identifiers ) {
+			if ( columns.contains( identifier ) ) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the identifiers, bare or quoted, of a piece of SQL, unquoted and in lower case.<br/>
+	 * String literals and numbers are skipped, keywords and function names are included.
+	 *
+	 * @param sql the SQL.
+	 * @return the identifiers, in order.
+	 */
+	static List<String> identifiers( String sql ) {
+		List<String> identifiers = new ArrayList<String>();
+
+		for ( int i = 0; i < sql.length(); ++i ) {
+			char c = sql.charAt( i );
+			if ( c == '\'' ) {
+				i = skipQuoted( sql, i );
+			} else if ( isQuote( c ) ) {
+				int end = skipQuoted( sql, i );
+				identifiers.add( unquote( sql.substring( i, end + 1 ) ) );
+				i = end;
+			} else if ( Character.isLetterOrDigit( c ) || c == '_' ) {
+				int end = i;
+				while ( end < sql.length() && (Character.isLetterOrDigit( sql.charAt( end ) ) || sql.charAt( end ) == '_' || sql.charAt( end ) == '$') ) {
+					++end;
+				}
+
+				if ( !Character.isDigit( c ) ) {
+					identifiers.add( sql.substring( i, end ).toLowerCase( Locale.ENGLISH ) );
+				}
+				i = end - 1;
+			}
+		}
+
+		return identifiers;
+	}
+
+	private static boolean isQuote( char c ) {
+		return c == '\'' || c == '"' || c == '`' || c == '[';
+	}
+
+	/**
+	 * Returns the position of the quote closing the one at start,<br/>
+	 * a doubled quote inside is an escaped one. [ is closed by ] and has no escape.
+	 *
+	 * @param sql the SQL.
+	 * @param start the position of the opening quote.
+	 * @return the position, or the last one if unterminated.
+	 */
+	private static int skipQuoted( String sql, int start ) {
+		char quote = sql.charAt( start );
+		char end = quote == '[' ? ']' : quote;
+
+		for ( int i = start + 1; i < sql.length(); ++i ) {
+			if ( sql.charAt( i ) == end ) {
+				if ( end != ']' && i + 1 < sql.length() && sql.charAt( i + 1 ) == end ) {
+					++i;
+				} else {
+					return i;
+				}
+			}
+		}
+
+		return sql.length() - 1;
+	}
+
+	/**
+	 * Removes the quotes around an identifier and unescapes doubled ones, in lower case.
+	 *
+	 * @param quoted the identifier with its quotes.
+	 * @return the identifier.
+	 */
+	private static String unquote( String quoted ) {
+		char quote = quoted.charAt( 0 );
+		int end = quoted.length() > 1 && quoted.charAt( quoted.length() - 1 ) == (quote == '[' ? ']' : quote) ? quoted.length() - 1 : quoted.length();
+		String name = quoted.substring( 1, end );
+		if ( quote != '[' ) {
+			name = name.replace( new String( new char[] { quote, quote } ), String.valueOf( quote ) );
+		}
+
+		return name.toLowerCase( Locale.ENGLISH );
+	}
+
+	/**
+	 * Returns the position of the first c from start that is not quoted.
+	 *
+	 * @param sql the SQL.
+	 * @param c the char.
+	 * @param start the position to start at.
+	 * @return the position, or -1.
+	 */
+	private static int indexOfUnquoted( String sql, char c, int start ) {
+		for ( int i = start; i < sql.length(); ++i ) {
+			char at = sql.charAt( i );
+			if ( at == c ) {
+				return i;
+			} else if ( isQuote( at ) ) {
+				i = skipQuoted( sql, i );
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the position of the parenthesis closing the one at open, skipping quoted parts.
+	 *
+	 * @param sql the SQL.
+	 * @param open the position of the opening parenthesis.
+	 * @return the position, or -1.
+	 */
+	private static int closingParen( String sql, int open ) {
+		int depth = 0;
+		for ( int i = open; i < sql.length(); ++i ) {
+			char c = sql.charAt( i );
+			if ( isQuote( c ) ) {
+				i = skipQuoted( sql, i );
+			} else if ( c == '(' ) {
+				++depth;
+			} else if ( c == ')' && --depth == 0 ) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
 }
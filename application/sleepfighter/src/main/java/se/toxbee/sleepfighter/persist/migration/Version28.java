@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.migration;
+
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import se.toxbee.sleepfighter.persist.type.ChallengeParamsType;
+
+/**
+ * Migration to version 28.<br/>
+ * Folds the rows of challenge_params into one packed params blob per challenge_config.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class Version28 extends Migrater.Adapter {
+	@Override
+	public void applyMigration( MigrationUtil util ) throws MigrationException {
+		try {
+			util.table( "challenge_config" ).addColumn( "params", "BLOB" );
+			long start = System.nanoTime();
+
+			CompiledStatement update = util.compile( "UPDATE challenge_config SET params = ? WHERE id = ?", StatementType.UPDATE );
+			CompiledStatement select = util.compile( "SELECT challenge_id, key, value FROM challenge_params ORDER BY challenge_id", StatementType.SELECT );
+
+			// Rows are grouped per config, write each group when the next starts.
+			try {
+				DatabaseResults results = select.runQuery( null );
+
+				int configId = 0;
+				Map<String, String> params = null;
+				while ( results.next() ) {
+					int id = results.getInt( 0 );
+					if ( params != null && id != configId ) {
+						writeParams( update, configId, params );
+						params = null;
+					}
+
+					if ( params == null ) {
+						configId = id;
+						params = new HashMap<String, String>();
+					}
+
+					String value = results.getString( 2 );
+					params.put( results.getString( 1 ), results.wasNull( 2 ) ? null : value );
+				}
+
+				if ( params != null ) {
+					writeParams( update, configId, params );
+				}
+
+				results.close();
+			} finally {
+				select.close();
+				update.close();
+			}
+
+			// Configs without params.
+			CompiledStatement empty = util.compile( "UPDATE challenge_config SET params = ? WHERE params IS NULL", StatementType.UPDATE );
+			try {
+				empty.setObject( 0, ChallengeParamsType.encode( null ), SqlType.BYTE_ARRAY );
+				empty.runUpdate();
+			} finally {
+				empty.close();
+			}
+
+			util.execSQL( "DROP TABLE challenge_params" ).elapsed( start );
+		} catch ( SQLException e ) {
+			MigrationException.fail( e, this );
+		}
+	}
+
+	private static void writeParams( CompiledStatement update, int configId, Map<String, String> params ) throws SQLException {
+		update.setObject( 0, ChallengeParamsType.encode( params ), SqlType.BYTE_ARRAY );
+		update.setObject( 1, configId, SqlType.INTEGER );
+		update.runUpdate();
+	}
+}
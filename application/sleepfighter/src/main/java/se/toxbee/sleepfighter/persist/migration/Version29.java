@@ -0,0 +1,42 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.migration;
+
+import java.sql.SQLException;
+
+/**
+ * Migration to version 29.<br/>
+ * Adds the indexed next fire column of alarm, 0 marks every row as stale<br/>
+ * so it is computed on the first window query.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class Version29 extends Migrater.Adapter {
+	@Override
+	public void applyMigration( MigrationUtil util ) throws MigrationException {
+		try {
+			util.table( "alarm" )
+				.addColumn( "next_fire_millis", "BIGINT" )
+				.update( "next_fire_millis = 0", null );
+
+			util.execSQL( "CREATE INDEX alarm_next_fire_millis_idx ON alarm ( next_fire_millis )" );
+		} catch ( SQLException e ) {
+			MigrationException.fail( e, this );
+		}
+	}
+}
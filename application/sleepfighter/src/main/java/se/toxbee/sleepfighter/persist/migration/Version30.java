@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.migration;
+
+import java.sql.SQLException;
+
+import se.toxbee.sleepfighter.persist.migration.MigrationUtil.BlobRecoder;
+import se.toxbee.sleepfighter.persist.type.PreferenceValueType;
+
+/**
+ * Migration to version 30.<br/>
+ * Re-encodes the java serialized values of prefs with {@link PreferenceValueType}.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class Version30 extends Migrater.Adapter {
+	@Override
+	public void applyMigration( MigrationUtil util ) throws MigrationException {
+		try {
+			util.table( "prefs" ).recodeBlobs( "value", new BlobRecoder() {
+				@Override
+				public boolean isOld( byte[] blob ) {
+					return PreferenceValueType.isLegacy( blob );
+				}
+
+				@Override
+				public byte[] recode( byte[] blob ) {
+					return PreferenceValueType.encode( PreferenceValueType.decode( blob ) );
+				}
+			} );
+		} catch ( SQLException e ) {
+			MigrationException.fail( e, this );
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import com.google.common.base.Charsets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * <p>BlobCodec holds the primitives shared by the types stored as a {@link com.j256.ormlite.field.SqlType#BYTE_ARRAY}:<br/>
+ * unsigned and zigzag varints, big endian fixed width numbers, UTF-8 strings,<br/>
+ * and the java serialization stream they all replaced.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+final class BlobCodec {
+	// First bytes of a java serialization stream: STREAM_MAGIC.
+	private static final int LEGACY_MAGIC_0 = 0xAC;
+	private static final int LEGACY_MAGIC_1 = 0xED;
+
+	private BlobCodec() {
+	}
+
+	/**
+	 * Returns whether or not blob is a java serialization stream.
+	 *
+	 * @param blob the blob.
+	 * @return true if it is.
+	 */
+	static boolean isLegacy( byte[] blob ) {
+		return blob.length >= 2 && (blob[0] & 0xFF) == LEGACY_MAGIC_0 && (blob[1] & 0xFF) == LEGACY_MAGIC_1;
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one, so that small negatives make short varints.
+	 *
+	 * @param val the value.
+	 * @return the zigzag encoded value.
+	 */
+	static long zigzag( long val ) {
+		return (val << 1) ^ (val >> 63);
+	}
+
+	/**
+	 * Inverse of {@link #zigzag(long)}.
+	 *
+	 * @param val the zigzag encoded value.
+	 * @return the value.
+	 */
+	static long unzigzag( long val ) {
+		return (val >>> 1) ^ -(val & 1);
+	}
+
+	/**
+	 * Writes val as an unsigned varint, 7 bits per byte, least significant first.
+	 *
+	 * @param out the stream.
+	 * @param val the value.
+	 */
+	static void writeVarlong( ByteArrayOutputStream out, long val ) {
+		while ( (val & ~0x7FL) != 0 ) {
+			out.write( (int) ((val & 0x7F) | 0x80) );
+			val >>>= 7;
+		}
+		out.write( (int) val );
+	}
+
+	/**
+	 * Writes the lowest bytes of val, big endian.
+	 *
+	 * @param out the stream.
+	 * @param val the value.
+	 * @param bytes the number of bytes.
+	 */
+	static void writeFixed( ByteArrayOutputStream out, long val, int bytes ) {
+		for ( int shift = (bytes - 1) * 8; shift >= 0; shift -= 8 ) {
+			out.write( (int) (val >>> shift) & 0xFF );
+		}
+	}
+
+	/**
+	 * Writes the UTF-8 length of str plus offset as a varint, then the bytes.
+	 *
+	 * @param out the stream.
+	 * @param offset added to the length, to leave room for tokens below it.
+	 * @param str the string.
+	 */
+	static void writeString( ByteArrayOutputStream out, int offset, String str ) {
+		byte[] bytes = str.getBytes( Charsets.UTF_8 );
+		writeVarlong( out, bytes.length + offset );
+		out.write( bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Writes value as a java serialization stream.
+	 *
+	 * @param out the stream.
+	 * @param value the value.
+	 * @param what what is written, for the error message.
+	 * @throws IllegalArgumentException if value can't be serialized.
+	 */
+	static void serialize( ByteArrayOutputStream out, Serializable value, String what ) {
+		try {
+			ObjectOutputStream oos = new ObjectOutputStream( out );
+			oos.writeObject( value );
+			oos.close();
+		} catch ( IOException e ) {
+			throw new IllegalArgumentException( "Could not serialize " + what + ".", e );
+		}
+	}
+
+	/**
+	 * Reads a java serialization stream from blob, starting at offset.
+	 *
+	 * @param blob the blob.
+	 * @param offset the offset of the stream.
+	 * @param clazz the expected class.
+	 * @param what what is read, for the error message.
+	 * @return the object.
+	 * @throws IllegalArgumentException if blob does not hold an object of clazz.
+	 */
+	static <T> T deserialize( byte[] blob, int offset, Class<T> clazz, String what ) {
+		Object obj;
+		try {
+			ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( blob, offset, blob.length - offset ) );
+			try {
+				obj = ois.readObject();
+			} finally {
+				ois.close();
+			}
+		} catch ( IOException e ) {
+			throw new IllegalArgumentException( "Could not deserialize " + what + ".", e );
+		} catch ( ClassNotFoundException e ) {
+			throw new IllegalArgumentException( "Could not deserialize " + what + ".", e );
+		}
+
+		if ( !clazz.isInstance( obj ) ) {
+			throw new IllegalArgumentException( "Not a serialized " + what + ": " + obj );
+		}
+
+		return clazz.cast( obj );
+	}
+
+	/**
+	 * Reads what the write methods of {@link BlobCodec} write, bounds checked.
+	 */
+	static class Reader {
+		private final byte[] blob;
+		private final String what;
+		int pos;
+
+		/**
+		 * Constructs a reader at the start of blob.
+		 *
+		 * @param blob the blob.
+		 * @param what what is read, for the error messages.
+		 */
+		Reader( byte[] blob, String what ) {
+			this.blob = blob;
+			this.what = what;
+		}
+
+		/**
+		 * Returns the number of bytes left.
+		 *
+		 * @return the number of bytes.
+		 */
+		int remaining() {
+			return this.blob.length - this.pos;
+		}
+
+		/**
+		 * Throws if any byte is left.
+		 */
+		void end() {
+			if ( this.pos != this.blob.length ) {
+				throw new IllegalArgumentException( "Trailing bytes in " + this.what + "." );
+			}
+		}
+
+		int read() {
+			if ( this.pos >= this.blob.length ) {
+				throw new IllegalArgumentException( "Truncated " + this.what + "." );
+			}
+
+			return this.blob[this.pos++] & 0xFF;
+		}
+
+		long readVarlong() {
+			long val = 0;
+			for ( int shift = 0; shift < 64; shift += 7 ) {
+				int b = this.read();
+				val |= (long) (b & 0x7F) << shift;
+				if ( (b & 0x80) == 0 ) {
+					return val;
+				}
+			}
+
+			throw new IllegalArgumentException( "Malformed varint in " + this.what + "." );
+		}
+
+		int readVarint() {
+			long val = this.readVarlong();
+			if ( val < 0 || val > Integer.MAX_VALUE ) {
+				throw new IllegalArgumentException( "Malformed varint in " + this.what + "." );
+			}
+
+			return (int) val;
+		}
+
+		long readFixed( int bytes ) {
+			long val = 0;
+			for ( int i = 0; i < bytes; ++i ) {
+				val = (val << 8) | this.read();
+			}
+
+			return val;
+		}
+
+		String readString( int length ) {
+			if ( length < 0 || length > this.remaining() ) {
+				throw new IllegalArgumentException( "Truncated " + this.what + "." );
+			}
+
+			String str = new String( this.blob, this.pos, length, Charsets.UTF_8 );
+			this.pos += length;
+			return str;
+		}
+	}
+}
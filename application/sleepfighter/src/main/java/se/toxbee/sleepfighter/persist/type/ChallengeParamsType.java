@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Defines how to handle the parameters of a ChallengeConfig for OrmLite.<br/>
+ * Stored as one {@link SqlType#BYTE_ARRAY} per config, instead of a row per parameter.</p>
+ *
+ * <p>Format: a format byte, the entry count, then per entry (sorted on key) a key and a value.<br/>
+ * All numbers are unsigned varints. A key is its index + 1 in {@link #KEYS},<br/>
+ * or 0 followed by the length and UTF-8 bytes of the key when not in the dictionary.<br/>
+ * A value is 0 for null, 1 for "true", 2 for "false",<br/>
+ * otherwise its UTF-8 length + 3 followed by the bytes.</p>
+ *
+ * <p>Use with {@code persisterClass = ChallengeParamsType.class},<br/>
+ * it is not registered for {@link Map} in general.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class ChallengeParamsType extends BaseType {
+	private static final int FORMAT = 1;
+
+	/**
+	 * The key dictionary, append only: stored blobs refer to keys by index.
+	 */
+	private static final String[] KEYS = {
+		"hard_problems",
+		"color_confusion",
+		"color_saturation_confusion"
+	};
+
+	private static final int VALUE_NULL = 0;
+	private static final int VALUE_TRUE = 1;
+	private static final int VALUE_FALSE = 2;
+	private static final int VALUE_OFFSET = 3;
+
+	private static final String TRUE = Boolean.toString( true );
+	private static final String FALSE = Boolean.toString( false );
+
+	private static final ChallengeParamsType singleton = new ChallengeParamsType();
+
+	private ChallengeParamsType() {
+		super( SqlType.BYTE_ARRAY, Map.class );
+	}
+
+	public static ChallengeParamsType getSingleton() {
+		return singleton;
+	}
+
+	/**
+	 * Encodes parameters into a blob.
+	 *
+	 * @param params the parameters, null is encoded as no parameters.
+	 * @return the blob.
+	 */
+	public static byte[] encode( Map<String, String> params ) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream( 16 );
+		out.write( FORMAT );
+
+		if ( params == null ) {
+			BlobCodec.writeVarlong( out, 0 );
+			return out.toByteArray();
+		}
+
+		// Sorted, so that equal maps give equal blobs.
+		String[] keys = params.keySet().toArray( new String[params.size()] );
+		Arrays.sort( keys );
+
+		BlobCodec.writeVarlong( out, keys.length );
+		for ( String key : keys ) {
+			int code = keyCode( key );
+			BlobCodec.writeVarlong( out, code );
+			if ( code == 0 ) {
+				BlobCodec.writeString( out, 0, key );
+			}
+
+			String value = params.get( key );
+			if ( value == null ) {
+				BlobCodec.writeVarlong( out, VALUE_NULL );
+			} else if ( value.equals( TRUE ) ) {
+				BlobCodec.writeVarlong( out, VALUE_TRUE );
+			} else if ( value.equals( FALSE ) ) {
+				BlobCodec.writeVarlong( out, VALUE_FALSE );
+			} else {
+				BlobCodec.writeString( out, VALUE_OFFSET, value );
+			}
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes parameters from a blob.
+	 *
+	 * @param blob the blob, null or empty is decoded as no parameters.
+	 * @return the parameters, a mutable map.
+	 * @throws IllegalArgumentException if blob is malformed.
+	 */
+	public static Map<String, String> decode( byte[] blob ) {
+		if ( blob == null || blob.length == 0 ) {
+			return new HashMap<String, String>();
+		}
+
+		BlobCodec.Reader in = new BlobCodec.Reader( blob, "params" );
+		if ( in.read() != FORMAT ) {
+			throw new IllegalArgumentException( "Unknown params format: " + blob[0] );
+		}
+
+		int count = in.readVarint();
+		Map<String, String> params = new HashMap<String, String>( Math.max( 4, count * 2 ) );
+		for ( int i = 0; i < count; ++i ) {
+			int code = in.readVarint();
+			String key;
+			if ( code == 0 ) {
+				key = in.readString( in.readVarint() );
+			} else if ( code <= KEYS.length ) {
+				key = KEYS[code - 1];
+			} else {
+				throw new IllegalArgumentException( "Unknown params key: " + code );
+			}
+
+			int token = in.readVarint();
+			String value;
+			switch ( token ) {
+			case VALUE_NULL:
+				value = null;
+				break;
+			case VALUE_TRUE:
+				value = TRUE;
+				break;
+			case VALUE_FALSE:
+				value = FALSE;
+				break;
+			default:
+				value = in.readString( token - VALUE_OFFSET );
+			}
+
+			params.put( key, value );
+		}
+
+		return params;
+	}
+
+	private static int keyCode( String key ) {
+		for ( int i = 0; i < KEYS.length; ++i ) {
+			if ( KEYS[i].equals( key ) ) {
+				return i + 1;
+			}
+		}
+
+		return 0;
+	}
+
+	@Override
+	@SuppressWarnings( "unchecked" )
+	public Object javaToSqlArg( FieldType fieldType, Object javaObject ) throws SQLException {
+		return encode( (Map<String, String>) javaObject );
+	}
+
+	@Override
+	public Object sqlArgToJava( FieldType fieldType, Object sqlArg, int columnPos ) throws SQLException {
+		try {
+			return decode( (byte[]) sqlArg );
+		} catch ( IllegalArgumentException e ) {
+			throw new SQLException( "Could not decode params of " + fieldType, e );
+		}
+	}
+
+	@Override
+	public Object parseDefaultString( FieldType fieldType, String defaultStr ) throws SQLException {
+		throw new SQLException( "Params can not have a default value." );
+	}
+
+	@Override
+	public Object resultToSqlArg( FieldType fieldType, DatabaseResults results, int columnPos ) throws SQLException {
+		return results.getBytes( columnPos );
+	}
+
+	@Override
+	public boolean isArgumentHolderRequired() {
+		return true;
+	}
+
+	@Override
+	public boolean isAppropriateId() {
+		return false;
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import com.google.common.base.Charsets;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.sql.SQLException;
+
+/**
+ * <p>Defines how to handle the value of a preference for OrmLite.<br/>
+ * Stored as a {@link SqlType#BYTE_ARRAY}: a type tag and a compact payload,<br/>
+ * instead of a java serialization stream with its class header.</p>
+ *
+ * <p>Format: booleans are only the tag. Bytes are the tag and the byte.<br/>
+ * Shorts, ints and longs are zigzag varints, chars unsigned varints.<br/>
+ * Floats and doubles are their IEEE 754 bits, big endian. Strings are their UTF-8 bytes.<br/>
+ * Any other {@link Serializable} is java serialized after its tag.</p>
+ *
+ * <p>A java serialization stream, the format before this type, is still decoded.</p>
+ *
+ * <p>Use with {@code persisterClass = PreferenceValueType.class},<br/>
+ * it is not registered for {@link Serializable} in general.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class PreferenceValueType extends BaseType {
+	private static final int TAG_TRUE = 1;
+	private static final int TAG_FALSE = 2;
+	private static final int TAG_BYTE = 3;
+	private static final int TAG_SHORT = 4;
+	private static final int TAG_INT = 5;
+	private static final int TAG_LONG = 6;
+	private static final int TAG_CHAR = 7;
+	private static final int TAG_FLOAT = 8;
+	private static final int TAG_DOUBLE = 9;
+	private static final int TAG_STRING = 10;
+	private static final int TAG_SERIALIZED = 11;
+
+	private static final PreferenceValueType singleton = new PreferenceValueType();
+
+	private PreferenceValueType() {
+		super( SqlType.BYTE_ARRAY, Serializable.class );
+	}
+
+	public static PreferenceValueType getSingleton() {
+		return singleton;
+	}
+
+	/**
+	 * Encodes a value into a blob.
+	 *
+	 * @param value the value, not null.
+	 * @return the blob.
+	 */
+	public static byte[] encode( Serializable value ) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream( 10 );
+
+		if ( value instanceof Boolean ) {
+			out.write( (Boolean) value ? TAG_TRUE : TAG_FALSE );
+		} else if ( value instanceof Byte ) {
+			out.write( TAG_BYTE );
+			out.write( (Byte) value );
+		} else if ( value instanceof Short ) {
+			out.write( TAG_SHORT );
+			BlobCodec.writeVarlong( out, BlobCodec.zigzag( (Short) value ) );
+		} else if ( value instanceof Integer ) {
+			out.write( TAG_INT );
+			BlobCodec.writeVarlong( out, BlobCodec.zigzag( (Integer) value ) );
+		} else if ( value instanceof Long ) {
+			out.write( TAG_LONG );
+			BlobCodec.writeVarlong( out, BlobCodec.zigzag( (Long) value ) );
+		} else if ( value instanceof Character ) {
+			out.write( TAG_CHAR );
+			BlobCodec.writeVarlong( out, (Character) value );
+		} else if ( value instanceof Float ) {
+			out.write( TAG_FLOAT );
+			BlobCodec.writeFixed( out, Float.floatToIntBits( (Float) value ), 4 );
+		} else if ( value instanceof Double ) {
+			out.write( TAG_DOUBLE );
+			BlobCodec.writeFixed( out, Double.doubleToLongBits( (Double) value ), 8 );
+		} else if ( value instanceof String ) {
+			out.write( TAG_STRING );
+			byte[] bytes = ((String) value).getBytes( Charsets.UTF_8 );
+			out.write( bytes, 0, bytes.length );
+		} else if ( value != null ) {
+			out.write( TAG_SERIALIZED );
+			BlobCodec.serialize( out, value, "preference value" );
+		} else {
+			throw new IllegalArgumentException( "A preference value can't be null." );
+		}
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes a value from a blob.
+	 *
+	 * @param blob the blob.
+	 * @return the value.
+	 * @throws IllegalArgumentException if blob is malformed.
+	 */
+	public static Serializable decode( byte[] blob ) {
+		if ( blob == null || blob.length == 0 ) {
+			throw new IllegalArgumentException( "Empty preference value." );
+		}
+
+		int tag = blob[0] & 0xFF;
+		if ( isLegacy( blob ) ) {
+			return BlobCodec.deserialize( blob, 0, Serializable.class, "preference value" );
+		}
+
+		BlobCodec.Reader in = new BlobCodec.Reader( blob, "preference value" );
+		in.pos = 1;
+
+		Serializable value;
+		switch ( tag ) {
+		case TAG_TRUE:
+			return Boolean.TRUE;
+
+		case TAG_FALSE:
+			return Boolean.FALSE;
+
+		case TAG_BYTE:
+			value = (byte) in.read();
+			break;
+
+		case TAG_SHORT:
+			value = (short) BlobCodec.unzigzag( in.readVarlong() );
+			break;
+
+		case TAG_INT:
+			value = (int) BlobCodec.unzigzag( in.readVarlong() );
+			break;
+
+		case TAG_LONG:
+			value = BlobCodec.unzigzag( in.readVarlong() );
+			break;
+
+		case TAG_CHAR:
+			value = (char) in.readVarlong();
+			break;
+
+		case TAG_FLOAT:
+			value = Float.intBitsToFloat( (int) in.readFixed( 4 ) );
+			break;
+
+		case TAG_DOUBLE:
+			value = Double.longBitsToDouble( in.readFixed( 8 ) );
+			break;
+
+		case TAG_STRING:
+			return new String( blob, 1, blob.length - 1, Charsets.UTF_8 );
+
+		case TAG_SERIALIZED:
+			return BlobCodec.deserialize( blob, 1, Serializable.class, "preference value" );
+
+		default:
+			throw new IllegalArgumentException( "Unknown preference value tag: " + tag );
+		}
+
+		in.end();
+
+		return value;
+	}
+
+	/**
+	 * Returns whether or not blob is a bare java serialization stream, without a tag.
+	 *
+	 * @param blob the blob.
+	 * @return true if it is.
+	 */
+	public static boolean isLegacy( byte[] blob ) {
+		return BlobCodec.isLegacy( blob );
+	}
+
+	@Override
+	public Object javaToSqlArg( FieldType fieldType, Object javaObject ) throws SQLException {
+		try {
+			return encode( (Serializable) javaObject );
+		} catch ( IllegalArgumentException e ) {
+			throw new SQLException( "Could not encode value of " + fieldType, e );
+		}
+	}
+
+	@Override
+	public Object sqlArgToJava( FieldType fieldType, Object sqlArg, int columnPos ) throws SQLException {
+		try {
+			return decode( (byte[]) sqlArg );
+		} catch ( IllegalArgumentException e ) {
+			throw new SQLException( "Could not decode value of " + fieldType, e );
+		}
+	}
+
+	@Override
+	public Object parseDefaultString( FieldType fieldType, String defaultStr ) throws SQLException {
+		throw new SQLException( "Preference values can not have a default value." );
+	}
+
+	@Override
+	public Object resultToSqlArg( FieldType fieldType, DatabaseResults results, int columnPos ) throws SQLException {
+		return results.getBytes( columnPos );
+	}
+
+	@Override
+	public boolean isArgumentHolderRequired() {
+		return true;
+	}
+
+	@Override
+	public boolean isAppropriateId() {
+		return false;
+	}
+}
@@ -16,18 +16,58 @@
 
 package se.toxbee.sleepfighter.preference;
 
+import se.toxbee.sleepfighter.utils.prefs.PreferenceCache;
 import se.toxbee.sleepfighter.utils.prefs.PreferenceNode;
 
 /**
- * {@link LocationFilterPreferences} handles location-filter specific preferences.
+ * {@link LocationFilterPreferences} handles location-filter specific preferences.<br/>
+ * The values are read once into a {@link Snapshot} and read again only after a change.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
  * @since Dec 15, 2013
  */
 public class LocationFilterPreferences extends AppPreferenceNode {
+	/**
+	 * Snapshot holds the location-filter preferences as they were when read.
+	 */
+	private static final class Snapshot {
+		private final boolean enabled;
+		private final int firstRequestDT;
+		private final int requestRefreshInterval;
+		private final int minDistance;
+		private final int maxAllowedAge;
+
+		private Snapshot( PreferenceNode p ) {
+			this.enabled = p.getBoolean( "isEnabled", true );
+			this.firstRequestDT = p.getInt( "firstRequestDT", 15 );
+			this.requestRefreshInterval = p.getInt( "requestRefreshInterval", 1 );
+			this.minDistance = p.getInt( "minDistance", 100 );
+			this.maxAllowedAge = p.getInt( "maxAllowedAge", 20 );
+		}
+	}
+
+	private final PreferenceCache<Snapshot> cache;
+
 	protected LocationFilterPreferences( PreferenceNode b ) {
 		super( b, "locfilter" );
+
+		this.cache = new PreferenceCache<Snapshot>( p ) {
+			@Override
+			protected Snapshot load() {
+				return new Snapshot( p );
+			}
+		};
+	}
+
+	/**
+	 * Returns the cache of the preferences, for its counters:<br/>
+	 * {@link PreferenceCache#hitCount()} is the number of re-reads avoided.
+	 *
+	 * @return the cache.
+	 */
+	public PreferenceCache<?> cache() {
+		return this.cache;
 	}
 
 	/**
@@ -36,7 +76,7 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 * @return true if it is enabled.
 	 */
 	public boolean isEnabled() {
-		return p.getBoolean( "isEnabled", true );
+		return this.cache.get().enabled;
 	}
 
 	/**
@@ -46,6 +86,9 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 */
 	public void setEnabled( boolean enabled ) {
 		p.setBoolean( "isEnabled", enabled );
+
+		// Backends may tell of the change later.
+		this.cache.invalidate();
 	}
 
 	/**
@@ -54,7 +97,7 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 * @return the time in minutes, default is 15 atm.
 	 */
 	public int firstRequestDT() {
-		return p.getInt( "firstRequestDT", 15 );
+		return this.cache.get().firstRequestDT;
 	}
 
 	/**
@@ -63,7 +106,7 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 * @return the time in minutes, default is 1 atm.
 	 */
 	public int requestRefreshInterval() {
-		return p.getInt( "requestRefreshInterval", 1 );
+		return this.cache.get().requestRefreshInterval;
 	}
 
 	/**
@@ -72,7 +115,7 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 * @return the minimum distance in meters.
 	 */
 	public int minDistance() {
-		return p.getInt( "minDistance", 100 );
+		return this.cache.get().minDistance;
 	}
 
 	/**
@@ -82,6 +125,6 @@ public class LocationFilterPreferences extends AppPreferenceNode {
 	 * @return the minimum distance in meters.
 	 */
 	public int maxAllowedAge() {
-		return p.getInt( "maxAllowedAge", 20 );
+		return this.cache.get().maxAllowedAge;
 	}
 }
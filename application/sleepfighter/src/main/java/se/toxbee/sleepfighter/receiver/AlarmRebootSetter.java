@@ -20,16 +20,16 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
-import org.joda.time.DateTime;
-
 import se.toxbee.sleepfighter.app.SFApplication;
-import se.toxbee.sleepfighter.model.AlarmList;
 import se.toxbee.sleepfighter.model.AlarmTimestamp;
+import se.toxbee.sleepfighter.persist.PersistenceManager;
 import se.toxbee.sleepfighter.service.AlarmPlannerService;
 import se.toxbee.sleepfighter.service.AlarmPlannerService.Command;
 
 /**
- * AlarmRebootSetter is responsible for setting alarms on reboot.
+ * AlarmRebootSetter is responsible for setting alarms on reboot,<br/>
+ * and after the clock or timezone changed.<br/>
+ * Only the earliest alarm is loaded, not the whole list.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
@@ -39,9 +39,12 @@ public class AlarmRebootSetter extends BroadcastReceiver {
     @Override
     public void onReceive(Context context, Intent intent) {
     	SFApplication app = SFApplication.get();
-    	AlarmList list = app.getAlarms();
+    	PersistenceManager persister = app.getPersister();
+
+		// The clock may have changed since the next fire times were computed.
+		persister.refreshNextFire( true );
 
-		AlarmTimestamp at = list.getEarliestAlarm( new DateTime().getMillis() );
+		AlarmTimestamp at = persister.fetchEarliestAlarm();
 		if ( at != null ) {
     		AlarmPlannerService.call( app, Command.CREATE, at.getAlarm().getId() );
 		}
@@ -25,8 +25,6 @@ import android.content.IntentFilter;
 import android.util.Log;
 
 import net.engio.mbassy.listener.Handler;
-import net.engio.mbassy.listener.Listener;
-import net.engio.mbassy.listener.References;
 
 import org.joda.time.DateTime;
 import org.joda.time.MutableDateTime;
@@ -38,6 +36,7 @@ import se.toxbee.sleepfighter.app.SFApplication;
 import se.toxbee.sleepfighter.helper.AlarmIntentHelper;
 import se.toxbee.sleepfighter.helper.NotificationHelper;
 import se.toxbee.sleepfighter.model.Alarm;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
 import se.toxbee.sleepfighter.model.Alarm.ScheduleChangeEvent;
 import se.toxbee.sleepfighter.model.AlarmList;
 import se.toxbee.sleepfighter.model.AlarmTimestamp;
@@ -65,12 +64,13 @@ public class AlarmPlannerService extends IntentService {
 	 */
 	public static void register() {
 		if ( !isRegistered ) {
-			isRegistered = false;
+			isRegistered = true;
 
 			SFApplication app = SFApplication.get();
 			ChangeHandler handler = new ChangeHandler( app, app.getAlarms() );
 
-			app.getBus().subscribe( handler );
+			// Only reachable from the bus, so it must be pinned.
+			app.getBus().subscribePinned( handler );
 		}
 	}
 
@@ -81,7 +81,6 @@ public class AlarmPlannerService extends IntentService {
 	 * @version 1.0
 	 * @since Sep 26, 2013
 	 */
-	@Listener(references = References.Strong)
 	public static final class ChangeHandler {
 		private Context context;
 		private AlarmList list;
@@ -125,6 +124,18 @@ public class AlarmPlannerService extends IntentService {
 		public void handleDateChange( ScheduleChangeEvent evt ) {
 			this.handleChange();
 		}
+
+		/**
+		 * Handles a committed edit session in any alarm.
+		 *
+		 * @param evt the event.
+		 */
+		@Handler
+		public void handleChangeSet( ChangeSetEvent evt ) {
+			if ( evt.isScheduleChange() ) {
+				this.handleChange();
+			}
+		}
 	}
 
 	/**
@@ -16,12 +16,16 @@
 
 package se.toxbee.sleepfighter.utils.collect;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ForwardingIterator;
 import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ForwardingListIterator;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -119,6 +123,12 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 
 	private MessageBus<Message> bus;
 
+	/**
+	 * The number of times this list has been structurally modified or reordered,<br/>
+	 * views from {@link #subList(int, int)} fail fast when it changes under them.
+	 */
+	protected int modCount;
+
 	@Override
 	protected List<E> delegate() {
 		return this.delegate;
@@ -126,14 +136,20 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 
 	protected void setDelegate( List<E> delegate ) {
 		this.delegate = delegate;
+		this.modCount++;
 	}
 
 	/**
-	 * Sets the message bus, if not set, no events will be received.
+	 * Sets the message bus, if not set, no events will be received.<br/>
+	 * Setting the same bus again is a no-op, elements are not re-injected.
 	 *
 	 * @param bus the buss that receives events.
 	 */
 	public void setMessageBus( MessageBus<Message> bus ) {
+		if ( this.bus == bus ) {
+			return;
+		}
+
 		this.bus = bus;
 
 		// Inject bus to elements if wanted.
@@ -173,6 +189,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public boolean add( E element ) {
 		boolean retr = super.add( element );
+		this.modCount++;
 		this.fireEvent( new Event( Operation.ADD, -1, Collections.singleton( element ) ) );
 		return retr;
 	}
@@ -180,6 +197,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public boolean addAll( Collection<? extends E> collection ) {
 		boolean retr = super.addAll( collection );
+		this.modCount++;
 		this.fireEvent( new Event( Operation.ADD, -1, collection ) );
 		return retr;
 	}
@@ -187,12 +205,14 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public void add( int index, E element ) {
 		super.add( index, element );
+		this.modCount++;
 		this.fireEvent( new Event( Operation.ADD, index, Collections.singleton( element ) ) );
 	}
 
 	@Override
 	public boolean addAll( int index, Collection<? extends E> elements ) {
 		boolean retr = super.addAll( index, elements );
+		this.modCount++;
 		this.fireEvent( new Event( Operation.ADD, index, elements ) );
 		return retr;
 	}
@@ -200,12 +220,14 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public void clear() {
 		super.clear();
+		this.modCount++;
 		this.fireEvent( new Event( Operation.CLEAR, -1, null ) );
 	}
 
 	@Override
 	public boolean remove( Object object ) {
 		if ( super.remove( object ) ) {
+			this.modCount++;
 			this.fireEvent( new Event( Operation.REMOVE, -1, Collections.singleton( object ) ) );
 			return true;
 		} else {
@@ -216,6 +238,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public boolean removeAll( Collection<?> collection ) {
 		if ( super.remove( collection ) ) {
+			this.modCount++;
 			this.fireEvent( new Event( Operation.REMOVE, -1, collection ) );
 			return true;
 		} else {
@@ -226,6 +249,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public boolean retainAll( Collection<?> collection ) {
 		if ( super.retainAll( collection ) ) {
+			this.modCount++;
 			this.fireEvent( new Event( Operation.REMOVE, -1, collection ) );
 			return true;
 		} else {
@@ -243,14 +267,17 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	}
 
 	/**
-	 * Injects the message bus to element implementing {@link MessageBusHolder}.
+	 * Injects the message bus to element implementing {@link MessageBusHolder}.<br/>
+	 * Elements already holding the bus are skipped.
 	 *
 	 * @param elem the element.
 	 */
 	protected void injectBus( Object elem ) {
 		if ( elem instanceof MessageBusHolder ) {
 			MessageBusHolder mbh = (MessageBusHolder) elem;
-			mbh.setMessageBus( this.bus );
+			if ( mbh.getMessageBus() != this.bus ) {
+				mbh.setMessageBus( this.bus );
+			}
 		}
 	}
 
@@ -277,6 +304,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 	@Override
 	public E remove( int index ) {
 		E elem = super.remove( index );
+		this.modCount++;
 		this.fireEvent( new Event( Operation.REMOVE, index, Collections.singleton( elem ) ) );
 		return elem;
 	}
@@ -288,9 +316,142 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 		return old;
 	}
 
+	/**
+	 * Removes all elements in the range [fromIndex, toIndex) and fires a single {@link Operation#REMOVE} event<br/>
+	 * with the index fromIndex and the removed elements.
+	 *
+	 * @param fromIndex the index of the first element to remove.
+	 * @param toIndex the index after the last element to remove.
+	 */
+	protected void removeRange( int fromIndex, int toIndex ) {
+		if ( fromIndex == toIndex ) {
+			return;
+		}
+
+		List<E> range = this.delegate().subList( fromIndex, toIndex );
+		List<E> removed = new ArrayList<E>( range );
+		range.clear();
+		this.modCount++;
+
+		this.fireEvent( new Event( Operation.REMOVE, fromIndex, removed ) );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The returned list is a view backed by this list, it is neither bound to a bus nor does it inject it.<br/>
+	 * All mutations are forwarded to this list with an index offset and fire events from here.<br/>
+	 * Range operations such as <code>subList( a, b ).clear()</code> fire one event.</p>
+	 *
+	 * <p>Like the views of {@link java.util.ArrayList}, the view fails fast: any structural change<br/>
+	 * or reordering of this list not made through the view makes it throw {@link ConcurrentModificationException}.</p>
+	 */
 	@Override
 	public List<E> subList( int fromIndex, int toIndex ) {
-		return new ObservableList<E>( super.subList( fromIndex, toIndex ), this.bus );
+		Preconditions.checkPositionIndexes( fromIndex, toIndex, this.size() );
+		return new SubList( fromIndex, toIndex );
+	}
+
+	/**
+	 * SubList is a light-weight view of a range in the ObservableList.
+	 *
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	private class SubList extends AbstractList<E> {
+		private final int offset;
+		private int size;
+		private int expectedModCount;
+
+		public SubList( int fromIndex, int toIndex ) {
+			this.offset = fromIndex;
+			this.size = toIndex - fromIndex;
+			this.expectedModCount = ObservableList.this.modCount;
+		}
+
+		/**
+		 * Throws if the parent list was changed other than through this view.
+		 */
+		private void checkForComodification() {
+			if ( ObservableList.this.modCount != this.expectedModCount ) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		/**
+		 * Takes note of a structural change made through this view.
+		 *
+		 * @param delta the change in size.
+		 */
+		private void changed( int delta ) {
+			this.size += delta;
+			this.expectedModCount = ObservableList.this.modCount;
+			this.modCount++;
+		}
+
+		@Override
+		public E get( int index ) {
+			this.checkForComodification();
+			Preconditions.checkElementIndex( index, this.size );
+			return delegate().get( this.offset + index );
+		}
+
+		@Override
+		public int size() {
+			this.checkForComodification();
+			return this.size;
+		}
+
+		@Override
+		public E set( int index, E element ) {
+			this.checkForComodification();
+			Preconditions.checkElementIndex( index, this.size );
+			return ObservableList.this.set( this.offset + index, element );
+		}
+
+		@Override
+		public void add( int index, E element ) {
+			this.checkForComodification();
+			Preconditions.checkPositionIndex( index, this.size );
+			ObservableList.this.add( this.offset + index, element );
+			this.changed( 1 );
+		}
+
+		@Override
+		public boolean addAll( Collection<? extends E> elements ) {
+			return this.addAll( this.size, elements );
+		}
+
+		@Override
+		public boolean addAll( int index, Collection<? extends E> elements ) {
+			this.checkForComodification();
+			Preconditions.checkPositionIndex( index, this.size );
+
+			int count = elements.size();
+			if ( count == 0 ) {
+				return false;
+			}
+
+			ObservableList.this.addAll( this.offset + index, elements );
+			this.changed( count );
+			return true;
+		}
+
+		@Override
+		public E remove( int index ) {
+			this.checkForComodification();
+			Preconditions.checkElementIndex( index, this.size );
+			E elem = ObservableList.this.remove( this.offset + index );
+			this.changed( -1 );
+			return elem;
+		}
+
+		@Override
+		protected void removeRange( int fromIndex, int toIndex ) {
+			this.checkForComodification();
+			ObservableList.this.removeRange( this.offset + fromIndex, this.offset + toIndex );
+			this.changed( fromIndex - toIndex );
+		}
 	}
 
 	@Override
@@ -314,6 +475,7 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 			@Override
 			public void remove() {
 				super.remove();
+				modCount++;
 				fireEvent( new Event( Operation.REMOVE, -1, Collections.singleton( this.curr ) ) );
 			}
 		};
@@ -353,19 +515,21 @@ public class ObservableList<E> extends ForwardingList<E> implements MessageBusHo
 		@Override
 		public void remove() {
 			super.remove();
+			modCount++;
 			fireEvent( new Event( Operation.REMOVE, this.currIndex, Collections.singleton( this.curr ) ) );
 		}
 
 		@Override
 		public void add( E element ) {
 			super.add( element );
+			modCount++;
 			fireEvent( new Event( Operation.ADD, this.currIndex, Collections.singleton( element ) ) );
 		}
 
 		@Override
 		public void set( E element ) {
 			super.set( element );
-			fireEvent( new Event( Operation.UPDATE, this.currIndex, Collections.singleton( element ) ) );
+			fireEvent( new Event( Operation.UPDATE, this.currIndex, Collections.singleton( this.curr ) ) );
 			this.curr = element;
 		}
 	}
@@ -17,13 +17,37 @@
 package se.toxbee.sleepfighter.utils.message;
 
 import android.util.Log;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
 import net.engio.mbassy.IPublicationErrorHandler;
 import net.engio.mbassy.PublicationError;
 import net.engio.mbassy.bus.config.BusConfiguration;
 import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.listener.MessageHandlerMetadata;
+import net.engio.mbassy.listener.MessageListenerMetadata;
+import net.engio.mbassy.listener.MetadataReader;
+import net.engio.mbassy.subscription.Subscription;
 
 /**
- * The message bus for handling events.
+ * <p>The message bus for handling events.</p>
+ *
+ * <p>Listeners are held weakly (unless annotated with {@link net.engio.mbassy.listener.Listener}<br/>
+ * using strong references), so a listener that is never unsubscribed doesn't leak.<br/>
+ * Dead listeners are pruned when messages are dispatched to them.<br/>
+ * Listeners that are only reachable from the bus must be pinned via {@link #subscribePinned(Object)}.</p>
+ *
+ * <p>To find listeners that should have been unsubscribed, the number of live<br/>
+ * subscriptions per message type is available via {@link #subscriptionCounts()},<br/>
+ * and the peak of it, recorded on every subscribe, via {@link #peakSubscriptionCount(Class)}.</p>
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
@@ -46,6 +70,17 @@ public class MessageBus<T extends Message> extends MBassador<T> {
 		
 	}
 	
+	/** Listeners pinned with strong references, by identity. */
+	private final Set<Object> pinned = Collections.synchronizedSet( Sets.newSetFromMap( Maps.<Object, Boolean>newIdentityHashMap() ) );
+
+	/** All message types subscribed to or published so far -> peak subscription count. */
+	private final ConcurrentMap<Class<?>, Integer> peaks = Maps.newConcurrentMap();
+
+	/** Listener class -> the message types its handlers take. */
+	private final ConcurrentMap<Class<?>, List<Class<?>>> handledTypes = Maps.newConcurrentMap();
+
+	private final MetadataReader metadataReader = new MetadataReader();
+
 	/**
 	 * Constructs bus with default bus config.
 	 */
@@ -66,7 +101,144 @@ public class MessageBus<T extends Message> extends MBassador<T> {
 		super( config );
 	}
 
-	
+	/**
+	 * Subscribes a listener and keeps a strong reference to it<br/>
+	 * until it is unsubscribed via {@link #unsubscribe(Object)}.
+	 *
+	 * @param listener the listener.
+	 */
+	public void subscribePinned( Object listener ) {
+		this.pinned.add( listener );
+		this.subscribe( listener );
+	}
+
+	@Override
+	public void subscribe( Object listener ) {
+		super.subscribe( listener );
+
+		// Record the peak now, so that growth shows even if the counts are never polled in between.
+		List<Class<?>> handled = this.handledTypes( listener.getClass() );
+		Set<Class<?>> types = Sets.newHashSet( handled );
+		for ( Class<?> type : this.peaks.keySet() ) {
+			for ( Class<?> handledType : handled ) {
+				if ( handledType.isAssignableFrom( type ) ) {
+					types.add( type );
+					break;
+				}
+			}
+		}
+
+		for ( Class<?> type : types ) {
+			this.raisePeak( type, this.subscriptionCount( type ) );
+		}
+	}
+
+	@Override
+	public boolean unsubscribe( Object listener ) {
+		this.pinned.remove( listener );
+		return super.unsubscribe( listener );
+	}
+
+	@Override
+	public void publish( T message ) {
+		Class<?> type = message.getClass();
+		if ( !this.peaks.containsKey( type ) ) {
+			this.peaks.putIfAbsent( type, 0 );
+		}
+
+		super.publish( message );
+	}
+
+	/**
+	 * Returns the number of pinned listeners.
+	 *
+	 * @return the count.
+	 */
+	public int pinnedCount() {
+		return this.pinned.size();
+	}
+
+	/**
+	 * Returns the number of live subscriptions that messages of the given type are dispatched to.<br/>
+	 * This is what the cost of publishing a message of the type is proportional to.
+	 *
+	 * @param messageType the type of message.
+	 * @return the count.
+	 */
+	public int subscriptionCount( Class<?> messageType ) {
+		int count = 0;
+		for ( Subscription subscription : this.getSubscriptionsByMessageType( messageType ) ) {
+			count += subscription.size();
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the peak number of subscriptions of the given type, as recorded on every subscribe.
+	 *
+	 * @param messageType the type of message.
+	 * @return the peak count, or 0 if unknown.
+	 */
+	public int peakSubscriptionCount( Class<?> messageType ) {
+		Integer peak = this.peaks.get( messageType );
+		return peak == null ? 0 : peak;
+	}
+
+	/**
+	 * Returns the number of live subscriptions for each message type subscribed to or published so far.
+	 *
+	 * @return a map of message type -> count.
+	 */
+	public Map<Class<?>, Integer> subscriptionCounts() {
+		Map<Class<?>, Integer> counts = Maps.newHashMap();
+		for ( Class<?> type : this.peaks.keySet() ) {
+			counts.put( type, this.subscriptionCount( type ) );
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Raises the peak of a message type to count, if count is higher.
+	 *
+	 * @param messageType the type of message.
+	 * @param count the current count.
+	 */
+	private void raisePeak( Class<?> messageType, int count ) {
+		while ( true ) {
+			Integer peak = this.peaks.get( messageType );
+			if ( peak == null ) {
+				if ( this.peaks.putIfAbsent( messageType, count ) == null ) {
+					return;
+				}
+			} else if ( count <= peak || this.peaks.replace( messageType, peak, count ) ) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the message types the handlers of a listener class take, read once per class.
+	 *
+	 * @param listenerClass the class of the listener.
+	 * @return the message types.
+	 */
+	private List<Class<?>> handledTypes( Class<?> listenerClass ) {
+		List<Class<?>> types = this.handledTypes.get( listenerClass );
+		if ( types == null ) {
+			types = Lists.newArrayList();
+			MessageListenerMetadata<?> listener = this.metadataReader.getMessageListener( listenerClass );
+			for ( MessageHandlerMetadata handler : listener.getHandlers() ) {
+				types.addAll( handler.getHandledMessages() );
+			}
+
+			this.handledTypes.putIfAbsent( listenerClass, types );
+		}
+
+		return types;
+	}
+
 	/**
 	 * Creates a new message bus.
 	 *
@@ -22,7 +22,10 @@ import com.google.common.collect.Sets;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import se.toxbee.sleepfighter.utils.reflect.ROJava6Exception;
 import se.toxbee.sleepfighter.utils.reflect.ReflectionUtil;
@@ -36,6 +39,20 @@ import se.toxbee.sleepfighter.utils.string.StringUtils;
  * @since Dec 22, 2013
  */
 public abstract class IMigrationExecutor<U, T extends IMigration<U>> {
+	// Version -> migrater class, resolved once per executor class.
+	private static final ConcurrentMap<Class<?>, NavigableMap<Integer, Class<?>>> TABLES = new ConcurrentHashMap<Class<?>, NavigableMap<Integer, Class<?>>>();
+
+	/**
+	 * Returns whether or not any migration is needed from originVersion to targetVersion.<br/>
+	 * This is checked before any migrater is resolved, so it costs no reflection.
+	 *
+	 * @param originVersion the version we're coming from.
+	 * @param targetVersion the version we're moving to.
+	 * @return true if needed.
+	 */
+	public static boolean isNeeded( int originVersion, int targetVersion ) {
+		return originVersion < targetVersion;
+	}
 	/**
 	 * Returns the {@link Class} of the {@link IMigration} subinterface.
 	 *
@@ -69,6 +86,10 @@ public abstract class IMigrationExecutor<U, T extends IMigration<U>> {
 	 * @throws IMigrationException If there was some reflection-error or if a migration failed.
 	 */
 	protected void apply( U util, int originVersion, int targetVersion ) throws IMigrationException {
+		if ( !isNeeded( originVersion, targetVersion ) ) {
+			return;
+		}
+
 		// Find & apply all migraters.
 		for ( T m : this.assemble( originVersion, targetVersion ) ) {
 			m.applyMigration( util );
@@ -117,28 +138,51 @@ public abstract class IMigrationExecutor<U, T extends IMigration<U>> {
 	}
 
 	/**
-	 * Assembles any migraters available that are above originVersion.
+	 * Returns the table of version -> migrater class of all defined migrations.<br/>
+	 * It is resolved on first use, from the class names, and then shared by all executors of the class.
+	 *
+	 * @return the table.
+	 */
+	protected NavigableMap<Integer, Class<?>> table() {
+		NavigableMap<Integer, Class<?>> table = TABLES.get( this.getClass() );
+		if ( table != null ) {
+			return table;
+		}
+
+		table = Maps.newTreeMap();
+		for ( Class<?> _clazz : this.definedMigrations() ) {
+			// Skip the class if not a migrater.
+			Class<? extends T> clazz = ReflectionUtil.asSubclass( _clazz, this.clazz() );
+			if ( clazz != null ) {
+				table.put( StringUtils.getDigitsIn( _clazz.getSimpleName() ), clazz );
+			}
+		}
+
+		table = Maps.unmodifiableNavigableMap( table );
+		NavigableMap<Integer, Class<?>> prev = TABLES.putIfAbsent( this.getClass(), table );
+		return prev == null ? table : prev;
+	}
+
+	/**
+	 * Assembles any migraters available that are above originVersion, up to targetVersion.
 	 *
 	 * @param originVersion the version we're coming from.
+	 * @param targetVersion the version we're moving to.
 	 * @return a map of version -> migraters.
 	 * @throws IMigrationException If there was some reflection-error.
 	 */
 	protected Map<Integer, T> makeMigraters( int originVersion, int targetVersion ) throws IMigrationException {
 		Map<Integer, T> migs = Maps.newTreeMap( Ordering.natural() );
 
-		Class<?>[] clazzes = this.definedMigrations();
-		for ( Class<?> _clazz : clazzes ) {
-			// Skip the class if the version is not appropriate.
-			int version = StringUtils.getDigitsIn( _clazz.getSimpleName() );
-			if ( originVersion >= version ) {
-				continue;
-			}
+		if ( !isNeeded( originVersion, targetVersion ) ) {
+			return migs;
+		}
 
-			// Load the class, skip if not a migrater.
-			Class<? extends T> clazz = ReflectionUtil.asSubclass( _clazz, this.clazz() );
-			if ( clazz == null ) {
-				continue;
-			}
+		for ( Map.Entry<Integer, Class<?>> entry : this.table().subMap( originVersion, false, targetVersion, true ).entrySet() ) {
+			int version = entry.getKey();
+
+			@SuppressWarnings( "unchecked" )
+			Class<? extends T> clazz = (Class<? extends T>) entry.getValue();
 
 			// Time to construct the migrater.
 			T migrater;
@@ -151,7 +195,7 @@ public abstract class IMigrationExecutor<U, T extends IMigration<U>> {
 			int v = migrater.versionCode();
 
 			// Double check to ensure migrater version is appropriate.
-			if ( originVersion >= v ) {
+			if ( originVersion >= v || v > targetVersion ) {
 				continue;
 			}
 
@@ -161,4 +205,4 @@ public abstract class IMigrationExecutor<U, T extends IMigration<U>> {
 
 		return migs;
 	}
-}
\ No newline at end of file
+}
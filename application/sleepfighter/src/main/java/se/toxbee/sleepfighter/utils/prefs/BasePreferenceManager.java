@@ -16,14 +16,88 @@
 
 package se.toxbee.sleepfighter.utils.prefs;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+
+import se.toxbee.sleepfighter.utils.message.Message;
+import se.toxbee.sleepfighter.utils.message.MessageBus;
+import se.toxbee.sleepfighter.utils.message.MessageBusHolder;
+
 /**
- * {@link BasePreferenceManager} is the base class for all {@link PreferenceManager}s.
+ * {@link BasePreferenceManager} is the base class for all {@link PreferenceManager}s.<br/>
+ * Changes are published as {@link PreferenceChangeEvent}s on the message bus if set,<br/>
+ * and dispatched to the scoped listeners of {@link #_listeners()} either way.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
  * @since Dec 15, 2013
  */
-public abstract class BasePreferenceManager implements PreferenceManager {
+public abstract class BasePreferenceManager implements PreferenceManager, MessageBusHolder {
+	private final PreferenceListeners listeners = new PreferenceListeners( this );
+	private MessageBus<Message> bus;
+
+	@Override
+	public void setMessageBus( MessageBus<Message> bus ) {
+		if ( this.bus != null ) {
+			this.bus.unsubscribe( this.listeners );
+		}
+
+		this.bus = bus;
+
+		if ( this.bus != null ) {
+			// Only reachable from this manager and the bus.
+			this.bus.subscribePinned( this.listeners );
+		}
+	}
+
+	@Override
+	public MessageBus<Message> getMessageBus() {
+		return this.bus;
+	}
+
+	@Override
+	public PreferenceListeners _listeners() {
+		return this.listeners;
+	}
+
+	/**
+	 * Tells the listeners that key changed, via the message bus if set.
+	 *
+	 * @param key the full key of the changed preference.
+	 */
+	protected void changed( String key ) {
+		PreferenceChangeEvent event = new PreferenceChangeEvent( this, key );
+
+		MessageBus<Message> bus = this.bus;
+		if ( bus == null ) {
+			this.listeners.dispatch( event );
+		} else {
+			bus.publish( event );
+		}
+	}
+
+	@Override
+	public PreferenceNode addListener( String key, PreferenceChangeListener listener ) {
+		if ( key == null ) {
+			this.listeners.addPrefix( "", listener );
+		} else {
+			this.listeners.addKey( key, listener );
+		}
+		return this;
+	}
+
+	@Override
+	public PreferenceNode removeListener( String key, PreferenceChangeListener listener ) {
+		if ( key == null ) {
+			this.listeners.removePrefix( "", listener );
+		} else {
+			this.listeners.removeKey( key, listener );
+		}
+		return this;
+	}
+
 	@Override
 	public PreferenceNode apply( PreferenceEditCallback cb ) {
 		return this._apply( this, cb );
@@ -43,4 +117,32 @@ public abstract class BasePreferenceManager implements PreferenceManager {
 	public PreferenceNode parent() {
 		return this;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Returns the end of the range of keys starting with prefix in sorted order:<br/>
+	 * all such keys are in [prefix, end). Returns null if there is no such end,<br/>
+	 * i.e. if prefix is empty or ends with {@link Character#MAX_VALUE}.
+	 *
+	 * @param prefix the prefix.
+	 * @return the exclusive end, or null.
+	 */
+	protected static String prefixEnd( String prefix ) {
+		int last = prefix.length() - 1;
+		if ( last < 0 || prefix.charAt( last ) == Character.MAX_VALUE ) {
+			return null;
+		}
+
+		return prefix.substring( 0, last ) + (char) (prefix.charAt( last ) + 1);
+	}
+
+	@Override
+	public Map<String, ?> _getAll( final String prefix ) {
+		// Live map of all entries with keys starting with prefix.
+		return Maps.filterKeys( this.getAll(), new Predicate<String>() {
+			@Override
+			public boolean apply( String key ) {
+				return key.startsWith( prefix );
+			}
+		} );
+	}
+}
@@ -16,10 +16,12 @@
 
 package se.toxbee.sleepfighter.utils.prefs;
 
-import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * {@link ChildPreferenceNode} is the base class for all child/sub {@link PreferenceNode}s.
@@ -32,6 +34,9 @@ public class ChildPreferenceNode extends ForwardingPreferenceNode {
 	protected final String namespace;
 	protected final PreferenceManager root;
 
+	// Namespaced keys, so reads don't concatenate, keys are constants in code so this stays small.
+	private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<String, String>();
+
 	/**
 	 * Constructs the ChildPreferenceNode given the root and the child's namespace.
 	 *
@@ -70,7 +75,12 @@ public class ChildPreferenceNode extends ForwardingPreferenceNode {
 
 	@Override
 	protected String key( String key ) {
-		return this.namespace + key;
+		String full = this.keys.get( key );
+		if ( full == null ) {
+			full = this.namespace + key;
+			this.keys.put( key, full );
+		}
+		return full;
 	}
 
 	@Override
@@ -95,19 +105,35 @@ public class ChildPreferenceNode extends ForwardingPreferenceNode {
 	}
 
 	protected Map<String, ?> liveMap() {
-		// Live map of all entries with keys starting with namespace.
-		return Maps.filterKeys( super.getAll(), new Predicate<String>() {
-			@Override
-			public boolean apply( String key ) {
-				return key.startsWith( namespace );
-			}
-		} );
+		// Live map of all entries with keys starting with namespace, a range lookup if root is sorted.
+		return this.root._getAll( this.namespace );
 	}
 
 	@Override
 	public PreferenceNode clear() {
-		for ( String key : this.liveMap().keySet() ) {
-			this.remove( key );
+		// The keys are already namespaced, remove them directly in root.
+		for ( String key : Lists.newArrayList( this.liveMap().keySet() ) ) {
+			this.root.remove( key );
+		}
+		return this;
+	}
+
+	@Override
+	public PreferenceNode addListener( String key, PreferenceChangeListener listener ) {
+		if ( key == null ) {
+			this.root._listeners().addPrefix( this.namespace, listener );
+		} else {
+			this.root._listeners().addKey( this.key( key ), listener );
+		}
+		return this;
+	}
+
+	@Override
+	public PreferenceNode removeListener( String key, PreferenceChangeListener listener ) {
+		if ( key == null ) {
+			this.root._listeners().removePrefix( this.namespace, listener );
+		} else {
+			this.root._listeners().removeKey( this.key( key ), listener );
 		}
 		return this;
 	}
@@ -92,6 +92,18 @@ public abstract class ForwardingPreferenceNode implements PreferenceNode {
 		return delegate().isApplying();
 	}
 
+	@Override
+	public PreferenceNode addListener( String key, PreferenceChangeListener listener ) {
+		delegate().addListener( key == null ? null : key( key ), listener );
+		return this;
+	}
+
+	@Override
+	public PreferenceNode removeListener( String key, PreferenceChangeListener listener ) {
+		delegate().removeListener( key == null ? null : key( key ), listener );
+		return this;
+	}
+
 	@Override
 	public boolean getBoolean( String key, boolean def ) {
 		return delegate().getBoolean( key( key ), def );
@@ -16,26 +16,39 @@
 
 package se.toxbee.sleepfighter.utils.prefs;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 
 import java.io.Serializable;
 import java.util.Map;
+import java.util.NavigableMap;
 
 /**
  * {@link MapBasePreferenceManager} builds on {@link BasePreferenceManager}<br/>
- * using a {@link Map} as in-memory backend and provides hooks for persistence.
+ * using a {@link NavigableMap} as in-memory backend and provides hooks for persistence.<br/>
+ * The keys are sorted so that {@link #_getAll(String)}, the view of a child node, is a range.<br/>
+ * The values are {@link PreferenceSlot}s: primitives are read without boxing,<br/>
+ * and only a value not equal to the current one is written to backend and published.
  *
  * @author Centril<twingoow@gmail.com> / Mazdak Farrokhzad.
  * @version 1.0
  * @since Dec 14, 2013
  */
 public abstract class MapBasePreferenceManager extends BasePreferenceManager {
+	private static final Function<PreferenceSlot, Serializable> SLOT_VALUE = new Function<PreferenceSlot, Serializable>() {
+		@Override
+		public Serializable apply( PreferenceSlot slot ) {
+			return slot.value();
+		}
+	};
+
 	/**
 	 * Returns the in-memory map of entities.
 	 *
 	 * @return the map.
 	 */
-	protected abstract Map<String, Serializable> memory();
+	protected abstract NavigableMap<String, PreferenceSlot> memory();
 
 	/**
 	 * Sets the key-value pair in backend.
@@ -60,7 +73,7 @@ public abstract class MapBasePreferenceManager extends BasePreferenceManager {
 	 */
 	protected MapBasePreferenceManager load( Iterable<? extends SerializablePreference> prefs ) {
 		for ( SerializablePreference p : prefs ) {
-			this.memory().put( p.key(), p.value() );
+			this.memory().put( p.key(), PreferenceSlot.of( p.value() ) );
 		}
 
 		return this;
@@ -73,34 +86,68 @@ public abstract class MapBasePreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public Map<String, ?> getAll() {
-		return this.memory();
+		return Maps.transformValues( this.memory(), SLOT_VALUE );
+	}
+
+	@Override
+	public Map<String, ?> _getAll( String prefix ) {
+		if ( prefix.isEmpty() ) {
+			return this.getAll();
+		}
+
+		String end = prefixEnd( prefix );
+		if ( end == null ) {
+			return super._getAll( prefix );
+		}
+
+		return Maps.transformValues( this.memory().subMap( prefix, true, end, false ), SLOT_VALUE );
 	}
 
+	@SuppressWarnings( "unchecked" )
 	public <U extends Serializable> U set( String key, U value ) {
-		@SuppressWarnings( "unchecked" )
-		U old = (U) this.memory().put( Preconditions.checkNotNull( key ), value );
+		Preconditions.checkNotNull( key );
 
-		// Write to persistence if changed.
-		if ( old != value ) {
-			if ( value == null ) {
+		PreferenceSlot old;
+		if ( value == null ) {
+			old = this.memory().remove( key );
+			if ( old != null ) {
 				this.backendRemove( key );
-			} else {
-				this.backendSet( key, value );
+				this.changed( key );
 			}
+		} else {
+			old = this.write( key, PreferenceSlot.of( value ) );
+		}
+
+		return old == null ? null : (U) old.value();
+	}
+
+	/**
+	 * Puts slot in memory, and writes it to persistence and tells listeners if changed.
+	 *
+	 * @param key the key.
+	 * @param slot the new slot.
+	 * @return the old slot, or null.
+	 */
+	private PreferenceSlot write( String key, PreferenceSlot slot ) {
+		PreferenceSlot old = this.memory().put( key, slot );
+		if ( !slot.equals( old ) ) {
+			this.backendSet( key, slot.value() );
+			this.changed( key );
 		}
 
 		return old;
 	}
 
+	@SuppressWarnings( "unchecked" )
 	public <U extends Serializable> U get( String key, U def ) {
-		@SuppressWarnings( "unchecked" )
-		U val = (U) this.memory().get( key );
-		return val == null ? def : val;
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : (U) slot.value();
 	}
 
 	@Override
 	public boolean getBoolean( String key, boolean def ) {
-		return this.get( key, def );
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : slot.getBoolean();
 	}
 
 	@Override
@@ -115,22 +162,26 @@ public abstract class MapBasePreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public int getInt( String key, int def ) {
-		return this.get( key, def );
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : slot.getInt();
 	}
 
 	@Override
 	public long getLong( String key, long def ) {
-		return this.get( key, def );
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : slot.getLong();
 	}
 
 	@Override
 	public float getFloat( String key, float def ) {
-		return this.get( key, def );
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : slot.getFloat();
 	}
 
 	@Override
 	public double getDouble( String key, double def ) {
-		return this.get( key, def );
+		PreferenceSlot slot = this.memory().get( key );
+		return slot == null ? def : slot.getDouble();
 	}
 
 	@Override
@@ -145,7 +196,11 @@ public abstract class MapBasePreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public PreferenceNode setBoolean( String key, boolean val ) {
-		return this.setc( key, val );
+		PreferenceSlot old = this.memory().get( Preconditions.checkNotNull( key ) );
+		if ( old == null || !old.isBoolean( val ) ) {
+			this.write( key, PreferenceSlot.ofBoolean( val ) );
+		}
+		return this;
 	}
 
 	@Override
@@ -160,22 +215,38 @@ public abstract class MapBasePreferenceManager extends BasePreferenceManager {
 
 	@Override
 	public PreferenceNode setInt( String key, int val ) {
-		return this.setc( key, val );
+		PreferenceSlot old = this.memory().get( Preconditions.checkNotNull( key ) );
+		if ( old == null || !old.isInt( val ) ) {
+			this.write( key, PreferenceSlot.ofInt( val ) );
+		}
+		return this;
 	}
 
 	@Override
 	public PreferenceNode setLong( String key, long val ) {
-		return this.setc( key, val );
+		PreferenceSlot old = this.memory().get( Preconditions.checkNotNull( key ) );
+		if ( old == null || !old.isLong( val ) ) {
+			this.write( key, PreferenceSlot.ofLong( val ) );
+		}
+		return this;
 	}
 
 	@Override
 	public PreferenceNode setFloat( String key, float val ) {
-		return this.setc( key, val );
+		PreferenceSlot old = this.memory().get( Preconditions.checkNotNull( key ) );
+		if ( old == null || !old.isFloat( val ) ) {
+			this.write( key, PreferenceSlot.ofFloat( val ) );
+		}
+		return this;
 	}
 
 	@Override
 	public PreferenceNode setDouble( String key, double val ) {
-		return this.setc( key, val );
+		PreferenceSlot old = this.memory().get( Preconditions.checkNotNull( key ) );
+		if ( old == null || !old.isDouble( val ) ) {
+			this.write( key, PreferenceSlot.ofDouble( val ) );
+		}
+		return this;
 	}
 
 	@Override
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.toxbee.sleepfighter.utils.prefs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.toxbee.sleepfighter.utils.prefs.PreferenceNode.PreferenceChangeListener;
+
+/**
+ * <p>PreferenceCache caches a value derived from the preferences of a node,<br/>
+ * and invalidates it when any of them change.</p>
+ *
+ * <p>{@link #hitCount()} is the number of re-reads of the preferences avoided.</p>
+ *
+ * @param <T> the type of the derived value.
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public abstract class PreferenceCache<T> implements PreferenceChangeListener {
+	private T value;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+
+	/**
+	 * Constructs the cache, listening to all changes in node.
+	 *
+	 * @param node the node the value is derived from.
+	 */
+	public PreferenceCache( PreferenceNode node ) {
+		node.addListener( null, this );
+	}
+
+	/**
+	 * Derives the value from the preferences.
+	 *
+	 * @return the value, not null.
+	 */
+	protected abstract T load();
+
+	/**
+	 * Returns the value, loading it if it was invalidated.
+	 *
+	 * @return the value.
+	 */
+	public synchronized T get() {
+		if ( this.value == null ) {
+			this.loads.incrementAndGet();
+			this.value = this.load();
+		} else {
+			this.hits.incrementAndGet();
+		}
+
+		return this.value;
+	}
+
+	/**
+	 * Invalidates the value, it is loaded again on next {@link #get()}.
+	 */
+	public synchronized void invalidate() {
+		this.value = null;
+	}
+
+	@Override
+	public void preferenceChanged( PreferenceChangeEvent event ) {
+		this.invalidate();
+	}
+
+	/**
+	 * Returns the number of {@link #get()}s served from the cache.
+	 *
+	 * @return the count.
+	 */
+	public long hitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Returns the number of {@link #get()}s that loaded the value.
+	 *
+	 * @return the count.
+	 */
+	public long loadCount() {
+		return this.loads.get();
+	}
+}
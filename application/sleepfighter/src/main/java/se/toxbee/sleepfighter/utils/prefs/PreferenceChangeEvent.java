@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.toxbee.sleepfighter.utils.prefs;
+
+import se.toxbee.sleepfighter.utils.message.Message;
+
+/**
+ * PreferenceChangeEvent is published when the value of a preference changes, or it is removed.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class PreferenceChangeEvent implements Message {
+	private final PreferenceManager root;
+	private final String key;
+
+	/**
+	 * Constructs a PreferenceChangeEvent.
+	 *
+	 * @param root the root of the changed preference.
+	 * @param key the full key of the changed preference.
+	 */
+	public PreferenceChangeEvent( PreferenceManager root, String key ) {
+		this.root = root;
+		this.key = key;
+	}
+
+	/**
+	 * Returns the root node the preference changed in.
+	 *
+	 * @return the root.
+	 */
+	public PreferenceManager getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * Returns the full key, including namespaces, of the changed preference.
+	 *
+	 * @return the key.
+	 */
+	public String getKey() {
+		return this.key;
+	}
+}
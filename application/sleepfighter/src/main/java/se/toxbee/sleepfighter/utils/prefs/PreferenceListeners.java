@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package se.toxbee.sleepfighter.utils.prefs;
+
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.engio.mbassy.listener.Handler;
+
+import se.toxbee.sleepfighter.utils.prefs.PreferenceNode.PreferenceChangeListener;
+
+/**
+ * <p>PreferenceListeners holds the key- and prefix-scoped {@link PreferenceChangeListener}s<br/>
+ * of a {@link PreferenceManager} and dispatches its {@link PreferenceChangeEvent}s to them.</p>
+ *
+ * <p>A prefix is a namespace ending with ".", or "" for all keys.<br/>
+ * Dispatching looks up the key and each of its namespaces, so it costs the depth of the key,<br/>
+ * not the number of listeners.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public final class PreferenceListeners {
+	private final PreferenceManager root;
+
+	private final ConcurrentMap<String, List<PreferenceChangeListener>> keys = Maps.newConcurrentMap();
+	private final ConcurrentMap<String, List<PreferenceChangeListener>> prefixes = Maps.newConcurrentMap();
+
+	private final AtomicLong dispatched = new AtomicLong();
+
+	/**
+	 * Constructs the listeners of root.
+	 *
+	 * @param root the manager whose events are dispatched.
+	 */
+	public PreferenceListeners( PreferenceManager root ) {
+		this.root = root;
+	}
+
+	/**
+	 * Adds a listener for changes of key.
+	 *
+	 * @param key the full key.
+	 * @param listener the listener.
+	 */
+	public void addKey( String key, PreferenceChangeListener listener ) {
+		scope( this.keys, key ).add( listener );
+	}
+
+	/**
+	 * Adds a listener for changes of all keys starting with prefix.
+	 *
+	 * @param prefix the prefix, a namespace ending with "." or "".
+	 * @param listener the listener.
+	 */
+	public void addPrefix( String prefix, PreferenceChangeListener listener ) {
+		scope( this.prefixes, prefix ).add( listener );
+	}
+
+	/**
+	 * Removes a listener added with {@link #addKey(String, PreferenceChangeListener)}.
+	 *
+	 * @param key the full key.
+	 * @param listener the listener.
+	 */
+	public void removeKey( String key, PreferenceChangeListener listener ) {
+		remove( this.keys, key, listener );
+	}
+
+	/**
+	 * Removes a listener added with {@link #addPrefix(String, PreferenceChangeListener)}.
+	 *
+	 * @param prefix the prefix.
+	 * @param listener the listener.
+	 */
+	public void removePrefix( String prefix, PreferenceChangeListener listener ) {
+		remove( this.prefixes, prefix, listener );
+	}
+
+	private static List<PreferenceChangeListener> scope( ConcurrentMap<String, List<PreferenceChangeListener>> map, String scope ) {
+		List<PreferenceChangeListener> list = map.get( scope );
+		if ( list == null ) {
+			List<PreferenceChangeListener> created = new CopyOnWriteArrayList<PreferenceChangeListener>();
+			list = map.putIfAbsent( scope, created );
+			if ( list == null ) {
+				list = created;
+			}
+		}
+		return list;
+	}
+
+	private static void remove( ConcurrentMap<String, List<PreferenceChangeListener>> map, String scope, PreferenceChangeListener listener ) {
+		List<PreferenceChangeListener> list = map.get( scope );
+		if ( list != null ) {
+			list.remove( listener );
+		}
+	}
+
+	/**
+	 * Returns the number of events dispatched to a listener.
+	 *
+	 * @return the count.
+	 */
+	public long dispatchCount() {
+		return this.dispatched.get();
+	}
+
+	/**
+	 * Handles an event from the message bus, if it is of {@link #root}.
+	 *
+	 * @param event the event.
+	 */
+	@Handler
+	public void handleChange( PreferenceChangeEvent event ) {
+		if ( event.getRoot() == this.root ) {
+			this.dispatch( event );
+		}
+	}
+
+	/**
+	 * Dispatches event to the listeners of its key and of each of its namespaces.
+	 *
+	 * @param event the event.
+	 */
+	public void dispatch( PreferenceChangeEvent event ) {
+		String key = event.getKey();
+		this.dispatch( this.keys.get( key ), event );
+
+		if ( this.prefixes.isEmpty() ) {
+			return;
+		}
+
+		this.dispatch( this.prefixes.get( "" ), event );
+		for ( int i = key.indexOf( '.' ); i >= 0; i = key.indexOf( '.', i + 1 ) ) {
+			this.dispatch( this.prefixes.get( key.substring( 0, i + 1 ) ), event );
+		}
+	}
+
+	private void dispatch( List<PreferenceChangeListener> listeners, PreferenceChangeEvent event ) {
+		if ( listeners == null ) {
+			return;
+		}
+
+		for ( PreferenceChangeListener listener : listeners ) {
+			this.dispatched.incrementAndGet();
+			listener.preferenceChanged( event );
+		}
+	}
+}
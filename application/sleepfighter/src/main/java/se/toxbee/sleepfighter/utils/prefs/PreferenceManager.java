@@ -16,6 +16,8 @@
 
 package se.toxbee.sleepfighter.utils.prefs;
 
+import java.util.Map;
+
 /**
  * <p>{@link PreferenceManager} is the<br/>
  * root node for {@link PreferenceNode}s.</p>
@@ -45,4 +47,22 @@ public interface PreferenceManager extends PreferenceNode {
 	 * @return this.
 	 */
 	public boolean _applyForResult( PreferenceNode node, PreferenceEditCallback cb );
+
+	/**
+	 * <strong>NOTE: Only for children of {@link PreferenceManager} and internal use.</strong>
+	 *
+	 * <p>Returns all key-value pairs with keys starting with prefix as a map.<br/>
+	 * Data consistency is not guaranteed when the map is modified.</p>
+	 *
+	 * @param prefix the prefix of the keys, e.g. a namespace.
+	 * @return the map.
+	 */
+	public Map<String, ?> _getAll( String prefix );
+
+	/**
+	 * <strong>NOTE: Only for children of {@link PreferenceManager} and internal use.</strong>
+	 *
+	 * @return the change listeners of this root.
+	 */
+	public PreferenceListeners _listeners();
 }
@@ -50,6 +50,22 @@ public interface PreferenceNode extends PrimitiveDefaultGetters<String>,
 		public void editPreference( PreferenceNode pref );
 	}
 
+	/**
+	 * {@link PreferenceChangeListener}s are told when a preference they are scoped to changes,<br/>
+	 * see {@link PreferenceNode#addListener(String, PreferenceChangeListener)}.
+	 *
+	 * @version 1.0
+	 * @since Oct 19, 2026
+	 */
+	public static interface PreferenceChangeListener {
+		/**
+		 * Called when a preference changed or was removed.
+		 *
+		 * @param event the event, with the full key.
+		 */
+		public void preferenceChanged( PreferenceChangeEvent event );
+	}
+
 	/* --------------------------------
 	 * Hierarchy logic.
 	 * --------------------------------
@@ -124,6 +140,31 @@ public interface PreferenceNode extends PrimitiveDefaultGetters<String>,
 	 */
 	public <U extends Serializable> U get( String key, U def );
 
+	/* --------------------------------
+	 * Change listeners.
+	 * --------------------------------
+	 */
+
+	/**
+	 * Adds a listener for changes of key in this node,<br/>
+	 * or of all keys in this node and its sub nodes if key is null.<br/>
+	 * The listener is held until removed, and is told of changes only, not of equal values set.
+	 *
+	 * @param key the key, or null.
+	 * @param listener the listener.
+	 * @return this.
+	 */
+	public PreferenceNode addListener( String key, PreferenceChangeListener listener );
+
+	/**
+	 * Removes a listener added with {@link #addListener(String, PreferenceChangeListener)}.
+	 *
+	 * @param key the key, or null.
+	 * @param listener the listener.
+	 * @return this.
+	 */
+	public PreferenceNode removeListener( String key, PreferenceChangeListener listener );
+
 	/* --------------------------------
 	 * Transaction logic.
 	 * --------------------------------
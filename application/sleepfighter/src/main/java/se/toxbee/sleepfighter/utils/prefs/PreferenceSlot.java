@@ -0,0 +1,239 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.prefs;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+
+import java.io.Serializable;
+
+/**
+ * <p>{@link PreferenceSlot} is an immutable in-memory preference value.<br/>
+ * booleans, ints, longs, floats and doubles are kept unboxed in a primitive slot,<br/>
+ * so reading them does not allocate. Other values are kept as they are.</p>
+ *
+ * <p>Slots compare by value, floats and doubles by their bits.</p>
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public final class PreferenceSlot {
+	private static final int BOOLEAN = 1;
+	private static final int INT = 2;
+	private static final int LONG = 3;
+	private static final int FLOAT = 4;
+	private static final int DOUBLE = 5;
+	private static final int OBJECT = 6;
+
+	private static final PreferenceSlot TRUE = new PreferenceSlot( BOOLEAN, 1, null );
+	private static final PreferenceSlot FALSE = new PreferenceSlot( BOOLEAN, 0, null );
+
+	private final int kind;
+	private final long bits;
+	private final Serializable object;
+
+	private PreferenceSlot( int kind, long bits, Serializable object ) {
+		this.kind = kind;
+		this.bits = bits;
+		this.object = object;
+	}
+
+	/**
+	 * Returns the slot of a value, unboxing it if it has a primitive slot.
+	 *
+	 * @param value the value, not null.
+	 * @return the slot.
+	 */
+	public static PreferenceSlot of( Serializable value ) {
+		Preconditions.checkNotNull( value );
+
+		if ( value instanceof Boolean ) {
+			return ofBoolean( (Boolean) value );
+		} else if ( value instanceof Integer ) {
+			return ofInt( (Integer) value );
+		} else if ( value instanceof Long ) {
+			return ofLong( (Long) value );
+		} else if ( value instanceof Float ) {
+			return ofFloat( (Float) value );
+		} else if ( value instanceof Double ) {
+			return ofDouble( (Double) value );
+		} else {
+			return new PreferenceSlot( OBJECT, 0, value );
+		}
+	}
+
+	public static PreferenceSlot ofBoolean( boolean val ) {
+		return val ? TRUE : FALSE;
+	}
+
+	public static PreferenceSlot ofInt( int val ) {
+		return new PreferenceSlot( INT, val, null );
+	}
+
+	public static PreferenceSlot ofLong( long val ) {
+		return new PreferenceSlot( LONG, val, null );
+	}
+
+	public static PreferenceSlot ofFloat( float val ) {
+		return new PreferenceSlot( FLOAT, Float.floatToIntBits( val ), null );
+	}
+
+	public static PreferenceSlot ofDouble( double val ) {
+		return new PreferenceSlot( DOUBLE, Double.doubleToLongBits( val ), null );
+	}
+
+	/* --------------------------------
+	 * Comparison without a slot.
+	 * --------------------------------
+	 */
+
+	public boolean isBoolean( boolean val ) {
+		return this.kind == BOOLEAN && this.bits == (val ? 1 : 0);
+	}
+
+	public boolean isInt( int val ) {
+		return this.kind == INT && this.bits == val;
+	}
+
+	public boolean isLong( long val ) {
+		return this.kind == LONG && this.bits == val;
+	}
+
+	public boolean isFloat( float val ) {
+		return this.kind == FLOAT && this.bits == Float.floatToIntBits( val );
+	}
+
+	public boolean isDouble( double val ) {
+		return this.kind == DOUBLE && this.bits == Double.doubleToLongBits( val );
+	}
+
+	/* --------------------------------
+	 * Unboxed getters.
+	 * --------------------------------
+	 */
+
+	/**
+	 * Returns the value as a boolean.
+	 *
+	 * @return the value.
+	 * @throws ClassCastException if the value is not a boolean.
+	 */
+	public boolean getBoolean() {
+		this.check( BOOLEAN, Boolean.class );
+		return this.bits != 0;
+	}
+
+	/**
+	 * Returns the value as an int.
+	 *
+	 * @return the value.
+	 * @throws ClassCastException if the value is not an int.
+	 */
+	public int getInt() {
+		this.check( INT, Integer.class );
+		return (int) this.bits;
+	}
+
+	/**
+	 * Returns the value as a long.
+	 *
+	 * @return the value.
+	 * @throws ClassCastException if the value is not a long.
+	 */
+	public long getLong() {
+		this.check( LONG, Long.class );
+		return this.bits;
+	}
+
+	/**
+	 * Returns the value as a float.
+	 *
+	 * @return the value.
+	 * @throws ClassCastException if the value is not a float.
+	 */
+	public float getFloat() {
+		this.check( FLOAT, Float.class );
+		return Float.intBitsToFloat( (int) this.bits );
+	}
+
+	/**
+	 * Returns the value as a double.
+	 *
+	 * @return the value.
+	 * @throws ClassCastException if the value is not a double.
+	 */
+	public double getDouble() {
+		this.check( DOUBLE, Double.class );
+		return Double.longBitsToDouble( this.bits );
+	}
+
+	private void check( int kind, Class<?> clazz ) {
+		if ( this.kind != kind ) {
+			throw new ClassCastException( this.value().getClass().getName() + " cannot be cast to " + clazz.getName() );
+		}
+	}
+
+	/**
+	 * Returns the value, boxed if in a primitive slot.
+	 *
+	 * @return the value.
+	 */
+	public Serializable value() {
+		switch ( this.kind ) {
+		case BOOLEAN:
+			return this.getBoolean();
+
+		case INT:
+			return this.getInt();
+
+		case LONG:
+			return this.getLong();
+
+		case FLOAT:
+			return this.getFloat();
+
+		case DOUBLE:
+			return this.getDouble();
+
+		default:
+			return this.object;
+		}
+	}
+
+	@Override
+	public boolean equals( Object obj ) {
+		if ( this == obj ) {
+			return true;
+		}
+		if ( obj == null || this.getClass() != obj.getClass() ) {
+			return false;
+		}
+
+		PreferenceSlot rhs = (PreferenceSlot) obj;
+		return this.kind == rhs.kind && this.bits == rhs.bits && Objects.equal( this.object, rhs.object );
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode( this.kind, this.bits, this.object );
+	}
+
+	@Override
+	public String toString() {
+		return String.valueOf( this.value() );
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import net.engio.mbassy.listener.Handler;
+
+import org.junit.Test;
+
+import se.toxbee.sleepfighter.model.Alarm.AlarmEvent;
+import se.toxbee.sleepfighter.model.Alarm.ChangeSetEvent;
+import se.toxbee.sleepfighter.model.Alarm.Field;
+import se.toxbee.sleepfighter.model.time.ExactTime;
+import se.toxbee.sleepfighter.utils.message.Message;
+import se.toxbee.sleepfighter.utils.message.MessageBus;
+
+public class AlarmTest {
+	public static class Recorder {
+		private final List<AlarmEvent> events = new ArrayList<AlarmEvent>();
+		private final List<ChangeSetEvent> changeSets = new ArrayList<ChangeSetEvent>();
+
+		@Handler
+		public void handleChange( AlarmEvent evt ) {
+			this.events.add( evt );
+		}
+
+		@Handler
+		public void handleChangeSet( ChangeSetEvent evt ) {
+			this.changeSets.add( evt );
+		}
+	}
+
+	private static Recorder subscribe( Alarm alarm ) {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		alarm.setMessageBus( bus );
+
+		Recorder recorder = new Recorder();
+		bus.subscribe( recorder );
+		return recorder;
+	}
+
+	private static Alarm makeAlarm() {
+		Alarm alarm = new Alarm();
+		alarm.setTime( new ExactTime( 7, 30 ) );
+		alarm.setName( "before" );
+		return alarm;
+	}
+
+	@Test
+	public void testNoSession() {
+		Alarm alarm = makeAlarm();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.setName( "after" );
+		alarm.setActivated( !alarm.isActivated() );
+
+		assertEquals( 2, recorder.events.size() );
+		assertTrue( recorder.changeSets.isEmpty() );
+	}
+
+	@Test
+	public void testChangeSet() {
+		Alarm alarm = makeAlarm();
+		boolean activated = alarm.isActivated();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.beginEdit();
+		assertTrue( alarm.isEditing() );
+
+		alarm.setName( "middle" );
+		alarm.setName( "after" );
+		alarm.setTime( new ExactTime( 8, 0 ) );
+		alarm.setActivated( !activated );
+
+		// Nothing is published until committed.
+		assertTrue( recorder.events.isEmpty() );
+		assertTrue( recorder.changeSets.isEmpty() );
+
+		alarm.commitEdit();
+		assertFalse( alarm.isEditing() );
+		assertTrue( recorder.events.isEmpty() );
+		assertEquals( 1, recorder.changeSets.size() );
+
+		ChangeSetEvent evt = recorder.changeSets.get( 0 );
+		assertEquals( alarm, evt.getAlarm() );
+		assertEquals( EnumSet.of( Field.NAME, Field.TIME, Field.ACTIVATED ), evt.getDirtyFields() );
+		assertTrue( evt.isDirty( Field.NAME ) );
+		assertFalse( evt.isDirty( Field.ENABLED_DAYS ) );
+		assertFalse( evt.isOnlyDirty( Field.NAME ) );
+
+		// The first old value of a field is kept.
+		assertEquals( "before", evt.getOldValue( Field.NAME ) );
+		assertEquals( new ExactTime( 7, 30 ), evt.getOldValue( Field.TIME ) );
+		assertEquals( activated, evt.getOldValue( Field.ACTIVATED ) );
+		assertNull( evt.getOldValue( Field.AUDIO_SOURCE ) );
+
+		assertTrue( evt.isMetaChange() );
+		assertTrue( evt.isScheduleChange() );
+		assertFalse( evt.isAudioChange() );
+	}
+
+	@Test
+	public void testOnlyDirty() {
+		Alarm alarm = makeAlarm();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.beginEdit();
+		alarm.setName( "after" );
+		alarm.commitEdit();
+
+		ChangeSetEvent evt = recorder.changeSets.get( 0 );
+		assertTrue( evt.isOnlyDirty( Field.NAME ) );
+		assertTrue( evt.isMetaChange() );
+		assertFalse( evt.isScheduleChange() );
+	}
+
+	@Test
+	public void testNested() {
+		Alarm alarm = makeAlarm();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.beginEdit();
+		alarm.setName( "outer" );
+
+		alarm.beginEdit();
+		alarm.setTime( new ExactTime( 9, 0 ) );
+		alarm.commitEdit();
+
+		// The inner commit publishes nothing.
+		assertTrue( alarm.isEditing() );
+		assertTrue( recorder.changeSets.isEmpty() );
+
+		alarm.commitEdit();
+		assertFalse( alarm.isEditing() );
+		assertEquals( 1, recorder.changeSets.size() );
+		assertEquals( EnumSet.of( Field.NAME, Field.TIME ), recorder.changeSets.get( 0 ).getDirtyFields() );
+
+		// A new session starts with a clean set.
+		alarm.beginEdit();
+		alarm.setName( "again" );
+		alarm.commitEdit();
+		assertEquals( 2, recorder.changeSets.size() );
+		assertEquals( EnumSet.of( Field.NAME ), recorder.changeSets.get( 1 ).getDirtyFields() );
+		assertEquals( "outer", recorder.changeSets.get( 1 ).getOldValue( Field.NAME ) );
+	}
+
+	@Test
+	public void testEmptySession() {
+		Alarm alarm = makeAlarm();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.beginEdit();
+		alarm.setName( "before" );
+		alarm.commitEdit();
+
+		assertTrue( recorder.events.isEmpty() );
+		assertTrue( recorder.changeSets.isEmpty() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testCommitWithoutBegin() {
+		new Alarm().commitEdit();
+	}
+
+	@Test
+	public void testSwapOrderNotDeferred() {
+		Alarm alarm = makeAlarm();
+		Alarm other = makeAlarm();
+		Recorder recorder = subscribe( alarm );
+
+		alarm.beginEdit();
+		alarm.swapOrder( other );
+		assertEquals( 1, recorder.events.size() );
+		assertEquals( Field.ORDER, recorder.events.get( 0 ).getModifiedField() );
+
+		alarm.commitEdit();
+		assertTrue( recorder.changeSets.isEmpty() );
+	}
+}
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Arrays;
 import java.util.Set;
 
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 import se.toxbee.sleepfighter.model.time.AlarmTime;
@@ -86,6 +87,22 @@ public class ExactTimeTest {
 		}
 	}
 
+	/**
+	 * Test method for {@link se.toxbee.sleepfighter.model.time.ExactTime#scheduledTimestamp(long, Object...)}.
+	 */
+	@Test
+	public void testScheduledTimestampMillis() {
+		boolean[] enabledDays = { true, true, true, true, true, true, true };
+		ExactTime t = new ExactTime( 7, 30, 15 );
+
+		// Any now within the same second gives the same time, on a whole second.
+		long now = new DateTime( 2014, 5, 6, 12, 0, 0, 0 ).getMillis();
+		long scheduled = t.scheduledTimestamp( now, enabledDays );
+		assertEquals( 0, scheduled % 1000 );
+		assertEquals( scheduled, t.scheduledTimestamp( now + 999, enabledDays ) );
+		assertEquals( new DateTime( 2014, 5, 7, 7, 30, 15, 0 ).getMillis(), scheduled );
+	}
+
 	/**
 	 * Test method for {@link se.toxbee.sleepfighter.model.time.ExactTime#equals(java.lang.Object)}.
 	 */
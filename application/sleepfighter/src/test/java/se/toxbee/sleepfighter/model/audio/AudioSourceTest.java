@@ -26,4 +26,14 @@ public class AudioSourceTest {
 		assertEquals(AudioSourceType.INTERNET_STREAM, source.getType());
 		assertEquals("uri", source.getUri());
 	}
+
+	@Test
+	public void testDefaultAlarmAlert() {
+		// The android stubs have no DEFAULT_ALARM_ALERT_URI.
+		AudioSource source = AudioSource.defaultAlarmAlert();
+		assertEquals(AudioSourceType.RINGTONE, source.getType());
+		assertNull(source.getUri());
+
+		assertNotSame(source, AudioSource.defaultAlarmAlert());
+	}
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.model.challenge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.Test;
+
+public class ChallengeConfigSetTest {
+	private static class CountingLoader implements ChallengeConfigSet.Loader {
+		private int loads;
+
+		@Override
+		public void load( ChallengeConfigSet set ) {
+			this.loads++;
+			set.resolve( false, Collections.singleton( new ChallengeConfig( ChallengeType.MATH, true ) ) );
+		}
+	}
+
+	@Test
+	public void testLazyLoad() {
+		CountingLoader loader = new CountingLoader();
+		ChallengeConfigSet set = new ChallengeConfigSet( true );
+		set.setLoader( loader );
+		assertFalse( set.isLoaded() );
+		assertEquals( 0, loader.loads );
+
+		// Resolved on first access, once.
+		assertFalse( set.isEnabled() );
+		assertTrue( set.getConfig( ChallengeType.MATH ).isEnabled() );
+		assertTrue( set.isLoaded() );
+		assertEquals( 1, loader.loads );
+
+		// Copies resolve the original.
+		ChallengeConfigSet lazy = new ChallengeConfigSet();
+		lazy.setLoader( loader );
+		ChallengeConfigSet copy = new ChallengeConfigSet( lazy );
+		assertEquals( 2, loader.loads );
+		assertFalse( copy.isEnabled() );
+		assertEquals( 1, copy.getConfigs().size() );
+	}
+
+	@Test
+	public void testFailedLoad() {
+		ChallengeConfigSet set = new ChallengeConfigSet();
+		set.setLoader( new ChallengeConfigSet.Loader() {
+			@Override
+			public void load( ChallengeConfigSet set ) {
+				throw new IllegalStateException();
+			}
+		} );
+
+		try {
+			set.load();
+			fail( "load() should rethrow." );
+		} catch ( IllegalStateException e ) {
+		}
+
+		// Retried on next access.
+		assertFalse( set.isLoaded() );
+	}
+
+	@Test
+	public void testResolveOnce() {
+		ChallengeConfigSet set = new ChallengeConfigSet();
+		set.setLoader( new CountingLoader() );
+		set.resolve( true, Collections.singleton( new ChallengeConfig( ChallengeType.MEMORY, false ) ) );
+		assertTrue( set.isLoaded() );
+
+		// A later resolve, e.g. by a thread that loaded at the same time, is ignored.
+		set.resolve( false, Collections.singleton( new ChallengeConfig( ChallengeType.MATH, true ) ) );
+		assertTrue( set.isEnabled() );
+		assertEquals( EnumSet.of( ChallengeType.MEMORY ), set.getDefinedTypes() );
+	}
+
+	@Test( timeout = 10000 )
+	public void testLoadWithoutLock() throws InterruptedException {
+		final ChallengeConfigSet set = new ChallengeConfigSet();
+
+		// The loader waits for another thread that needs the lock of the set.
+		set.setLoader( new ChallengeConfigSet.Loader() {
+			@Override
+			public void load( ChallengeConfigSet set ) {
+				final ChallengeConfigSet lazy = set;
+				Thread other = new Thread() {
+					@Override
+					public void run() {
+						synchronized ( lazy ) {
+							lazy.isLoaded();
+						}
+					}
+				};
+
+				other.start();
+				try {
+					other.join();
+				} catch ( InterruptedException e ) {
+					throw new IllegalStateException( e );
+				}
+
+				set.resolve( true, Collections.<ChallengeConfig>emptyList() );
+			}
+		} );
+
+		set.load();
+		assertTrue( set.isLoaded() );
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+import se.toxbee.sleepfighter.utils.debug.Debug;
+
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.misc.TransactionManager;
+
+public class InQueryTest {
+	// Small chunks, so a few thousand rows span many of them.
+	private static final int CHUNK = 100;
+	private static final int ROWS = 3000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private JdbcOrmSource source;
+	private PersistenceExceptionDao<ChallengeConfigSet, Integer> dao;
+	private InQuery<ChallengeConfigSet> query;
+
+	@Before
+	public void setUp() throws SQLException {
+		// Logging is android only.
+		Debug.setDebugLevel( Debug.DebugLevel.NONE );
+
+		this.source = new JdbcOrmSource( new File( this.folder.getRoot(), "test.db" ) );
+		this.dao = this.source.dao_i( ChallengeConfigSet.class );
+		this.query = new InQuery<ChallengeConfigSet>( this.dao, ChallengeConfigSet.ID_COLUMN, CHUNK );
+
+		// Ids 1..ROWS.
+		TransactionManager.callInTransaction( this.source.getConnectionSource(), new Callable<Void>() {
+			@Override
+			public Void call() {
+				for ( int i = 0; i < ROWS; ++i ) {
+					dao.create( new ChallengeConfigSet( i % 2 == 0 ) );
+				}
+				return null;
+			}
+		} );
+	}
+
+	@After
+	public void tearDown() {
+		this.source.close();
+	}
+
+	private static Object[] range( int from, int to, int step ) {
+		List<Object> ids = new ArrayList<Object>();
+		for ( int id = from; id < to; id += step ) {
+			ids.add( id );
+		}
+		return ids.toArray();
+	}
+
+	/**
+	 * Streams the rows of ids, checks that they are ordered and returns their ids.
+	 */
+	private List<Integer> stream( Object[] ids ) throws SQLException {
+		List<Integer> found = new ArrayList<Integer>();
+
+		CloseableIterator<ChallengeConfigSet> iter = this.query.iterator( ids );
+		try {
+			while ( iter.hasNext() ) {
+				int id = iter.next().getId();
+				assertTrue( found.isEmpty() || found.get( found.size() - 1 ) < id );
+				found.add( id );
+			}
+		} finally {
+			iter.close();
+		}
+
+		return found;
+	}
+
+	@Test
+	public void testAll() throws SQLException {
+		List<Integer> found = this.stream( range( 1, ROWS + 1, 1 ) );
+		assertEquals( ROWS, found.size() );
+		assertEquals( 1, (int) found.get( 0 ) );
+		assertEquals( ROWS, (int) found.get( ROWS - 1 ) );
+	}
+
+	@Test
+	public void testSparse() throws SQLException {
+		// Every 97th id, and as many that don't exist.
+		Object[] ids = range( 1, 2 * ROWS, 97 );
+		List<Integer> found = this.stream( ids );
+
+		int expected = 0;
+		for ( Object id : ids ) {
+			expected += (Integer) id <= ROWS ? 1 : 0;
+		}
+
+		assertEquals( expected, found.size() );
+		for ( int id : found ) {
+			assertEquals( 1, id % 97 );
+		}
+	}
+
+	@Test
+	public void testChunkSizes() throws SQLException {
+		// Around the padded sizes and the chunk size.
+		int[] counts = { 1, 2, 8, 9, 64, 65, CHUNK - 1, CHUNK, CHUNK + 1, 10 * CHUNK + 1 };
+		for ( int count : counts ) {
+			assertEquals( count, this.stream( range( 1, count + 1, 1 ) ).size() );
+		}
+	}
+
+	@Test
+	public void testSingleAndEmpty() throws SQLException {
+		List<Integer> found = this.stream( new Object[] { 2711 } );
+		assertEquals( 1, found.size() );
+		assertEquals( 2711, (int) found.get( 0 ) );
+
+		assertTrue( this.stream( new Object[] { ROWS + 1 } ).isEmpty() );
+
+		CloseableIterator<ChallengeConfigSet> iter = this.query.iterator( new Object[0] );
+		assertFalse( iter.hasNext() );
+		iter.close();
+	}
+
+	@Test
+	public void testDeleteIds() {
+		// More than the 999 variables SQLite allows per statement.
+		List<Integer> ids = new ArrayList<Integer>();
+		for ( int id = 1; id <= 1500; ++id ) {
+			ids.add( id );
+		}
+
+		assertEquals( 1500, this.dao.deleteIds( ids ) );
+		assertEquals( ROWS - 1500, this.dao.countOf() );
+
+		List<ChallengeConfigSet> rows = this.dao.queryForEq( ChallengeConfigSet.ID_COLUMN, 1501 );
+		assertEquals( 1, rows.size() );
+
+		// And by objects.
+		List<ChallengeConfigSet> sets = new ArrayList<ChallengeConfigSet>();
+		CloseableIterator<ChallengeConfigSet> iter = this.query.iterator( range( 1501, 2501, 1 ) );
+		while ( iter.hasNext() ) {
+			sets.add( iter.next() );
+		}
+		iter.closeQuietly();
+
+		assertEquals( 1000, this.dao.delete( sets ) );
+		assertEquals( ROWS - 2500, this.dao.countOf() );
+	}
+
+	@Test
+	public void testDefaultChunkSize() throws SQLException {
+		this.query = this.source.inQuery( ChallengeConfigSet.class, ChallengeConfigSet.ID_COLUMN );
+		assertEquals( ROWS, this.stream( range( 1, ROWS + 1, 1 ) ).size() );
+	}
+
+	@Test
+	public void testForwardOnly() throws SQLException {
+		CloseableIterator<ChallengeConfigSet> iter = this.query.iterator( range( 1, 3 * CHUNK + 1, 1 ) );
+		try {
+			assertEquals( 1, iter.next().getId() );
+			assertEquals( 1, iter.current().getId() );
+			assertNotNull( iter.getRawResults() );
+
+			// Across chunks.
+			assertEquals( CHUNK + 1, iter.moveRelative( CHUNK ).getId() );
+			assertEquals( CHUNK + 1, iter.moveRelative( 0 ).getId() );
+			assertEquals( CHUNK + 2, iter.next().getId() );
+
+			try {
+				iter.moveRelative( -1 );
+				fail();
+			} catch ( UnsupportedOperationException e ) {
+				assertTrue( e.getMessage().contains( "forward only" ) );
+			}
+
+			try {
+				iter.previous();
+				fail();
+			} catch ( UnsupportedOperationException e ) {
+				assertTrue( e.getMessage().contains( "forward only" ) );
+			}
+
+			// Starts over.
+			assertEquals( 1, iter.first().getId() );
+			assertEquals( 2, iter.next().getId() );
+
+			assertNull( iter.moveRelative( 3 * CHUNK ) );
+			assertFalse( iter.hasNext() );
+		} finally {
+			iter.close();
+		}
+	}
+}
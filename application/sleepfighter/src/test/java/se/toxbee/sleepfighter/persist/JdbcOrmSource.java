@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.Map;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+import se.toxbee.sleepfighter.persist.type.TypeBootstrapper;
+
+/**
+ * JdbcOrmSource is an {@link OrmSource} on a SQLite file via JDBC, to run persistence on the JVM.<br/>
+ * Like the android database, one connection is shared by all threads.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class JdbcOrmSource implements OrmSource {
+	static {
+		TypeBootstrapper.init();
+	}
+
+	private final JdbcConnectionSource cs;
+	private final DaoRegistry registry;
+
+	/**
+	 * Opens the database in file, the tables are created if file does not exist.
+	 *
+	 * @param file the SQLite file.
+	 * @throws SQLException if some SQL error happens.
+	 */
+	public JdbcOrmSource( File file ) throws SQLException {
+		boolean exists = file.exists();
+
+		this.cs = new JdbcConnectionSource( "jdbc:sqlite:" + file.getPath() );
+		this.registry = new DaoRegistry( this.cs );
+
+		if ( !exists ) {
+			this.registry.createTables();
+		}
+	}
+
+	@Override
+	public ConnectionSource getConnectionSource() {
+		return this.cs;
+	}
+
+	@Override
+	public <T, I> PersistenceExceptionDao<T, I> dao( Class<T> clazz ) {
+		return this.registry.dao( clazz );
+	}
+
+	@Override
+	public <T> PersistenceExceptionDao<T, String> dao_s( Class<T> clazz ) {
+		return this.dao( clazz );
+	}
+
+	@Override
+	public <T> PersistenceExceptionDao<T, Integer> dao_i( Class<T> clazz ) {
+		return this.dao( clazz );
+	}
+
+	@Override
+	public <T> InQuery<T> inQuery( Class<T> clazz, String column ) {
+		return this.registry.inQuery( clazz, column );
+	}
+
+	@Override
+	public Map<Class<?>, MeteredObjectCache> objectCaches() {
+		return this.registry.objectCaches();
+	}
+
+	@Override
+	public OrmSource clear( Class<?>[] clazzes ) {
+		try {
+			this.registry.clear( clazzes );
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+
+		return this;
+	}
+
+	@Override
+	public OrmSource clear( Class<?> clazz ) {
+		return this.clear( new Class<?>[] { clazz } );
+	}
+
+	@Override
+	public void rebuild() {
+		try {
+			this.registry.rebuild();
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+
+	/**
+	 * Closes the connection and forgets the DAOs.
+	 */
+	public void close() {
+		this.registry.nukeCache();
+
+		try {
+			this.cs.close();
+		} catch ( SQLException e ) {
+			throw new PersistenceException( e );
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class JoinIndexTest {
+	@Test
+	public void testSeek() {
+		JoinIndex index = new JoinIndex( 1 );
+		index.put( 30, 0 );
+		index.put( 10, 1 );
+		index.put( 20, 2 );
+		index.put( 10, 3 );
+		index.sort();
+
+		assertEquals( 4, index.size() );
+		assertArrayEquals( new Integer[] { 10, 20, 30 }, index.ids() );
+
+		// Rows streamed in id order, several rows may share an id.
+		assertArrayEquals( new int[0], owners( index, 5 ) );
+		assertArrayEquals( new int[] { 1, 3 }, owners( index, 10 ) );
+		assertArrayEquals( new int[] { 1, 3 }, owners( index, 10 ) );
+		assertArrayEquals( new int[0], owners( index, 15 ) );
+		assertArrayEquals( new int[] { 2 }, owners( index, 20 ) );
+		assertArrayEquals( new int[] { 0 }, owners( index, 30 ) );
+		assertArrayEquals( new int[0], owners( index, 40 ) );
+
+		// Rewinds.
+		index.sort();
+		assertArrayEquals( new int[] { 1, 3 }, owners( index, 10 ) );
+	}
+
+	@Test
+	public void testSeekLastOwners() {
+		JoinIndex index = new JoinIndex( 4 );
+		for ( int i = 0; i < 4; ++i ) {
+			index.put( 7, i );
+		}
+		index.sort();
+
+		assertArrayEquals( new Integer[] { 7 }, index.ids() );
+		assertArrayEquals( new int[] { 0, 1, 2, 3 }, owners( index, 7 ) );
+		assertArrayEquals( new int[0], owners( index, 8 ) );
+	}
+
+	/**
+	 * Returns the indices of all owners of id, in position order.
+	 */
+	private static int[] owners( JoinIndex index, int id ) {
+		int[] owners = new int[index.size()];
+		int n = 0;
+		for ( int p = index.seek( id ); p != JoinIndex.NOT_FOUND; p = index.next( p ) ) {
+			owners[n++] = index.index( p );
+		}
+
+		return Arrays.copyOf( owners, n );
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class MeteredObjectCacheTest {
+	@Test
+	public void testLru() {
+		MeteredObjectCache cache = CachePolicy.lru( 2 ).makeCache();
+		cache.registerClass( String.class );
+
+		cache.put( String.class, 1, "a" );
+		cache.put( String.class, 2, "b" );
+
+		// Touch 1 so that 2 is the eldest.
+		assertSame( "a", cache.get( String.class, 1 ) );
+		cache.put( String.class, 3, "c" );
+
+		assertNull( cache.get( String.class, 2 ) );
+		assertSame( "c", cache.get( String.class, 3 ) );
+		assertEquals( 2, cache.size( String.class ) );
+
+		assertEquals( 2, cache.hits() );
+		assertEquals( 1, cache.misses() );
+		assertEquals( 1, cache.evictions() );
+		assertEquals( 2 / 3d, cache.hitRate(), 1e-9 );
+
+		// Removals are not evictions.
+		cache.remove( String.class, 1 );
+		assertEquals( 1, cache.evictions() );
+		assertEquals( 1, cache.size( String.class ) );
+	}
+
+	@Test
+	public void testWeakAndUpdateId() {
+		MeteredObjectCache cache = CachePolicy.WEAK.makeCache();
+		cache.registerClass( Object.class );
+
+		Object data = new Object();
+		cache.put( Object.class, 1, data );
+		assertSame( data, cache.updateId( Object.class, 1, 2 ) );
+		assertNull( cache.get( Object.class, 1 ) );
+		assertSame( data, cache.get( Object.class, 2 ) );
+
+		cache.clearAll();
+		assertEquals( 0, cache.sizeAll() );
+	}
+
+	@Test
+	public void testNone() {
+		assertNull( CachePolicy.NONE.makeCache() );
+	}
+}
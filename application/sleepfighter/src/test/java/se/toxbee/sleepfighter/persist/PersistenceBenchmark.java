@@ -0,0 +1,450 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import se.toxbee.sleepfighter.factory.PresetAlarmFactory;
+import se.toxbee.sleepfighter.model.Alarm;
+import se.toxbee.sleepfighter.model.AlarmList;
+import se.toxbee.sleepfighter.model.AlarmTimestamp;
+import se.toxbee.sleepfighter.model.SnoozeConfig;
+import se.toxbee.sleepfighter.model.audio.AudioConfig;
+import se.toxbee.sleepfighter.model.audio.AudioSource;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
+import se.toxbee.sleepfighter.model.challenge.ChallengeType;
+import se.toxbee.sleepfighter.model.time.ExactTime;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+import se.toxbee.sleepfighter.utils.debug.Debug;
+
+import com.google.common.collect.Maps;
+import com.j256.ormlite.dao.CloseableIterator;
+import com.j256.ormlite.misc.TransactionManager;
+
+/**
+ * PersistenceBenchmark times persistence paths on a SQLite file via JDBC.<br/>
+ * It is not a test, run it by hand with the cases to run as arguments, or none for all:<br/>
+ * java -cp ... se.toxbee.sleepfighter.persist.PersistenceBenchmark INSERT<br/>
+ * Each run of a case gets a fresh database, values are printed as min-max over the runs after a warm-up.<br/>
+ * The number of alarms is set by the system property sf.persist.alarms, rows of plain tables<br/>
+ * by sf.bench.rows and runs by sf.bench.runs. LIST_SCALE loads the list at each of the ascending sizes
+ * in sf.bench.sizes, 1000,10000,50000 by default.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class PersistenceBenchmark {
+	private static final int ALARMS = Integer.getInteger( "sf.persist.alarms", 10000 );
+	private static final int RUNS = Integer.getInteger( "sf.bench.runs", 5 );
+	private static final int ROWS = Integer.getInteger( "sf.bench.rows", 100000 );
+	private static final int PARAMS = 10;
+	private static final int[] SIZES = parseSizes( System.getProperty( "sf.bench.sizes", "1000,10000,50000" ) );
+
+	/**
+	 * The measured cases.
+	 */
+	private enum Case {
+		/**
+		 * Inserting alarm graphs, one create per statement in autocommit vs. addAlarms.
+		 */
+		INSERT {
+			@Override
+			void run( Fixture f, Stats stats ) {
+				List<Alarm> alarms = makeAlarms( ALARMS );
+				long start = System.nanoTime();
+				createEach( f.persister, alarms );
+				stats.time( "autocommit per create", start );
+
+				alarms = makeAlarms( ALARMS );
+				start = System.nanoTime();
+				f.persister.addAlarms( alarms );
+				stats.time( "one transaction", start );
+			}
+		},
+
+		/**
+		 * Reading the alarm list cold, with challenge sets lazy vs. prefetched.
+		 */
+		LIST_LOAD {
+			@Override
+			void run( Fixture f, Stats stats ) throws Exception {
+				f.persister.addAlarms( makeAlarms( ALARMS ) );
+
+				f.reopen();
+				long start = System.nanoTime();
+				f.persister.fetchAlarms();
+				stats.time( "lazy", start );
+				stats.add( "lazy rows", countOf( f, Alarm.class, AudioSource.class, AudioConfig.class, SnoozeConfig.class ) );
+
+				f.reopen();
+				start = System.nanoTime();
+				f.persister.prefetchChallenges( f.persister.fetchAlarms() );
+				stats.time( "eager", start );
+				stats.add( "eager rows", countOf( f, Alarm.class, AudioSource.class, AudioConfig.class, SnoozeConfig.class,
+						ChallengeConfigSet.class, ChallengeConfig.class ) );
+			}
+		},
+
+		/**
+		 * Reading the alarm list cold at growing sizes, time and bytes allocated by the join.
+		 */
+		LIST_SCALE {
+			@Override
+			void run( Fixture f, Stats stats ) throws Exception {
+				int added = 0;
+				for ( int size : SIZES ) {
+					f.persister.addAlarms( makeAlarms( size - added ) );
+					added = size;
+
+					f.reopen();
+					long bytes = allocatedBytes();
+					long start = System.nanoTime();
+					f.persister.fetchAlarms();
+					stats.time( size + " alarms", start );
+					stats.add( size + " alarms (KiB)", (allocatedBytes() - bytes) / 1024.0 );
+				}
+			}
+		},
+
+		/**
+		 * Streaming rows by a large id set through InQuery, then deleting them by ids and by objects.
+		 */
+		IN_QUERY {
+			@Override
+			void run( Fixture f, Stats stats ) throws Exception {
+				final PersistenceExceptionDao<ChallengeConfigSet, Integer> dao = f.source.dao_i( ChallengeConfigSet.class );
+				TransactionManager.callInTransaction( f.source.getConnectionSource(), new Callable<Void>() {
+					@Override
+					public Void call() {
+						for ( int i = 0; i < ROWS; ++i ) {
+							dao.create( new ChallengeConfigSet( i % 2 == 0 ) );
+						}
+						return null;
+					}
+				} );
+
+				Object[] ids = new Object[ROWS];
+				for ( int i = 0; i < ROWS; ++i ) {
+					ids[i] = i + 1;
+				}
+
+				long start = System.nanoTime();
+				List<ChallengeConfigSet> sets = new ArrayList<ChallengeConfigSet>( ROWS );
+				CloseableIterator<ChallengeConfigSet> iter = f.source.inQuery( ChallengeConfigSet.class, ChallengeConfigSet.ID_COLUMN ).iterator( ids );
+				try {
+					while ( iter.hasNext() ) {
+						sets.add( iter.next() );
+					}
+				} finally {
+					iter.close();
+				}
+				stats.time( "InQuery, all ids", start );
+				stats.add( "InQuery rows", sets.size() );
+
+				int half = ROWS / 2;
+				List<Integer> deleted = new ArrayList<Integer>( half );
+				for ( int i = 0; i < half; ++i ) {
+					deleted.add( i + 1 );
+				}
+
+				start = System.nanoTime();
+				dao.deleteIds( deleted );
+				stats.time( "deleteIds, half", start );
+
+				start = System.nanoTime();
+				dao.delete( sets.subList( half, sets.size() ) );
+				stats.time( "delete, other half", start );
+				stats.add( "rows left", dao.countOf() );
+			}
+		},
+
+		/**
+		 * Reading challenge configs cold, with their params packed in one column each.
+		 */
+		PARAMS_LOAD {
+			@Override
+			void run( Fixture f, Stats stats ) throws Exception {
+				final PersistenceExceptionDao<ChallengeConfig, Integer> dao = f.source.dao_i( ChallengeConfig.class );
+				TransactionManager.callInTransaction( f.source.getConnectionSource(), new Callable<Void>() {
+					@Override
+					public Void call() {
+						ChallengeType[] types = ChallengeType.values();
+						for ( int i = 0; i < ALARMS; ++i ) {
+							Map<String, String> params = Maps.newHashMap();
+							for ( int j = 0; j < PARAMS; ++j ) {
+								params.put( "param" + j, Integer.toString( i + j ) );
+							}
+
+							ChallengeConfig config = new ChallengeConfig( types[i % types.length], true, params );
+							config.setFetchedSetId( i / types.length + 1 );
+							dao.create( config );
+						}
+						return null;
+					}
+				} );
+
+				f.reopen();
+				long start = System.nanoTime();
+				int params = 0;
+				CloseableIterator<ChallengeConfig> iter = f.source.dao_i( ChallengeConfig.class ).iterator();
+				try {
+					while ( iter.hasNext() ) {
+						params += iter.next().getParams().size();
+					}
+				} finally {
+					iter.close();
+				}
+				stats.time( "read", start );
+				stats.add( "rows", f.persister.dao( ChallengeConfig.class ).countOf() );
+				stats.add( "params", params );
+			}
+		},
+
+		/**
+		 * Finding the next alarm by scanning the list vs. through the indexed next fire time.
+		 */
+		NEXT_FIRE {
+			@Override
+			void run( Fixture f, Stats stats ) throws Exception {
+				f.persister.addAlarms( makeAlarms( ALARMS ) );
+
+				f.reopen();
+				long now = System.currentTimeMillis();
+				long start = System.nanoTime();
+				AlarmTimestamp scanned = new AlarmList( f.persister.fetchAlarms() ).getEarliestAlarm( now );
+				stats.time( "scan", start );
+
+				f.reopen();
+				start = System.nanoTime();
+				AlarmTimestamp earliest = f.persister.fetchEarliestAlarm();
+				stats.time( "earliest by index", start );
+
+				start = System.nanoTime();
+				List<Alarm> firing = f.persister.fetchAlarmsFiringBetween( now, now + 3600 * 1000L );
+				stats.time( "1h window by index", start );
+				stats.add( "1h window alarms", firing.size() );
+
+				// Alarms fire on whole minutes, a run across a minute may differ.
+				stats.add( "earliest matches scan", scanned.getMillis().equals( earliest.getMillis() ) ? 1 : 0 );
+			}
+		};
+
+		abstract void run( Fixture f, Stats stats ) throws Exception;
+	}
+
+	/**
+	 * A fresh database and persister in a temporary directory.
+	 */
+	private static class Fixture {
+		final File dir;
+		JdbcOrmSource source;
+		PersistenceManager persister;
+
+		Fixture() throws IOException, SQLException {
+			this.dir = Files.createTempDirectory( "sf-bench" ).toFile();
+			this.open();
+		}
+
+		private void open() throws SQLException {
+			this.source = new JdbcOrmSource( new File( this.dir, "bench.db" ) );
+			this.persister = new PersistenceManager( this.source, this.dir );
+		}
+
+		/**
+		 * Opens the database again without the snapshot, so nothing is cached.
+		 */
+		void reopen() throws SQLException {
+			this.persister.release();
+			this.source.close();
+
+			for ( File file : this.dir.listFiles() ) {
+				if ( file.getName().endsWith( ".snapshot" ) ) {
+					file.delete();
+				}
+			}
+			this.open();
+		}
+
+		/**
+		 * Closes the database and deletes the directory.
+		 */
+		void close() {
+			this.persister.release();
+			this.source.close();
+
+			for ( File file : this.dir.listFiles() ) {
+				file.delete();
+			}
+			this.dir.delete();
+		}
+	}
+
+	/**
+	 * Timings and values of a case, by label in insertion order.
+	 */
+	private static class Stats {
+		final Map<String, List<Double>> values = Maps.newLinkedHashMap();
+
+		/**
+		 * Records the millis elapsed since start.
+		 *
+		 * @param label the label.
+		 * @param start the start from {@link System#nanoTime()}.
+		 */
+		void time( String label, long start ) {
+			this.add( label + " (ms)", (System.nanoTime() - start) / 1e6 );
+		}
+
+		/**
+		 * Records a value.
+		 *
+		 * @param label the label, with unit.
+		 * @param value the value.
+		 */
+		void add( String label, double value ) {
+			List<Double> list = this.values.get( label );
+			if ( list == null ) {
+				list = new ArrayList<Double>();
+				this.values.put( label, list );
+			}
+			list.add( value );
+		}
+
+		/**
+		 * Prints each label with the min and max of its values.
+		 */
+		void print() {
+			for ( Map.Entry<String, List<Double>> entry : this.values.entrySet() ) {
+				List<Double> list = entry.getValue();
+				System.out.printf( "  %s: %.1f-%.1f%n", entry.getKey(), Collections.min( list ), Collections.max( list ) );
+			}
+		}
+	}
+
+	public static void main( String[] args ) throws Exception {
+		// Logging is android only.
+		Debug.setDebugLevel( Debug.DebugLevel.NONE );
+
+		List<Case> cases = Arrays.asList( Case.values() );
+		if ( args.length > 0 ) {
+			cases = new ArrayList<Case>();
+			for ( String arg : args ) {
+				cases.add( Case.valueOf( arg ) );
+			}
+		}
+
+		System.out.printf( "%d alarms, %d runs%n", ALARMS, RUNS );
+		for ( Case c : cases ) {
+			// The first run warms up and is not counted.
+			Stats stats = new Stats();
+			for ( int i = -1; i < RUNS; ++i ) {
+				Fixture f = new Fixture();
+				try {
+					c.run( f, i < 0 ? new Stats() : stats );
+				} finally {
+					f.close();
+				}
+			}
+
+			System.out.println( c );
+			stats.print();
+		}
+	}
+
+	/**
+	 * Parses a comma separated list of ascending sizes.
+	 */
+	private static int[] parseSizes( String list ) {
+		String[] parts = list.split( "," );
+		int[] sizes = new int[parts.length];
+		for ( int i = 0; i < parts.length; ++i ) {
+			sizes[i] = Integer.parseInt( parts[i].trim() );
+			if ( i > 0 && sizes[i] < sizes[i - 1] ) {
+				throw new IllegalArgumentException( "sf.bench.sizes must be ascending: " + list );
+			}
+		}
+		return sizes;
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current thread, on a HotSpot JVM.
+	 */
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes( Thread.currentThread().getId() );
+	}
+
+	/**
+	 * Returns the total number of rows in the tables of clazzes.
+	 */
+	private static long countOf( Fixture f, Class<?>... clazzes ) {
+		long count = 0;
+		for ( Class<?> clazz : clazzes ) {
+			count += f.persister.dao( clazz ).countOf();
+		}
+		return count;
+	}
+
+	private static List<Alarm> makeAlarms( int count ) {
+		Random random = new Random( 1 );
+		PresetAlarmFactory factory = new PresetAlarmFactory();
+
+		List<Alarm> alarms = new ArrayList<Alarm>( count );
+		for ( int i = 0; i < count; ++i ) {
+			Alarm alarm = factory.createAlarm();
+			alarm.setTime( new ExactTime( random.nextInt( 24 ), random.nextInt( 60 ), 0 ) );
+			alarm.setActivated( random.nextBoolean() );
+			alarms.add( alarm );
+		}
+
+		return alarms;
+	}
+
+	/**
+	 * Inserts alarm graphs with the same DAO calls as addAlarms,<br/>
+	 * but outside any transaction, so every create commits on its own.
+	 */
+	private static void createEach( PersistenceManager persister, List<Alarm> alarms ) {
+		long now = System.currentTimeMillis();
+		for ( Alarm alarm : alarms ) {
+			persister.dao( AudioSource.class ).create( alarm.getAudioSource() );
+			persister.dao( AudioConfig.class ).create( alarm.getAudioConfig() );
+			persister.dao( SnoozeConfig.class ).create( alarm.getSnoozeConfig() );
+
+			ChallengeConfigSet set = alarm.getChallengeSet();
+			persister.dao( ChallengeConfigSet.class ).create( set );
+			for ( ChallengeConfig challenge : set.getConfigs() ) {
+				challenge.setFetchedSetId( set.getId() );
+				persister.dao( ChallengeConfig.class ).create( challenge );
+			}
+
+			alarm.refreshNextFire( now );
+			persister.dao( Alarm.class ).create( alarm );
+		}
+	}
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.j256.ormlite.stmt.UpdateBuilder;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.toxbee.sleepfighter.factory.PresetAlarmFactory;
+import se.toxbee.sleepfighter.model.Alarm;
+import se.toxbee.sleepfighter.model.AlarmList;
+import se.toxbee.sleepfighter.model.AlarmTimestamp;
+import se.toxbee.sleepfighter.model.audio.AudioConfig;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfig;
+import se.toxbee.sleepfighter.model.challenge.ChallengeConfigSet;
+import se.toxbee.sleepfighter.model.challenge.ChallengeType;
+import se.toxbee.sleepfighter.model.gps.GPSFilterArea;
+import se.toxbee.sleepfighter.model.gps.GPSFilterMode;
+import se.toxbee.sleepfighter.model.time.ExactTime;
+import se.toxbee.sleepfighter.persist.dao.PersistenceExceptionDao;
+import se.toxbee.sleepfighter.utils.debug.Debug;
+import se.toxbee.sleepfighter.utils.message.Message;
+import se.toxbee.sleepfighter.utils.message.MessageBus;
+
+/**
+ * Load tests of {@link PersistenceManager} on a SQLite file via JDBC.<br/>
+ * The number of alarms is set by the system property sf.persist.alarms.
+ */
+public class PersistenceManagerTest {
+	private static final int ALARMS = Integer.getInteger( "sf.persist.alarms", 1000 );
+
+	// More ids than SQLite allows variables in one statement.
+	private static final int MANY = Math.max( ALARMS, 3 * InQuery.CHUNK_SIZE );
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private JdbcOrmSource source;
+	private PersistenceManager persister;
+
+	@Before
+	public void setUp() throws SQLException {
+		// Logging is android only.
+		Debug.setDebugLevel( Debug.DebugLevel.NONE );
+		this.open();
+	}
+
+	@After
+	public void tearDown() {
+		this.close();
+	}
+
+	private void open() throws SQLException {
+		this.source = new JdbcOrmSource( new File( this.folder.getRoot(), "test.db" ) );
+		this.persister = new PersistenceManager( this.source, this.folder.getRoot() );
+	}
+
+	private void close() {
+		this.persister.release();
+		this.source.close();
+	}
+
+	private List<Alarm> makeAlarms( int count ) {
+		Random random = new Random( 1 );
+		PresetAlarmFactory factory = new PresetAlarmFactory();
+
+		List<Alarm> alarms = new ArrayList<Alarm>( count );
+		for ( int i = 0; i < count; ++i ) {
+			Alarm alarm = factory.createAlarm();
+			alarm.setTime( new ExactTime( random.nextInt( 24 ), random.nextInt( 60 ), 0 ) );
+			alarm.setActivated( random.nextBoolean() );
+			alarms.add( alarm );
+		}
+
+		return alarms;
+	}
+
+	@Test
+	public void testAddAndFetch() throws SQLException {
+		List<Alarm> alarms = this.makeAlarms( ALARMS );
+		this.persister.addAlarms( alarms );
+
+		// Cold: a fresh connection, no object cache and no snapshot.
+		this.persister.flush();
+		this.close();
+		this.snapshotFile().delete();
+		this.open();
+
+		// Read from the tables, then from the snapshot written when idle or released.
+		this.assertFetched( alarms, this.persister.fetchAlarms() );
+		this.close();
+		this.open();
+		assertTrue( this.snapshotFile().exists() );
+		this.assertFetched( alarms, this.persister.fetchAlarms() );
+	}
+
+	private File snapshotFile() {
+		return new File( this.folder.getRoot(), "alarms.snapshot" );
+	}
+
+	@Test
+	public void testSnapshotInvalidation() throws SQLException {
+		this.persister.addAlarms( this.makeAlarms( 10 ) );
+		this.close();
+		this.open();
+		assertTrue( this.snapshotFile().exists() );
+
+		// Writes to tables outside the alarm list leave the snapshot be.
+		GPSFilterArea area = new GPSFilterArea( "home", true, GPSFilterMode.INCLUDE );
+		this.persister.setGPSFilterArea( area );
+		area.setName( "work" );
+		this.persister.setGPSFilterArea( area );
+		this.persister.flush();
+		assertTrue( this.snapshotFile().exists() );
+
+		// A write to an alarm invalidates it, it is rewritten once idle, not on the flush.
+		MessageBus<Message> bus = new MessageBus<Message>();
+		bus.subscribe( this.persister );
+
+		Alarm alarm = this.persister.fetchAlarms().get( 3 );
+		alarm.setMessageBus( bus );
+		alarm.setName( "renamed" );
+		this.persister.flush();
+		assertFalse( this.snapshotFile().exists() );
+
+		this.close();
+		this.open();
+		assertTrue( this.snapshotFile().exists() );
+		assertEquals( "renamed", this.persister.fetchAlarms().get( 3 ).getName() );
+	}
+
+	private void assertFetched( List<Alarm> alarms, List<Alarm> fetched ) {
+		assertEquals( alarms.size(), fetched.size() );
+		for ( int i = 0; i < alarms.size(); ++i ) {
+			Alarm expected = alarms.get( i );
+			Alarm actual = fetched.get( i );
+
+			assertEquals( expected.getId(), actual.getId() );
+			assertEquals( expected.getTime(), actual.getTime() );
+			assertEquals( expected.isActivated(), actual.isActivated() );
+			assertEquals( expected.getAudioSource().getUri(), actual.getAudioSource().getUri() );
+			assertEquals( expected.getChallengeSet().getDefinedTypes(), actual.getChallengeSet().getDefinedTypes() );
+		}
+	}
+
+	@Test
+	public void testFetchById() {
+		List<Alarm> alarms = this.makeAlarms( ALARMS );
+		this.persister.addAlarms( alarms );
+
+		Random random = new Random( 2 );
+		for ( int i = 0; i < 200; ++i ) {
+			Alarm expected = alarms.get( random.nextInt( ALARMS ) );
+			Alarm actual = this.persister.fetchAlarmById( expected.getId() );
+
+			assertNotNull( actual );
+			assertEquals( expected.getTime(), actual.getTime() );
+			assertEquals( expected.getAudioConfig().getVolume(), actual.getAudioConfig().getVolume() );
+		}
+
+		assertNull( this.persister.fetchAlarmById( ALARMS + 1 ) );
+	}
+
+	@Test
+	public void testJoinSharedRow() throws SQLException {
+		List<Alarm> alarms = this.makeAlarms( 3 );
+		alarms.get( 0 ).getAudioConfig().setVolume( 42 );
+		this.persister.addAlarms( alarms );
+
+		// Every alarm points at the audio config of the first.
+		PersistenceExceptionDao<Alarm, Integer> dao = this.persister.dao_i( Alarm.class );
+		UpdateBuilder<Alarm, Integer> ub = dao.updateBuilder();
+		ub.updateColumnValue( "audioConfig_id", alarms.get( 0 ).getAudioConfig() );
+		dao.update( ub.prepare() );
+
+		this.persister.flush();
+		this.close();
+		this.snapshotFile().delete();
+		this.open();
+
+		List<Alarm> fetched = this.persister.fetchAlarms();
+		assertEquals( 3, fetched.size() );
+		for ( Alarm alarm : fetched ) {
+			assertEquals( 42, alarm.getAudioConfig().getVolume() );
+		}
+	}
+
+	@Test
+	public void testUpdate() throws SQLException {
+		this.persister.addAlarms( this.makeAlarms( ALARMS ) );
+
+		MessageBus<Message> bus = new MessageBus<Message>();
+		bus.subscribe( this.persister );
+
+		List<Alarm> alarms = this.persister.fetchAlarms();
+		for ( Alarm alarm : alarms ) {
+			alarm.setMessageBus( bus );
+		}
+
+		// Each change is written behind.
+		for ( Alarm alarm : alarms ) {
+			alarm.setName( "alarm " + alarm.getId() );
+		}
+		this.persister.flush();
+
+		// Read back through a fresh connection.
+		this.close();
+		this.open();
+
+		for ( Alarm alarm : this.persister.fetchAlarms() ) {
+			assertEquals( "alarm " + alarm.getId(), alarm.getName() );
+		}
+	}
+
+	@Test
+	public void testUpdateWritesCopy() throws Exception {
+		this.persister.addAlarms( this.makeAlarms( 1 ) );
+
+		MessageBus<Message> bus = new MessageBus<Message>();
+		bus.subscribe( this.persister );
+
+		Alarm alarm = this.persister.fetchAlarms().get( 0 );
+		alarm.setMessageBus( bus );
+
+		// Hold the writer, so the update below is still pending while the alarm changes.
+		final CountDownLatch hold = new CountDownLatch( 1 );
+		this.persister.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					hold.await();
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		} );
+
+		alarm.setName( "published" );
+
+		// A change that is never published must not leak into the pending write.
+		alarm.setMessageBus( null );
+		alarm.setName( "unpublished" );
+
+		hold.countDown();
+		this.persister.flush();
+
+		this.close();
+		this.open();
+		assertEquals( "published", this.persister.fetchAlarms().get( 0 ).getName() );
+	}
+
+	/**
+	 * Returns the number of rows written on the connection so far.
+	 *
+	 * @return the count.
+	 */
+	private long changes() {
+		return this.persister.dao( Alarm.class ).queryRawValue( "SELECT total_changes()" );
+	}
+
+	@Test
+	public void testReplace() throws SQLException {
+		this.persister.addAlarms( this.makeAlarms( 10 ) );
+
+		MessageBus<Message> bus = new MessageBus<Message>();
+		bus.subscribe( this.persister );
+
+		AlarmList list = new AlarmList( this.persister.fetchAlarms() );
+		list.setMessageBus( bus );
+
+		Alarm old = list.get( 3 );
+		Alarm alarm = new Alarm( old );
+		alarm.setMessageBus( null );
+		alarm.setName( "replaced" );
+		alarm.getAudioConfig().setVolume( old.getAudioConfig().getVolume() == 0 ? 1 : 0 );
+
+		// The list publishes an UPDATE, which is written as a diff.
+		long before = this.changes();
+		list.set( 3, alarm );
+		this.persister.flush();
+
+		// Only the alarm row and the audio config row changed.
+		assertEquals( 2, this.changes() - before );
+
+		// The replacing graph took the ids of the replaced one.
+		assertEquals( old.getId(), alarm.getId() );
+		assertEquals( old.getOrder(), alarm.getOrder() );
+		assertEquals( old.getAudioSource().getId(), alarm.getAudioSource().getId() );
+		assertEquals( old.getAudioConfig().getId(), alarm.getAudioConfig().getId() );
+		assertEquals( old.getSnoozeConfig().getId(), alarm.getSnoozeConfig().getId() );
+		assertEquals( old.getChallengeSet().getId(), alarm.getChallengeSet().getId() );
+		for ( ChallengeConfig challenge : alarm.getChallengeSet().getConfigs() ) {
+			assertEquals( old.getChallengeSet().getConfig( challenge.getType() ).getId(), challenge.getId() );
+		}
+
+		// Replacing with an equal graph writes nothing.
+		before = this.changes();
+		list.set( 3, new Alarm( alarm ) );
+		this.persister.flush();
+		assertEquals( 0, this.changes() - before );
+
+		// Read back through a fresh connection, no rows were added.
+		this.close();
+		this.open();
+
+		AlarmList fetched = new AlarmList( this.persister.fetchAlarms() );
+		assertEquals( 10, fetched.size() );
+		assertEquals( 10, this.persister.dao( AudioConfig.class ).countOf() );
+
+		Alarm actual = fetched.getById( old.getId() );
+		assertEquals( "replaced", actual.getName() );
+		assertEquals( alarm.getAudioConfig().getVolume(), actual.getAudioConfig().getVolume() );
+	}
+
+	@Test
+	public void testRemove() throws SQLException {
+		this.persister.addAlarms( this.makeAlarms( MANY ) );
+
+		// Fresh fetch, the challenge sets are lazy.
+		this.close();
+		this.open();
+
+		List<Alarm> alarms = this.persister.fetchAlarms();
+		List<Alarm> removed = alarms.subList( 0, MANY - 10 );
+		for ( Alarm alarm : removed ) {
+			assertFalse( alarm.getChallengeSet().isLoaded() );
+		}
+
+		this.persister.removeAlarms( new ArrayList<Alarm>( removed ) );
+		this.persister.flush();
+
+		// Challenges are deleted by set id, without loading or creating any.
+		for ( Alarm alarm : removed ) {
+			assertFalse( alarm.getChallengeSet().isLoaded() );
+		}
+
+		int remaining = MANY - removed.size();
+		assertEquals( remaining, this.persister.fetchAlarms().size() );
+		assertEquals( remaining, this.persister.dao( ChallengeConfigSet.class ).countOf() );
+		assertEquals( remaining * ChallengeType.values().length, this.persister.dao( ChallengeConfig.class ).countOf() );
+		assertEquals( remaining, this.persister.dao( AudioConfig.class ).countOf() );
+	}
+
+	@Test
+	public void testPrefetchChallenges() throws SQLException {
+		List<Alarm> alarms = this.makeAlarms( 10 );
+		this.persister.addAlarms( alarms );
+		this.close();
+		this.open();
+
+		// Blocking: every set is loaded in one go, without touching any.
+		List<Alarm> fetched = this.persister.fetchAlarms();
+		this.persister.prefetchChallenges( fetched.subList( 0, 5 ) );
+		for ( int i = 0; i < fetched.size(); ++i ) {
+			assertEquals( i < 5, fetched.get( i ).getChallengeSet().isLoaded() );
+		}
+
+		// Behind: loaded on the writer thread once it is done.
+		this.persister.prefetchChallengesBehind( fetched );
+		this.persister.flush();
+		for ( Alarm alarm : fetched ) {
+			assertTrue( alarm.getChallengeSet().isLoaded() );
+		}
+		this.assertFetched( alarms, fetched );
+	}
+
+	@Test( timeout = 30000 )
+	public void testLoadWhileRemoving() throws Exception {
+		this.persister.addAlarms( this.makeAlarms( 10 ) );
+		this.close();
+		this.open();
+
+		final Alarm alarm = this.persister.fetchAlarms().get( 0 );
+
+		// Keep the writer busy until the loading thread waits for it.
+		final CountDownLatch release = new CountDownLatch( 1 );
+		this.persister.writeQueue().execute( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch ( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		} );
+		this.persister.removeAlarm( alarm );
+
+		Thread loader = new Thread() {
+			@Override
+			public void run() {
+				alarm.getChallengeSet().isEnabled();
+			}
+		};
+		loader.start();
+
+		while ( loader.getState() != Thread.State.WAITING && loader.isAlive() ) {
+			Thread.sleep( 1 );
+		}
+		release.countDown();
+
+		// The load finishes after the remove, and the removed set is not repaired.
+		loader.join();
+		this.persister.flush();
+		assertTrue( alarm.getChallengeSet().isLoaded() );
+		assertEquals( 9 * ChallengeType.values().length, this.persister.dao( ChallengeConfig.class ).countOf() );
+	}
+
+	@Test
+	public void testEarliest() {
+		this.persister.addAlarms( this.makeAlarms( ALARMS ) );
+
+		AlarmList list = new AlarmList( this.persister.fetchAlarms() );
+
+		// Alarms fire on whole minutes, compare within one minute.
+		AlarmTimestamp expected;
+		AlarmTimestamp actual;
+		long minute;
+		do {
+			minute = System.currentTimeMillis() / 60000;
+			actual = this.persister.fetchEarliestAlarm();
+			expected = list.getEarliestAlarm( System.currentTimeMillis() );
+		} while ( minute != System.currentTimeMillis() / 60000 );
+
+		assertEquals( expected.getMillis(), actual.getMillis() );
+
+		// Every alarm firing within a day.
+		long now = System.currentTimeMillis();
+		List<Alarm> firing = this.persister.fetchAlarmsFiringBetween( now, now + 24 * 3600 * 1000L );
+		int activated = 0;
+		for ( Alarm alarm : list ) {
+			activated += alarm.isActivated() ? 1 : 0;
+		}
+		assertEquals( activated, firing.size() );
+
+		for ( int i = 1; i < firing.size(); ++i ) {
+			assertTrue( firing.get( i - 1 ).getNextFireMillis() <= firing.get( i ).getNextFireMillis() );
+		}
+	}
+
+	@Test
+	public void testRefreshNextFireKeepsCache() throws SQLException {
+		this.persister.addAlarms( this.makeAlarms( ALARMS ) );
+		this.persister.flush();
+
+		// Make every persisted time stale, the prepared update drops the cache.
+		PersistenceExceptionDao<Alarm, Integer> dao = this.persister.dao_i( Alarm.class );
+		UpdateBuilder<Alarm, Integer> ub = dao.updateBuilder();
+		ub.updateColumnValue( Alarm.NEXT_FIRE_COLUMN, 0L );
+		dao.update( ub.prepare() );
+
+		MeteredObjectCache cache = this.persister.objectCaches().get( Alarm.class );
+		assertEquals( 0, cache.size( Alarm.class ) );
+
+		List<Alarm> stale = dao.queryForAll();
+		assertEquals( ALARMS, cache.size( Alarm.class ) );
+
+		this.persister.refreshNextFire( false );
+
+		// Every row was rewritten one by one, the cached alarms were refreshed in place and kept.
+		assertEquals( ALARMS, cache.size( Alarm.class ) );
+		long misses = cache.misses();
+		for ( Alarm alarm : stale ) {
+			assertSame( alarm, dao.queryForId( alarm.getId() ) );
+		}
+		assertEquals( misses, cache.misses() );
+		assertEquals( 0, dao.queryBuilder().where().eq( Alarm.NEXT_FIRE_COLUMN, 0L ).countOf() );
+	}
+
+	@Test
+	public void testFiringMany() {
+		List<Alarm> alarms = this.makeAlarms( MANY );
+		for ( Alarm alarm : alarms ) {
+			alarm.setActivated( true );
+		}
+		this.persister.addAlarms( alarms );
+
+		// Every alarm fires within a day, their rows are joined IN (...) chunks of ids.
+		long now = System.currentTimeMillis();
+		List<Alarm> firing = this.persister.fetchAlarmsFiringBetween( now, now + 24 * 3600 * 1000L );
+		assertEquals( MANY, firing.size() );
+
+		AlarmList list = new AlarmList( alarms );
+		for ( Alarm actual : firing ) {
+			Alarm expected = list.getById( actual.getId() );
+			assertEquals( expected.getAudioConfig().getId(), actual.getAudioConfig().getId() );
+			assertEquals( expected.getSnoozeConfig().getId(), actual.getSnoozeConfig().getId() );
+			assertEquals( expected.getAudioSource().getUri(), actual.getAudioSource().getUri() );
+		}
+	}
+}
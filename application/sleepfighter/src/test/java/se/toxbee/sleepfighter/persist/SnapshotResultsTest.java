@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+
+import org.junit.Test;
+
+public class SnapshotResultsTest {
+	private static SnapshotResults replay() {
+		SnapshotResults results = new SnapshotResults( null, new String[] { "id", "name" } );
+		results.tags[0] = SnapshotResults.INT;
+		results.values[0] = 7;
+		results.tags[1] = SnapshotResults.STRING;
+		results.values[1] = "seven";
+		return results;
+	}
+
+	@Test
+	public void testCursor() throws SQLException {
+		SnapshotResults results = replay();
+
+		// Before the row, next() moves onto it, and past it.
+		assertTrue( results.next() );
+		assertFalse( results.next() );
+		assertFalse( results.next() );
+		assertTrue( results.previous() );
+		assertFalse( results.previous() );
+
+		assertTrue( results.first() );
+		assertTrue( results.last() );
+		assertFalse( results.moveRelative( 1 ) );
+		assertTrue( results.moveRelative( -1 ) );
+		assertFalse( results.moveRelative( Integer.MIN_VALUE ) );
+		assertTrue( results.moveAbsolute( 0 ) );
+		assertFalse( results.moveAbsolute( 3 ) );
+
+		// Moving leaves the values be.
+		assertEquals( 7, results.getInt( results.findColumn( "ID" ) ) );
+		assertEquals( "seven", results.getString( 1 ) );
+	}
+
+	@Test( expected = SQLException.class )
+	public void testWrongType() throws SQLException {
+		replay().getString( 0 );
+	}
+}
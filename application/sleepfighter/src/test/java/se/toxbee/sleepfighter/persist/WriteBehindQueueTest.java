@@ -0,0 +1,231 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import se.toxbee.sleepfighter.persist.dao.PersistenceException;
+
+public class WriteBehindQueueTest {
+	/**
+	 * Writes append to a log, a failed transaction truncates what it appended.
+	 */
+	private static class Queue extends WriteBehindQueue {
+		private final List<String> log = Collections.synchronizedList( new ArrayList<String>() );
+		private int transactions;
+
+		private Queue() {
+			super( null );
+		}
+
+		@Override
+		protected void transact( Callable<Void> callable ) throws SQLException {
+			this.transactions++;
+
+			int size = this.log.size();
+			try {
+				callable.call();
+			} catch ( Exception e ) {
+				this.log.subList( size, this.log.size() ).clear();
+				throw new SQLException( e );
+			}
+		}
+
+		@Override
+		protected void onFailure( RuntimeException e ) {
+		}
+	}
+
+	private static Runnable append( final List<String> log, final String value ) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				log.add( value );
+			}
+		};
+	}
+
+	private static Runnable await( final CountDownLatch latch ) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await();
+				} catch ( InterruptedException e ) {
+					throw new RuntimeException( e );
+				}
+			}
+		};
+	}
+
+	@Test
+	public void testMergeAndFlush() {
+		Queue queue = new Queue();
+		List<String> log = queue.log;
+
+		// Hold the writer so that the rest is pending.
+		CountDownLatch gate = new CountDownLatch( 1 );
+		queue.execute( await( gate ) );
+		while ( queue.depth() > 0 ) {
+			Thread.yield();
+		}
+
+		Object a = WriteBehindQueue.rowKey( String.class, 1 );
+		Object b = WriteBehindQueue.rowKey( String.class, 2 );
+		queue.update( a, append( log, "a1" ) );
+		queue.update( b, append( log, "b1" ) );
+		queue.execute( append( log, "x" ) );
+		queue.update( a, append( log, "a2" ) );
+
+		assertEquals( 3, queue.depth() );
+		assertEquals( 1, queue.mergedCount() );
+
+		gate.countDown();
+		queue.flush();
+
+		// a is merged into the last write, and moved to the back.
+		assertEquals( Arrays.asList( "b1", "x", "a2" ), log );
+		assertEquals( 0, queue.depth() );
+		assertEquals( 4, queue.writeCount() );
+		assertEquals( 2, queue.flushCount() );
+		assertEquals( 2, queue.transactions );
+
+		queue.close();
+	}
+
+	@Test
+	public void testFailure() {
+		Queue queue = new Queue();
+		List<String> log = queue.log;
+
+		CountDownLatch gate = new CountDownLatch( 1 );
+		queue.execute( await( gate ) );
+		while ( queue.depth() > 0 ) {
+			Thread.yield();
+		}
+
+		queue.execute( append( log, "before" ) );
+		queue.execute( new Runnable() {
+			@Override
+			public void run() {
+				throw new PersistenceException( "bad write" );
+			}
+		} );
+		queue.execute( append( log, "after" ) );
+		gate.countDown();
+
+		try {
+			queue.flush();
+			fail( "flush() should report the failed write." );
+		} catch ( PersistenceException e ) {
+		}
+
+		// The other writes are performed on their own, without the bad one.
+		assertEquals( Arrays.asList( "before", "after" ), log );
+		assertEquals( 1, queue.failureCount() );
+
+		// Nothing pending, the next flush returns at once.
+		queue.flush();
+		queue.close();
+	}
+
+	@Test
+	public void testBatchListener() {
+		final Queue queue = new Queue();
+		final List<String> log = queue.log;
+
+		queue.setBatchListener( new WriteBehindQueue.BatchListener() {
+			@Override
+			public void beforeBatch() {
+				log.add( "before" );
+			}
+
+			@Override
+			public void onIdle() {
+				log.add( "idle" );
+			}
+		} );
+
+		queue.executeAndWait( append( log, "a" ) );
+
+		// onIdle runs after the barrier is released, wait for it.
+		while ( log.size() < 3 ) {
+			Thread.yield();
+		}
+		assertEquals( Arrays.asList( "before", "a", "idle" ), log );
+
+		// A flush with nothing pending is not a batch.
+		queue.flush();
+		assertEquals( 3, log.size() );
+		queue.close();
+	}
+
+	@Test
+	public void testIdleDelay() {
+		final Queue queue = new Queue();
+		final List<String> log = queue.log;
+
+		queue.setIdleDelay( 1, TimeUnit.HOURS );
+		queue.setBatchListener( new WriteBehindQueue.BatchListener() {
+			@Override
+			public void beforeBatch() {
+			}
+
+			@Override
+			public void onIdle() {
+				log.add( "idle" );
+			}
+		} );
+
+		// Batches within the delay are not followed by onIdle.
+		queue.executeAndWait( append( log, "a" ) );
+		queue.executeAndWait( append( log, "b" ) );
+		assertEquals( Arrays.asList( "a", "b" ), log );
+
+		// Closing tells the listener at once, and only once.
+		queue.close();
+		assertEquals( Arrays.asList( "a", "b", "idle" ), log );
+	}
+
+	@Test
+	public void testExecuteAndWait() {
+		Queue queue = new Queue();
+		List<String> log = queue.log;
+
+		queue.execute( append( log, "behind" ) );
+		queue.executeAndWait( append( log, "now" ) );
+		assertEquals( Arrays.asList( "behind", "now" ), log );
+
+		// The writer restarts after close.
+		queue.close();
+		queue.executeAndWait( append( log, "again" ) );
+		assertEquals( Arrays.asList( "behind", "now", "again" ), log );
+		queue.close();
+	}
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.j256.ormlite.field.SqlType;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.StatementBuilder.StatementType;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.support.DatabaseResults;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.toxbee.sleepfighter.model.gps.GPSFilterPolygon;
+import se.toxbee.sleepfighter.persist.JdbcOrmSource;
+import se.toxbee.sleepfighter.persist.OrmHelper;
+import se.toxbee.sleepfighter.persist.migration.MigrationUtil.TableReport;
+import se.toxbee.sleepfighter.persist.type.ChallengeParamsType;
+import se.toxbee.sleepfighter.persist.type.GPSFilterPolygonType;
+import se.toxbee.sleepfighter.persist.type.PreferenceValueType;
+import se.toxbee.sleepfighter.utils.debug.Debug;
+
+/**
+ * Upgrade benchmark of {@link MigrationExecutor}: builds a synthetic DB at each historical<br/>
+ * schema version and times the upgrade to {@link OrmHelper#DATABASE_VERSION}.<br/>
+ * The number of alarms is set by the system property sf.migration.alarms, timings are printed.
+ */
+public class MigrationExecutorTest {
+	private static final int ALARMS = Integer.getInteger( "sf.migration.alarms", 10000 );
+	private static final int AREAS = 10;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Runs body on a {@link MigrationUtil} in a transaction.
+	 */
+	private static abstract class Work implements Callable<Void> {
+		protected MigrationUtil util;
+
+		void run( final ConnectionSource cs ) throws SQLException {
+			TransactionManager.callInTransaction( cs, new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					DatabaseConnection conn = cs.getReadWriteConnection();
+					try {
+						util = new MigrationUtil( conn, cs );
+						return Work.this.call();
+					} finally {
+						cs.releaseConnection( conn );
+					}
+				}
+			} );
+		}
+	}
+
+	@Before
+	public void setUp() {
+		// Logging is android only.
+		Debug.setDebugLevel( Debug.DebugLevel.NONE );
+	}
+
+	@Test
+	public void testUpgrade() throws Exception {
+		File current = this.folder.newFile( "current.db" );
+		current.delete();
+		JdbcOrmSource fresh = new JdbcOrmSource( current );
+		Set<String> alarmColumns = columns( fresh.getConnectionSource(), "alarm" );
+		Set<String> configColumns = columns( fresh.getConnectionSource(), "challenge_config" );
+		fresh.close();
+
+		for ( int version = DefinedMigrations.REBUILD_BELOW_VERSION; version < OrmHelper.DATABASE_VERSION; ++version ) {
+			File file = this.folder.newFile( "v" + version + ".db" );
+			file.delete();
+
+			JdbcOrmSource source = new JdbcOrmSource( file );
+			ConnectionSource cs = source.getConnectionSource();
+			downgrade( cs, version );
+			populate( cs, version );
+
+			DatabaseConnection conn = cs.getReadWriteConnection();
+			long synchronous = conn.queryForLong( "PRAGMA synchronous" );
+
+			MigrationExecutor executor = new MigrationExecutor();
+			boolean success = executor.execute( cs, version, OrmHelper.DATABASE_VERSION );
+			assertTrue( success );
+			assertEquals( synchronous, conn.queryForLong( "PRAGMA synchronous" ) );
+			cs.releaseConnection( conn );
+
+			assertFalse( executor.reports().isEmpty() );
+			for ( TableReport report : executor.reports() ) {
+				assertTrue( report.getRows() >= 0 );
+				assertTrue( report.getNanos() >= 0 );
+				assertTrue( report.toString().contains( report.getTable() ) );
+
+				if ( report.getTable().equals( "alarm" ) ) {
+					assertEquals( ALARMS, report.getRows() );
+					assertEquals( version < 25, report.isRebuilt() );
+				}
+			}
+
+			assertEquals( alarmColumns, columns( cs, "alarm" ) );
+			assertEquals( configColumns, columns( cs, "challenge_config" ) );
+			verify( cs, version );
+
+			source.close();
+		}
+	}
+
+	/**
+	 * Coalesced drops in one rebuild keep the other columns, the indexes and the primary key.
+	 */
+	@Test
+	public void testRebuild() throws Exception {
+		File file = this.folder.newFile( "rebuild.db" );
+		file.delete();
+
+		JdbcOrmSource source = new JdbcOrmSource( file );
+		final ConnectionSource cs = source.getConnectionSource();
+		Set<String> before = columns( cs, "alarm" );
+
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				this.util.table( "alarm" )
+					.dropColumns( new String[] { "name" } )
+					.dropColumns( new String[] { "order", "isFlash" } );
+
+				// Not yet dropped: it can still be read.
+				List<String> cols = this.util.getTableColumns();
+				assertTrue( cols.contains( "name" ) );
+
+				this.util.rebuild();
+				return null;
+			}
+		}.run( cs );
+
+		Set<String> after = columns( cs, "alarm" );
+		before.remove( "name" );
+		before.remove( "order" );
+		before.remove( "isflash" );
+		assertEquals( before, after );
+
+		// The index on a kept column survives, the table keeps its AUTOINCREMENT primary key.
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				DatabaseConnection conn = this.util.getConnection();
+				assertEquals( 1, conn.queryForLong( "SELECT COUNT(*) FROM sqlite_master WHERE name = 'alarm_next_fire_millis_idx'" ) );
+				assertTrue( this.util.table( "alarm" ).fetchCreateStmt().contains( "AUTOINCREMENT" ) );
+				return null;
+			}
+		}.run( cs );
+
+		source.close();
+	}
+
+	/**
+	 * A drop also drops the table constraints naming the column, quoted commas do not split definitions.
+	 */
+	@Test
+	public void testRebuildConstraints() throws Exception {
+		File file = this.folder.newFile( "constraints.db" );
+		file.delete();
+
+		JdbcOrmSource source = new JdbcOrmSource( file );
+		final ConnectionSource cs = source.getConnectionSource();
+
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				this.util.execSQL( "CREATE TABLE `t` (`id` INTEGER PRIMARY KEY , `a` VARCHAR DEFAULT 'x,y' , \"b,c\" INTEGER , `d` INTEGER"
+						+ " , UNIQUE (`a`, `d`) , CONSTRAINT `positive` CHECK (`d` > 0) , FOREIGN KEY (`d`) REFERENCES `other` (`id`)"
+						+ " , UNIQUE (\"b,c\") , CHECK (`a` <> 'd, or not') )" );
+				this.util.execSQL( "INSERT INTO `t` (`id`, \"b,c\", `d`) VALUES (1, 1, 1)" );
+				this.util.execSQL( "INSERT INTO `t` (`id`, \"b,c\", `d`) VALUES (2, 2, 2)" );
+
+				this.util.table( "t" ).dropColumns( new String[] { "d" } ).rebuild();
+				return null;
+			}
+		}.run( cs );
+
+		assertEquals( new HashSet<String>( Arrays.asList( "id", "a", "b,c" ) ), columns( cs, "t" ) );
+
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				String create = this.util.table( "t" ).fetchCreateStmt();
+				assertFalse( create.contains( "`positive`" ) );
+				assertFalse( create.contains( "REFERENCES" ) );
+				assertFalse( create.contains( "UNIQUE (`a`" ) );
+				assertTrue( create.contains( "UNIQUE (\"b,c\")" ) );
+				assertTrue( create.contains( "CHECK (`a` <> 'd, or not')" ) );
+				assertTrue( create.contains( "DEFAULT 'x,y'" ) );
+
+				DatabaseConnection conn = this.util.getConnection();
+				assertEquals( 2, conn.queryForLong( "SELECT COUNT(*) FROM `t` WHERE `a` = 'x,y'" ) );
+				return null;
+			}
+		}.run( cs );
+
+		source.close();
+	}
+
+	@Test
+	public void testSplitDefinitions() {
+		assertEquals( Arrays.asList( "`a` VARCHAR DEFAULT 'x,''y'", "\"b,\"\"c\" INTEGER", "[d,e] INTEGER", "UNIQUE (`a`, [d,e])" ),
+				MigrationUtil.splitDefinitions( "`a` VARCHAR DEFAULT 'x,''y', \"b,\"\"c\" INTEGER , [d,e] INTEGER, UNIQUE (`a`, [d,e])" ) );
+
+		assertEquals( Arrays.asList( "b,\"c", "and", "d" ), MigrationUtil.identifiers( "\"B,\"\"c\" <> 'e' AND [D] > 1e5" ) );
+
+		Set<String> drops = new HashSet<String>( Arrays.asList( "d" ) );
+		assertTrue( MigrationUtil.constraintReferencesAny( "CONSTRAINT `c` FOREIGN KEY ([d]) REFERENCES `x` (`id`)", drops ) );
+		assertFalse( MigrationUtil.constraintReferencesAny( "CONSTRAINT `d` FOREIGN KEY (`id`) REFERENCES `x` (`d`)", drops ) );
+		assertFalse( MigrationUtil.constraintReferencesAny( "CHECK (`a` <> 'd')", drops ) );
+	}
+
+	/**
+	 * Returns the lower case columns of table.
+	 */
+	private static Set<String> columns( ConnectionSource cs, final String table ) throws SQLException {
+		final Set<String> columns = new HashSet<String>();
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				for ( String col : this.util.table( table ).getTableColumns() ) {
+					columns.add( col.toLowerCase() );
+				}
+				return null;
+			}
+		}.run( cs );
+		return columns;
+	}
+
+	/**
+	 * Takes the current schema back to the one of version.
+	 */
+	private static void downgrade( ConnectionSource cs, final int version ) throws SQLException {
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				if ( version < 30 ) {
+					// Only present if an ORM preference store created it, the app no longer has one.
+					this.util.execSQL( "CREATE TABLE `prefs` (`key` VARCHAR , `value` BLOB , PRIMARY KEY (`key`) )" );
+				}
+
+				if ( version < 29 ) {
+					// The index goes with the column.
+					this.util.table( "alarm" ).dropColumns( new String[] { "next_fire_millis" } );
+				}
+
+				if ( version < 28 ) {
+					this.util.table( "challenge_config" ).dropColumns( new String[] { "params" } );
+					this.util.execSQL( "CREATE TABLE `challenge_params` (`id` INTEGER PRIMARY KEY AUTOINCREMENT , `challenge_id` INTEGER , `key` VARCHAR , `value` VARCHAR , UNIQUE (`challenge_id`,`key`) )" );
+					this.util.execSQL( "CREATE INDEX `challenge_params_challenge_id_idx` ON `challenge_params` ( `challenge_id` )" );
+					this.util.execSQL( "CREATE INDEX `challenge_params_key_idx` ON `challenge_params` ( `key` )" );
+				}
+
+				if ( version < 27 ) {
+					this.util.table( "alarm" ).dropColumns( new String[] { "order" } );
+				}
+
+				if ( version < 25 ) {
+					this.util.table( "alarm" )
+						.dropColumns( new String[] { "time", "countdownTime" } )
+						.addColumn( "hour", "INTEGER" )
+						.addColumn( "minute", "INTEGER" )
+						.addColumn( "second", "INTEGER" );
+				}
+
+				this.util.rebuild();
+				return null;
+			}
+		}.run( cs );
+	}
+
+	/**
+	 * Inserts ALARMS alarms and a challenge config for each in the schema of version,<br/>
+	 * and the java serialized {@link #prefs()} and AREAS polygons.
+	 */
+	private static void populate( ConnectionSource cs, final int version ) throws SQLException {
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				String alarmSql = version < 25
+						? "INSERT INTO alarm (name, isActivated, snoozeConfig_id, audioConfig_id, challenges_id, hour, minute, second) VALUES (?, 1, ?, ?, ?, ?, ?, ?)"
+						: "INSERT INTO alarm (name, isActivated, snoozeConfig_id, audioConfig_id, challenges_id, time) VALUES (?, 1, ?, ?, ?, ?)";
+				if ( version >= 29 ) {
+					// Stale, as left by the migration.
+					alarmSql = "INSERT INTO alarm (name, isActivated, snoozeConfig_id, audioConfig_id, challenges_id, time, next_fire_millis) VALUES (?, 1, ?, ?, ?, ?, 0)";
+				}
+				CompiledStatement alarm = this.util.compile( alarmSql, StatementType.UPDATE );
+				CompiledStatement config = this.util.compile( version < 28
+						? "INSERT INTO challenge_config (challenge_set_id, enabled, type) VALUES (?, 1, 'SIMPLE_MATH')"
+						: "INSERT INTO challenge_config (challenge_set_id, enabled, type, params) VALUES (?, 1, 'SIMPLE_MATH', ?)",
+						StatementType.UPDATE );
+				CompiledStatement param = version < 28
+						? this.util.compile( "INSERT INTO challenge_params (challenge_id, key, value) VALUES (?, ?, ?)", StatementType.UPDATE )
+						: null;
+
+				try {
+					for ( int i = 1; i <= ALARMS; ++i ) {
+						alarm.setObject( 0, "alarm " + i, SqlType.STRING );
+						alarm.setObject( 1, i, SqlType.INTEGER );
+						alarm.setObject( 2, i, SqlType.INTEGER );
+						alarm.setObject( 3, i, SqlType.INTEGER );
+						if ( version < 25 ) {
+							alarm.setObject( 4, hour( i ), SqlType.INTEGER );
+							alarm.setObject( 5, minute( i ), SqlType.INTEGER );
+							alarm.setObject( 6, 0, SqlType.INTEGER );
+						} else {
+							alarm.setObject( 4, time( i ), SqlType.INTEGER );
+						}
+						alarm.runUpdate();
+
+						config.setObject( 0, i, SqlType.INTEGER );
+						if ( version < 28 ) {
+							config.runUpdate();
+
+							for ( Map.Entry<String, String> entry : params( i ).entrySet() ) {
+								param.setObject( 0, i, SqlType.INTEGER );
+								param.setObject( 1, entry.getKey(), SqlType.STRING );
+								param.setObject( 2, entry.getValue(), SqlType.STRING );
+								param.runUpdate();
+							}
+						} else {
+							config.setObject( 1, ChallengeParamsType.encode( params( i ) ), SqlType.BYTE_ARRAY );
+							config.runUpdate();
+						}
+					}
+				} finally {
+					alarm.close();
+					config.close();
+					if ( param != null ) {
+						param.close();
+					}
+				}
+
+				if ( version < 30 ) {
+					CompiledStatement pref = this.util.compile( "INSERT INTO prefs (key, value) VALUES (?, ?)", StatementType.UPDATE );
+					try {
+						for ( Map.Entry<String, Serializable> entry : prefs().entrySet() ) {
+							pref.setObject( 0, entry.getKey(), SqlType.STRING );
+							pref.setObject( 1, serialize( entry.getValue() ), SqlType.BYTE_ARRAY );
+							pref.runUpdate();
+						}
+					} finally {
+						pref.close();
+					}
+				}
+
+				if ( version < 31 ) {
+					CompiledStatement area = this.util.compile( "INSERT INTO gpsfilter_area (name, enabled, mode, poly) VALUES (?, 1, 'INCLUDE', ?)", StatementType.UPDATE );
+					try {
+						for ( int i = 0; i < AREAS; ++i ) {
+							area.setObject( 0, "area " + i, SqlType.STRING );
+							area.setObject( 1, serialize( polygon( i ) ), SqlType.BYTE_ARRAY );
+							area.runUpdate();
+						}
+					} finally {
+						area.close();
+					}
+				}
+
+				return null;
+			}
+		}.run( cs );
+	}
+
+	/**
+	 * Checks the data of a DB migrated from version.
+	 */
+	private static void verify( ConnectionSource cs, final int version ) throws SQLException {
+		new Work() {
+			@Override
+			public Void call() throws Exception {
+				DatabaseConnection conn = this.util.getConnection();
+				assertEquals( ALARMS, conn.queryForLong( "SELECT COUNT(*) FROM alarm" ) );
+				assertEquals( ALARMS, conn.queryForLong( "SELECT COUNT(*) FROM alarm WHERE next_fire_millis = 0" ) );
+				assertEquals( 1, conn.queryForLong( "SELECT COUNT(*) FROM sqlite_master WHERE name = 'alarm_next_fire_millis_idx'" ) );
+				assertFalse( conn.isTableExists( "challenge_params" ) );
+
+				CompiledStatement stmt = this.util.compile( "SELECT a.id, a.time, a.`order`, c.params FROM alarm a JOIN challenge_config c ON c.id = a.id ORDER BY a.id", StatementType.SELECT );
+				try {
+					DatabaseResults results = stmt.runQuery( null );
+					int count = 0;
+					while ( results.next() ) {
+						int id = results.getInt( 0 );
+						assertEquals( time( id ), results.getInt( 1 ) );
+						if ( version < 27 ) {
+							assertEquals( id, results.getInt( 2 ) );
+						}
+						assertEquals( params( id ), ChallengeParamsType.decode( results.getBytes( 3 ) ) );
+						++count;
+					}
+					results.close();
+					assertEquals( ALARMS, count );
+				} finally {
+					stmt.close();
+				}
+
+				if ( version < 30 ) {
+					Map<String, Serializable> prefs = new HashMap<String, Serializable>();
+					stmt = this.util.compile( "SELECT key, value FROM prefs", StatementType.SELECT );
+					try {
+						DatabaseResults results = stmt.runQuery( null );
+						while ( results.next() ) {
+							byte[] blob = results.getBytes( 1 );
+							assertFalse( PreferenceValueType.isLegacy( blob ) );
+							prefs.put( results.getString( 0 ), PreferenceValueType.decode( blob ) );
+						}
+						results.close();
+					} finally {
+						stmt.close();
+					}
+					assertEquals( prefs(), prefs );
+				}
+
+				stmt = this.util.compile( "SELECT poly FROM gpsfilter_area ORDER BY id", StatementType.SELECT );
+				try {
+					DatabaseResults results = stmt.runQuery( null );
+					int count = 0;
+					while ( results.next() ) {
+						byte[] blob = results.getBytes( 0 );
+						assertFalse( GPSFilterPolygonType.isLegacy( blob ) );
+
+						GPSFilterPolygon expected = polygon( count++ );
+						GPSFilterPolygon poly = GPSFilterPolygonType.decode( blob );
+						assertEquals( expected.getEdgeCount(), poly.getEdgeCount() );
+						for ( int i = 0; i < poly.getEdgeCount(); ++i ) {
+							assertEquals( expected.getLat( i ), poly.getLat( i ), 1e-7 );
+							assertEquals( expected.getLng( i ), poly.getLng( i ), 1e-7 );
+						}
+					}
+					results.close();
+					assertEquals( AREAS, count );
+				} finally {
+					stmt.close();
+				}
+
+				return null;
+			}
+		}.run( cs );
+	}
+
+	private static int hour( int i ) {
+		return i % 24;
+	}
+
+	private static int minute( int i ) {
+		return i % 60;
+	}
+
+	private static int time( int i ) {
+		return (hour( i ) << 12) | (minute( i ) << 6);
+	}
+
+	private static Map<String, String> params( int i ) {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put( "hard_problems", Boolean.toString( i % 2 == 0 ) );
+		params.put( "custom", "value " + i );
+		return params;
+	}
+
+	private static Map<String, Serializable> prefs() {
+		Map<String, Serializable> prefs = new HashMap<String, Serializable>();
+		prefs.put( "global.alarmsEnabled", true );
+		prefs.put( "alarm.snooze", 9 );
+		prefs.put( "weather.updated", 1413720000000L );
+		prefs.put( "ringer.name", "Sleepfighter" );
+		prefs.put( "volume", 0.75f );
+		prefs.put( "list", new ArrayList<Integer>( Arrays.asList( 1, 2, 3 ) ) );
+		return prefs;
+	}
+
+	private static GPSFilterPolygon polygon( int i ) {
+		double[] latitudes = new double[50];
+		double[] longitudes = new double[50];
+		for ( int j = 0; j < latitudes.length; ++j ) {
+			double angle = 2 * Math.PI * j / latitudes.length;
+			latitudes[j] = 57.7 + i * 0.01 + 0.002 * Math.sin( angle );
+			longitudes[j] = 11.97 + 0.003 * Math.cos( angle );
+		}
+		return new GPSFilterPolygon( latitudes, longitudes );
+	}
+
+	private static byte[] serialize( Serializable value ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( value );
+		out.close();
+		return bytes.toByteArray();
+	}
+}
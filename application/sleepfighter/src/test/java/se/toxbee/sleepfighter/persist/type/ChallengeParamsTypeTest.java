@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ChallengeParamsTypeTest {
+	@Test
+	public void testRoundTrip() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put( "hard_problems", "true" );
+		params.put( "color_confusion", "false" );
+		params.put( "custom", "åäö" );
+		params.put( "empty", "" );
+		params.put( "nothing", null );
+
+		assertEquals( params, ChallengeParamsType.decode( ChallengeParamsType.encode( params ) ) );
+
+		// No params, stored as a non-empty blob.
+		byte[] none = ChallengeParamsType.encode( null );
+		assertTrue( none.length > 0 );
+		assertTrue( ChallengeParamsType.decode( none ).isEmpty() );
+		assertTrue( ChallengeParamsType.decode( null ).isEmpty() );
+	}
+
+	@Test
+	public void testCompact() {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put( "color_confusion", "true" );
+		params.put( "color_saturation_confusion", "false" );
+
+		// Format, count, then a byte for each key and value.
+		assertEquals( 6, ChallengeParamsType.encode( params ).length );
+	}
+
+	@Test
+	public void testDeterministic() {
+		Map<String, String> a = new LinkedHashMap<String, String>();
+		a.put( "b", "1" );
+		a.put( "a", "2" );
+
+		Map<String, String> b = new LinkedHashMap<String, String>();
+		b.put( "a", "2" );
+		b.put( "b", "1" );
+
+		assertArrayEquals( ChallengeParamsType.encode( a ), ChallengeParamsType.encode( b ) );
+	}
+
+	@Test
+	public void testMalformed() {
+		byte[] blob = ChallengeParamsType.encode( new HashMap<String, String>() {{
+			put( "custom", "value" );
+		}} );
+
+		byte[] truncated = new byte[blob.length - 1];
+		System.arraycopy( blob, 0, truncated, 0, truncated.length );
+
+		try {
+			ChallengeParamsType.decode( truncated );
+			fail( "decode() should reject a truncated blob." );
+		} catch ( IllegalArgumentException e ) {
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DataType;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.toxbee.sleepfighter.model.gps.GPSFilterArea;
+import se.toxbee.sleepfighter.model.gps.GPSFilterMode;
+import se.toxbee.sleepfighter.model.gps.GPSFilterPolygon;
+
+/**
+ * Tests {@link GPSFilterPolygonType}, and loading areas against the java serialized polygons before it.<br/>
+ * The number of areas and vertices are set by the system properties sf.areas.count and sf.areas.vertices.
+ */
+public class GPSFilterPolygonTypeTest {
+	private static final int AREAS = Integer.getInteger( "sf.areas.count", 1000 );
+	private static final int VERTICES = Integer.getInteger( "sf.areas.vertices", 500 );
+
+	/**
+	 * The scheme of gpsfilter_area before {@link GPSFilterPolygonType}, to compare with.
+	 */
+	@DatabaseTable(tableName = "gpsfilter_area")
+	public static class LegacyArea {
+		@DatabaseField(generatedId = true)
+		int id;
+
+		@DatabaseField
+		String name;
+
+		@DatabaseField
+		boolean enabled;
+
+		@DatabaseField
+		GPSFilterMode mode;
+
+		@DatabaseField(dataType = DataType.SERIALIZABLE)
+		GPSFilterPolygon poly;
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void tearDown() {
+		DaoManager.clearCache();
+	}
+
+	/**
+	 * A walk around a circle with some noise, as drawn on a map.
+	 */
+	private static GPSFilterPolygon polygon( int seed, int vertices ) {
+		double[] latitudes = new double[vertices];
+		double[] longitudes = new double[vertices];
+		for ( int i = 0; i < vertices; ++i ) {
+			double angle = 2 * Math.PI * i / vertices;
+			double noise = ((seed * 31 + i * 17) % 13) * 1e-6;
+			latitudes[i] = 57.7 + seed * 1e-3 + 0.01 * Math.sin( angle ) + noise;
+			longitudes[i] = 11.97 - seed * 1e-3 + 0.02 * Math.cos( angle ) - noise;
+		}
+		return new GPSFilterPolygon( latitudes, longitudes );
+	}
+
+	private static void assertClose( GPSFilterPolygon expected, GPSFilterPolygon actual ) {
+		assertEquals( expected.getEdgeCount(), actual.getEdgeCount() );
+		for ( int i = 0; i < expected.getEdgeCount(); ++i ) {
+			assertEquals( expected.getLat( i ), actual.getLat( i ), 0.5 / GPSFilterPolygonType.SCALE );
+			assertEquals( expected.getLng( i ), actual.getLng( i ), 0.5 / GPSFilterPolygonType.SCALE );
+		}
+	}
+
+	@Test
+	public void testRoundTrip() {
+		GPSFilterPolygon poly = polygon( 3, 100 );
+		assertClose( poly, GPSFilterPolygonType.decode( GPSFilterPolygonType.encode( poly ) ) );
+
+		// Extremes, and a point set with the default constructor.
+		GPSFilterPolygon extremes = new GPSFilterPolygon( new double[] { -90, 90, 0 }, new double[] { 180, -180, 0 } );
+		assertClose( extremes, GPSFilterPolygonType.decode( GPSFilterPolygonType.encode( extremes ) ) );
+		assertEquals( 0, GPSFilterPolygonType.decode( GPSFilterPolygonType.encode( new GPSFilterPolygon() ) ).getEdgeCount() );
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		GPSFilterPolygon poly = polygon( 0, VERTICES );
+		byte[] blob = GPSFilterPolygonType.encode( poly );
+		byte[] legacy = serialize( poly );
+
+		// Less than the raw doubles, let alone the serialized ones.
+		assertTrue( blob.length < VERTICES * 16 / 2 );
+		assertTrue( blob.length * 4 < legacy.length );
+	}
+
+	@Test
+	public void testLegacy() throws IOException {
+		GPSFilterPolygon poly = polygon( 5, 20 );
+		byte[] legacy = serialize( poly );
+		assertTrue( GPSFilterPolygonType.isLegacy( legacy ) );
+		assertFalse( GPSFilterPolygonType.isLegacy( GPSFilterPolygonType.encode( poly ) ) );
+		assertClose( poly, GPSFilterPolygonType.decode( legacy ) );
+	}
+
+	@Test
+	public void testMalformed() {
+		byte[] blob = GPSFilterPolygonType.encode( polygon( 1, 10 ) );
+		byte[] truncated = Arrays.copyOf( blob, blob.length - 1 );
+		byte[] trailing = Arrays.copyOf( blob, blob.length + 1 );
+		byte[] huge = { 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F };
+
+		for ( byte[] bad : Arrays.asList( truncated, trailing, huge, new byte[0], new byte[] { 9 } ) ) {
+			try {
+				GPSFilterPolygonType.decode( bad );
+				fail( "decode() should reject a malformed blob." );
+			} catch ( IllegalArgumentException e ) {
+			}
+		}
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		File legacyFile = new File( this.folder.getRoot(), "legacy.db" );
+		JdbcConnectionSource legacyCs = new JdbcConnectionSource( "jdbc:sqlite:" + legacyFile.getPath() );
+		TableUtils.createTable( legacyCs, LegacyArea.class );
+		final Dao<LegacyArea, Integer> legacyDao = DaoManager.createDao( legacyCs, LegacyArea.class );
+
+		File file = new File( this.folder.getRoot(), "typed.db" );
+		JdbcConnectionSource cs = new JdbcConnectionSource( "jdbc:sqlite:" + file.getPath() );
+		TableUtils.createTable( cs, GPSFilterArea.class );
+		final Dao<GPSFilterArea, Integer> dao = DaoManager.createDao( cs, GPSFilterArea.class );
+
+		TransactionManager.callInTransaction( legacyCs, new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for ( int i = 0; i < AREAS; ++i ) {
+					LegacyArea area = new LegacyArea();
+					area.name = "area " + i;
+					area.enabled = true;
+					area.mode = GPSFilterMode.INCLUDE;
+					area.poly = polygon( i, VERTICES );
+					legacyDao.create( area );
+				}
+				return null;
+			}
+		} );
+
+		TransactionManager.callInTransaction( cs, new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for ( int i = 0; i < AREAS; ++i ) {
+					dao.create( new GPSFilterArea( "area " + i, true, GPSFilterMode.INCLUDE, polygon( i, VERTICES ) ) );
+				}
+				return null;
+			}
+		} );
+
+		List<LegacyArea> legacy = legacyDao.queryForAll();
+		List<GPSFilterArea> areas = dao.queryForAll();
+
+		legacyCs.close();
+		cs.close();
+
+		assertEquals( AREAS, legacy.size() );
+		assertEquals( AREAS, areas.size() );
+		for ( int i = 0; i < AREAS; i += 100 ) {
+			assertClose( legacy.get( i ).poly, areas.get( i ).getPolygon() );
+		}
+		// The fixed-point vertices take at most half the space of the java serialized ones.
+		assertTrue( file.length() * 2 < legacyFile.length() );
+	}
+
+	private static byte[] serialize( GPSFilterPolygon poly ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( poly );
+		out.close();
+		return bytes.toByteArray();
+	}
+}
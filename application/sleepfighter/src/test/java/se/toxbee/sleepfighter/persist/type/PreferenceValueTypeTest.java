@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.persist.type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PreferenceValueTypeTest {
+	private static final List<Serializable> VALUES = Arrays.<Serializable>asList(
+		true, false,
+		(byte) -3, (short) -300, (short) 300,
+		0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE,
+		0L, Long.MIN_VALUE, Long.MAX_VALUE, 1413720000000L,
+		'a', 'ö', Character.MAX_VALUE,
+		0.75f, Float.NaN, -0.0, Double.MAX_VALUE,
+		"", "Sleepfighter", "åäö",
+		new ArrayList<Integer>( Arrays.asList( 1, 2, 3 ) )
+	);
+
+	@Test
+	public void testRoundTrip() {
+		for ( Serializable value : VALUES ) {
+			byte[] blob = PreferenceValueType.encode( value );
+			assertFalse( PreferenceValueType.isLegacy( blob ) );
+
+			Serializable decoded = PreferenceValueType.decode( blob );
+			assertEquals( value, decoded );
+			assertEquals( value.getClass(), decoded.getClass() );
+		}
+	}
+
+	@Test
+	public void testCompact() {
+		assertEquals( 1, PreferenceValueType.encode( true ).length );
+		assertEquals( 2, PreferenceValueType.encode( 9 ).length );
+		assertEquals( 7, PreferenceValueType.encode( 1413720000000L ).length );
+		assertEquals( 5, PreferenceValueType.encode( 0.75f ).length );
+		assertEquals( 13, PreferenceValueType.encode( "Sleepfighter" ).length );
+	}
+
+	@Test
+	public void testLegacy() throws IOException {
+		for ( Serializable value : VALUES ) {
+			byte[] blob = serialize( value );
+			assertTrue( PreferenceValueType.isLegacy( blob ) );
+			assertEquals( value, PreferenceValueType.decode( blob ) );
+
+			// At most the tag more, for what is still java serialized.
+			assertTrue( PreferenceValueType.encode( value ).length <= blob.length + 1 );
+		}
+	}
+
+	@Test
+	public void testMalformed() {
+		byte[] blob = PreferenceValueType.encode( 1413720000000L );
+		byte[] truncated = Arrays.copyOf( blob, blob.length - 1 );
+		byte[] trailing = Arrays.copyOf( blob, blob.length + 1 );
+
+		for ( byte[] bad : Arrays.asList( truncated, trailing, new byte[0], new byte[] { 0x7F } ) ) {
+			try {
+				PreferenceValueType.decode( bad );
+				fail( "decode() should reject a malformed blob." );
+			} catch ( IllegalArgumentException e ) {
+			}
+		}
+	}
+
+	private static byte[] serialize( Serializable value ) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( bytes );
+		out.writeObject( value );
+		out.close();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.collect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import net.engio.mbassy.listener.Handler;
+
+import org.junit.Test;
+
+import se.toxbee.sleepfighter.utils.collect.ObservableList.Operation;
+import se.toxbee.sleepfighter.utils.message.Message;
+import se.toxbee.sleepfighter.utils.message.MessageBus;
+import se.toxbee.sleepfighter.utils.message.MessageBusHolder;
+
+public class ObservableListTest {
+	public static class Recorder {
+		private final List<ObservableList<?>.Event> events = new ArrayList<ObservableList<?>.Event>();
+
+		@Handler
+		public void handle( ObservableList<?>.Event evt ) {
+			this.events.add( evt );
+		}
+	}
+
+	private ObservableList<Integer> make( Recorder recorder ) {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		bus.subscribe( recorder );
+		return new ObservableList<Integer>( new ArrayList<Integer>( Arrays.asList( 0, 1, 2, 3, 4, 5 ) ), bus );
+	}
+
+	@Test
+	public void testSubListClear() {
+		Recorder recorder = new Recorder();
+		ObservableList<Integer> list = this.make( recorder );
+
+		list.subList( 1, 4 ).clear();
+
+		assertEquals( Arrays.asList( 0, 4, 5 ), list );
+		assertEquals( 1, recorder.events.size() );
+
+		ObservableList<?>.Event evt = recorder.events.get( 0 );
+		assertEquals( Operation.REMOVE, evt.operation() );
+		assertEquals( 1, evt.index() );
+		assertEquals( Arrays.asList( 1, 2, 3 ), evt.elements() );
+	}
+
+	@Test
+	public void testSubListOffsets() {
+		Recorder recorder = new Recorder();
+		ObservableList<Integer> list = this.make( recorder );
+
+		List<Integer> sub = list.subList( 2, 5 );
+		assertEquals( Arrays.asList( 2, 3, 4 ), sub );
+
+		sub.set( 0, 20 );
+		sub.add( 3, 40 );
+		sub.remove( 1 );
+
+		assertEquals( Arrays.asList( 20, 4, 40 ), sub );
+		assertEquals( Arrays.asList( 0, 1, 20, 4, 40, 5 ), list );
+
+		assertEquals( 3, recorder.events.size() );
+		assertEquals( 2, recorder.events.get( 0 ).index() );
+		assertEquals( 5, recorder.events.get( 1 ).index() );
+		assertEquals( 3, recorder.events.get( 2 ).index() );
+
+		// Nested views forward through the outer view.
+		sub.subList( 1, 3 ).clear();
+		assertEquals( Arrays.asList( 20 ), sub );
+		assertEquals( Arrays.asList( 0, 1, 20, 5 ), list );
+		assertEquals( 4, recorder.events.size() );
+	}
+
+	private static class CountingHolder implements MessageBusHolder {
+		private MessageBus<Message> bus;
+		private int injections;
+
+		@Override
+		public void setMessageBus( MessageBus<Message> bus ) {
+			this.bus = bus;
+			this.injections++;
+		}
+
+		@Override
+		public MessageBus<Message> getMessageBus() {
+			return this.bus;
+		}
+	}
+
+	@Test
+	public void testSubListComodification() {
+		ObservableList<Integer> list = this.make( new Recorder() );
+
+		// Changes through the view, or its own views, keep it valid.
+		List<Integer> sub = list.subList( 1, 4 );
+		sub.add( 10 );
+		sub.subList( 0, 1 ).clear();
+		assertEquals( Arrays.asList( 2, 3, 10 ), sub );
+		sub.set( 0, 20 );
+		assertEquals( Arrays.asList( 20, 3, 10 ), sub );
+
+		// A structural change of the list itself invalidates it.
+		list.add( 6 );
+		try {
+			sub.get( 0 );
+			fail( "A stale view must throw." );
+		} catch ( ConcurrentModificationException e ) {
+		}
+
+		// Setting an element is not structural.
+		List<Integer> other = list.subList( 0, 2 );
+		list.set( 0, 100 );
+		assertEquals( Arrays.asList( 100, 20 ), other );
+
+		list.remove( 0 );
+		try {
+			other.size();
+			fail( "A stale view must throw." );
+		} catch ( ConcurrentModificationException e ) {
+		}
+	}
+
+	@Test
+	public void testInjectBusOnce() {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		CountingHolder holder = new CountingHolder();
+
+		ObservableList<CountingHolder> list = new ObservableList<CountingHolder>( new ArrayList<CountingHolder>(), null );
+		list.add( holder );
+		list.setMessageBus( bus );
+		list.setMessageBus( bus );
+		assertEquals( bus, holder.getMessageBus() );
+		assertEquals( 1, holder.injections );
+
+		// Re-adding an element that already holds the bus does not re-inject.
+		list.remove( holder );
+		list.add( holder );
+		assertEquals( 1, holder.injections );
+	}
+}
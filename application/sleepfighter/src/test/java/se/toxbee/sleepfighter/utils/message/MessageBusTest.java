@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.engio.mbassy.listener.Handler;
+
+import org.junit.Test;
+
+public class MessageBusTest {
+	public static class Ping implements Message {
+	}
+
+	public static class LoudPing extends Ping {
+	}
+
+	public static class PingListener {
+		private int received;
+
+		@Handler
+		public void handle( Ping ping ) {
+			this.received++;
+		}
+	}
+
+	@Test
+	public void testSubscriptionCount() {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		PingListener first = new PingListener();
+		PingListener second = new PingListener();
+
+		bus.subscribe( first );
+		bus.subscribePinned( second );
+		assertEquals( 2, bus.subscriptionCount( Ping.class ) );
+		assertEquals( 1, bus.pinnedCount() );
+
+		bus.publish( new Ping() );
+		assertEquals( 1, first.received );
+		assertEquals( 1, second.received );
+		assertTrue( bus.subscriptionCounts().containsKey( Ping.class ) );
+
+		bus.unsubscribe( first );
+		bus.unsubscribe( second );
+		assertEquals( 0, bus.subscriptionCount( Ping.class ) );
+		assertEquals( 0, bus.pinnedCount() );
+		assertEquals( 2, bus.peakSubscriptionCount( Ping.class ) );
+	}
+
+	@Test
+	public void testPeakWithoutPolling() {
+		MessageBus<Message> bus = new MessageBus<Message>();
+
+		// Published before any listener, dispatched to handlers of Ping.
+		bus.publish( new LoudPing() );
+
+		PingListener first = new PingListener();
+		PingListener second = new PingListener();
+		bus.subscribe( first );
+		bus.subscribe( second );
+		bus.unsubscribe( first );
+		bus.unsubscribe( second );
+
+		assertEquals( 2, bus.peakSubscriptionCount( Ping.class ) );
+		assertEquals( 2, bus.peakSubscriptionCount( LoudPing.class ) );
+		assertEquals( 0, bus.subscriptionCount( Ping.class ) );
+	}
+
+	@Test
+	public void testSubscribeSoak() {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		PingListener resident = new PingListener();
+		bus.subscribe( resident );
+
+		// Screens come and go, each subscribing a few listeners, some pinned.
+		int rounds = 10000;
+		for ( int i = 0; i < rounds; ++i ) {
+			PingListener a = new PingListener();
+			PingListener b = new PingListener();
+			PingListener c = new PingListener();
+			bus.subscribe( a );
+			bus.subscribe( b );
+			bus.subscribePinned( c );
+
+			bus.publish( new Ping() );
+			assertEquals( 1, a.received );
+			assertEquals( 1, c.received );
+
+			bus.unsubscribe( a );
+			bus.unsubscribe( b );
+			bus.unsubscribe( c );
+		}
+
+		// Nothing piles up, and the peak is that of one round.
+		assertEquals( rounds, resident.received );
+		assertEquals( 1, bus.subscriptionCount( Ping.class ) );
+		assertEquals( 0, bus.pinnedCount() );
+		assertEquals( 4, bus.peakSubscriptionCount( Ping.class ) );
+	}
+}
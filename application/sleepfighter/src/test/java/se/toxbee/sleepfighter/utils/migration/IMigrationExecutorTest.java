@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.migration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class IMigrationExecutorTest {
+	public static class Version2 extends IMigration.Adapter<List<Integer>> {
+		@Override
+		public void applyMigration( List<Integer> util ) {
+			util.add( this.versionCode() );
+		}
+	}
+
+	public static class Version3 extends Version2 {
+	}
+
+	public static class Version5 extends Version2 {
+	}
+
+	public static class Version7 extends Version2 {
+	}
+
+	public static class NotAMigration {
+	}
+
+	private static class Executor extends IMigrationExecutor<List<Integer>, Version2> {
+		@Override
+		protected Class<Version2> clazz() {
+			return Version2.class;
+		}
+
+		@Override
+		protected Class<?>[] definedMigrations() {
+			return new Class<?>[] { Version7.class, Version2.class, NotAMigration.class, Version5.class, Version3.class };
+		}
+	}
+
+	@Test
+	public void testApply() throws IMigrationException {
+		List<Integer> applied = new ArrayList<Integer>();
+		new Executor().apply( applied, 2, 5 );
+		assertEquals( Arrays.asList( 3, 5 ), applied );
+
+		applied.clear();
+		new Executor().apply( applied, 1, 10 );
+		assertEquals( Arrays.asList( 2, 3, 5, 7 ), applied );
+	}
+
+	@Test
+	public void testTable() {
+		// Resolved once, shared by all executors of the class.
+		assertSame( new Executor().table(), new Executor().table() );
+		assertEquals( Arrays.asList( 2, 3, 5, 7 ), new ArrayList<Integer>( new Executor().table().keySet() ) );
+	}
+
+	@Test
+	public void testNoop() throws IMigrationException {
+		List<Integer> applied = new ArrayList<Integer>();
+		new Executor().apply( applied, 7, 7 );
+		assertTrue( applied.isEmpty() );
+
+		new Executor().apply( applied, 9, 3 );
+		assertTrue( applied.isEmpty() );
+
+		// Startup when there's nothing to migrate constructs no migraters.
+		assertTrue( new Executor().makeMigraters( 7, 7 ).isEmpty() );
+		assertTrue( new Executor().makeMigraters( 7, 10 ).isEmpty() );
+
+		// Resolving constructs fresh migraters from the shared table.
+		Map<Integer, Version2> migraters = new Executor().makeMigraters( 1, 7 );
+		assertEquals( Arrays.asList( 2, 3, 5, 7 ), new ArrayList<Integer>( migraters.keySet() ) );
+		assertNotSame( migraters.get( 2 ), new Executor().makeMigraters( 1, 7 ).get( 2 ) );
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.NavigableMap;
+
+import org.junit.Test;
+
+public class ChildPreferenceNodeTest {
+	private static final int NAMESPACES = 100;
+	private static final int PER_NAMESPACE = 100;
+
+	/**
+	 * Scans all keys for the prefix, as before the sorted memory.
+	 */
+	private static class ScanningPreferenceManager extends MemoryPreferenceManager {
+		@Override
+		public Map<String, ?> _getAll( final String prefix ) {
+			return Maps.filterKeys( this.getAll(), new Predicate<String>() {
+				@Override
+				public boolean apply( String key ) {
+					return key.startsWith( prefix );
+				}
+			} );
+		}
+	}
+
+	private static <M extends MemoryPreferenceManager> M populate( M root ) {
+		for ( int n = 0; n < NAMESPACES; ++n ) {
+			for ( int i = 0; i < PER_NAMESPACE; ++i ) {
+				root.setInt( "ns" + n + ".key" + i, i );
+			}
+		}
+		return root;
+	}
+
+	@Test
+	public void testGetAll() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		root.setInt( "display.a", 1 );
+		root.setInt( "display.b", 2 );
+		root.setInt( "display/c", 3 );
+		root.setInt( "displayx", 4 );
+		root.setInt( "displa", 5 );
+		root.setInt( "weather.a", 6 );
+
+		PreferenceNode display = root.sub( "display" );
+		Map<String, ?> all = display.getAll();
+		assertEquals( 2, all.size() );
+		assertEquals( 1, all.get( "display.a" ) );
+		assertEquals( 2, all.get( "display.b" ) );
+
+		// Live, and a range of the sorted root.
+		root.setInt( "display.c", 7 );
+		assertEquals( 3, display.getAll().size() );
+		assertTrue( root._getAll( "display." ) instanceof NavigableMap );
+	}
+
+	@Test
+	public void testClear() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		root.setInt( "display.a", 1 );
+		root.setInt( "display.sub.b", 2 );
+		root.setInt( "displayx", 3 );
+		root.setInt( "weather.a", 4 );
+
+		root.sub( "display" ).clear();
+		assertFalse( root.contains( "display.a" ) );
+		assertFalse( root.contains( "display.sub.b" ) );
+		assertTrue( root.contains( "displayx" ) );
+		assertTrue( root.contains( "weather.a" ) );
+		assertEquals( 2, root.getAll().size() );
+	}
+
+	@Test
+	public void testRangeVsScan() {
+		MemoryPreferenceManager sorted = populate( new MemoryPreferenceManager() );
+		MemoryPreferenceManager scanning = populate( new ScanningPreferenceManager() );
+
+		// The same nodes, ns1 does not see ns10, but as a range instead of a scan.
+		int size = 0;
+		for ( int n = 0; n < NAMESPACES; ++n ) {
+			Map<String, ?> all = sorted.sub( "ns" + n ).getAll();
+			assertEquals( scanning.sub( "ns" + n ).getAll(), all );
+			size += all.size();
+		}
+
+		assertEquals( NAMESPACES * PER_NAMESPACE, size );
+		assertTrue( sorted._getAll( "ns1." ) instanceof NavigableMap );
+		assertEquals( PER_NAMESPACE, sorted._getAll( "ns1." ).size() );
+	}
+}
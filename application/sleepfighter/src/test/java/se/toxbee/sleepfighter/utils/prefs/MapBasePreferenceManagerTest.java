@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.prefs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class MapBasePreferenceManagerTest {
+	@Test
+	public void testUnchanged() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		root.setInt( "minDistance", 1000 );
+		root.setInt( "minDistance", 1000 );
+		root.set( "minDistance", new Integer( 1000 ) );
+		root.setFloat( "volume", 0.5f );
+		root.setFloat( "volume", 0.5f );
+		root.setString( "name", "sleepfighter" );
+		root.setString( "name", new String( "sleepfighter" ) );
+		root.set( "list", new ArrayList<Integer>( Arrays.asList( 1, 2 ) ) );
+		root.set( "list", new ArrayList<Integer>( Arrays.asList( 1, 2 ) ) );
+
+		// Equal, boxed or not, is no change.
+		assertEquals( 4, root.writeCount() );
+
+		root.setInt( "minDistance", 999 );
+		root.setLong( "minDistance", 999 );
+		root.remove( "volume" );
+		root.remove( "volume" );
+		assertEquals( 7, root.writeCount() );
+	}
+
+	@Test
+	public void testTypes() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		root.setBoolean( "b", true ).setInt( "i", -7 ).setLong( "l", Long.MIN_VALUE )
+			.setFloat( "f", Float.NaN ).setDouble( "d", -0.0 ).setShort( "s", (short) 3 )
+			.setChar( "c", 'x' ).setString( "str", "åäö" );
+
+		assertTrue( root.getBoolean( "b", false ) );
+		assertEquals( -7, root.getInt( "i", 0 ) );
+		assertEquals( Long.MIN_VALUE, root.getLong( "l", 0 ) );
+		assertTrue( Float.isNaN( root.getFloat( "f", 0 ) ) );
+		assertEquals( Double.doubleToLongBits( -0.0 ), Double.doubleToLongBits( root.getDouble( "d", 1 ) ) );
+		assertEquals( 3, root.getShort( "s", (short) 0 ) );
+		assertEquals( 'x', root.getChar( "c", ' ' ) );
+		assertEquals( "åäö", root.getString( "str", null ) );
+		assertEquals( 42, root.getInt( "missing", 42 ) );
+
+		// Boxed through the generic accessors.
+		assertEquals( (Object) Long.MIN_VALUE, root.get( "l", null ) );
+		assertEquals( (Integer) (-7), root.set( "i", 8 ) );
+		assertEquals( (Object) 8, root.getAll().get( "i" ) );
+		assertNull( root.set( "new", 1 ) );
+
+		try {
+			root.getInt( "l", 0 );
+			fail( "getInt() of a long should throw." );
+		} catch ( ClassCastException e ) {
+		}
+	}
+
+	@Test
+	public void testReadsDoNotCopy() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		PreferenceNode locfilter = root.sub( "locfilter" );
+		locfilter.setBoolean( "isEnabled", false ).setInt( "minDistance", 1000 ).setFloat( "scale", 1.5f );
+
+		PreferenceSlot slot = root.memory().get( "locfilter.minDistance" );
+		Map<String, ?> view = root.getAll();
+
+		long sum = read( locfilter, 1000 );
+		assertEquals( 1000L * (0 + 1000 + 1), sum );
+
+		// Reading and rewriting the same value keep the stored slot.
+		locfilter.setInt( "minDistance", 1000 );
+		assertSame( slot, root.memory().get( "locfilter.minDistance" ) );
+
+		// The view of the root is backed by the memory, not a copy of it.
+		assertEquals( 3, view.size() );
+		locfilter.setInt( "minDistance", 500 );
+		assertEquals( 500, view.get( "locfilter.minDistance" ) );
+		assertEquals( 0 + 500 + 1, read( locfilter, 1 ) );
+	}
+
+	private static long read( PreferenceNode node, int n ) {
+		long sum = 0;
+		for ( int i = 0; i < n; ++i ) {
+			sum += node.getBoolean( "isEnabled", true ) ? 1 : 0;
+			sum += node.getInt( "minDistance", 100 );
+			sum += (long) node.getFloat( "scale", 1 );
+		}
+		return sum;
+	}
+}
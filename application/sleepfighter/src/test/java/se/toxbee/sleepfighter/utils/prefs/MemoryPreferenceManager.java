@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.prefs;
+
+import java.io.Serializable;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * MemoryPreferenceManager is a {@link MapBasePreferenceManager} without persistence,<br/>
+ * counting the writes it would have made.
+ *
+ * @version 1.0
+ * @since Oct 19, 2026
+ */
+public class MemoryPreferenceManager extends MapBasePreferenceManager {
+	private final NavigableMap<String, PreferenceSlot> entries = new ConcurrentSkipListMap<String, PreferenceSlot>();
+	private int writes;
+
+	/**
+	 * Returns the number of backend sets and removes so far.
+	 *
+	 * @return the count.
+	 */
+	public int writeCount() {
+		return this.writes;
+	}
+
+	@Override
+	protected NavigableMap<String, PreferenceSlot> memory() {
+		return this.entries;
+	}
+
+	@Override
+	protected <U extends Serializable> void backendSet( String key, U value ) {
+		this.writes++;
+	}
+
+	@Override
+	protected <U extends Serializable> void backendRemove( String key ) {
+		this.writes++;
+	}
+
+	@Override
+	public PreferenceManager _apply( PreferenceNode node, PreferenceEditCallback cb ) {
+		cb.editPreference( node );
+		return this;
+	}
+
+	@Override
+	public boolean _applyForResult( PreferenceNode node, PreferenceEditCallback cb ) {
+		cb.editPreference( node );
+		return true;
+	}
+
+	@Override
+	public boolean isApplying() {
+		return false;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2014 toxbee.se
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package se.toxbee.sleepfighter.utils.prefs;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.engio.mbassy.listener.Handler;
+
+import org.junit.Test;
+
+import se.toxbee.sleepfighter.utils.message.Message;
+import se.toxbee.sleepfighter.utils.message.MessageBus;
+import se.toxbee.sleepfighter.utils.prefs.PreferenceNode.PreferenceChangeListener;
+
+public class PreferenceListenersTest {
+	private static class Recorder implements PreferenceChangeListener {
+		private final List<String> keys = new ArrayList<String>();
+
+		@Override
+		public void preferenceChanged( PreferenceChangeEvent event ) {
+			this.keys.add( event.getKey() );
+		}
+	}
+
+	public static class BusRecorder {
+		private final List<String> keys = new ArrayList<String>();
+
+		@Handler
+		public void handle( PreferenceChangeEvent event ) {
+			this.keys.add( event.getKey() );
+		}
+	}
+
+	private static void edit( PreferenceNode root ) {
+		PreferenceNode locfilter = root.sub( "locfilter" );
+		locfilter.setInt( "minDistance", 100 );
+		locfilter.setInt( "minDistance", 100 );
+		locfilter.setBoolean( "isEnabled", false );
+		locfilter.sub( "area" ).setString( "name", "home" );
+		root.setInt( "locfilterx", 1 );
+		root.sub( "display" ).setBoolean( "is24", true );
+		locfilter.remove( "minDistance" );
+		locfilter.remove( "minDistance" );
+	}
+
+	@Test
+	public void testScopes() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		Recorder key = new Recorder();
+		Recorder node = new Recorder();
+		Recorder all = new Recorder();
+		root.sub( "locfilter" ).addListener( "minDistance", key ).addListener( null, node );
+		root.addListener( null, all );
+
+		edit( root );
+
+		// Changes only, and only in scope.
+		assertEquals( Arrays.asList( "locfilter.minDistance", "locfilter.minDistance" ), key.keys );
+		assertEquals( Arrays.asList( "locfilter.minDistance", "locfilter.isEnabled", "locfilter.area.name", "locfilter.minDistance" ), node.keys );
+		assertEquals( 6, all.keys.size() );
+
+		root.sub( "locfilter" ).removeListener( null, node );
+		root.sub( "locfilter" ).setInt( "minDistance", 5 );
+		assertEquals( 4, node.keys.size() );
+		assertEquals( 3, key.keys.size() );
+	}
+
+	@Test
+	public void testBus() {
+		MessageBus<Message> bus = new MessageBus<Message>();
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		root.setMessageBus( bus );
+
+		Recorder node = new Recorder();
+		root.sub( "display" ).addListener( null, node );
+		BusRecorder subscriber = new BusRecorder();
+		bus.subscribe( subscriber );
+
+		// Another root on the same bus is not heard by the listeners of this one.
+		MemoryPreferenceManager other = new MemoryPreferenceManager();
+		other.setMessageBus( bus );
+		other.sub( "display" ).setBoolean( "is24", true );
+
+		edit( root );
+
+		assertEquals( Arrays.asList( "display.is24" ), node.keys );
+		assertEquals( 7, subscriber.keys.size() );
+
+		root.setMessageBus( null );
+		other.setMessageBus( null );
+		assertEquals( 0, bus.pinnedCount() );
+	}
+
+	@Test
+	public void testCache() {
+		MemoryPreferenceManager root = new MemoryPreferenceManager();
+		final PreferenceNode locfilter = root.sub( "locfilter" );
+		locfilter.setInt( "minDistance", 100 );
+
+		PreferenceCache<Integer> cache = new PreferenceCache<Integer>( locfilter ) {
+			@Override
+			protected Integer load() {
+				return locfilter.getInt( "minDistance", 0 ) * 2;
+			}
+		};
+
+		int sum = 0;
+		for ( int i = 0; i < 1000; ++i ) {
+			sum += cache.get();
+
+			// Every 100th run something changes, in or out of the node.
+			if ( i % 100 == 99 ) {
+				locfilter.setInt( "minDistance", 100 + i );
+				root.setInt( "other", i );
+			}
+		}
+
+		// Each run of 100 reads sees the value loaded after the last change.
+		int expected = 100 * 100 * 2;
+		for ( int i = 99; i < 999; i += 100 ) {
+			expected += 100 * (100 + i) * 2;
+		}
+
+		assertEquals( expected, sum );
+		assertEquals( 10, cache.loadCount() );
+		assertEquals( 990, cache.hitCount() );
+		assertEquals( (100 + 999) * 2, (int) cache.get() );
+	}
+}